@@ -26,8 +26,6 @@ import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.concurrent.*;
-
 import static org.ngrinder.common.util.Preconditions.checkNotNull;
 
 /**
@@ -67,14 +65,10 @@ public class MonitorManagerController extends BaseController {
 	 */
 	@RequestMapping("/state")
 	@RestAPI
-	public HttpEntity<String> getRealTimeMonitorData(@RequestParam final String ip) throws InterruptedException, ExecutionException, TimeoutException {
-		Future<SystemInfo> submit = Executors.newCachedThreadPool().submit(new Callable<SystemInfo>() {
-			@Override
-			public SystemInfo call() {
-				return monitorInfoStore.getSystemInfo(ip, getConfig().getMonitorPort());
-			}
-		});
-		SystemInfo systemInfo = checkNotNull(submit.get(2, TimeUnit.SECONDS), "Monitoring data is not available.");
+	public HttpEntity<String> getRealTimeMonitorData(@RequestParam final String ip) {
+		// It's the data polled in the background, which is shared with the running tests.
+		SystemInfo systemInfo = checkNotNull(monitorInfoStore.getSystemInfo(ip, getConfig().getMonitorPort()),
+				"Monitoring data is not available.");
 		return toJsonHttpEntity(new SystemDataModel(systemInfo, "UNKNOWN"));
 	}
 
@@ -22,6 +22,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 /**
  * Agent Repository. This is necessary due to lack of agent info in the Grinder.
  * We need to keep the additional info for each agent in the DB not memory.
@@ -79,4 +81,15 @@ public interface AgentManagerRepository extends JpaRepository<AgentInfo, Long>,
 	@Modifying
 	@Query("update AgentInfo p set p.state=?2 where p.id = ?1")
 	void updateState(Long id, AgentControllerState state);
+
+	/**
+	 * Update the state of the given agents at once.
+	 *
+	 * @param ids   agent ids
+	 * @param state state
+	 * @since 3.4.1
+	 */
+	@Modifying
+	@Query("update AgentInfo p set p.state=?2 where p.id in ?1")
+	void updateStates(Collection<Long> ids, AgentControllerState state);
 }
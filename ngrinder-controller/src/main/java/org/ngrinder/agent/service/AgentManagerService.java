@@ -16,6 +16,8 @@ package org.ngrinder.agent.service;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
+import net.grinder.console.communication.AgentStatusUpdateListener;
 import net.grinder.engine.controller.AgentControllerIdentityImplementation;
 import net.grinder.message.console.AgentControllerState;
 import org.apache.commons.lang.StringUtils;
@@ -37,6 +39,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.ngrinder.common.util.CollectionUtils.newArrayList;
 import static org.ngrinder.common.util.CollectionUtils.newHashMap;
@@ -69,8 +72,37 @@ public class AgentManagerService extends AbstractAgentManagerService {
 
 	private Runnable runnable;
 
+	/**
+	 * Every this count of the agent state checks, all agents are checked even though they are not reported as
+	 * changed.
+	 */
+	private static final int FULL_CHECK_INTERVAL = 60;
+
+	private final Map<String, AgentControllerIdentityImplementation> changedAgents =
+			new ConcurrentHashMap<String, AgentControllerIdentityImplementation>();
+
+	private long lastLoadCount = -1;
+
+	private int checkCount = 0;
+
 	@PostConstruct
 	public void init() {
+		agentManager.addAgentStatusUpdateListener(new AgentStatusUpdateListener() {
+			@Override
+			public void onAgentConnected(AgentStatus agentStatus) {
+				markChanged(agentStatus.getAgentIdentity());
+			}
+
+			@Override
+			public void onAgentStateChanged(AgentStatus agentStatus) {
+				markChanged(agentStatus.getAgentIdentity());
+			}
+
+			@Override
+			public void onAgentDisconnected(AgentIdentity agentIdentity) {
+				markChanged(agentIdentity);
+			}
+		});
 		runnable = new Runnable() {
 			@Override
 			public void run() {
@@ -85,28 +117,83 @@ public class AgentManagerService extends AbstractAgentManagerService {
 		scheduledTaskService.removeScheduledJob(runnable);
 	}
 
+	/**
+	 * Mark the given agent to be checked in the next agent state check.
+	 *
+	 * @param agentIdentity agent identity
+	 */
+	protected void markChanged(AgentIdentity agentIdentity) {
+		AgentControllerIdentityImplementation agentControllerIdentity = cast(agentIdentity);
+		changedAgents.put(createKey(agentControllerIdentity), agentControllerIdentity);
+	}
+
 	public void checkAgentStatePeriodically() {
 		checkAgentState();
 	}
 
+	/**
+	 * Check the agent states and save the changes into DB.
+	 * <p/>
+	 * Only the agents which are connected, disconnected or changed since the last check are compared. All agents
+	 * are compared when the local agent index is reloaded and every {@link #FULL_CHECK_INTERVAL} checks.
+	 */
 	public void checkAgentState() {
-		List<AgentInfo> newAgents = newArrayList(0);
-		List<AgentInfo> updatedAgents = newArrayList(0);
-		List<AgentInfo> stateUpdatedAgents = newArrayList(0);
-		List<AgentInfo> removedAgents = newArrayList(0);
+		long loadCount = cachedLocalAgentService.getLoadCount();
+		boolean fullCheck = (loadCount != lastLoadCount) || (++checkCount % FULL_CHECK_INTERVAL == 0);
+		Set<String> changedKeys = new HashSet<String>();
+		for (String each : changedAgents.keySet()) {
+			changedAgents.remove(each);
+			changedKeys.add(each);
+		}
+		if (!fullCheck && changedKeys.isEmpty()) {
+			return;
+		}
 
 		Set<AgentIdentity> allAttachedAgents = getAgentManager().getAllAttachedAgents();
-		Map<String, AgentControllerIdentityImplementation> attachedAgentMap = Maps.newHashMap();
+		Map<String, AgentControllerIdentityImplementation> attachedAgentMap = newHashMap(allAttachedAgents);
 		for (AgentIdentity agentIdentity : allAttachedAgents) {
 			AgentControllerIdentityImplementation agentControllerIdentity = cast(agentIdentity);
-			attachedAgentMap.put(createKey(agentControllerIdentity), agentControllerIdentity);
+			String key = createKey(agentControllerIdentity);
+			if (fullCheck || changedKeys.contains(key)) {
+				attachedAgentMap.put(key, agentControllerIdentity);
+			}
 		}
 
+		List<AgentInfo> agentsInDB;
+		if (fullCheck) {
+			agentsInDB = getAllLocal();
+		} else {
+			agentsInDB = newArrayList(changedKeys.size());
+			for (String each : changedKeys) {
+				AgentInfo agentInfo = cachedLocalAgentService.getLocalAgent(each);
+				if (agentInfo != null) {
+					agentsInDB.add(agentInfo);
+				}
+			}
+		}
+		checkAgentState(agentsInDB, attachedAgentMap);
+		lastLoadCount = loadCount;
+	}
+
+	/**
+	 * Compare the given agents in DB with the attached agents and save the changes.
+	 *
+	 * @param agentsInDB       agents in DB to be checked
+	 * @param attachedAgentMap attached agents to be checked, keyed by {@link #createKey(AgentInfo)}. The agents
+	 *                         which are not in DB are saved as new agents.
+	 */
+	protected void checkAgentState(List<AgentInfo> agentsInDB,
+	                               Map<String, AgentControllerIdentityImplementation> attachedAgentMap) {
+		List<AgentInfo> newAgents = newArrayList(0);
+		List<AgentInfo> updatedAgents = newArrayList(0);
+		List<AgentInfo> stateUpdatedAgents = newArrayList(0);
+		List<AgentInfo> removedAgents = newArrayList(0);
+
 		// If region is not specified retrieved all
 		Map<String, AgentInfo> agentInDBMap = newHashMap();
 		// step1. check all agents in DB, whether they are attached to
 		// controller.
-		for (AgentInfo each : getAllLocal()) {
+		for (AgentInfo each : agentsInDB) {
 			final String agentKey = createKey(each);
 			if (!agentInDBMap.containsKey(agentKey)) {
 				agentInDBMap.put(agentKey, each);
@@ -121,8 +208,10 @@ public class AgentManagerService extends AbstractAgentManagerService {
 			AgentControllerIdentityImplementation agentIdentity = attachedAgentMap.remove(agentKey);
 			if (agentIdentity == null) {
 				// this agent is not attached to controller
-				agentInfo.setState(AgentControllerState.INACTIVE);
-				stateUpdatedAgents.add(agentInfo);
+				if (agentInfo.getState() != AgentControllerState.INACTIVE) {
+					agentInfo.setState(AgentControllerState.INACTIVE);
+					stateUpdatedAgents.add(agentInfo);
+				}
 			} else if (!hasSameInfo(agentInfo, agentIdentity)) {
 				agentInfo.setRegion(agentIdentity.getRegion());
 				agentInfo.setPort(agentManager.getAgentConnectingPort(agentIdentity));
@@ -141,9 +230,6 @@ public class AgentManagerService extends AbstractAgentManagerService {
 			newAgents.add(agentInfo);
 		}
 		cachedLocalAgentService.updateAgents(newAgents, updatedAgents, stateUpdatedAgents, removedAgents);
-		if (!newAgents.isEmpty() || !removedAgents.isEmpty()) {
-			expireLocalCache();
-		}
 	}
 
 	public String extractRegionFromAgentRegion(String agentRegion) {
@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.agent.service;
+
+import net.grinder.engine.communication.AgentUpdateGrinderMessage;
+import org.ngrinder.common.constant.ControllerConstants;
+import org.ngrinder.infra.config.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+
+/**
+ * Agent package distribution service for the agent self update.
+ * <p/>
+ * The agent package is built once, memory mapped and its chunk checksums are calculated in advance. Then the chunks
+ * are served to the updating agents concurrently.
+ *
+ * @since 3.4.1
+ */
+@Service
+public class AgentPackageDistributionService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AgentPackageDistributionService.class);
+
+	@Autowired
+	private AgentPackageService agentPackageService;
+
+	@Autowired
+	private Config config;
+
+	private volatile MappedAgentPackage mappedAgentPackage;
+
+	/**
+	 * Get the agent package chunk which starts from the given offset.
+	 *
+	 * @param version agent version
+	 * @param offset  offset
+	 * @return {@link AgentUpdateGrinderMessage} containing the chunk. null message if an error occurs.
+	 */
+	public AgentUpdateGrinderMessage getAgentPackageChunk(String version, int offset) {
+		try {
+			return getMappedAgentPackage(getUpdateChunkSize()).getChunk(version, offset);
+		} catch (Exception e) {
+			LOGGER.error("Error while reading agent package, its offset is {} and details {}:", offset, e);
+		}
+		return AgentUpdateGrinderMessage.getNullAgentUpdateGrinderMessage(version);
+	}
+
+	MappedAgentPackage getMappedAgentPackage(int chunkSize) throws IOException {
+		MappedAgentPackage agentPackage = mappedAgentPackage;
+		if (agentPackage == null || !agentPackage.isValid(chunkSize)) {
+			synchronized (this) {
+				agentPackage = mappedAgentPackage;
+				if (agentPackage == null || !agentPackage.isValid(chunkSize)) {
+					agentPackage = new MappedAgentPackage(agentPackageService.createAgentPackage(), chunkSize);
+					mappedAgentPackage = agentPackage;
+				}
+			}
+		}
+		return agentPackage;
+	}
+
+	private int getUpdateChunkSize() {
+		return config.getControllerProperties().getPropertyInt(ControllerConstants.PROP_CONTROLLER_UPDATE_CHUNK_SIZE);
+	}
+}
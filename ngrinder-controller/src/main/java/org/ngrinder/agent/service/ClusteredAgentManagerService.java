@@ -125,26 +125,21 @@ public class ClusteredAgentManagerService extends AgentManagerService {
 	}
 
 	/**
-	 * Run a scheduled task to check the agent statuses.
+	 * Check the agent statuses considering the region.
 	 *
 	 * @since 3.1
 	 */
 	@Override
-	public void checkAgentState() {
+	protected void checkAgentState(List<AgentInfo> agentsInDB,
+	                               Map<String, AgentControllerIdentityImplementation> attachedAgentMap) {
 		List<AgentInfo> newAgents = newArrayList(0);
 		List<AgentInfo> updatedAgents = newArrayList(0);
 		List<AgentInfo> stateUpdatedAgents = newArrayList(0);
 
-		Set<AgentIdentity> allAttachedAgents = getAgentManager().getAllAttachedAgents();
-		Map<String, AgentControllerIdentityImplementation> attachedAgentMap = newHashMap(allAttachedAgents);
-		for (AgentIdentity agentIdentity : allAttachedAgents) {
-			AgentControllerIdentityImplementation existingAgent = cast(agentIdentity);
-			attachedAgentMap.put(createKey(existingAgent), existingAgent);
-		}
 		Map<String, AgentInfo> agentsInDBMap = Maps.newHashMap();
 		// step1. check all agents in DB, whether they are attached to
 		// controller.
-		for (AgentInfo eachAgentInDB : getAllLocal()) {
+		for (AgentInfo eachAgentInDB : agentsInDB) {
 			String keyOfAgentInDB = createKey(eachAgentInDB);
 			agentsInDBMap.put(keyOfAgentInDB, eachAgentInDB);
 			AgentControllerIdentityImplementation agentIdentity = attachedAgentMap.remove(keyOfAgentInDB);
@@ -13,6 +13,7 @@
  */
 package org.ngrinder.agent.service;
 
+import net.grinder.message.console.AgentControllerState;
 import org.apache.commons.collections.CollectionUtils;
 import org.ngrinder.agent.repository.AgentManagerRepository;
 import org.ngrinder.infra.config.Config;
@@ -20,19 +21,40 @@ import org.ngrinder.model.AgentInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.ngrinder.agent.repository.AgentManagerSpecification.startWithRegion;
+import static org.ngrinder.common.util.CollectionUtils.newArrayList;
+import static org.ngrinder.common.util.CollectionUtils.newHashMap;
 
+/**
+ * In memory index of the agents which belong to this controller.
+ * <p/>
+ * The index is loaded from DB only when it's expired. The agent state check keeps it up to date by
+ * {@link #updateAgents(List, List, List, List)}, so the periodic check doesn't scan the agent table.
+ */
 @Component
 public class LocalAgentService {
 
+	/**
+	 * Max count of ids in one state update query.
+	 */
+	private static final int STATE_UPDATE_BATCH_SIZE = 500;
+
+	/**
+	 * The index is reloaded from DB after this time even if it's not expired explicitly.
+	 */
+	private static final long INDEX_TIME_TO_LIVE = 3600 * 1000;
+
 	@Autowired
 	private AgentManagerRepository agentManagerRepository;
 
@@ -44,15 +66,65 @@ public class LocalAgentService {
 	private boolean clustered;
 	private String region;
 
+	private final Object indexLock = new Object();
+
+	private volatile AgentIndex agentIndex;
+
+	private volatile long loadCount = 0;
+
 	@PostConstruct
 	public void init() {
 		clustered = config.isClustered();
 		region = config.getRegion();
 	}
 
-	@Cacheable("local_agents")
+	/**
+	 * Get all agents which belong to this controller.
+	 *
+	 * @return agent list copy
+	 */
 	public List<AgentInfo> getLocalAgents() {
-		LOGGER.debug("Local Cache is Updated.");
+		return new ArrayList<AgentInfo>(getAgentIndex().agents);
+	}
+
+	/**
+	 * Get the agent which has the given key.
+	 *
+	 * @param key agent key which consists of ip and name
+	 * @return found agent. null if not exists.
+	 */
+	public AgentInfo getLocalAgent(String key) {
+		return getAgentIndex().agentMap.get(key);
+	}
+
+	/**
+	 * Get how many times the index is loaded from DB. The caller can check if the index is reloaded
+	 * since it's last seen.
+	 *
+	 * @return load count
+	 */
+	public long getLoadCount() {
+		getAgentIndex();
+		return loadCount;
+	}
+
+	private AgentIndex getAgentIndex() {
+		AgentIndex index = agentIndex;
+		if (index == null || index.isExpired()) {
+			synchronized (indexLock) {
+				index = agentIndex;
+				if (index == null || index.isExpired()) {
+					LOGGER.debug("Local Cache is Updated.");
+					index = new AgentIndex(findAgents(), System.currentTimeMillis());
+					agentIndex = index;
+					loadCount++;
+				}
+			}
+		}
+		return index;
+	}
+
+	private List<AgentInfo> findAgents() {
 		if (clustered) {
 			return agentManagerRepository.findAll(startWithRegion(region));
 		} else {
@@ -60,25 +132,56 @@ public class LocalAgentService {
 		}
 	}
 
-
 	@Transactional
 	public void updateAgents(List<AgentInfo> newAgents,
 							 List<AgentInfo> updatedAgents,
 							 List<AgentInfo> stateUpdatedAgents,
 							 List<AgentInfo> removedAgents) {
-		if (CollectionUtils.isNotEmpty(newAgents)) {
-			agentManagerRepository.save(newAgents);
+		try {
+			if (CollectionUtils.isNotEmpty(newAgents)) {
+				agentManagerRepository.save(newAgents);
+			}
+			if (CollectionUtils.isNotEmpty(updatedAgents)) {
+				agentManagerRepository.save(updatedAgents);
+			}
+			if (CollectionUtils.isNotEmpty(stateUpdatedAgents)) {
+				updateStates(stateUpdatedAgents);
+			}
+			if (CollectionUtils.isNotEmpty(removedAgents)) {
+				agentManagerRepository.delete(removedAgents);
+			}
+			agentManagerRepository.flush();
+		} catch (RuntimeException e) {
+			expireCache();
+			throw e;
 		}
-		if (CollectionUtils.isNotEmpty(updatedAgents)) {
-			agentManagerRepository.save(updatedAgents);
+		if (CollectionUtils.isNotEmpty(newAgents) || CollectionUtils.isNotEmpty(removedAgents)) {
+			synchronized (indexLock) {
+				AgentIndex index = agentIndex;
+				if (index != null) {
+					agentIndex = index.apply(newAgents, removedAgents);
+				}
+			}
 		}
+	}
+
+	private void updateStates(List<AgentInfo> stateUpdatedAgents) {
+		Map<AgentControllerState, List<Long>> idsByState = newHashMap();
 		for (AgentInfo each : stateUpdatedAgents) {
-			agentManagerRepository.updateState(each.getId(), each.getState());
+			List<Long> ids = idsByState.get(each.getState());
+			if (ids == null) {
+				ids = newArrayList();
+				idsByState.put(each.getState(), ids);
+			}
+			ids.add(each.getId());
 		}
-		if (CollectionUtils.isNotEmpty(removedAgents)) {
-			agentManagerRepository.delete(removedAgents);
+		for (Map.Entry<AgentControllerState, List<Long>> each : idsByState.entrySet()) {
+			List<Long> ids = each.getValue();
+			for (int i = 0; i < ids.size(); i += STATE_UPDATE_BATCH_SIZE) {
+				agentManagerRepository.updateStates(ids.subList(i, Math.min(ids.size(), i + STATE_UPDATE_BATCH_SIZE)),
+						each.getKey());
+			}
 		}
-		agentManagerRepository.flush();
 	}
 
 	@Transactional
@@ -86,8 +189,61 @@ public class LocalAgentService {
 		runnable.run();
 	}
 
-	@CacheEvict("local_agents")
+	/**
+	 * Expire the index so that it's reloaded from DB on the next access.
+	 */
 	public void expireCache() {
+		synchronized (indexLock) {
+			agentIndex = null;
+		}
+	}
+
+	static String createKey(AgentInfo agentInfo) {
+		return agentInfo.getIp() + "_" + agentInfo.getName();
+	}
+
+	/**
+	 * Immutable snapshot of the agent list and the key map. It's replaced as a whole when the agents are
+	 * added or removed.
+	 */
+	private static class AgentIndex {
+		private final List<AgentInfo> agents;
+		private final Map<String, AgentInfo> agentMap;
+		private final long loadedTime;
+
+		AgentIndex(List<AgentInfo> agents, long loadedTime) {
+			this.loadedTime = loadedTime;
+			this.agents = Collections.unmodifiableList(agents);
+			Map<String, AgentInfo> agentMap = newHashMap(agents);
+			for (AgentInfo each : agents) {
+				String key = createKey(each);
+				if (!agentMap.containsKey(key)) {
+					agentMap.put(key, each);
+				}
+			}
+			this.agentMap = agentMap;
+		}
 
+		AgentIndex apply(List<AgentInfo> newAgents, List<AgentInfo> removedAgents) {
+			// AgentInfo#equals only compares ip. Compare the identity not to remove the other agents in the same host.
+			Set<AgentInfo> removed = Collections.newSetFromMap(new IdentityHashMap<AgentInfo, Boolean>());
+			if (removedAgents != null) {
+				removed.addAll(removedAgents);
+			}
+			List<AgentInfo> updated = new ArrayList<AgentInfo>(agents.size());
+			for (AgentInfo each : agents) {
+				if (!removed.contains(each)) {
+					updated.add(each);
+				}
+			}
+			if (newAgents != null) {
+				updated.addAll(newAgents);
+			}
+			return new AgentIndex(updated, loadedTime);
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() - loadedTime > INDEX_TIME_TO_LIVE;
+		}
 	}
 }
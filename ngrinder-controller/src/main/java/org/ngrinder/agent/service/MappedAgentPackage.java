@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.agent.service;
+
+import net.grinder.engine.communication.AgentUpdateGrinderMessage;
+import org.apache.commons.io.IOUtils;
+import org.ngrinder.common.util.CRC32ChecksumUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Agent package which is memory mapped and split into the chunks whose checksums are calculated in advance.
+ * <p/>
+ * It's immutable after the construction, so the chunks can be read by many threads at once.
+ *
+ * @since 3.4.1
+ */
+class MappedAgentPackage {
+	private final File file;
+	private final long lastModified;
+	private final int size;
+	private final int chunkSize;
+	private final MappedByteBuffer buffer;
+	private final long[] checksums;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file      agent package file
+	 * @param chunkSize chunk size
+	 * @throws IOException occurs when the file can not be mapped
+	 */
+	MappedAgentPackage(File file, int chunkSize) throws IOException {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size should be positive. but " + chunkSize + " is given.");
+		}
+		this.file = file;
+		this.lastModified = file.lastModified();
+		this.chunkSize = chunkSize;
+		RandomAccessFile randomAccessFile = null;
+		try {
+			randomAccessFile = new RandomAccessFile(file, "r");
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too big to be distributed.");
+			}
+			this.size = (int) channel.size();
+			// The mapping is kept valid even after the channel is closed.
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} finally {
+			IOUtils.closeQuietly(randomAccessFile);
+		}
+		this.checksums = new long[(size + chunkSize - 1) / chunkSize];
+		for (int i = 0; i < checksums.length; i++) {
+			checksums[i] = CRC32ChecksumUtils.getCRC32Checksum(read(i * chunkSize));
+		}
+	}
+
+	/**
+	 * Check if this is mapped from the current package file with the given chunk size.
+	 *
+	 * @param chunkSize chunk size
+	 * @return true if it can be used
+	 */
+	boolean isValid(int chunkSize) {
+		return this.chunkSize == chunkSize && file.exists() && file.lastModified() == lastModified
+				&& file.length() == size;
+	}
+
+	private byte[] read(int offset) {
+		byte[] bytes = new byte[Math.min(chunkSize, size - offset)];
+		// Each reader uses its own position.
+		ByteBuffer reader = buffer.duplicate();
+		reader.position(offset);
+		reader.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Get the chunk which starts from the given offset.
+	 *
+	 * @param version agent version
+	 * @param offset  offset
+	 * @return {@link AgentUpdateGrinderMessage} containing the chunk. Its next is 0 if it's the last chunk.
+	 */
+	AgentUpdateGrinderMessage getChunk(String version, int offset) {
+		if (offset < 0 || offset >= size) {
+			return AgentUpdateGrinderMessage.getNullAgentUpdateGrinderMessage(version);
+		}
+		byte[] bytes = read(offset);
+		int next = offset + bytes.length;
+		if (next == size) {
+			next = 0;
+		}
+		long checksum = (offset % chunkSize == 0) ? checksums[offset / chunkSize] :
+				CRC32ChecksumUtils.getCRC32Checksum(bytes);
+		return new AgentUpdateGrinderMessage(version, bytes, offset, next, checksum);
+	}
+
+	int getSize() {
+		return size;
+	}
+}
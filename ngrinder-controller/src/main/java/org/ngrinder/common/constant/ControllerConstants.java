@@ -38,6 +38,12 @@ public interface ControllerConstants {
 	 */
 	public static final int PERFTEST_TERMINATION_FREQUENCY_MILLISECONDS = 3000;
 
+	/**
+	 * Performance test dispatch frequency in milliseconds when no event wakes the dispatcher up. The test saved on
+	 * the other controller in cluster mode is dispatched at {@link #PERFTEST_RUN_FREQUENCY_MILLISECONDS}.
+	 */
+	public static final int PERFTEST_DISPATCH_FALLBACK_MILLISECONDS = 10000;
+
 	//NGRINDER INITIAL ADMIN USER ID
 	public static final String NGRINDER_INITIAL_ADMIN_USERID = "admin";
 
@@ -84,4 +90,9 @@ public interface ControllerConstants {
 	public static final String PROP_CONTROLLER_INACTIVE_CLIENT_TIME_OUT = "controller.inactive_client_time_out";
 	public static final String PROP_CONTROLLER_ENABLE_STATISTICS = "controller.enable_statistics";
 	public static final String PROP_CONTROLLER_CSV_SEPARATOR = "controller.csv_separator";
+	public static final String PROP_CONTROLLER_LIVE_STATISTICS_SAVE_INTERVAL = "controller.live_statistics_save_interval";
+	public static final String PROP_CONTROLLER_SVN_CLIENT_POOL_SIZE = "controller.svn_client_pool_size";
+	public static final String PROP_CONTROLLER_TEST_LAUNCH_POOL_SIZE = "controller.test_launch_pool_size";
+	public static final String PROP_CONTROLLER_CONSOLE_ROUTER_PORT = "controller.console_router_port";
+	public static final String PROP_CONTROLLER_LIGHTWEIGHT_VUSER = "controller.lightweight_vuser";
 }
@@ -43,6 +43,7 @@ public interface WebConstants {
 
 	public static final String PARAM_AVAILABLE_RAMP_UP_TYPE = "availRampUpType";
 	public static final String PARAM_MAX_VUSER_PER_AGENT = "maxVuserPerAgent";
+	public static final String PARAM_LIGHTWEIGHT_VUSER = "lightweightVuser";
 	public static final String PARAM_MAX_RUN_COUNT = "maxRunCount";
 	public static final String PARAM_MAX_RUN_HOUR = "maxRunHour";
 	public static final String PARAM_SAFE_FILE_DISTRIBUTION = "safeFileDistribution";
@@ -178,6 +178,18 @@ public class Home {
 		return cacheDir;
 	}
 
+	/**
+	 * Get the distribution cache directory.
+	 *
+	 * @return distribution cache directory.
+	 * @since 3.4.1
+	 */
+	public File getDistributionCacheDirectory() {
+		File cacheDir = getSubFile(PATH_DIST + "_cache");
+		cacheDir.mkdirs();
+		return cacheDir;
+	}
+
 	/**
 	 * Get the plugin directory.
 	 *
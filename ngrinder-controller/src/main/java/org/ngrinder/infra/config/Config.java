@@ -755,4 +755,13 @@ public class Config extends AbstractConfig implements ControllerConstants, Clust
 		return csvSeparator;
 	}
 
+	/**
+	 * Get the interval in milliseconds to save the live statistics of the running test into DB.
+	 *
+	 * @return interval in milliseconds
+	 */
+	public long getLiveStatisticsSaveInterval() {
+		return getControllerProperties().getPropertyLong(PROP_CONTROLLER_LIVE_STATISTICS_SAVE_INTERVAL);
+	}
+
 }
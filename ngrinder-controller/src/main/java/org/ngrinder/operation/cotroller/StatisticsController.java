@@ -22,6 +22,7 @@ import org.apache.commons.dbcp.BasicDataSource;
 import org.ngrinder.common.constant.ControllerConstants;
 import org.ngrinder.common.controller.BaseController;
 import org.ngrinder.infra.config.Config;
+import org.ngrinder.perftest.service.PerfTestDispatchStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -58,10 +59,13 @@ public class StatisticsController extends BaseController implements ControllerCo
 	@Autowired
 	BasicDataSource dataSource;
 
+	@Autowired
+	private PerfTestDispatchStatistics perfTestDispatchStatistics;
+
 	/**
 	 * Get collect current statistics.
 	 * 
-	 * @return json string, for jvm/ehcache/dbcp statistics
+	 * @return json string, for jvm/ehcache/dbcp/perftest statistics
 	 */
 	@ResponseBody
 	@RequestMapping(value = {"", "/"}, method = RequestMethod.GET)
@@ -78,6 +82,7 @@ public class StatisticsController extends BaseController implements ControllerCo
 		data.put("jvm", getJVMStat());
 		data.put("ehcache", getEhcacheStat());
 		data.put("dbcp", getDbcpStat());
+		data.put("perftest", getPerfTestStat());
 
 		result.put("success", true);
 		result.put("data", data);
@@ -142,4 +147,19 @@ public class StatisticsController extends BaseController implements ControllerCo
 		return stat;
 	}
 
+	/**
+	 * Get the test dispatch stat(queue depth, started test count, start latency avg/max in millisecond)
+	 * 
+	 * @return map for perftest dispatch statistics
+	 */
+	private Map<String, Long> getPerfTestStat() {
+		Map<String, Long> stat = new HashMap<String, Long>();
+		stat.put("queueDepth", (long) perfTestDispatchStatistics.getQueueDepth());
+		stat.put("started", perfTestDispatchStatistics.getStartedTestCount());
+		stat.put("avgStartLatency", perfTestDispatchStatistics.getAverageStartLatency());
+		stat.put("maxStartLatency", perfTestDispatchStatistics.getMaxStartLatency());
+		
+		return stat;
+	}
+
 }
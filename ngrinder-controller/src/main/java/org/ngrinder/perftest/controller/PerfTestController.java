@@ -17,7 +17,6 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import net.grinder.util.LogCompressUtils;
-import net.grinder.util.Pair;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
@@ -33,6 +32,7 @@ import org.ngrinder.infra.config.Config;
 import org.ngrinder.infra.logger.CoreLogger;
 import org.ngrinder.infra.spring.RemainedPath;
 import org.ngrinder.model.*;
+import org.ngrinder.perftest.model.LiveStatistics;
 import org.ngrinder.perftest.service.AgentManager;
 import org.ngrinder.perftest.service.PerfTestService;
 import org.ngrinder.perftest.service.TagService;
@@ -84,6 +84,8 @@ import static org.ngrinder.common.util.Preconditions.*;
 @RequestMapping("/perftest")
 public class PerfTestController extends BaseController {
 
+	private static final long MAX_SAMPLE_WAITING_MILLISECOND = 10000;
+
 	@Autowired
 	private PerfTestService perfTestService;
 
@@ -249,6 +251,7 @@ public class PerfTestController extends BaseController {
 	public void addDefaultAttributeOnModel(ModelMap model) {
 		model.addAttribute(PARAM_AVAILABLE_RAMP_UP_TYPE, RampUp.values());
 		model.addAttribute(PARAM_MAX_VUSER_PER_AGENT, agentManager.getMaxVuserPerAgent());
+		model.addAttribute(PARAM_LIGHTWEIGHT_VUSER, perfTestService.isLightweightVuser());
 		model.addAttribute(PARAM_MAX_RUN_COUNT, agentManager.getMaxRunCount());
 		model.addAttribute(PARAM_SECURITY_MODE, getConfig().isSecurityEnabled());
 		model.addAttribute(PARAM_MAX_RUN_HOUR, agentManager.getMaxRunHour());
@@ -482,11 +485,8 @@ public class PerfTestController extends BaseController {
 		int interval = perfTestService.getReportDataInterval(id, dataTypes[0], imgWidth);
 		Map<String, Object> resultMap = Maps.newHashMap();
 		for (String each : dataTypes) {
-			Pair<ArrayList<String>, ArrayList<String>> tpsResult = perfTestService.getReportData(id, each, onlyTotal, interval);
-			Map<String, Object> dataMap = Maps.newHashMap();
-			dataMap.put("labels", tpsResult.getFirst());
-			dataMap.put("data", tpsResult.getSecond());
-			resultMap.put(StringUtils.replaceChars(each, "()", ""), dataMap);
+			resultMap.put(StringUtils.replaceChars(each, "()", ""),
+					perfTestService.getReportGraphData(id, each, onlyTotal, interval));
 		}
 		resultMap.put(PARAM_TEST_CHART_INTERVAL, interval * test.getSamplingInterval());
 		return resultMap;
@@ -547,7 +547,8 @@ public class PerfTestController extends BaseController {
 	}
 
 	/**
-	 * Download logs for the perf test having the given id.
+	 * Download logs for the perf test having the given id. The binary data logs in the compressed logs are converted
+	 * into the text data logs.
 	 *
 	 * @param user     user
 	 * @param id       test id
@@ -559,7 +560,23 @@ public class PerfTestController extends BaseController {
 	                        HttpServletResponse response) {
 		getOneWithPermissionCheck(user, id, false);
 		File targetFile = perfTestService.getLogFile(id, path);
-		FileDownloadUtils.downloadFile(response, targetFile);
+		if (!targetFile.exists() || !FilenameUtils.isExtension(targetFile.getName(), "zip")
+				|| !LogCompressUtils.containsBinaryDataLog(targetFile)) {
+			FileDownloadUtils.downloadFile(response, targetFile);
+			return;
+		}
+		response.reset();
+		response.addHeader("Content-Disposition", "attachment;filename=" + targetFile.getName());
+		response.setContentType("application/octet-stream");
+		FileInputStream fileInputStream = null;
+		try {
+			fileInputStream = new FileInputStream(targetFile);
+			LogCompressUtils.convertBinaryDataLogs(fileInputStream, response.getOutputStream());
+		} catch (Exception e) {
+			CoreLogger.LOGGER.error("Error while converting log. {}", targetFile, e);
+		} finally {
+			IOUtils.closeQuietly(fileInputStream);
+		}
 	}
 
 	/**
@@ -598,17 +615,28 @@ public class PerfTestController extends BaseController {
 
 	/**
 	 * Get the running perf test info having the given id.
+	 * <p/>
+	 * If the sequence of the last sample which the caller has is given, the request is held until the newer sample
+	 * is available or the sampling interval is passed twice (long polling).
 	 *
-	 * @param user user
-	 * @param id   test id
+	 * @param user  user
+	 * @param id    test id
+	 * @param since sequence of the last sample which the caller has. -1 to get the current one without waiting.
 	 * @return JSON message	containing test,agent and monitor status.
 	 */
 	@RequestMapping(value = "/{id}/api/sample")
 	@RestAPI
-	public HttpEntity<String> refreshTestRunning(User user, @PathVariable("id") long id) {
+	public HttpEntity<String> refreshTestRunning(User user, @PathVariable("id") long id,
+	                                             @RequestParam(value = "since", defaultValue = "-1") long since) {
 		PerfTest test = checkNotNull(getOneWithPermissionCheck(user, id, false), "given test should be exist : " + id);
 		Map<String, Object> map = newHashMap();
 		map.put("status", test.getStatus());
+		if (since >= 0 && test.getStatus() == Status.TESTING) {
+			long timeout = Math.min(defaultIfNull(test.getSamplingInterval(), 1) * 2000L,
+					MAX_SAMPLE_WAITING_MILLISECOND);
+			LiveStatistics liveStatistics = perfTestService.waitForLiveStatistics(id, since, timeout);
+			map.put("sequence", liveStatistics == null ? since : liveStatistics.getSequence());
+		}
 		map.put("perf", perfTestService.getStatistics(test));
 		map.put("agent", perfTestService.getAgentStat(test));
 		map.put("monitor", perfTestService.getMonitorStat(test));
@@ -960,6 +988,24 @@ public class PerfTestController extends BaseController {
 	}
 
 
+	/**
+	 * Change the load of the given running perf test.
+	 *
+	 * @param user  user
+	 * @param id    perf test id
+	 * @param vuser target vuser count
+	 * @param tps   target tps of the arrival rate based test
+	 * @return json message
+	 */
+	@RestAPI
+	@RequestMapping(value = "/api/{id}", params = "action=load", method = RequestMethod.PUT)
+	public HttpEntity<String> changeTargetLoad(User user, @PathVariable("id") Long id,
+	                                           @RequestParam(value = "vuser", required = false) Integer vuser,
+	                                           @RequestParam(value = "tps", required = false) Integer tps) {
+		perfTestService.changeTargetLoad(user, id, vuser, tps);
+		return successJsonHttpEntity();
+	}
+
 	/**
 	 * Update the given perf test's status.
 	 *
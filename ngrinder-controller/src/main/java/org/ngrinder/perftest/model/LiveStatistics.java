@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.model;
+
+import org.ngrinder.model.PerfTest;
+
+import java.io.Serializable;
+
+/**
+ * The latest sample of the running {@link PerfTest}. It's kept in the cache and replicated to the other controllers
+ * in the cluster, so the statistics are kept as the json string.
+ *
+ * @since 3.4.1
+ */
+public class LiveStatistics implements Serializable {
+	private static final long serialVersionUID = 2984520913562064301L;
+
+	private final long sequence;
+	private final String runningSample;
+	private final String agentState;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param sequence      sample sequence. increased on every sample of the test.
+	 * @param runningSample running sample json string
+	 * @param agentState    agent state json string
+	 */
+	public LiveStatistics(long sequence, String runningSample, String agentState) {
+		this.sequence = sequence;
+		this.runningSample = runningSample;
+		this.agentState = agentState;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public String getRunningSample() {
+		return runningSample;
+	}
+
+	public String getAgentState() {
+		return agentState;
+	}
+}
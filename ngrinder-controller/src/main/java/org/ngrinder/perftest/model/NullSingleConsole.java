@@ -75,6 +75,11 @@ public class NullSingleConsole extends SingleConsole {
 		// Do nothing
 	}
 
+	@Override
+	public void sendTargetLoadMessageToAgents(int threadsPerProcess, double arrivalRate) {
+		// Do nothing
+	}
+
 	@Override
 	public void shutdown() {
 		// Do nothing
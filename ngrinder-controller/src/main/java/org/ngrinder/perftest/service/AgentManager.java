@@ -20,6 +20,7 @@ import net.grinder.common.processidentity.AgentIdentity;
 import net.grinder.console.communication.AgentDownloadRequestListener;
 import net.grinder.console.communication.AgentProcessControlImplementation;
 import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
+import net.grinder.console.communication.AgentStatusUpdateListener;
 import net.grinder.console.communication.LogArrivedListener;
 import net.grinder.console.model.ConsoleCommunicationSetting;
 import net.grinder.engine.communication.AgentUpdateGrinderMessage;
@@ -27,14 +28,10 @@ import net.grinder.engine.controller.AgentControllerIdentityImplementation;
 import net.grinder.message.console.AgentControllerState;
 import net.grinder.messages.console.AgentAddress;
 import net.grinder.util.thread.ExecutorFactory;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
-import org.ngrinder.agent.service.AgentPackageService;
+import org.ngrinder.agent.service.AgentPackageDistributionService;
 import org.ngrinder.agent.service.LocalAgentService;
 import org.ngrinder.common.constant.ControllerConstants;
-import org.ngrinder.common.util.CRC32ChecksumUtils;
 import org.ngrinder.infra.config.Config;
 import org.ngrinder.model.AgentInfo;
 import org.ngrinder.model.User;
@@ -48,14 +45,15 @@ import org.springframework.stereotype.Component;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
+import static org.ngrinder.common.constants.GrinderConstants.GRINDER_PROP_CONSOLE_ROUTER_PORT;
+
 /**
  * Agent manager.
  * <p/>
@@ -75,11 +73,14 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 	private Config config;
 
 	@Autowired
-	private AgentPackageService agentPackageService;
+	private AgentPackageDistributionService agentPackageDistributionService;
 
 	@Autowired
 	private LocalAgentService cachedLocalAgentService;
 
+	// The agents reserved for the tests being prepared. The value is the test id.
+	private final Map<AgentIdentity, Long> reservedAgents = new HashMap<AgentIdentity, Long>();
+
 	/**
 	 * Initialize agent manager.
 	 */
@@ -95,27 +96,31 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 		agentControllerServerDaemon = new AgentControllerServerDaemon(config.getCurrentIP(), port, consoleCommunicationSetting);
 		agentControllerServerDaemon.start();
 		agentControllerServerDaemon.setAgentDownloadRequestListener(this);
-		agentControllerServerDaemon.addLogArrivedListener(new LogArrivedListener() {
+		agentControllerServerDaemon.setLogArrivedListener(new LogArrivedListener() {
 			@Override
-			public void logArrived(String testId, AgentAddress agentAddress, byte[] logs) {
+			public File getLogFile(String testId, AgentAddress agentAddress) {
 				AgentControllerIdentityImplementation agentIdentity = convert(agentAddress.getIdentity());
-				if (ArrayUtils.isEmpty(logs)) {
-					LOGGER.error("Log is arrived from {} but no log content", agentIdentity.getIp());
-				}
-				File logFile = null;
-				try {
-					logFile = new File(config.getHome().getPerfTestLogDirectory(testId.replace("test_", "")),
-							agentIdentity.getName() + "-" + agentIdentity.getRegion() + "-log.zip");
-					FileUtils.writeByteArrayToFile(logFile, logs);
-				} catch (IOException e) {
-					LOGGER.error("Error while write logs from {} to {}", agentAddress.getIdentity().getName(),
-							logFile.getAbsolutePath());
-					LOGGER.error("Error is following", e);
-				}
+				return new File(config.getHome().getPerfTestLogDirectory(testId.replace("test_", "")),
+						agentIdentity.getName() + "-" + agentIdentity.getRegion() + "-log.zip");
+			}
+
+			@Override
+			public void logArrived(String testId, AgentAddress agentAddress, File logFile) {
+				LOGGER.debug("Log is arrived from {} to {}", agentAddress.getIdentity().getName(),
+						logFile.getAbsolutePath());
 			}
 		});
 	}
 
+	/**
+	 * Add the listener which is notified when the agents are connected, disconnected or changed.
+	 *
+	 * @param listener listener
+	 */
+	public void addAgentStatusUpdateListener(AgentStatusUpdateListener listener) {
+		agentControllerServerDaemon.addAgentStatusUpdateListener(listener);
+	}
+
 	/**
 	 * Shutdown agent controller server.
 	 */
@@ -241,12 +246,20 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 	}
 
 	/**
-	 * Get all agents which are not used now.
+	 * Get all agents which are not used now. The agents reserved for a test are not free.
 	 *
 	 * @return AgentIdentity set
 	 */
 	public Set<AgentIdentity> getAllFreeAgents() {
-		return agentControllerServerDaemon.getAllFreeAgents();
+		return excludeReservedAgents(agentControllerServerDaemon.getAllFreeAgents());
+	}
+
+	Set<AgentIdentity> excludeReservedAgents(Set<AgentIdentity> agents) {
+		Set<AgentIdentity> freeAgents = new HashSet<AgentIdentity>(agents);
+		synchronized (reservedAgents) {
+			freeAgents.removeAll(reservedAgents.keySet());
+		}
+		return freeAgents;
 	}
 
 	/**
@@ -268,8 +281,59 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 	 * @return AgentIdentity set
 	 */
 	public Set<AgentIdentity> getAllFreeApprovedAgents() {
-		Set<AgentIdentity> allFreeAgents = agentControllerServerDaemon.getAllFreeAgents();
-		return filterApprovedAgents(allFreeAgents);
+		return filterApprovedAgents(getAllFreeAgents());
+	}
+
+	/**
+	 * Reserve the free agents for the given test. The selection and the reservation are done atomically, so the tests
+	 * prepared at the same time don't select the same agents. The reserved agents are used by
+	 * {@link #runAgent(User, SingleConsole, GrinderProperties, Integer, Long)} and they should be released by
+	 * {@link #releaseAgents(Long)} when the agents are started.
+	 *
+	 * @param user       user
+	 * @param testId     test id
+	 * @param agentCount the count of agents
+	 * @return reserved agents. null if there are not enough free agents.
+	 * @since 3.4.1
+	 */
+	public Set<AgentIdentity> reserveAgents(User user, Long testId, int agentCount) {
+		if (agentCount <= 0) {
+			return new HashSet<AgentIdentity>();
+		}
+		synchronized (reservedAgents) {
+			Set<AgentIdentity> selectedAgents = selectAgent(user, getAllFreeApprovedAgentsForUser(user), agentCount);
+			if (selectedAgents.size() < agentCount) {
+				return null;
+			}
+			for (AgentIdentity each : selectedAgents) {
+				reservedAgents.put(each, testId);
+			}
+			return selectedAgents;
+		}
+	}
+
+	/**
+	 * Release the agents reserved for the given test.
+	 *
+	 * @param testId test id
+	 * @since 3.4.1
+	 */
+	public void releaseAgents(Long testId) {
+		synchronized (reservedAgents) {
+			reservedAgents.values().removeAll(Collections.singleton(testId));
+		}
+	}
+
+	private Set<AgentIdentity> getReservedAgents(Long testId) {
+		Set<AgentIdentity> agents = new HashSet<AgentIdentity>();
+		synchronized (reservedAgents) {
+			for (Map.Entry<AgentIdentity, Long> each : reservedAgents.entrySet()) {
+				if (each.getValue().equals(testId)) {
+					agents.add(each.getKey());
+				}
+			}
+		}
+		return agents;
 	}
 
 	/**
@@ -398,10 +462,29 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 	 * @param grinderProperties {@link GrinderProperties} to be distributed.
 	 * @param agentCount        the count of agents.
 	 */
+	public void runAgent(User user, final SingleConsole singleConsole,
+	                     final GrinderProperties grinderProperties, final Integer agentCount) {
+		runAgent(user, singleConsole, grinderProperties, agentCount, null);
+	}
+
+	/**
+	 * Assign the agents reserved for the given test on the given console. If the reserved agents are not enough, the
+	 * other free agents are assigned together.
+	 *
+	 * @param user              user
+	 * @param singleConsole     {@link SingleConsole} to which agents will be assigned
+	 * @param grinderProperties {@link GrinderProperties} to be distributed.
+	 * @param agentCount        the count of agents.
+	 * @param testId            test id for which the agents are reserved. null if no agent is reserved.
+	 * @since 3.4.1
+	 */
 	public synchronized void runAgent(User user, final SingleConsole singleConsole,
-	                                  final GrinderProperties grinderProperties, final Integer agentCount) {
-		final Set<AgentIdentity> allFreeAgents = getAllFreeApprovedAgentsForUser(user);
-		final Set<AgentIdentity> necessaryAgents = selectAgent(user, allFreeAgents, agentCount);
+	                                  final GrinderProperties grinderProperties, final Integer agentCount, Long testId) {
+		final Set<AgentIdentity> necessaryAgents = getReservedAgents(testId);
+		if (necessaryAgents.size() < agentCount) {
+			necessaryAgents.addAll(selectAgent(user, getAllFreeApprovedAgentsForUser(user),
+					agentCount - necessaryAgents.size()));
+		}
 		LOGGER.info("{} agents are starting for user {}", agentCount, user.getUserId());
 		for (AgentIdentity each : necessaryAgents) {
 			LOGGER.info("- Agent {}", each.getName());
@@ -410,6 +493,9 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 		try {
 			// Make the agents connect to console.
 			grinderProperties.setInt(GrinderProperties.CONSOLE_PORT, singleConsole.getConsolePort());
+			if (singleConsole.getConsoleRouterPort() > 0) {
+				grinderProperties.setInt(GRINDER_PROP_CONSOLE_ROUTER_PORT, singleConsole.getConsoleRouterPort());
+			}
 			execService = ExecutorFactory.createThreadPool("agentStarter", NUMBER_OF_THREAD);
 			for (final AgentIdentity eachAgentIdentity : necessaryAgents) {
 				execService.submit(new Runnable() {
@@ -507,31 +593,7 @@ public class AgentManager implements ControllerConstants, AgentDownloadRequestLi
 	}
 
 	@Override
-	public synchronized AgentUpdateGrinderMessage onAgentDownloadRequested(String version, int offset) {
-		final int updateChunkSize = getUpdateChunkSize();
-		byte[] buffer = new byte[updateChunkSize];
-		RandomAccessFile agentPackageReader = null;
-		try {
-			agentPackageReader = new RandomAccessFile(agentPackageService.createAgentPackage(), "r");
-			agentPackageReader.seek(offset);
-			int count = agentPackageReader.read(buffer, 0, updateChunkSize);
-			byte[] bytes = buffer;
-			int next = offset + count;
-			if (count != updateChunkSize) {
-				bytes = Arrays.copyOf(buffer, count);
-				next = 0;
-			}
-			return new AgentUpdateGrinderMessage(version, bytes, offset, next,
-					CRC32ChecksumUtils.getCRC32Checksum(bytes));
-		} catch (Exception e) {
-			LOGGER.error("Error while reading agent package, its offset is {} and details {}:", offset, e);
-		} finally {
-			IOUtils.closeQuietly(agentPackageReader);
-		}
-		return AgentUpdateGrinderMessage.getNullAgentUpdateGrinderMessage(version);
-	}
-
-	private int getUpdateChunkSize() {
-		return config.getControllerProperties().getPropertyInt(ControllerConstants.PROP_CONTROLLER_UPDATE_CHUNK_SIZE);
+	public AgentUpdateGrinderMessage onAgentDownloadRequested(String version, int offset) {
+		return agentPackageDistributionService.getAgentPackageChunk(version, offset);
 	}
 }
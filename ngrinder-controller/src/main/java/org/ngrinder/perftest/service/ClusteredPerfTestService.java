@@ -28,17 +28,14 @@ import org.springframework.transaction.annotation.Transactional;
  */
 public class ClusteredPerfTestService extends PerfTestService {
 	/**
-	 * Get next runnable {@link PerfTest}.
+	 * Get all {@link PerfTest}s which are waiting to run in the current region.
 	 * 
-	 * @return found {@link PerfTest} which is ready to run, null otherwise
+	 * @return READY perf test list
 	 */
-
 	@Override
 	@Transactional
-	public PerfTest getNextRunnablePerfTestPerfTestCandidate() {
-		List<PerfTest> readyPerfTests = getPerfTestRepository().findAllByStatusAndRegionOrderByScheduledTimeAsc(
-				Status.READY, getConfig().getRegion());
-		List<PerfTest> usersFirstPerfTests = filterCurrentlyRunningTestUsersTest(readyPerfTests);
-		return usersFirstPerfTests.isEmpty() ? null : readyPerfTests.get(0);
+	public List<PerfTest> getAllReady() {
+		return getPerfTestRepository().findAllByStatusAndRegionOrderByScheduledTimeAsc(Status.READY,
+				getConfig().getRegion());
 	}
 }
@@ -14,6 +14,7 @@
 package org.ngrinder.perftest.service;
 
 import net.grinder.SingleConsole;
+import net.grinder.communication.ConsoleRouter;
 import net.grinder.console.model.ConsoleCommunicationSetting;
 import net.grinder.console.model.ConsoleProperties;
 import org.h2.util.StringUtils;
@@ -25,6 +26,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -50,9 +54,11 @@ import static org.ngrinder.common.util.NoOp.noOp;
 @Component
 public class ConsoleManager {
 	private static final int MAX_PORT_NUMBER = 65000;
+	private static final int CONSOLE_ROUTER_IO_THREAD_COUNT = 2;
 	private static final Logger LOG = LoggerFactory.getLogger(ConsoleManager.class);
 	private volatile ArrayBlockingQueue<ConsoleEntry> consoleQueue;
 	private volatile List<SingleConsole> consoleInUse = Collections.synchronizedList(new ArrayList<SingleConsole>());
+	private ConsoleRouter consoleRouter;
 
 	@Autowired
 	private Config config;
@@ -79,6 +85,46 @@ public class ConsoleManager {
 			}
 
 		}
+		startConsoleRouter();
+	}
+
+	/**
+	 * Start the console router if the router port is configured. The agents connect to the consoles through it, so
+	 * only the router port should be opened to the agents. Each console still binds its own port and threads.
+	 */
+	private void startConsoleRouter() {
+		int routerPort = getConsoleRouterPort();
+		if (routerPort <= 0) {
+			return;
+		}
+		try {
+			consoleRouter = new ConsoleRouter(config.getCurrentIP(), routerPort, CONSOLE_ROUTER_IO_THREAD_COUNT,
+					new ConsoleRouter.RouteResolver() {
+						@Override
+						public InetSocketAddress resolve(int consolePort) {
+							SingleConsole console = getConsoleUsingPort(consolePort);
+							if (console instanceof NullSingleConsole) {
+								return null;
+							}
+							return new InetSocketAddress(console.getConsoleIP(), consolePort);
+						}
+					});
+			consoleRouter.start();
+			LOG.info("Console router is started on {}:{}", config.getCurrentIP(), routerPort);
+		} catch (IOException e) {
+			LOG.error("console router binding to {}:{} is failed. The agents will connect to each console port.",
+					config.getCurrentIP(), routerPort, e);
+		}
+	}
+
+	/**
+	 * Stop the console router.
+	 */
+	@PreDestroy
+	public void destroy() {
+		if (consoleRouter != null) {
+			consoleRouter.shutdown();
+		}
 	}
 
 	/**
@@ -92,6 +138,15 @@ public class ConsoleManager {
 		return config.getControllerProperties().getPropertyInt(PROP_CONTROLLER_CONSOLE_PORT_BASE);
 	}
 
+	/**
+	 * Get the console router port. It can be specified at controller.console_router_port in system.conf.
+	 *
+	 * @return router port. 0 if the router is not used.
+	 */
+	protected int getConsoleRouterPort() {
+		return config.getControllerProperties().getPropertyInt(PROP_CONTROLLER_CONSOLE_ROUTER_PORT);
+	}
+
 	/**
 	 * Get the console pool size. It can be specified at ngrinder.maxConcurrentTest in system.conf.
 	 *
@@ -139,6 +194,9 @@ public class ConsoleManager {
 						consoleCommunicationSetting, baseConsoleProperties);
 				getConsoleInUse().add(singleConsole);
 				singleConsole.setCsvSeparator(config.getCsvSeparator());
+				if (consoleRouter != null) {
+					singleConsole.setConsoleRouterPort(consoleRouter.getPort());
+				}
 				return singleConsole;
 			}
 		} catch (Exception e) {
@@ -233,13 +291,16 @@ public class ConsoleManager {
 	 */
 	public SingleConsole getConsoleUsingPort(Integer port) {
 		String currentIP = config.getCurrentIP();
-		for (SingleConsole each : consoleInUse) {
-			// Avoid to Klocwork error.
-			if (each instanceof NullSingleConsole) {
-				continue;
-			}
-			if (StringUtils.equals(each.getConsoleIP(), currentIP) && each.getConsolePort() == port) {
-				return each;
+		// It's called in the console router threads too.
+		synchronized (consoleInUse) {
+			for (SingleConsole each : consoleInUse) {
+				// Avoid to Klocwork error.
+				if (each instanceof NullSingleConsole) {
+					continue;
+				}
+				if (StringUtils.equals(each.getConsoleIP(), currentIP) && each.getConsolePort() == port) {
+					return each;
+				}
 			}
 		}
 		return new NullSingleConsole();
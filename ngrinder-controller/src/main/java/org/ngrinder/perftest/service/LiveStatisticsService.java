@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service;
+
+import net.sf.ehcache.CacheException;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+import org.ngrinder.perftest.model.LiveStatistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Live statistics of the running tests.
+ * <p/>
+ * The console of each test puts its latest sample here on every sampling, and the running test page reads it from
+ * here instead of the perf test table. The cache is replicated in the cluster mode, so the controllers which don't run
+ * the test can serve the live statistics as well. Puts replicated from the other controllers wake up the waiting
+ * requests as the local puts do.
+ *
+ * @since 3.4.1
+ */
+@Service
+public class LiveStatisticsService {
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	private Cache liveStatisticsCache;
+
+	private final Object updateMonitor = new Object();
+
+	/**
+	 * Initialize.
+	 */
+	@PostConstruct
+	public void init() {
+		liveStatisticsCache = cacheManager.getCache("live_statistics");
+		Object nativeCache = liveStatisticsCache.getNativeCache();
+		if (nativeCache instanceof Ehcache) {
+			((Ehcache) nativeCache).getCacheEventNotificationService().registerListener(
+					new CacheEventListenerAdapter() {
+						@Override
+						public void notifyElementPut(Ehcache cache, Element element) throws CacheException {
+							notifyUpdate();
+						}
+
+						@Override
+						public void notifyElementUpdated(Ehcache cache, Element element) throws CacheException {
+							notifyUpdate();
+						}
+					});
+		}
+	}
+
+	private void notifyUpdate() {
+		synchronized (updateMonitor) {
+			updateMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Put the latest sample of the given test.
+	 *
+	 * @param perfTestId    perf test id
+	 * @param runningSample running sample json string
+	 * @param agentState    agent state json string
+	 * @return put statistics
+	 */
+	public LiveStatistics put(Long perfTestId, String runningSample, String agentState) {
+		LiveStatistics previous = get(perfTestId);
+		LiveStatistics statistics = new LiveStatistics(previous == null ? 1 : previous.getSequence() + 1,
+				runningSample, agentState);
+		liveStatisticsCache.put(perfTestId, statistics);
+		notifyUpdate();
+		return statistics;
+	}
+
+	/**
+	 * Get the latest sample of the given test.
+	 *
+	 * @param perfTestId perf test id
+	 * @return live statistics. null if the test is not running or not sampled yet.
+	 */
+	public LiveStatistics get(Long perfTestId) {
+		ValueWrapper valueWrapper = liveStatisticsCache.get(perfTestId);
+		return valueWrapper == null ? null : (LiveStatistics) valueWrapper.get();
+	}
+
+	/**
+	 * Wait until the sample newer than the given sequence is put or the timeout is over.
+	 *
+	 * @param perfTestId perf test id
+	 * @param sequence   sequence of the sample which the caller already has
+	 * @param timeout    max waiting time in millisecond
+	 * @return the latest live statistics. null if the test is not running or not sampled yet.
+	 */
+	public LiveStatistics waitForUpdate(Long perfTestId, long sequence, long timeout) {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (updateMonitor) {
+			while (true) {
+				LiveStatistics statistics = get(perfTestId);
+				long remaining = deadline - System.currentTimeMillis();
+				if (statistics == null || statistics.getSequence() > sequence || remaining <= 0) {
+					return statistics;
+				}
+				try {
+					updateMonitor.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return statistics;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove the live statistics of the finished test.
+	 *
+	 * @param perfTestId perf test id
+	 */
+	public void remove(Long perfTestId) {
+		liveStatisticsCache.evict(perfTestId);
+		notifyUpdate();
+	}
+}
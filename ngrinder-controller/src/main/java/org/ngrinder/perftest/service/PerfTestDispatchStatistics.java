@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the test dispatch made by {@link PerfTestRunnable}.
+ * <p/>
+ * The queue depth is the count of the READY tests found in the last dispatch. The start latency is the time from when
+ * a test became runnable to when it's started.
+ *
+ * @since 3.4.1
+ */
+@Component
+public class PerfTestDispatchStatistics {
+	private volatile int queueDepth;
+	private final AtomicLong startedTestCount = new AtomicLong();
+	private final AtomicLong totalStartLatency = new AtomicLong();
+	private final AtomicLong maxStartLatency = new AtomicLong();
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	/**
+	 * Record the start latency of a test.
+	 *
+	 * @param latency latency in millisecond
+	 */
+	public void recordStartLatency(long latency) {
+		startedTestCount.incrementAndGet();
+		totalStartLatency.addAndGet(latency);
+		long max = maxStartLatency.get();
+		while (latency > max && !maxStartLatency.compareAndSet(max, latency)) {
+			max = maxStartLatency.get();
+		}
+	}
+
+	public long getStartedTestCount() {
+		return startedTestCount.get();
+	}
+
+	/**
+	 * Get the average start latency.
+	 *
+	 * @return latency in millisecond. 0 if no test is started.
+	 */
+	public long getAverageStartLatency() {
+		long count = startedTestCount.get();
+		return count == 0 ? 0 : totalStartLatency.get() / count;
+	}
+
+	public long getMaxStartLatency() {
+		return maxStartLatency.get();
+	}
+}
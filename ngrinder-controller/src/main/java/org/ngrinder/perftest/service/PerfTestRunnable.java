@@ -17,10 +17,14 @@ import net.grinder.SingleConsole;
 import net.grinder.SingleConsole.ConsoleShutdownListener;
 import net.grinder.StopReason;
 import net.grinder.common.GrinderProperties;
+import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
+import net.grinder.console.communication.AgentStatusUpdateListener;
 import net.grinder.console.model.ConsoleProperties;
 import net.grinder.util.ListenerHelper;
 import net.grinder.util.ListenerSupport;
 import net.grinder.util.UnitUtils;
+import net.grinder.util.thread.ExecutorFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.time.DateUtils;
 import org.ngrinder.common.constant.ControllerConstants;
@@ -31,9 +35,12 @@ import org.ngrinder.infra.plugin.PluginManager;
 import org.ngrinder.infra.schedule.ScheduledTaskService;
 import org.ngrinder.model.PerfTest;
 import org.ngrinder.model.Status;
+import org.ngrinder.model.User;
 import org.ngrinder.perftest.model.NullSingleConsole;
+import org.ngrinder.perftest.service.monitor.MonitorInfoStore;
 import org.ngrinder.perftest.service.samplinglistener.*;
 import org.ngrinder.script.handler.ScriptHandler;
+import org.ngrinder.script.service.DistributionCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,10 +51,17 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.File;
 import java.util.Calendar;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 
-import static org.apache.commons.lang.ObjectUtils.defaultIfNull;
 import static org.ngrinder.common.constant.ClusterConstants.PROP_CLUSTER_SAFE_DIST;
 import static org.ngrinder.common.util.AccessUtils.getSafe;
 import static org.ngrinder.model.Status.*;
@@ -56,8 +70,13 @@ import static org.ngrinder.model.Status.*;
  * {@link PerfTest} run scheduler.
  * <p/>
  * This class is responsible to execute/finish the performance test. The job is
- * started from {@link #doStart()}  and {@link #doFinish()} method. These
- * methods are scheduled by Spring Task.
+ * started from {@link #doStart()}  and {@link #doFinish()} method.
+ * <p/>
+ * {@link #doStart()} is run by the dispatcher thread when a test is saved as READY, an agent state is changed or a
+ * console is returned back, and when the earliest scheduled test becomes runnable. It dispatches the READY tests in
+ * the order of the scheduled time as many as the free consoles allow. The agents are reserved for each dispatched
+ * test, and the tests are prepared in parallel on the launcher threads. {@link #doFinish()} is scheduled by Spring
+ * Task. The stop requested and the abnormal tests are checked when they are notified.
  *
  * @author JunHo Yoon
  * @since 3.0
@@ -87,22 +106,109 @@ public class PerfTestRunnable implements ControllerConstants {
 	@Autowired
 	private ScheduledTaskService scheduledTaskService;
 
-	private Runnable startRunnable;
+	@Autowired
+	private DistributionCacheService distributionCacheService;
+
+	@Autowired
+	private MonitorInfoStore monitorInfoStore;
+
+	@Autowired
+	private PerfTestDispatchStatistics dispatchStatistics;
+
+	/**
+	 * The scheduled tests are ordered by the scheduled time and then by the id. The test which has no scheduled time
+	 * comes first.
+	 */
+	private static final Comparator<PerfTest> SCHEDULE_ORDER = new Comparator<PerfTest>() {
+		@Override
+		public int compare(PerfTest o1, PerfTest o2) {
+			long time1 = o1.getScheduledTime() == null ? 0 : o1.getScheduledTime().getTime();
+			long time2 = o2.getScheduledTime() == null ? 0 : o2.getScheduledTime().getTime();
+			if (time1 != time2) {
+				return time1 < time2 ? -1 : 1;
+			}
+			return o1.getId().compareTo(o2.getId());
+		}
+	};
+
+	private Thread dispatcher;
+
+	private volatile boolean destroyed;
+
+	private final Object dispatchMonitor = new Object();
+
+	// guarded by dispatchMonitor
+	private boolean dispatchRequested;
+
+	// The time when the earliest scheduled test becomes runnable. 0 if there is no scheduled test.
+	private volatile long nextScheduledTime;
+
+	private ExecutorService launcher;
 
 	private Runnable finishRunnable;
 
+	private final AtomicBoolean stopCheckRequested = new AtomicBoolean();
+
+	private volatile long lastStopCheckTime;
+
+	// The time when each READY test is found first by the dispatcher.
+	private final ConcurrentHashMap<Long, Long> queuedTimes = new ConcurrentHashMap<Long, Long>();
+
+	// The time when each dispatched test became runnable.
+	private final ConcurrentHashMap<Long, Long> runnableTimes = new ConcurrentHashMap<Long, Long>();
+
 	@PostConstruct
 	public void init() {
 		// Clean up db first.
 		doFinish(true);
 
-		this.startRunnable = new Runnable() {
+		this.launcher = ExecutorFactory.createThreadPool("perfTestLauncher", getLaunchPoolSize());
+		agentManager.addAgentStatusUpdateListener(new AgentStatusUpdateListener() {
+			@Override
+			public void onAgentConnected(AgentStatus agentStatus) {
+				requestDispatch();
+			}
+
+			@Override
+			public void onAgentStateChanged(AgentStatus agentStatus) {
+				requestDispatch();
+			}
+
+			@Override
+			public void onAgentDisconnected(AgentIdentity agentIdentity) {
+				requestDispatch();
+			}
+		});
+		perfTestService.addStatusUpdateListener(new PerfTestStatusUpdateListener() {
+			@Override
+			public void onStatusUpdated(PerfTest perfTest) {
+				if (perfTest.getStatus() == READY) {
+					requestDispatch();
+				} else {
+					stopCheckRequested.set(true);
+				}
+			}
+		});
+		this.dispatcher = new Thread(new Runnable() {
 			@Override
 			public void run() {
-				startPeriodically();
+				while (!destroyed) {
+					try {
+						waitForDispatchRequest();
+						startPeriodically();
+					} catch (InterruptedException e) {
+						return;
+					} catch (Exception e) {
+						LOG.error("Error while dispatching tests : {}", e.getMessage());
+						LOG.debug("Details : ", e);
+					}
+				}
 			}
-		};
-		scheduledTaskService.addFixedDelayedScheduledTask(startRunnable, PERFTEST_RUN_FREQUENCY_MILLISECONDS);
+		}, "perfTestDispatcher");
+		this.dispatcher.setDaemon(true);
+		this.dispatcher.start();
+		requestDispatch();
+
 		this.finishRunnable = new Runnable() {
 			@Override
 			public void run() {
@@ -115,14 +221,51 @@ public class PerfTestRunnable implements ControllerConstants {
 
 	@PreDestroy
 	public void destroy() {
-		scheduledTaskService.removeScheduledJob(this.startRunnable);
+		destroyed = true;
+		dispatcher.interrupt();
+		launcher.shutdownNow();
 		scheduledTaskService.removeScheduledJob(this.finishRunnable);
 	}
 
+	protected int getLaunchPoolSize() {
+		return Math.max(config.getControllerProperties().getPropertyInt(PROP_CONTROLLER_TEST_LAUNCH_POOL_SIZE), 1);
+	}
+
+	/**
+	 * Wake up the dispatcher to run {@link #doStart()}.
+	 */
+	public void requestDispatch() {
+		synchronized (dispatchMonitor) {
+			dispatchRequested = true;
+			dispatchMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Wait until the dispatch is requested, the earliest scheduled test becomes runnable or the fallback interval is
+	 * elapsed. The tests saved on the other controllers in cluster mode are found only by the fallback.
+	 *
+	 * @throws InterruptedException when the dispatcher is stopped
+	 */
+	private void waitForDispatchRequest() throws InterruptedException {
+		long timeout = config.isClustered() ? PERFTEST_RUN_FREQUENCY_MILLISECONDS
+				: PERFTEST_DISPATCH_FALLBACK_MILLISECONDS;
+		long scheduledTime = nextScheduledTime;
+		if (scheduledTime != 0) {
+			timeout = Math.max(Math.min(timeout, scheduledTime - System.currentTimeMillis()), 1);
+		}
+		synchronized (dispatchMonitor) {
+			if (!dispatchRequested) {
+				dispatchMonitor.wait(timeout);
+			}
+			dispatchRequested = false;
+		}
+	}
+
 	/**
-	 * Scheduled method for test execution. This method dispatches the test
-	 * candidates and run one of them. This method is responsible until a test
-	 * is executed.
+	 * Dispatch method for test execution. This method dispatches the test
+	 * candidates which can run now. This method is responsible until the
+	 * tests are launched.
 	 */
 	public void startPeriodically() {
 		doStart();
@@ -132,35 +275,48 @@ public class PerfTestRunnable implements ControllerConstants {
 		if (config.hasNoMoreTestLock()) {
 			return;
 		}
-		// Block if the count of testing exceed the limit
-		if (!canExecuteMore()) {
-			// LOG MORE
-			List<PerfTest> currentlyRunningTests = perfTestService.getCurrentlyRunningTest();
-			LOG.debug("Currently running test is {}. No more tests can not run.", currentlyRunningTests.size());
-			return;
+		List<PerfTest> readyPerfTests = perfTestService.getAllReady();
+		dispatchStatistics.setQueueDepth(readyPerfTests.size());
+		long now = System.currentTimeMillis();
+		Set<Long> readyTestIds = new HashSet<Long>();
+		for (PerfTest each : readyPerfTests) {
+			readyTestIds.add(each.getId());
+			queuedTimes.putIfAbsent(each.getId(), now);
 		}
-		// Find out next ready perftest
-		PerfTest runCandidate = getRunnablePerfTest();
-		if (runCandidate == null) {
-			return;
-		}
-
-		if (!isScheduledNow(runCandidate)) {
-			// this test project is reserved,but it isn't yet going to run test
-			// right now.
+		queuedTimes.keySet().retainAll(readyTestIds);
+		if (readyPerfTests.isEmpty()) {
+			nextScheduledTime = 0;
 			return;
 		}
 
-
-		if (!hasEnoughFreeAgents(runCandidate)) {
-			return;
+		PriorityQueue<PerfTest> queue = new PriorityQueue<PerfTest>(readyPerfTests.size(), SCHEDULE_ORDER);
+		queue.addAll(perfTestService.getRunnablePerfTestCandidates(readyPerfTests));
+		Set<User> dispatchedUsers = new HashSet<User>();
+		long scheduledTime = 0;
+		PerfTest runCandidate;
+		while ((runCandidate = queue.poll()) != null) {
+			if (!isScheduledNow(runCandidate)) {
+				// this test project is reserved,but it isn't yet going to run test
+				// right now. The followings are scheduled later.
+				scheduledTime = getRunnableTime(runCandidate);
+				break;
+			}
+			// Block if the count of testing exceed the limit
+			if (!canExecuteMore()) {
+				LOG.debug("Currently running test is {}. No more tests can not run.",
+						consoleManager.getConsoleInUse().size());
+				break;
+			}
+			if (dispatchedUsers.contains(runCandidate.getCreatedUser()) || !reserveFreeAgents(runCandidate)) {
+				continue;
+			}
+			dispatchedUsers.add(runCandidate.getCreatedUser());
+			Long queuedTime = queuedTimes.get(runCandidate.getId());
+			runnableTimes.put(runCandidate.getId(), Math.max(getRunnableTime(runCandidate),
+					queuedTime == null ? now : queuedTime));
+			doTest(runCandidate);
 		}
-
-		doTest(runCandidate);
-	}
-
-	private PerfTest getRunnablePerfTest() {
-		return perfTestService.getNextRunnablePerfTestPerfTestCandidate();
+		nextScheduledTime = scheduledTime;
 	}
 
 	private boolean canExecuteMore() {
@@ -168,33 +324,46 @@ public class PerfTestRunnable implements ControllerConstants {
 	}
 
 	private boolean isScheduledNow(PerfTest test) {
-		Date current = new Date();
-		Date scheduledDate = DateUtils
-				.truncate((Date) defaultIfNull(test.getScheduledTime(), current), Calendar.MINUTE);
-		return current.after(scheduledDate);
+		return System.currentTimeMillis() > getRunnableTime(test);
+	}
+
+	private long getRunnableTime(PerfTest test) {
+		Date scheduledDate = test.getScheduledTime();
+		return scheduledDate == null ? 0 : DateUtils.truncate(scheduledDate, Calendar.MINUTE).getTime();
 	}
 
 
 	/**
-	 * Check the free agent availability for the given {@link PerfTest}.
+	 * Reserve the free agents for the given {@link PerfTest}.
 	 *
 	 * @param test {@link PerfTest}
-	 * @return true if enough agents
+	 * @return true if enough agents are reserved
 	 */
-	protected boolean hasEnoughFreeAgents(PerfTest test) {
-		int size = agentManager.getAllFreeApprovedAgentsForUser(test.getCreatedUser()).size();
-		if (test.getAgentCount() != null && test.getAgentCount() > size) {
+	protected boolean reserveFreeAgents(PerfTest test) {
+		int agentCount = getSafe(test.getAgentCount());
+		if (agentManager.reserveAgents(test.getCreatedUser(), test.getId(), agentCount) == null) {
+			int size = agentManager.getAllFreeApprovedAgentsForUser(test.getCreatedUser()).size();
 			perfTestService.markProgress(test, "The test is tried to execute but there is not enough free agents."
-					+ "\n- Current free agent count : " + size + "  / Requested : " + test.getAgentCount() + "\n");
+					+ "\n- Current free agent count : " + size + "  / Requested : " + agentCount + "\n");
 			return false;
 		}
 		return true;
 	}
 
+	/**
+	 * Launch the preparation of a test. The preparations are run on the launcher threads in parallel.
+	 *
+	 * @param task preparation task
+	 */
+	protected void launch(Runnable task) {
+		launcher.execute(task);
+	}
+
 	/**
 	 * Run the given test.
 	 * <p/>
-	 * If fails, it marks STOP_BY_ERROR in the given {@link PerfTest} status
+	 * The console is started in the calling thread, and the rest is launched by {@link #launch(Runnable)}. If fails,
+	 * it marks STOP_BY_ERROR in the given {@link PerfTest} status
 	 *
 	 * @param perfTest perftest instance;
 	 */
@@ -202,6 +371,32 @@ public class PerfTestRunnable implements ControllerConstants {
 		SingleConsole singleConsole = null;
 		try {
 			singleConsole = startConsole(perfTest);
+			final SingleConsole startedConsole = singleConsole;
+			launch(new Runnable() {
+				@Override
+				public void run() {
+					doTest(perfTest, startedConsole);
+				}
+			});
+		} catch (Exception e) {
+			// In case of error, mark the occurs error on perftest.
+			agentManager.releaseAgents(perfTest.getId());
+			runnableTimes.remove(perfTest.getId());
+			LOG.error("Error while executing test: {} - {} ", perfTest.getTestIdentifier(), e.getMessage());
+			LOG.debug("Stack Trace is : ", e);
+			doTerminate(perfTest, singleConsole);
+			notifyFinish(perfTest, StopReason.ERROR_WHILE_PREPARE);
+		}
+	}
+
+	/**
+	 * Prepare and run the given test on the started console.
+	 *
+	 * @param perfTest      perftest instance;
+	 * @param singleConsole started console
+	 */
+	void doTest(final PerfTest perfTest, SingleConsole singleConsole) {
+		try {
 			ScriptHandler prepareDistribution = perfTestService.prepareDistribution(perfTest);
 			GrinderProperties grinderProperties = perfTestService.getGrinderProperties(perfTest, prepareDistribution);
 			startAgentsOn(perfTest, grinderProperties, checkCancellation(singleConsole));
@@ -219,6 +414,9 @@ public class PerfTestRunnable implements ControllerConstants {
 			LOG.debug("Stack Trace is : ", e);
 			doTerminate(perfTest, singleConsole);
 			notifyFinish(perfTest, StopReason.ERROR_WHILE_PREPARE);
+		} finally {
+			agentManager.releaseAgents(perfTest.getId());
+			runnableTimes.remove(perfTest.getId());
 		}
 	}
 
@@ -287,9 +485,17 @@ public class PerfTestRunnable implements ControllerConstants {
 
 		});
 
-		// the files have prepared before
-		singleConsole.distributeFiles(perfTestService.getDistributionPath(perfTest), listener,
-				isSafeDistPerfTest(perfTest));
+		// the files have prepared before. Distribute them through the user's mirror so that the agents which have
+		// the files of the previous test receive only the changed files.
+		Lock mirrorLock = distributionCacheService.getMirrorLock(perfTest.getCreatedUser());
+		mirrorLock.lock();
+		try {
+			File mirror = distributionCacheService.syncMirror(perfTest.getCreatedUser(),
+					perfTestService.getDistributionPath(perfTest));
+			singleConsole.distributeFiles(mirror, listener, isSafeDistPerfTest(perfTest));
+		} finally {
+			mirrorLock.unlock();
+		}
 		perfTestService.markStatusAndProgress(perfTest, DISTRIBUTE_FILES_FINISHED,
 				"All necessary files are distributed.");
 	}
@@ -317,7 +523,7 @@ public class PerfTestRunnable implements ControllerConstants {
 		perfTestService.markStatusAndProgress(perfTest, START_AGENTS, getSafe(perfTest.getAgentCount())
 				+ " agents are starting.");
 		agentManager.runAgent(perfTest.getCreatedUser(), singleConsole, grinderProperties,
-				getSafe(perfTest.getAgentCount()));
+				getSafe(perfTest.getAgentCount()), perfTest.getId());
 		singleConsole.waitUntilAgentConnected(perfTest.getAgentCount());
 		perfTestService.markStatusAndProgress(perfTest, START_AGENTS_FINISHED, getSafe(perfTest.getAgentCount())
 				+ " agents are ready.");
@@ -351,23 +557,35 @@ public class PerfTestRunnable implements ControllerConstants {
 		perfTest.setStartTime(new Date(startTime));
 		addSamplingListeners(perfTest, singleConsole);
 		perfTestService.markStatusAndProgress(perfTest, TESTING, "The test is started.");
+		recordStartLatency(perfTest);
 		singleConsole.startSampling();
 
 	}
 
+	private void recordStartLatency(PerfTest perfTest) {
+		Long runnableTime = runnableTimes.remove(perfTest.getId());
+		if (runnableTime == null) {
+			return;
+		}
+		long latency = Math.max(System.currentTimeMillis() - runnableTime, 0);
+		dispatchStatistics.recordStartLatency(latency);
+		LOG.info("Test {} is started {} ms after it became runnable", perfTest.getId(), latency);
+	}
+
 	protected void addSamplingListeners(final PerfTest perfTest, final SingleConsole singleConsole) {
 		// Add SamplingLifeCycleListener
 		singleConsole.addSamplingLifeCyleListener(new PerfTestSamplingCollectorListener(singleConsole,
-				perfTest.getId(), perfTestService, scheduledTaskService));
+				perfTest.getId(), perfTestService, scheduledTaskService, config.getLiveStatisticsSaveInterval()));
 		singleConsole.addSamplingLifeCyleListener(new AgentLostDetectionListener(singleConsole, perfTest,
 				perfTestService, scheduledTaskService));
 		List<OnTestSamplingRunnable> testSamplingPlugins = pluginManager.getEnabledModulesByClass
 				(OnTestSamplingRunnable.class, new MonitorCollectorPlugin(config, scheduledTaskService,
-						perfTestService, perfTest.getId()));
+						perfTestService, monitorInfoStore, perfTest.getId()));
 		singleConsole.addSamplingLifeCyleListener(new PluginRunListener(testSamplingPlugins, singleConsole,
 				perfTest, perfTestService));
 		singleConsole.addSamplingLifeCyleListener(new AgentDieHardListener(singleConsole, perfTest, perfTestService,
 				agentManager, scheduledTaskService));
+		singleConsole.addSamplingLifeCyleListener(new AgentSystemDataRecorder(singleConsole, perfTest, agentManager));
 	}
 
 
@@ -395,9 +613,19 @@ public class PerfTestRunnable implements ControllerConstants {
 	 * <li>Normal test finish : when the test reaches the planned duration and run
 	 * count.</li>
 	 * </ul>
+	 * The abnormal and the user requested test finishes are checked when they are notified, and every
+	 * {@link #PERFTEST_TERMINATION_FREQUENCY_MILLISECONDS} for the requests made on the other controllers.
 	 */
 	public void finishPeriodically() {
-		doFinish(false);
+		if (consoleManager.getConsoleInUse().isEmpty()) {
+			return;
+		}
+		if (stopCheckRequested.getAndSet(false)
+				|| System.currentTimeMillis() - lastStopCheckTime >= PERFTEST_TERMINATION_FREQUENCY_MILLISECONDS) {
+			doFinish();
+		} else {
+			doFinishTesting();
+		}
 	}
 
 	protected void doFinish(boolean initial) {
@@ -408,6 +636,7 @@ public class PerfTestRunnable implements ControllerConstants {
 	}
 
 	void doFinish() {
+		lastStopCheckTime = System.currentTimeMillis();
 		for (PerfTest each : perfTestService.getAllAbnormalTesting()) {
 			LOG.info("Terminate {}", each.getId());
 			SingleConsole consoleUsingPort = consoleManager.getConsoleUsingPort(each.getPort());
@@ -424,6 +653,10 @@ public class PerfTestRunnable implements ControllerConstants {
 			notifyFinish(each, StopReason.CANCEL_BY_USER);
 		}
 
+		doFinishTesting();
+	}
+
+	private void doFinishTesting() {
 		for (PerfTest each : perfTestService.getAllTesting()) {
 			SingleConsole consoleUsingPort = consoleManager.getConsoleUsingPort(each.getPort());
 			if (isTestFinishCandidate(each, consoleUsingPort)) {
@@ -494,6 +727,7 @@ public class PerfTestRunnable implements ControllerConstants {
 			LOG.debug("Details : ", e);
 		}
 		consoleManager.returnBackConsole(perfTest.getTestIdentifier(), singleConsoleInUse);
+		requestDispatch();
 	}
 
 	/**
@@ -504,7 +738,9 @@ public class PerfTestRunnable implements ControllerConstants {
 	 *                           {@link PerfTest}
 	 */
 	public void doTerminate(PerfTest perfTest, SingleConsole singleConsoleInUse) {
-		singleConsoleInUse.unregisterSampling();
+		if (singleConsoleInUse != null) {
+			singleConsoleInUse.unregisterSampling();
+		}
 		try {
 			perfTestService.markProgressAndStatusAndFinishTimeAndStatistics(perfTest, Status.STOP_BY_ERROR,
 					"Stopped by error");
@@ -513,6 +749,7 @@ public class PerfTestRunnable implements ControllerConstants {
 			LOG.debug("Details : ", e);
 		}
 		consoleManager.returnBackConsole(perfTest.getTestIdentifier(), singleConsoleInUse);
+		requestDispatch();
 	}
 
 	/**
@@ -544,6 +781,7 @@ public class PerfTestRunnable implements ControllerConstants {
 			LOG.debug("Details : ", e);
 		}
 		consoleManager.returnBackConsole(perfTest.getTestIdentifier(), singleConsoleInUse);
+		requestDispatch();
 	}
 
 	public PerfTestService getPerfTestService() {
@@ -21,8 +21,12 @@ import net.grinder.StopReason;
 import net.grinder.common.GrinderProperties;
 import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
 import net.grinder.console.model.ConsoleProperties;
+import net.grinder.report.*;
+import net.grinder.statistics.CompactStatisticsCodec;
 import net.grinder.util.ConsolePropertiesFactory;
 import net.grinder.util.Directory;
+import net.grinder.util.ListenerSupport;
+import net.grinder.util.ListenerSupport.Informer;
 import net.grinder.util.Pair;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -40,6 +44,7 @@ import org.ngrinder.common.constants.GrinderConstants;
 import org.ngrinder.infra.config.Config;
 import org.ngrinder.model.*;
 import org.ngrinder.monitor.controller.model.SystemDataModel;
+import org.ngrinder.perftest.model.LiveStatistics;
 import org.ngrinder.perftest.model.PerfTestStatistics;
 import org.ngrinder.perftest.model.ProcessAndThread;
 import org.ngrinder.perftest.repository.PerfTestRepository;
@@ -59,6 +64,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specifications;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
@@ -70,10 +77,13 @@ import java.util.Map.Entry;
 import static org.ngrinder.common.constants.MonitorConstants.MONITOR_FILE_PREFIX;
 import static org.ngrinder.common.util.AccessUtils.getSafe;
 import static org.ngrinder.common.util.CollectionUtils.*;
+import static org.ngrinder.common.util.DateUtils.ms2Time;
 import static org.ngrinder.common.util.ExceptionUtils.processException;
 import static org.ngrinder.common.util.NoOp.noOp;
+import static org.ngrinder.common.util.Preconditions.checkArgument;
 import static org.ngrinder.common.util.Preconditions.checkNotEmpty;
 import static org.ngrinder.common.util.Preconditions.checkNotNull;
+import static org.ngrinder.common.util.Preconditions.checkState;
 import static org.ngrinder.model.Status.getProcessingOrTestingTestStatus;
 import static org.ngrinder.perftest.repository.PerfTestSpecification.*;
 
@@ -94,6 +104,8 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 
 	private static final String DATA_FILE_EXTENSION = ".data";
 
+	private static final int MONITOR_DATA_COLUMN_COUNT = 13;
+
 	@Autowired
 	private PerfTestRepository perfTestRepository;
 
@@ -115,6 +127,50 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	@Autowired
 	private ScriptHandlerFactory scriptHandlerFactory;
 
+	@Autowired
+	private LiveStatisticsService liveStatisticsService;
+
+	private final ListenerSupport<PerfTestStatusUpdateListener> statusUpdateListeners =
+			new ListenerSupport<PerfTestStatusUpdateListener>();
+
+	/**
+	 * Add the listener which is notified when a test is saved as READY, requested to stop or terminated abnormally.
+	 *
+	 * @param listener listener
+	 * @since 3.4.1
+	 */
+	public void addStatusUpdateListener(PerfTestStatusUpdateListener listener) {
+		statusUpdateListeners.add(listener);
+	}
+
+	/**
+	 * Notify the status update of the given test to the listeners. If it's in a transaction, the listeners are
+	 * notified after it's committed.
+	 *
+	 * @param perfTest updated perf test
+	 */
+	private void notifyStatusUpdated(final PerfTest perfTest) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					fireStatusUpdated(perfTest);
+				}
+			});
+		} else {
+			fireStatusUpdated(perfTest);
+		}
+	}
+
+	private void fireStatusUpdated(final PerfTest perfTest) {
+		statusUpdateListeners.apply(new Informer<PerfTestStatusUpdateListener>() {
+			@Override
+			public void inform(PerfTestStatusUpdateListener listener) {
+				listener.onStatusUpdated(perfTest);
+			}
+		});
+	}
+
 	/**
 	 * Get {@link PerfTest} list for the given user.
 	 *
@@ -242,8 +298,11 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	public PerfTest save(User user, PerfTest perfTest) {
 		attachFileRevision(user, perfTest);
 		attachTags(user, perfTest, perfTest.getTagString());
-		return save(perfTest);
-
+		PerfTest savedPerfTest = save(perfTest);
+		if (savedPerfTest.getStatus() == Status.READY) {
+			notifyStatusUpdated(savedPerfTest);
+		}
+		return savedPerfTest;
 	}
 
 	private PerfTest save(PerfTest perfTest) {
@@ -319,7 +378,9 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	public PerfTest markAbnormalTermination(PerfTest perfTest, String reason) {
 		// Leave last status as test error cause
 		perfTest.setTestErrorCause(perfTest.getStatus());
-		return markStatusAndProgress(perfTest, Status.ABNORMAL_TESTING, reason);
+		PerfTest markedPerfTest = markStatusAndProgress(perfTest, Status.ABNORMAL_TESTING, reason);
+		notifyStatusUpdated(markedPerfTest);
+		return markedPerfTest;
 	}
 
 
@@ -414,9 +475,31 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 */
 	@Transactional
 	public PerfTest getNextRunnablePerfTestPerfTestCandidate() {
-		List<PerfTest> readyPerfTests = perfTestRepository.findAllByStatusOrderByScheduledTimeAsc(Status.READY);
-		List<PerfTest> usersFirstPerfTests = filterCurrentlyRunningTestUsersTest(readyPerfTests);
-		return usersFirstPerfTests.isEmpty() ? null : readyPerfTests.get(0);
+		List<PerfTest> usersFirstPerfTests = filterCurrentlyRunningTestUsersTest(getAllReady());
+		return usersFirstPerfTests.isEmpty() ? null : usersFirstPerfTests.get(0);
+	}
+
+	/**
+	 * Get all {@link PerfTest}s which are waiting to run, in the order of the scheduled time.
+	 *
+	 * @return READY perf test list
+	 * @since 3.4.1
+	 */
+	@Transactional
+	public List<PerfTest> getAllReady() {
+		return perfTestRepository.findAllByStatusOrderByScheduledTimeAsc(Status.READY);
+	}
+
+	/**
+	 * Get the {@link PerfTest}s which can run now among the given tests. The tests of the users who are running
+	 * another test now are filtered out.
+	 *
+	 * @param readyPerfTests READY perf test list
+	 * @return runnable perf test list
+	 * @since 3.4.1
+	 */
+	public List<PerfTest> getRunnablePerfTestCandidates(List<PerfTest> readyPerfTests) {
+		return filterCurrentlyRunningTestUsersTest(new ArrayList<PerfTest>(readyPerfTests));
 	}
 
 	/**
@@ -608,9 +691,18 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 				grinderProperties.setInt(GRINDER_PROP_PROCESS_INCREMENT, 0);
 			}
 			grinderProperties.setInt(GRINDER_PROP_REPORT_TO_CONSOLE, 500);
+			// The console decodes the compact statistics. The older agents ignore it.
+			grinderProperties.setInt(GRINDER_PROP_COMPACT_STATISTICS, CompactStatisticsCodec.VERSION);
 			grinderProperties.setProperty(GRINDER_PROP_USER, perfTest.getCreatedUser().getUserId());
 			grinderProperties.setProperty(GRINDER_PROP_JVM_CLASSPATH, getCustomClassPath(perfTest));
 			grinderProperties.setInt(GRINDER_PROP_IGNORE_SAMPLE_COUNT, getSafe(perfTest.getIgnoreSampleCount()));
+			if (getSafe(perfTest.getArrivalRate()) > 0) {
+				grinderProperties.setInt(GRINDER_PROP_ARRIVAL_RATE, perfTest.getArrivalRate());
+			}
+			// The user's grinder.properties can turn it off for the test.
+			if (isLightweightVuser() && !grinderProperties.containsKey(GRINDER_PROP_LIGHTWEIGHT_THREAD)) {
+				grinderProperties.setBoolean(GRINDER_PROP_LIGHTWEIGHT_THREAD, true);
+			}
 			grinderProperties.setBoolean(GRINDER_PROP_SECURITY, config.isSecurityEnabled());
 			// For backward agent compatibility.
 			// If the security is not enabled, pass it as jvm argument.
@@ -675,6 +767,16 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		return config.getProcessAndThreadPolicyScript();
 	}
 
+	/**
+	 * Check if the vusers run on the lightweight threads. It can be specified at controller.lightweight_vuser in
+	 * system.conf.
+	 *
+	 * @return true if the lightweight threads are used
+	 */
+	public boolean isLightweightVuser() {
+		return config.getControllerProperties().getPropertyBoolean(PROP_CONTROLLER_LIGHTWEIGHT_VUSER);
+	}
+
 	/**
 	 * Get the optimal process and thread count.
 	 *
@@ -682,12 +784,25 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * @return optimal process thread count
 	 */
 	public ProcessAndThread calcProcessAndThread(int newVuser) {
+		return calcProcessAndThread(newVuser, isLightweightVuser());
+	}
+
+	/**
+	 * Get the optimal process and thread count.
+	 *
+	 * @param newVuser    the count of virtual users per agent
+	 * @param lightweight true if the vusers run on the lightweight threads
+	 * @return optimal process thread count
+	 */
+	public ProcessAndThread calcProcessAndThread(int newVuser, boolean lightweight) {
 		try {
 			String script = getProcessAndThreadPolicyScript();
 			ScriptEngine engine = new ScriptEngineManager().getEngineByName("javascript");
 			engine.eval(script);
-			int processCount = ((Double) engine.eval("getProcessCount(" + newVuser + ")")).intValue();
-			int threadCount = ((Double) engine.eval("getThreadCount(" + newVuser + ")")).intValue();
+			int processCount = ((Number) engine.eval("getProcessCount(" + newVuser + ", " + lightweight + ")"))
+					.intValue();
+			int threadCount = ((Number) engine.eval("getThreadCount(" + newVuser + ", " + lightweight + ")"))
+					.intValue();
 			return new ProcessAndThread(processCount, threadCount);
 		} catch (ScriptException e) {
 			LOGGER.error("Error occurs while calc process and thread", e);
@@ -705,34 +820,40 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * @return interval interval value
 	 */
 	public int getReportDataInterval(long testId, String dataType, int imgWidth) {
-		int pointCount = Math.max(imgWidth, MAX_POINT_COUNT);
-		File reportFolder = config.getHome().getPerfTestReportDirectory(String.valueOf(testId));
-		int interval = 0;
-		File targetFile = new File(reportFolder, dataType + DATA_FILE_EXTENSION);
+		ReportStoreReader reportStore = openReportStore(testId);
+		if (reportStore != null) {
+			try {
+				return getDataInterval(reportStore.getRowCount(), imgWidth);
+			} catch (IOException e) {
+				LOGGER.error("Failed to get report data for {}", dataType, e);
+				return 0;
+			} finally {
+				IOUtils.closeQuietly(reportStore);
+			}
+		}
+		File targetFile = getReportDataFile(testId, dataType);
 		if (!targetFile.exists()) {
 			LOGGER.warn("Report {} for test {} does not exist.", dataType, testId);
 			return 0;
 		}
-		LineNumberReader lnr = null;
-
-		FileInputStream in = null;
-		InputStreamReader isr = null;
+		DataFileIndex index = null;
 		try {
-			in = new FileInputStream(targetFile);
-			isr = new InputStreamReader(in);
-			lnr = new LineNumberReader(isr);
-			lnr.skip(targetFile.length());
-			int lineNumber = lnr.getLineNumber() + 1;
-			interval = Math.max(lineNumber / pointCount, 1);
+			index = DataFileIndex.open(targetFile, false, 1);
+			return getDataInterval(index.getRowCount(), imgWidth);
 		} catch (Exception e) {
 			LOGGER.error("Failed to get report data for {}", dataType, e);
+			return 0;
 		} finally {
-			IOUtils.closeQuietly(lnr);
-			IOUtils.closeQuietly(isr);
-			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(index);
 		}
+	}
 
-		return interval;
+	/*
+	 * Get the interval value aligned to the report data rollups, so that the chart is served from the closest rollup.
+	 */
+	private int getDataInterval(long rowCount, int imageWidth) {
+		int pointCount = Math.max(imageWidth, MAX_POINT_COUNT);
+		return RollupReader.alignInterval((int) Math.max(rowCount / pointCount, 1));
 	}
 
 	/**
@@ -789,7 +910,13 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		if (!logFileDirectory.exists() || !logFileDirectory.isDirectory()) {
 			return Collections.emptyList();
 		}
-		return Arrays.asList(logFileDirectory.list());
+		// The logs which are being uploaded are excluded.
+		return Arrays.asList(logFileDirectory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return !name.endsWith(".part");
+			}
+		}));
 	}
 
 
@@ -817,6 +944,45 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		updateRuntimeStatistics(perfTestId, runningSample, agentState);
 	}
 
+	/**
+	 * Put the latest sample of the running test into the live statistics cache. Unlike
+	 * {@link #saveStatistics(SingleConsole, Long)}, the statistics are not truncated.
+	 *
+	 * @param singleConsole single console.
+	 * @param perfTestId    perfTest Id
+	 */
+	public void updateLiveStatistics(SingleConsole singleConsole, Long perfTestId) {
+		liveStatisticsService.put(perfTestId, gson.toJson(singleConsole.getStatisticsData()),
+				gson.toJson(getAgentStatusMap(singleConsole)));
+	}
+
+	/**
+	 * Save the final statistics of the finished test and remove it from the live statistics cache.
+	 *
+	 * @param singleConsole single console.
+	 * @param perfTestId    perfTest Id
+	 */
+	@Transactional
+	public void saveFinalStatistics(SingleConsole singleConsole, Long perfTestId) {
+		try {
+			saveStatistics(singleConsole, perfTestId);
+		} finally {
+			liveStatisticsService.remove(perfTestId);
+		}
+	}
+
+	/**
+	 * Wait until the newer sample than the given sequence is available and get it.
+	 *
+	 * @param perfTestId perfTest Id
+	 * @param sequence   sequence of the last sample which the caller has
+	 * @param timeout    max waiting time in millisecond
+	 * @return live statistics. null if the test is not running.
+	 */
+	public LiveStatistics waitForLiveStatistics(Long perfTestId, long sequence, long timeout) {
+		return liveStatisticsService.waitForUpdate(perfTestId, sequence, timeout);
+	}
+
 	private String getProperSizeRunningSample(SingleConsole singleConsole) {
 		Map<String, Object> statisticData = singleConsole.getStatisticsData();
 		String runningSample = gson.toJson(statisticData);
@@ -843,12 +1009,16 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * @return converted json
 	 */
 	public String getProperSizedStatusString(SingleConsole singleConsole) {
+		return getProperSizedStatusString(getAgentStatusMap(singleConsole));
+	}
+
+	private Map<String, SystemDataModel> getAgentStatusMap(SingleConsole singleConsole) {
 		Map<String, SystemDataModel> agentStatusMap = Maps.newHashMap();
 		final int singleConsolePort = singleConsole.getConsolePort();
 		for (AgentStatus each : agentManager.getAgentStatusSetConnectingToPort(singleConsolePort)) {
 			agentStatusMap.put(each.getAgentName(), each.getSystemDataModel());
 		}
-		return getProperSizedStatusString(agentStatusMap);
+		return agentStatusMap;
 	}
 
 	String getProperSizedStatusString(Map<String, SystemDataModel> agentStatusMap) {
@@ -875,13 +1045,18 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	}
 
 	/**
-	 * get test running statistic data from cache. If there is no cache data, will return empty statistic data.
+	 * get test running statistic data from cache. If there is no cache data, the data saved in the perf test is
+	 * returned.
 	 *
 	 * @param perfTest perfTest
 	 * @return test running statistic data
 	 */
 	@SuppressWarnings("unchecked")
 	public Map<String, Object> getStatistics(PerfTest perfTest) {
+		LiveStatistics liveStatistics = liveStatisticsService.get(perfTest.getId());
+		if (liveStatistics != null) {
+			return gson.fromJson(liveStatistics.getRunningSample(), HashMap.class);
+		}
 		return gson.fromJson(perfTest.getRunningSample(), HashMap.class);
 	}
 
@@ -896,6 +1071,10 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 */
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	public Map<String, HashMap> getAgentStat(PerfTest perfTest) {
+		LiveStatistics liveStatistics = liveStatisticsService.get(perfTest.getId());
+		if (liveStatistics != null) {
+			return gson.fromJson(liveStatistics.getAgentState(), HashMap.class);
+		}
 		return gson.fromJson(perfTest.getAgentState(), HashMap.class);
 	}
 
@@ -1008,7 +1187,57 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		// This will be not be effective on cluster mode.
 		consoleManager.getConsoleUsingPort(perfTest.getPort()).cancel();
 		perfTest.setStopRequest(true);
-		perfTestRepository.save(perfTest);
+		notifyStatusUpdated(perfTestRepository.save(perfTest));
+	}
+
+	/**
+	 * Change the load of the running perf test. The worker processes start or stop the threads to reach the target
+	 * vuser count, and apply the target TPS to the arrival rate based test. The change is recorded as a progress
+	 * message, so that it's shown in the test timeline. The test configuration is not changed.
+	 *
+	 * @param user  user
+	 * @param id    perf test id
+	 * @param vuser target vuser count of the whole test. null if it's not changed.
+	 * @param tps   target arrival rate of the whole test. null if it's not changed.
+	 * @return the perf test having the recorded change
+	 * @since 3.4.1
+	 */
+	@Transactional
+	public PerfTest changeTargetLoad(User user, Long id, Integer vuser, Integer tps) {
+		PerfTest perfTest = getOne(id);
+		checkArgument(hasPermission(perfTest, user, Permission.STOP_TEST_OF_OTHER),
+				"User %s has no right on PerfTest %s", user.getUserId(), id);
+		checkState(perfTest.getStatus() == Status.TESTING, "PerfTest %s is not running", id);
+		checkArgument(vuser != null || tps != null, "vuser or tps should be provided");
+		checkArgument(vuser == null || vuser > 0, "vuser should be positive");
+		checkArgument(tps == null || tps > 0, "tps should be positive");
+		checkArgument(tps == null || getSafe(perfTest.getArrivalRate()) > 0,
+				"tps can be changed only in the arrival rate based test");
+
+		// The agents which don't know the target load message can't read it.
+		int agentCount = 0;
+		for (AgentStatus each : agentManager.getAgentStatusSetConnectingToPort(perfTest.getPort())) {
+			checkState(StringUtils.equals(each.getVersion(), config.getVersion()),
+					"Agent %s should be updated to %s to change the load", each.getAgentName(), config.getVersion());
+			agentCount++;
+		}
+		checkState(agentCount > 0, "No agent is running PerfTest %s", id);
+
+		int threadsPerProcess = 0;
+		StringBuilder message = new StringBuilder("Target load is changed to");
+		if (vuser != null) {
+			int processCount = agentCount * Math.max(getSafe(perfTest.getProcesses()), 1);
+			threadsPerProcess = Math.max((vuser + processCount - 1) / processCount, 1);
+			message.append(" ").append(threadsPerProcess * processCount).append(" vusers");
+		}
+		if (tps != null) {
+			message.append(" ").append(tps).append(" tps");
+		}
+
+		SingleConsole singleConsole = consoleManager.getConsoleUsingPort(perfTest.getPort());
+		singleConsole.sendTargetLoadMessageToAgents(threadsPerProcess, tps == null ? 0 : tps);
+		message.append(" at ").append(ms2Time(singleConsole.getCurrentRunningTime()));
+		return markProgress(perfTest, message.toString());
 	}
 
 	/**
@@ -1185,31 +1414,24 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * @return interval value.
 	 */
 	public int getMonitorGraphInterval(long testId, String targetIP, int imageWidth) {
-		File monitorDataFile = new File(config.getHome().getPerfTestReportDirectory(String.valueOf(testId)),
-				MONITOR_FILE_PREFIX + targetIP + ".data");
-
-		int pointCount = Math.max(imageWidth, MAX_POINT_COUNT);
-		FileInputStream in = null;
-		InputStreamReader isr = null;
-		LineNumberReader lnr = null;
-		int interval = 0;
+		File monitorDataFile = getMonitorDataFile(testId, targetIP);
+		DataFileIndex index = null;
 		try {
-			in = new FileInputStream(monitorDataFile);
-			isr = new InputStreamReader(in);
-			lnr = new LineNumberReader(isr);
-			lnr.skip(monitorDataFile.length());
-			int lineNumber = lnr.getLineNumber() + 1;
-			interval = Math.max(lineNumber / pointCount, 1);
+			index = DataFileIndex.open(monitorDataFile, true, MONITOR_DATA_COLUMN_COUNT);
+			return getDataInterval(index.getRowCount(), imageWidth);
 		} catch (FileNotFoundException e) {
 			LOGGER.info("Monitor data file does not exist at {}", monitorDataFile);
 		} catch (IOException e) {
 			LOGGER.info("Error while getting monitor:{} data file:{}", targetIP, monitorDataFile);
 		} finally {
-			IOUtils.closeQuietly(lnr);
-			IOUtils.closeQuietly(isr);
-			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(index);
 		}
-		return interval;
+		return 0;
+	}
+
+	private File getMonitorDataFile(long testId, String targetIP) {
+		return new File(config.getHome().getPerfTestReportDirectory(String.valueOf(testId)),
+				MONITOR_FILE_PREFIX + targetIP + DATA_FILE_EXTENSION);
 	}
 
 	/**
@@ -1223,82 +1445,46 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 */
 	public Map<String, String> getMonitorGraph(long testId, String targetIP, int dataInterval) {
 		Map<String, String> returnMap = Maps.newHashMap();
-		File monitorDataFile = new File(config.getHome().getPerfTestReportDirectory(String.valueOf(testId)),
-				MONITOR_FILE_PREFIX + targetIP + ".data");
-		BufferedReader br = null;
+		File monitorDataFile = getMonitorDataFile(testId, targetIP);
+		DataFileIndex index = null;
 		try {
-
-			StringBuilder sbUsedMem = new StringBuilder("[");
-			StringBuilder sbCPUUsed = new StringBuilder("[");
-			StringBuilder sbNetReceived = new StringBuilder("[");
-			StringBuilder sbNetSent = new StringBuilder("[");
-			StringBuilder customData1 = new StringBuilder("[");
-			StringBuilder customData2 = new StringBuilder("[");
-			StringBuilder customData3 = new StringBuilder("[");
-			StringBuilder customData4 = new StringBuilder("[");
-			StringBuilder customData5 = new StringBuilder("[");
-
-			br = new BufferedReader(new FileReader(monitorDataFile));
-			br.readLine(); // skip the header.
-			// "ip,system,collectTime,freeMemory,totalMemory,cpuUsedPercentage,receivedPerSec,sentPerSec"
-			String line = br.readLine();
-			int skipCount = dataInterval;
-			// to be compatible with previous version, check the length before
-			// adding
-			while (StringUtils.isNotBlank(line)) {
-				if (skipCount < dataInterval) {
-					skipCount++;
-				} else {
-					skipCount = 1;
-					String[] datalist = StringUtils.split(line, ",");
-					if ("null".equals(datalist[4]) || "undefined".equals(datalist[4])) {
-						sbUsedMem.append("null").append(",");
-					} else {
-						sbUsedMem.append(Long.valueOf(datalist[4]) - Long.valueOf(datalist[3])).append(",");
-					}
-					addCustomData(sbCPUUsed, 5, datalist);
-					addCustomData(sbNetReceived, 6, datalist);
-					addCustomData(sbNetSent, 7, datalist);
-					addCustomData(customData1, 8, datalist);
-					addCustomData(customData2, 9, datalist);
-					addCustomData(customData3, 10, datalist);
-					addCustomData(customData4, 11, datalist);
-					addCustomData(customData5, 12, datalist);
-					line = br.readLine();
-				}
+			// "ip,system,collectTime,freeMemory,totalMemory,cpuUsedPercentage,receivedPerSec,sentPerSec,customValues"
+			index = DataFileIndex.open(monitorDataFile, true, MONITOR_DATA_COLUMN_COUNT);
+			DownsampledSeries freeMemory = index.readColumn(3, dataInterval);
+			DownsampledSeries totalMemory = index.readColumn(4, dataInterval);
+			double[] usedMemory = totalMemory.getAvg();
+			double[] free = freeMemory.getAvg();
+			for (int i = 0; i < usedMemory.length; i++) {
+				usedMemory[i] = usedMemory[i] - free[i];
+			}
+			returnMap.put("memory", ReportStoreReader.toJson(usedMemory));
+			addMonitorData(returnMap, "cpu", index.readColumn(5, dataInterval));
+			addMonitorData(returnMap, "received", index.readColumn(6, dataInterval));
+			addMonitorData(returnMap, "sent", index.readColumn(7, dataInterval));
+			for (int i = 1; i <= 5; i++) {
+				addMonitorData(returnMap, "customData" + i, index.readColumn(7 + i, dataInterval));
 			}
-			completeCustomData(returnMap, "cpu", sbCPUUsed);
-			completeCustomData(returnMap, "memory", sbUsedMem);
-			completeCustomData(returnMap, "received", sbNetReceived);
-			completeCustomData(returnMap, "sent", sbNetSent);
-			completeCustomData(returnMap, "customData1", customData1);
-			completeCustomData(returnMap, "customData2", customData2);
-			completeCustomData(returnMap, "customData3", customData3);
-			completeCustomData(returnMap, "customData4", customData4);
-			completeCustomData(returnMap, "customData5", customData5);
 		} catch (IOException e) {
 			LOGGER.info("Error while getting monitor {} data file at {}", targetIP, monitorDataFile);
 		} finally {
-			IOUtils.closeQuietly(br);
+			IOUtils.closeQuietly(index);
 		}
 		return returnMap;
 	}
 
-
-	private void addCustomData(StringBuilder customData, int index, String[] data) {
-		if (data.length > index) {
-			customData.append(data[index]).append(",");
-		}
-	}
-
-	private void completeCustomData(Map<String, String> returnMap, String key, StringBuilder customData) {
-		if (customData.charAt(customData.length() - 1) == ',') {
-			customData.deleteCharAt(customData.length() - 1);
+	/*
+	 * Put the average of each point and the peak of each point with "_max" suffix. The column which doesn't have any
+	 * value is put as the empty list to be compatible with the data file of the previous version.
+	 */
+	private void addMonitorData(Map<String, String> returnMap, String key, DownsampledSeries series) {
+		if (series.isEmpty()) {
+			returnMap.put(key, "[]");
+			return;
 		}
-		returnMap.put(key, customData.append("]").toString());
+		returnMap.put(key, ReportStoreReader.toJson(series.getAvg()));
+		returnMap.put(key + "_max", ReportStoreReader.toJson(series.getMax()));
 	}
 
-
 	/**
 	 * Get report file directory for give test id .
 	 *
@@ -1361,17 +1547,10 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * display. For example, interval value "2" means, get one record for every "2" records.
 	 */
 	private int getRecordInterval(int imageWidth, File dataFile) {
-		int pointCount = Math.max(imageWidth, MAX_POINT_COUNT);
-		FileInputStream in = null;
-		InputStreamReader isr = null;
-		LineNumberReader lnr = null;
-		int interval = 0;
+		DataFileIndex index = null;
 		try {
-			in = new FileInputStream(dataFile);
-			isr = new InputStreamReader(in);
-			lnr = new LineNumberReader(isr);
-			lnr.skip(dataFile.length());
-			interval = Math.max((lnr.getLineNumber() + 1) / pointCount, 1);
+			index = DataFileIndex.open(dataFile, true, getHeaders(dataFile).length);
+			return getDataInterval(index.getRowCount(), imageWidth);
 		} catch (FileNotFoundException e) {
 			LOGGER.error("data file not exist:{}", dataFile);
 			LOGGER.error(e.getMessage(), e);
@@ -1379,11 +1558,25 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 			LOGGER.error("Error while getting data file:{}", dataFile);
 			LOGGER.error(e.getMessage(), e);
 		} finally {
-			IOUtils.closeQuietly(lnr);
-			IOUtils.closeQuietly(isr);
-			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(index);
+		}
+		return 0;
+	}
+
+	/*
+	 * Get the header of the plugin data file which is the first line.
+	 */
+	private String[] getHeaders(File dataFile) throws IOException {
+		BufferedReader br = new BufferedReader(new FileReader(dataFile));
+		try {
+			String[] headers = StringUtils.split(StringUtils.defaultString(br.readLine()), ",");
+			if (headers.length == 0) {
+				throw new IOException("There is no header in " + dataFile);
+			}
+			return headers;
+		} finally {
+			IOUtils.closeQuietly(br);
 		}
-		return interval;
 	}
 
 	/**
@@ -1399,62 +1592,35 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	public Map<String, Object> getReportPluginGraph(long testId, String plugin, String kind, int interval) {
 		Map<String, Object> returnMap = Maps.newHashMap();
 		File pluginDataFile = getReportPluginDataFile(testId, plugin, kind);
-		BufferedReader br = null;
+		DataFileIndex index = null;
 		try {
-			br = new BufferedReader(new FileReader(pluginDataFile));
-			String header = br.readLine();
-
+			String[] headers = getHeaders(pluginDataFile);
 			StringBuilder headerSB = new StringBuilder("[");
-			String[] headers = StringUtils.split(header, ",");
-			String[] refinedHeaders = StringUtils.split(header, ",");
-			List<StringBuilder> dataStringBuilders = new ArrayList<StringBuilder>(headers.length);
-
+			String[] refinedHeaders = new String[headers.length];
 			for (int i = 0; i < headers.length; i++) {
-				dataStringBuilders.add(new StringBuilder("["));
-				String refinedHead = headers[i].trim().replaceAll(" ", "_");
-				refinedHeaders[i] = refinedHead;
-				headerSB.append("'").append(refinedHead).append("'").append(",");
+				refinedHeaders[i] = headers[i].trim().replaceAll(" ", "_");
+				headerSB.append("'").append(refinedHeaders[i]).append("'").append(",");
 			}
-			String headerStringInJSONList = headerSB.deleteCharAt(headerSB.length() - 1).append("]").toString();
-			returnMap.put("header", headerStringInJSONList);
-
-			String line = br.readLine();
-			int skipCount = interval;
-			// to be compatible with previous version, check the length before adding
-			while (StringUtils.isNotBlank(line)) {
-				if (skipCount < interval) {
-					skipCount++;
-				} else {
-					skipCount = 1;
-					String[] records = StringUtils.split(line, ",");
-					for (int i = 0; i < records.length; i++) {
-						if ("null".equals(records[i]) || "undefined".equals(records[i])) {
-							dataStringBuilders.get(i).append("null").append(",");
-						} else {
-							dataStringBuilders.get(i).append(records[i]).append(",");
-						}
-					}
-					line = br.readLine();
-				}
+			if (headerSB.charAt(headerSB.length() - 1) == ',') {
+				headerSB.deleteCharAt(headerSB.length() - 1);
 			}
+			returnMap.put("header", headerSB.append("]").toString());
+
+			index = DataFileIndex.open(pluginDataFile, true, headers.length);
 			for (int i = 0; i < refinedHeaders.length; i++) {
-				StringBuilder dataSB = dataStringBuilders.get(i);
-				if (dataSB.charAt(dataSB.length() - 1) == ',') {
-					dataSB.deleteCharAt(dataSB.length() - 1);
-				}
-				dataSB.append("]");
-				returnMap.put(refinedHeaders[i], dataSB.toString());
+				DownsampledSeries series = index.readColumn(i, interval);
+				returnMap.put(refinedHeaders[i], ReportStoreReader.toJson(series.getAvg()));
+				returnMap.put(refinedHeaders[i] + "_max", ReportStoreReader.toJson(series.getMax()));
 			}
 		} catch (IOException e) {
 			LOGGER.error("Error while getting monitor: {} data file:{}", plugin, pluginDataFile);
 			LOGGER.error(e.getMessage(), e);
 		} finally {
-			IOUtils.closeQuietly(br);
+			IOUtils.closeQuietly(index);
 		}
 		return returnMap;
 	}
 
-
 	/**
 	 * Get json string that contains test report data as a json string.
 	 *
@@ -1464,8 +1630,8 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	 * @return json list
 	 */
 	public String getSingleReportDataAsJson(long testId, String key, int interval) {
-		File reportDataFile = getReportDataFile(testId, key);
-		return getFileDataAsJson(reportDataFile, interval);
+		List<Pair<String, DownsampledSeries>> series = getReportSeries(testId, key, true, interval);
+		return series.isEmpty() ? "[]" : ReportStoreReader.toJson(series.get(0).getSecond().getAvg());
 	}
 
 	/**
@@ -1480,22 +1646,90 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 	public Pair<ArrayList<String>, ArrayList<String>> getReportData(long testId, String key, boolean onlyTotal, int interval) {
 		Pair<ArrayList<String>, ArrayList<String>> resultPair = Pair.of(new ArrayList<String>(),
 				new ArrayList<String>());
+		for (Pair<String, DownsampledSeries> each : getReportSeries(testId, key, onlyTotal, interval)) {
+			resultPair.getFirst().add(each.getFirst());
+			resultPair.getSecond().add(ReportStoreReader.toJson(each.getSecond().getAvg()));
+		}
+		return resultPair;
+	}
+
+	/**
+	 * Get the test report chart data. Each point has the average value and the min/max value of the rows aggregated
+	 * into the point, so that the peaks are visible in the long test.
+	 *
+	 * @param testId    test id
+	 * @param key       report key
+	 * @param onlyTotal true if only total show be passed
+	 * @param interval  interval to collect data
+	 * @return map containing labels, data, min and max lists
+	 */
+	public Map<String, Object> getReportGraphData(long testId, String key, boolean onlyTotal, int interval) {
+		ArrayList<String> labels = new ArrayList<String>();
+		ArrayList<String> data = new ArrayList<String>();
+		ArrayList<String> min = new ArrayList<String>();
+		ArrayList<String> max = new ArrayList<String>();
+		for (Pair<String, DownsampledSeries> each : getReportSeries(testId, key, onlyTotal, interval)) {
+			labels.add(each.getFirst());
+			data.add(ReportStoreReader.toJson(each.getSecond().getAvg()));
+			min.add(ReportStoreReader.toJson(each.getSecond().getMin()));
+			max.add(ReportStoreReader.toJson(each.getSecond().getMax()));
+		}
+		Map<String, Object> dataMap = Maps.newHashMap();
+		dataMap.put("labels", labels);
+		dataMap.put("data", data);
+		dataMap.put("min", min);
+		dataMap.put("max", max);
+		return dataMap;
+	}
+
+	/*
+	 * Get the downsampled series and the label of the given report key from the report store or from the .data files
+	 * of the previous version.
+	 */
+	private List<Pair<String, DownsampledSeries>> getReportSeries(long testId, String key, boolean onlyTotal,
+	                                                              int interval) {
+		List<Pair<String, DownsampledSeries>> result = newArrayList();
+		ReportStoreReader reportStore = openReportStore(testId);
+		if (reportStore != null) {
+			try {
+				for (String each : getReportDataColumns(reportStore.getHeader(), key, onlyTotal)) {
+					result.add(Pair.of(getReportLabel(key, each),
+							reportStore.readColumn(reportStore.getHeader().getColumnIndex(each), interval)));
+				}
+			} catch (IOException e) {
+				LOGGER.error("Report data retrieval is failed: {}", e.getMessage());
+				LOGGER.debug("Trace is : ", e);
+			} finally {
+				IOUtils.closeQuietly(reportStore);
+			}
+			return result;
+		}
 		List<File> reportDataFiles = onlyTotal ? Lists.newArrayList(getReportDataFile(testId, key)) : getReportDataFiles(testId, key);
 		for (File file : reportDataFiles) {
-			String buildReportName = buildReportName(key, file);
-			if (key.equals(buildReportName)) {
-				buildReportName = "Total";
-			} else {
-				buildReportName = buildReportName.replace("_", " ");
+			if (!file.exists()) {
+				continue;
+			}
+			DataFileIndex index = null;
+			try {
+				index = DataFileIndex.open(file, false, 1);
+				result.add(Pair.of(getReportLabel(key, FilenameUtils.removeExtension(file.getName())),
+						index.readColumn(0, interval)));
+			} catch (IOException e) {
+				LOGGER.error("Report data retrieval is failed: {}", e.getMessage());
+				LOGGER.debug("Trace is : ", e);
+			} finally {
+				IOUtils.closeQuietly(index);
 			}
-			resultPair.getFirst().add(buildReportName);
-			resultPair.getSecond().add(getFileDataAsJson(file, interval));
 		}
-		return resultPair;
+		return result;
 	}
 
-	private String buildReportName(String key, File file) {
-		String reportName = FilenameUtils.removeExtension(file.getName());
+	private String getReportLabel(String key, String reportName) {
+		String buildReportName = buildReportName(key, reportName);
+		return key.equals(buildReportName) ? "Total" : buildReportName.replace("_", " ");
+	}
+
+	private String buildReportName(String key, String reportName) {
 		if (key.equals(reportName)) {
 			return reportName;
 		}
@@ -1506,6 +1740,48 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		return reportName;
 	}
 
+	/**
+	 * Get the report store column names for the given report key in the same order as
+	 * {@link #getReportDataFiles(long, String)}.
+	 *
+	 * @param header    report store header
+	 * @param key       report key
+	 * @param onlyTotal true if only total column should be returned
+	 * @return column names
+	 */
+	private List<String> getReportDataColumns(ReportStoreHeader header, String key, boolean onlyTotal) {
+		List<String> columns = newArrayList();
+		List<String> allColumns = header.getColumns();
+		for (int i = 0; i < allColumns.size(); i++) {
+			String each = allColumns.get(i);
+			if (each.equals(key) || (!onlyTotal && each.startsWith(key) && header.isDataView(i))) {
+				columns.add(each);
+			}
+		}
+		Collections.sort(columns);
+		return columns;
+	}
+
+	/**
+	 * Open the report store of the given test.
+	 *
+	 * @param testId test id
+	 * @return report store reader. null if the test doesn't have the report store.
+	 */
+	private ReportStoreReader openReportStore(long testId) {
+		File storeFile = ReportStoreHeader.getReportStoreFile(getReportFileDirectory(testId));
+		if (!storeFile.exists()) {
+			return null;
+		}
+		try {
+			return ReportStoreReader.open(storeFile);
+		} catch (IOException e) {
+			LOGGER.error("Report store {} is not readable: {}", storeFile, e.getMessage());
+			LOGGER.debug("Trace is : ", e);
+			return null;
+		}
+	}
+
 	/**
 	 * Get a single file for the given report key.
 	 *
@@ -1538,48 +1814,6 @@ public class PerfTestService extends AbstractPerfTestService implements Controll
 		return Arrays.asList(files);
 	}
 
-	/**
-	 * Get the test report data as a json string.
-	 *
-	 * @param targetFile target file
-	 * @param interval   interval to collect data
-	 * @return json string
-	 */
-	private String getFileDataAsJson(File targetFile, int interval) {
-		if (!targetFile.exists()) {
-			return "[]";
-		}
-		StringBuilder reportData = new StringBuilder("[");
-		FileReader reader = null;
-		BufferedReader br = null;
-		try {
-			reader = new FileReader(targetFile);
-			br = new BufferedReader(reader);
-			String data = br.readLine();
-			int current = 0;
-			while (StringUtils.isNotBlank(data)) {
-				if (0 == current) {
-					reportData.append(data);
-					reportData.append(",");
-				}
-				if (++current >= interval) {
-					current = 0;
-				}
-				data = br.readLine();
-			}
-			if (reportData.charAt(reportData.length() - 1) == ',') {
-				reportData.deleteCharAt(reportData.length() - 1);
-			}
-		} catch (IOException e) {
-			LOGGER.error("Report data retrieval is failed: {}", e.getMessage());
-			LOGGER.debug("Trace is : ", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
-			IOUtils.closeQuietly(br);
-		}
-		return reportData.append("]").toString();
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * 
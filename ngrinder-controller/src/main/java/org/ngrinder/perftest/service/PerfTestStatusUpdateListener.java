@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service;
+
+import org.ngrinder.model.PerfTest;
+
+import java.util.EventListener;
+
+/**
+ * Listener which is invoked when a {@link PerfTest} is saved as READY, requested to stop or terminated abnormally.
+ * <p/>
+ * It's called after the change is committed, so the listener can read the change from DB.
+ *
+ * @since 3.4.1
+ */
+public interface PerfTestStatusUpdateListener extends EventListener {
+	/**
+	 * Called when the status or the stop request of the given test is updated.
+	 *
+	 * @param perfTest updated perf test
+	 */
+	public void onStatusUpdated(PerfTest perfTest);
+}
@@ -61,7 +61,7 @@ public class MonitorClientService implements Closeable, MonitorConstants {
 	}
 
 	public boolean isConnected() {
-		return mBeanClient.isConnected();
+		return mBeanClient != null && mBeanClient.isConnected();
 	}
 
 
@@ -82,20 +82,26 @@ public class MonitorClientService implements Closeable, MonitorConstants {
 	}
 
 	/**
-	 * Get monitor data from MBClient and record into writer.
+	 * Get monitor data from MBClient and record into writer. The client is
+	 * disconnected when it fails, so that it can be connected again.
+	 *
+	 * @return true if the monitor data is updated
 	 */
-	public void update() {
+	public boolean update() {
 		try {
-			if (mBeanClient.isConnected()) {
+			if (isConnected()) {
 				CompositeData cd = cast(mBeanClient.getAttribute(objectName, "SystemInfo"));
 				SystemInfo systemInfo = new SystemInfo();
 				systemInfo.parse(cd);
 				systemInfo.setIp(ip);
 				this.systemInfo = systemInfo;
+				return true;
 			}
 		} catch (Exception e) {
 			LOGGER.error("Error while MonitorExecutorWorker is running. Disconnect this MBean client.", e);
+			close();
 		}
+		return false;
 	}
 
 	/**
@@ -103,7 +109,9 @@ public class MonitorClientService implements Closeable, MonitorConstants {
 	 */
 
 	public void close() {
-		mBeanClient.disconnect();
+		if (mBeanClient != null) {
+			mBeanClient.disconnect();
+		}
 	}
 
 
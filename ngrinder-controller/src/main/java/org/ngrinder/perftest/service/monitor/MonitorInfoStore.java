@@ -13,7 +13,6 @@
  */
 package org.ngrinder.perftest.service.monitor;
 
-import org.apache.commons.io.IOUtils;
 import org.ngrinder.infra.schedule.ScheduledTaskService;
 import org.ngrinder.monitor.share.domain.SystemInfo;
 import org.slf4j.Logger;
@@ -22,64 +21,195 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Used to save JMX connect for every request that want to observe monitor real-time system information.
+ * <p/>
+ * It keeps one connection per target host, which is shared by the running tests and the monitor page. The targets
+ * are polled in parallel on its own threads, so a slow or dead target doesn't delay the others. The polling which
+ * runs longer than {@link #POLLING_TIMEOUT} is aborted, and the system info of the target becomes stale.
  */
 @Service
 public class MonitorInfoStore implements Runnable {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MonitorInfoStore.class);
 
+	/**
+	 * Polling interval in millisecond.
+	 */
+	public static final int POLLING_INTERVAL = 1000;
+
+	/**
+	 * Max time of a polling in millisecond.
+	 */
+	public static final int POLLING_TIMEOUT = 2000;
+
+	/**
+	 * The system info which is not updated in this time is stale.
+	 */
+	public static final long STALE_TIME = POLLING_TIMEOUT + 2 * POLLING_INTERVAL;
+
+	private static final long UNUSED_TIME = 30000;
+
 	@Autowired
 	private ScheduledTaskService scheduledTaskService;
-	private Map<String, MonitorClientService> monitorClientMap = new ConcurrentHashMap<String, MonitorClientService>();
+	private Map<String, MonitorTarget> monitorTargetMap = new ConcurrentHashMap<String, MonitorTarget>();
 
+	private ExecutorService pollingExecutor;
+
+	private final Runnable pollingTask = new Runnable() {
+		@Override
+		public void run() {
+			poll();
+		}
+	};
 
 	@PostConstruct
 	public void init() {
+		pollingExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "monitor-polling-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		scheduledTaskService.addFixedDelayedScheduledTask(this, 30000);
+		scheduledTaskService.addFixedDelayedScheduledTask(pollingTask, POLLING_INTERVAL);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduledTaskService.removeScheduledJob(pollingTask);
+		scheduledTaskService.removeScheduledJob(this);
+		for (String each : monitorTargetMap.keySet()) {
+			close(each, true);
+		}
+		pollingExecutor.shutdownNow();
 	}
 
 	/**
-	 * Get monitor data from mbean client.
+	 * Get monitor data from mbean client. The data is polled in the background, so it waits for the first polling
+	 * only when the target is accessed first.
 	 *
 	 * @param ip   ip
 	 * @param port port
 	 * @return {@link org.ngrinder.monitor.share.domain.SystemInfo}
 	 */
 	public SystemInfo getSystemInfo(String ip, int port) {
-		MonitorClientService monitorClient = monitorClientMap.get(ip);
-		if (monitorClient == null) {
-			monitorClient = new MonitorClientService(ip, port);
-			monitorClient.init();
-			IOUtils.closeQuietly(monitorClientMap.put(ip, monitorClient));
+		MonitorTarget target = getTarget(ip, port);
+		target.setLastAccessedTime(System.currentTimeMillis());
+		target.awaitFirstPolling(POLLING_TIMEOUT);
+		return target.getSystemInfo();
+	}
+
+	/**
+	 * Start monitoring the given target during a test. The target is not closed until {@link #unregister(String)}
+	 * is called as many as this.
+	 *
+	 * @param ip   ip
+	 * @param port port
+	 * @return monitored target
+	 */
+	public MonitorTarget register(String ip, int port) {
+		synchronized (this) {
+			MonitorTarget target = getTarget(ip, port);
+			target.setReferences(target.getReferences() + 1);
+			return target;
+		}
+	}
+
+	/**
+	 * Stop monitoring the given target registered by {@link #register(String, int)}.
+	 *
+	 * @param ip ip
+	 */
+	public void unregister(String ip) {
+		synchronized (this) {
+			MonitorTarget target = monitorTargetMap.get(ip);
+			if (target != null) {
+				target.setReferences(Math.max(target.getReferences() - 1, 0));
+				target.setLastAccessedTime(System.currentTimeMillis());
+			}
+		}
+	}
+
+	private MonitorTarget getTarget(String ip, int port) {
+		synchronized (this) {
+			MonitorTarget target = monitorTargetMap.get(ip);
+			if (target == null) {
+				target = new MonitorTarget(ip, new MonitorClientService(ip, port));
+				monitorTargetMap.put(ip, target);
+				poll(target);
+			}
+			return target;
+		}
+	}
+
+	/**
+	 * Poll all targets in parallel. The target whose previous polling is not finished yet is skipped.
+	 */
+	void poll() {
+		for (MonitorTarget each : monitorTargetMap.values()) {
+			if (each.abortPollingIfTimeout(POLLING_TIMEOUT)) {
+				LOGGER.info("Monitor polling of {} is timed out.", each.getIp());
+			} else {
+				poll(each);
+			}
+		}
+	}
+
+	private void poll(MonitorTarget target) {
+		Runnable polling = target.startPolling();
+		if (polling != null) {
+			try {
+				target.setPollingFuture(pollingExecutor.submit(polling));
+			} catch (RejectedExecutionException e) {
+				LOGGER.debug("Monitor polling is already shutdown.");
+			}
 		}
-		monitorClient.update();
-		monitorClient.setLastAccessedTime(System.currentTimeMillis());
-		return monitorClient.getSystemInfo();
 	}
 
 	/**
 	 * Delete the unused monitor clients periodically.
 	 */
 	public void run() {
-		for (Entry<String, MonitorClientService> each : monitorClientMap.entrySet()) {
-			if ((System.currentTimeMillis() - each.getValue().getLastAccessedTime()) > 30000) {
-				close(each.getKey());
+		for (Entry<String, MonitorTarget> each : monitorTargetMap.entrySet()) {
+			if ((System.currentTimeMillis() - each.getValue().getLastAccessedTime()) > UNUSED_TIME
+					&& close(each.getKey(), false)) {
 				LOGGER.info("Remove unused monitor {}", each.getKey());
 			}
 		}
 	}
 
 	/**
-	 * Close mbean client connected to the given ip.
+	 * Close mbean client connected to the given ip. The target which is monitored by a running test is not closed.
 	 *
 	 * @param ip ip
 	 */
 	public void close(String ip) {
-		IOUtils.closeQuietly(monitorClientMap.remove(ip));
+		close(ip, false);
+	}
+
+	private boolean close(String ip, boolean force) {
+		synchronized (this) {
+			MonitorTarget target = monitorTargetMap.get(ip);
+			if (target == null || (!force && target.getReferences() > 0)) {
+				return false;
+			}
+			monitorTargetMap.remove(ip);
+			target.close();
+			return true;
+		}
 	}
 }
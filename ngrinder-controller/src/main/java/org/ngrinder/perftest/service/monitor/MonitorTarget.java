@@ -0,0 +1,170 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service.monitor;
+
+import org.ngrinder.monitor.share.domain.SystemInfo;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Monitoring target host kept in {@link MonitorInfoStore}. It has the connection to the host and the last system info
+ * collected from it, which is shared by the running tests and the monitor page.
+ *
+ * @since 3.4.1
+ */
+public class MonitorTarget {
+	private static final long RECONNECT_INTERVAL = 10000;
+
+	private final String ip;
+	private final MonitorClientService client;
+
+	private volatile SystemInfo systemInfo = SystemInfo.NullSystemInfo.getNullSystemInfo();
+	private volatile long lastUpdatedTime;
+	private volatile long lastAccessedTime = System.currentTimeMillis();
+	private final CountDownLatch firstPolling = new CountDownLatch(1);
+
+	// The count of the running tests which monitor this target. Guarded by the store.
+	private int references;
+
+	// Only one polling runs at a time, so the client is used by only one thread.
+	private final AtomicBoolean polling = new AtomicBoolean(false);
+	private volatile Future<?> pollingFuture;
+	private volatile long pollingStartTime;
+	private long lastConnectTime;
+
+	MonitorTarget(String ip, MonitorClientService client) {
+		this.ip = ip;
+		this.client = client;
+	}
+
+	public String getIp() {
+		return ip;
+	}
+
+	/**
+	 * Get the last collected system info.
+	 *
+	 * @return system info. {@link SystemInfo.NullSystemInfo} if it's not collected yet.
+	 */
+	public SystemInfo getSystemInfo() {
+		return systemInfo;
+	}
+
+	public long getLastUpdatedTime() {
+		return lastUpdatedTime;
+	}
+
+	/**
+	 * Check if the system info is not updated in the given time. It happens when the target is not reachable or
+	 * slower than the polling timeout.
+	 *
+	 * @param staleTime time in millisecond
+	 * @return true if the system info is collected before but it's older than the given time
+	 */
+	public boolean isStale(long staleTime) {
+		return lastUpdatedTime != 0 && System.currentTimeMillis() - lastUpdatedTime > staleTime;
+	}
+
+	long getLastAccessedTime() {
+		return lastAccessedTime;
+	}
+
+	void setLastAccessedTime(long lastAccessedTime) {
+		this.lastAccessedTime = lastAccessedTime;
+	}
+
+	int getReferences() {
+		return references;
+	}
+
+	void setReferences(int references) {
+		this.references = references;
+	}
+
+	/**
+	 * Start polling if the previous one is finished.
+	 *
+	 * @return polling task. null if the previous one is still running.
+	 */
+	Runnable startPolling() {
+		if (!polling.compareAndSet(false, true)) {
+			return null;
+		}
+		pollingStartTime = System.currentTimeMillis();
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// The unreachable target is not connected on every polling.
+					if (!client.isConnected() && pollingStartTime - lastConnectTime >= RECONNECT_INTERVAL) {
+						lastConnectTime = pollingStartTime;
+						client.init();
+					}
+					if (client.update()) {
+						systemInfo = client.getSystemInfo();
+						lastUpdatedTime = System.currentTimeMillis();
+					}
+				} finally {
+					polling.set(false);
+					firstPolling.countDown();
+				}
+			}
+		};
+	}
+
+	void setPollingFuture(Future<?> pollingFuture) {
+		this.pollingFuture = pollingFuture;
+	}
+
+	/**
+	 * Abort the polling which runs longer than the given timeout. The connection is closed, so that the blocked call
+	 * returns and the next polling connects again.
+	 *
+	 * @param timeout timeout in millisecond
+	 * @return true if the polling is aborted
+	 */
+	boolean abortPollingIfTimeout(long timeout) {
+		final Future<?> future = pollingFuture;
+		if (!polling.get() || future == null || System.currentTimeMillis() - pollingStartTime <= timeout) {
+			return false;
+		}
+		future.cancel(true);
+		client.close();
+		return true;
+	}
+
+	/**
+	 * Wait until the first polling is finished.
+	 *
+	 * @param timeout timeout in millisecond
+	 */
+	void awaitFirstPolling(long timeout) {
+		try {
+			firstPolling.await(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	void close() {
+		final Future<?> future = pollingFuture;
+		if (future != null) {
+			future.cancel(true);
+		}
+		client.close();
+	}
+}
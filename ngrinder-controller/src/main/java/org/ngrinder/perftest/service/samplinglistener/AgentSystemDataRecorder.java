@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service.samplinglistener;
+
+import net.grinder.SingleConsole;
+import net.grinder.SingleConsole.SamplingLifeCycleListener;
+import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
+import net.grinder.engine.controller.AgentControllerIdentityImplementation;
+import net.grinder.statistics.StatisticsSet;
+import org.ngrinder.common.constants.MonitorConstants;
+import org.ngrinder.model.PerfTest;
+import org.ngrinder.monitor.controller.model.SystemDataModel;
+import org.ngrinder.monitor.share.domain.BandWidth;
+import org.ngrinder.monitor.share.domain.SystemInfo;
+import org.ngrinder.monitor.share.domain.SystemSamples;
+import org.ngrinder.perftest.service.AgentManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.ngrinder.common.util.CollectionUtils.newHashMap;
+
+/**
+ * Recorder of the system data of the agents which run the test.
+ * <p/>
+ * The agents collect the system data every second and send them in a batch with the heartbeat. This listener records
+ * the samples arrived in each sampling interval as one row in the same monitor data file of the target hosts, so the
+ * agent load is shown in the monitor graph. The cpu and the network usage are averaged in the interval, and the
+ * memory is the last one.
+ *
+ * @since 3.4.1
+ */
+public class AgentSystemDataRecorder implements SamplingLifeCycleListener, MonitorConstants {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AgentSystemDataRecorder.class);
+	private final SingleConsole singleConsole;
+	private final PerfTest perfTest;
+	private final AgentManager agentManager;
+	private final Map<String, BufferedWriter> writerMap = newHashMap();
+	private final Map<String, Long> lastRecordedTimeMap = newHashMap();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param singleConsole singleConsole to which the agents are connected
+	 * @param perfTest      perfTest which this sampling start
+	 * @param agentManager  agent manager
+	 */
+	public AgentSystemDataRecorder(SingleConsole singleConsole, PerfTest perfTest, AgentManager agentManager) {
+		this.singleConsole = singleConsole;
+		this.perfTest = perfTest;
+		this.agentManager = agentManager;
+	}
+
+	@Override
+	public void onSamplingStarted() {
+	}
+
+	@Override
+	public synchronized void onSampling(File file, StatisticsSet intervalStatistics,
+	                                    StatisticsSet cumulativeStatistics) {
+		for (AgentStatus each : agentManager.getAgentStatusSetConnectingToPort(singleConsole.getConsolePort())) {
+			String ip = getIp(each.getAgentIdentity());
+			// The target host is recorded by the monitor.
+			if (ip == null || perfTest.getTargetHostIP().contains(ip)) {
+				continue;
+			}
+			BufferedWriter writer = getWriter(ip);
+			if (writer == null) {
+				continue;
+			}
+			Long lastRecordedTime = lastRecordedTimeMap.get(ip);
+			SystemSamples samples = each.getSystemSamples().getSince(lastRecordedTime == null ? 0 : lastRecordedTime);
+			try {
+				if (samples.size() == 0) {
+					writer.write(SystemInfo.NullSystemInfo.getNullSystemInfo().toRecordString());
+				} else {
+					writer.write(aggregate(ip, each.getSystemDataModel(), samples).toRecordString());
+					lastRecordedTimeMap.put(ip, samples.getLastCollectTime());
+				}
+				writer.newLine();
+			} catch (IOException e) {
+				LOGGER.error("Error while saving the system data of {} : {}", ip, e.getMessage());
+			}
+		}
+	}
+
+	private String getIp(AgentIdentity agentIdentity) {
+		if (agentIdentity instanceof AgentControllerIdentityImplementation) {
+			return ((AgentControllerIdentityImplementation) agentIdentity).getIp();
+		}
+		return null;
+	}
+
+	private BufferedWriter getWriter(String ip) {
+		if (writerMap.containsKey(ip)) {
+			return writerMap.get(ip);
+		}
+		File dataFile = new File(singleConsole.getReportPath(), MONITOR_FILE_PREFIX + ip + ".data");
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(dataFile, false));
+			writer.write(SystemInfo.HEADER);
+			writer.newLine();
+		} catch (IOException e) {
+			LOGGER.error("Error to write to file:{}, Error:{}", dataFile.getPath(), e.getMessage());
+			closeQuietly(writer);
+			writer = null;
+		}
+		// Don't retry the file which can not be written.
+		writerMap.put(ip, writer);
+		return writer;
+	}
+
+	static SystemInfo aggregate(String ip, SystemDataModel systemDataModel, SystemSamples samples) {
+		int count = samples.size();
+		double cpu = 0;
+		long received = 0;
+		long sent = 0;
+		for (int i = 0; i < count; i++) {
+			cpu += samples.getCpuUsedPercentage(i);
+			received += samples.getReceivedPerSec(i);
+			sent += samples.getSentPerSec(i);
+		}
+		int last = count - 1;
+		SystemInfo systemInfo = new SystemInfo();
+		systemInfo.setIp(ip);
+		if (systemDataModel != null) {
+			for (SystemInfo.System each : SystemInfo.System.values()) {
+				if (each.name().equals(systemDataModel.getSystem())) {
+					systemInfo.setSystem(each);
+				}
+			}
+		}
+		systemInfo.setCollectTime(samples.getCollectTime(last));
+		systemInfo.setCPUUsedPercentage((float) (cpu / count));
+		systemInfo.setFreeMemory(samples.getFreeMemory(last));
+		systemInfo.setTotalMemory(samples.getTotalMemory(last));
+		BandWidth bandWidth = new BandWidth(samples.getCollectTime(last));
+		bandWidth.setReceivedPerSec(received / count);
+		bandWidth.setSentPerSec(sent / count);
+		systemInfo.setBandWidth(bandWidth);
+		return systemInfo;
+	}
+
+	@Override
+	public synchronized void onSamplingEnded() {
+		for (BufferedWriter each : writerMap.values()) {
+			closeQuietly(each);
+		}
+		writerMap.clear();
+		lastRecordedTimeMap.clear();
+	}
+}
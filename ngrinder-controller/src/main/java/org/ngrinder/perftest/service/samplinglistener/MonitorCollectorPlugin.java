@@ -14,7 +14,6 @@
 package org.ngrinder.perftest.service.samplinglistener;
 
 import net.grinder.statistics.ImmutableStatisticsSet;
-import org.apache.commons.io.IOUtils;
 import org.ngrinder.common.constant.ControllerConstants;
 import org.ngrinder.common.constants.MonitorConstants;
 import org.ngrinder.extension.OnTestSamplingRunnable;
@@ -22,7 +21,8 @@ import org.ngrinder.model.PerfTest;
 import org.ngrinder.monitor.controller.model.SystemDataModel;
 import org.ngrinder.monitor.share.domain.SystemInfo;
 import org.ngrinder.perftest.service.PerfTestService;
-import org.ngrinder.perftest.service.monitor.MonitorClientService;
+import org.ngrinder.perftest.service.monitor.MonitorInfoStore;
+import org.ngrinder.perftest.service.monitor.MonitorTarget;
 import org.ngrinder.service.IConfig;
 import org.ngrinder.service.IPerfTestService;
 import org.ngrinder.service.IScheduledTaskService;
@@ -43,6 +43,10 @@ import static org.ngrinder.common.util.CollectionUtils.newHashMap;
 
 /**
  * Monitor data collector plugin.
+ * <p/>
+ * The targets are polled by {@link MonitorInfoStore} in the background. This plugin only records the last polled data
+ * of each target, so a slow target doesn't delay the sampling. The data which is not updated in
+ * {@link MonitorInfoStore#STALE_TIME} is recorded with the stale marker.
  *
  * @author JunHo Yoon
  * @since 3.3
@@ -50,10 +54,11 @@ import static org.ngrinder.common.util.CollectionUtils.newHashMap;
 public class MonitorCollectorPlugin implements OnTestSamplingRunnable, Runnable, MonitorConstants {
 	private static final Logger LOGGER = LoggerFactory.getLogger(MonitorCollectorPlugin.class);
 	private final int port;
-	private Map<MonitorClientService, BufferedWriter> clientMap = new ConcurrentHashMap<MonitorClientService, BufferedWriter>();
+	private Map<MonitorTarget, BufferedWriter> targetMap = new ConcurrentHashMap<MonitorTarget, BufferedWriter>();
 
 	private final IScheduledTaskService scheduledTaskService;
 	private final PerfTestService perfTestService;
+	private final MonitorInfoStore monitorInfoStore;
 	private Long perfTestId;
 
 	/**
@@ -61,11 +66,16 @@ public class MonitorCollectorPlugin implements OnTestSamplingRunnable, Runnable,
 	 *
 	 * @param config               config
 	 * @param scheduledTaskService scheduling service to run monitor task
+	 * @param perfTestService      perf test service
+	 * @param monitorInfoStore     monitor info store which keeps the connections to the targets
+	 * @param perfTestId           perf test id
 	 */
 	public MonitorCollectorPlugin(IConfig config, IScheduledTaskService scheduledTaskService,
-	                              PerfTestService perfTestService, Long perfTestId) {
+	                              PerfTestService perfTestService, MonitorInfoStore monitorInfoStore,
+	                              Long perfTestId) {
 		this.scheduledTaskService = scheduledTaskService;
 		this.perfTestService = perfTestService;
+		this.monitorInfoStore = monitorInfoStore;
 		this.perfTestId = perfTestId;
 		this.port = getPort(config);
 	}
@@ -80,32 +90,23 @@ public class MonitorCollectorPlugin implements OnTestSamplingRunnable, Runnable,
 		final List<String> targetHostIP = perfTest.getTargetHostIP();
 		final Integer samplingInterval = perfTest.getSamplingInterval();
 		for (final String target : targetHostIP) {
-			scheduledTaskService.runAsync(new Runnable() {
-				@Override
-				public void run() {
-					LOGGER.info("Start JVM monitoring for IP:{}", target);
-					MonitorClientService client = new MonitorClientService(target, MonitorCollectorPlugin.this.port);
-					client.init();
-					if (client.isConnected()) {
-						File testReportDir = singleConsole.getReportPath();
-						File dataFile = null;
-						FileWriter fw = null;
-						BufferedWriter bw = null;
-						try {
-							dataFile = new File(testReportDir, MONITOR_FILE_PREFIX + target + ".data");
-							fw = new FileWriter(dataFile, false);
-							bw = new BufferedWriter(fw);
-							// write header info
-							bw.write(SystemInfo.HEADER);
-							bw.newLine();
-							bw.flush();
-							clientMap.put(client, bw);
-						} catch (IOException e) {
-							LOGGER.error("Error to write to file:{}, Error:{}", dataFile.getPath(), e.getMessage());
-						}
-					}
-				}
-			});
+			LOGGER.info("Start JVM monitoring for IP:{}", target);
+			// It's connected in the background.
+			MonitorTarget monitorTarget = monitorInfoStore.register(target, port);
+			File dataFile = new File(singleConsole.getReportPath(), MONITOR_FILE_PREFIX + target + ".data");
+			BufferedWriter bw = null;
+			try {
+				bw = new BufferedWriter(new FileWriter(dataFile, false));
+				// write header info
+				bw.write(SystemInfo.HEADER);
+				bw.newLine();
+				bw.flush();
+				targetMap.put(monitorTarget, bw);
+			} catch (IOException e) {
+				LOGGER.error("Error to write to file:{}, Error:{}", dataFile.getPath(), e.getMessage());
+				closeQuietly(bw);
+				monitorInfoStore.unregister(target);
+			}
 		}
 		assignScheduledTask(samplingInterval);
 	}
@@ -116,11 +117,16 @@ public class MonitorCollectorPlugin implements OnTestSamplingRunnable, Runnable,
 
 	@Override
 	public void sampling(ISingleConsole singleConsole, PerfTest perfTest, IPerfTestService perfTestService, ImmutableStatisticsSet intervalStatistics, ImmutableStatisticsSet cumulativeStatistics) {
-		for (Map.Entry<MonitorClientService, BufferedWriter> each : clientMap.entrySet()) {
+		for (Map.Entry<MonitorTarget, BufferedWriter> each : targetMap.entrySet()) {
 			try {
-				SystemInfo currentInfo = each.getKey().getSystemInfo();
+				MonitorTarget target = each.getKey();
+				SystemInfo currentInfo = target.getSystemInfo();
 				BufferedWriter bw = each.getValue();
-				bw.write(currentInfo.toRecordString());
+				if (target.isStale(MonitorInfoStore.STALE_TIME)) {
+					bw.write(currentInfo.toStaleRecordString());
+				} else {
+					bw.write(currentInfo.toRecordString());
+				}
 				bw.newLine();
 			} catch (IOException e) {
 				LOGGER.error("Error while saving file :" + e.getMessage());
@@ -131,21 +137,20 @@ public class MonitorCollectorPlugin implements OnTestSamplingRunnable, Runnable,
 	@Override
 	public void endSampling(ISingleConsole singleConsole, PerfTest perfTest, IPerfTestService perfTestService) {
 		scheduledTaskService.removeScheduledJob(this);
-		for (Map.Entry<MonitorClientService, BufferedWriter> each : clientMap.entrySet()) {
-			closeQuietly(each.getKey());
+		for (Map.Entry<MonitorTarget, BufferedWriter> each : targetMap.entrySet()) {
+			monitorInfoStore.unregister(each.getKey().getIp());
 			closeQuietly(each.getValue());
 		}
-		clientMap.clear();
+		targetMap.clear();
 	}
 
 	@Override
 	public void run() {
-		if (!this.clientMap.isEmpty()) {
+		if (!this.targetMap.isEmpty()) {
 			Map<String, SystemDataModel> systemInfoMap = newHashMap();
-			for (MonitorClientService each : this.clientMap.keySet()) {
-				each.update();
+			for (MonitorTarget each : this.targetMap.keySet()) {
 				final SystemInfo systemInfo = each.getSystemInfo();
-				if (systemInfo.isParsed()) {
+				if (systemInfo.isParsed() && !each.isStale(MonitorInfoStore.STALE_TIME)) {
 					systemInfoMap.put(each.getIp(), new SystemDataModel(systemInfo, "UNKNOWN"));
 				}
 			}
@@ -30,6 +30,7 @@ import java.io.File;
 public class PerfTestSamplingCollectorListener implements SamplingLifeCycleListener {
 	private final ScheduledTaskService scheduledTaskService;
 	private Runnable runnable;
+	private Runnable finishRunnable;
 
 	/**
 	 * Constructor.
@@ -38,16 +39,31 @@ public class PerfTestSamplingCollectorListener implements SamplingLifeCycleListe
 	 * @param perfTestId           perfTest id which this sampling start
 	 * @param perfTestService      perfTestService
 	 * @param scheduledTaskService scheduledTaskService
+	 * @param saveInterval         interval in milliseconds to save the statistics into DB
 	 */
 	public PerfTestSamplingCollectorListener(final SingleConsole singleConsole, final Long perfTestId,
 	                                         final PerfTestService perfTestService,
-	                                         ScheduledTaskService scheduledTaskService) {
+	                                         ScheduledTaskService scheduledTaskService, final long saveInterval) {
 		this.scheduledTaskService = scheduledTaskService;
 		// Make it separate asyc call to remove the delay on the sampling.
+		// The live statistics are updated on every sample. DB is updated only once in the save interval.
 		this.runnable = new Runnable() {
+			private volatile long lastSaveTime = System.currentTimeMillis();
+
+			@Override
+			public void run() {
+				perfTestService.updateLiveStatistics(singleConsole, perfTestId);
+				long now = System.currentTimeMillis();
+				if (now - lastSaveTime >= saveInterval) {
+					lastSaveTime = now;
+					perfTestService.saveStatistics(singleConsole, perfTestId);
+				}
+			}
+		};
+		this.finishRunnable = new Runnable() {
 			@Override
 			public void run() {
-				perfTestService.saveStatistics(singleConsole, perfTestId);
+				perfTestService.saveFinalStatistics(singleConsole, perfTestId);
 			}
 		};
 	}
@@ -63,6 +79,7 @@ public class PerfTestSamplingCollectorListener implements SamplingLifeCycleListe
 
 	@Override
 	public void onSamplingEnded() {
+		this.finishRunnable.run();
 	}
 
 }
@@ -25,6 +25,7 @@ import org.ngrinder.model.User;
 import org.ngrinder.script.model.FileEntry;
 import org.ngrinder.script.model.FileType;
 import org.ngrinder.script.repository.FileEntryRepository;
+import org.ngrinder.script.service.DistributionCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -72,6 +73,9 @@ public abstract class ScriptHandler implements ControllerConstants {
 	@Autowired
 	private FileEntryRepository fileEntryRepository;
 
+	@Autowired
+	private DistributionCacheService distributionCacheService;
+
 	/**
 	 * Get the display order of {@link ScriptHandler}s.
 	 *
@@ -151,7 +155,12 @@ public abstract class ScriptHandler implements ControllerConstants {
 			File toDir = new File(distDir, calcDistSubPath(basePath, each));
 			processingResult.printf("%s is being written.\n", each.getPath());
 			LOGGER.info("{} is being written in {} for test {}", new Object[]{each.getPath(), toDir, testCaseId});
-			getFileEntryRepository().writeContentTo(user, each.getPath(), toDir);
+			if (each == scriptEntry) {
+				getFileEntryRepository().writeContentTo(user, each.getPath(), toDir);
+			} else {
+				// Libs and resources are listed with their last changed revision, so they can be cached.
+				distributionCacheService.writeContentTo(user, each, toDir);
+			}
 		}
 		processingResult.setSuccess(true);
 		prepareDistMore(testCaseId, user, scriptEntry, distDir, properties, processingResult);
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.script.repository;
+
+import org.ngrinder.script.model.FileEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Metadata index of the {@link FileEntry}s in a user repository.
+ * <p/>
+ * The index is keyed by the revision which it reflects. {@link FileEntryRepository} applies only the paths changed
+ * in the revisions committed after it instead of walking the whole repository again. It's not thread safe, so the
+ * caller should synchronize on the index.
+ *
+ * @since 3.4.1
+ */
+class FileEntryIndex {
+	private long revision = -1;
+	private String revisionDate;
+	private final TreeMap<String, FileEntry> entries = new TreeMap<String, FileEntry>();
+
+	long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * Get the commit date of the indexed revision. It's used to detect the repository which is replaced with the
+	 * other one having the same revision number.
+	 *
+	 * @return commit date string
+	 */
+	String getRevisionDate() {
+		return revisionDate;
+	}
+
+	void setRevision(long revision, String revisionDate) {
+		this.revision = revision;
+		this.revisionDate = revisionDate;
+	}
+
+	FileEntry get(String path) {
+		return entries.get(path);
+	}
+
+	void put(FileEntry fileEntry) {
+		entries.put(fileEntry.getPath(), fileEntry);
+	}
+
+	/**
+	 * Remove the entry on the given path and all entries under it.
+	 *
+	 * @param path path to be removed
+	 */
+	void remove(String path) {
+		entries.remove(path);
+		getChildren(entries, path).clear();
+	}
+
+	/**
+	 * Clear the index. The next access will rebuild it.
+	 */
+	void clear() {
+		entries.clear();
+		revision = -1;
+		revisionDate = null;
+	}
+
+	/**
+	 * Get the indexed entries sorted by path.
+	 *
+	 * @return copy of the entries
+	 */
+	List<FileEntry> getEntries() {
+		return new ArrayList<FileEntry>(entries.values());
+	}
+
+	/**
+	 * Get the view of the entries under the given path. '0' is the next character of '/', so the sub map contains
+	 * all keys starting with "path/".
+	 *
+	 * @param map  path sorted map
+	 * @param path parent path
+	 * @param <V>  value type
+	 * @return sub map view
+	 */
+	static <V> SortedMap<String, V> getChildren(TreeMap<String, V> map, String path) {
+		return map.subMap(path + "/", path + "0");
+	}
+}
@@ -17,6 +17,7 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang.StringUtils;
+import org.ngrinder.common.constant.ControllerConstants;
 import org.ngrinder.common.exception.NGrinderRuntimeException;
 import org.ngrinder.common.model.Home;
 import org.ngrinder.common.util.EncodingUtils;
@@ -44,15 +45,24 @@ import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNWCUtil;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.util.EmptyStackException;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
 import static org.ngrinder.common.util.CollectionUtils.newArrayList;
+import static org.ngrinder.common.util.CollectionUtils.newHashMap;
 import static org.ngrinder.common.util.ExceptionUtils.processException;
 import static org.ngrinder.common.util.NoOp.noOp;
 import static org.ngrinder.common.util.Preconditions.checkNotNull;
@@ -62,6 +72,10 @@ import static org.ngrinder.common.util.Preconditions.checkNotNull;
  *
  * This class save and retrieve {@link FileEntry} from Local SVN folders.
  *
+ * The svn clients are pooled and keep the user repositories opened. The number of the clients which access the
+ * repositories at the same time is bounded by controller.svn_client_pool_size. The listing of all user files is
+ * served from the per user {@link FileEntryIndex}, which applies only the revisions committed after the last listing.
+ *
  * @author JunHo Yoon
  * @since 3.0
  */
@@ -78,6 +92,20 @@ public class FileEntryRepository {
 
 	private File subversionHome;
 
+	/**
+	 * The index is rebuilt instead of being caught up when it's behind the head more than this.
+	 */
+	private static final int MAX_CATCH_UP_REVISIONS = 100;
+
+	private Semaphore clientPermits;
+
+	private final Queue<PooledSVNClient> idleClients = new ConcurrentLinkedQueue<PooledSVNClient>();
+
+	private final ConcurrentMap<String, ISVNAuthenticationManager> authManagers =
+			new ConcurrentHashMap<String, ISVNAuthenticationManager>();
+
+	private final ConcurrentMap<File, FileEntryIndex> fileEntryIndexes = new ConcurrentHashMap<File, FileEntryIndex>();
+
 	/**
 	 * Initialize the {@link FileEntryRepository}. This method should be
 	 * performed to set up FS Repository.
@@ -87,6 +115,31 @@ public class FileEntryRepository {
 		FSRepositoryFactory.setup();
 		home = config.getHome();
 		subversionHome = home.getSubFile("subversion");
+		int poolSize = config.getControllerProperties().getPropertyInt(
+				ControllerConstants.PROP_CONTROLLER_SVN_CLIENT_POOL_SIZE);
+		clientPermits = new Semaphore(Math.max(poolSize, 1), true);
+	}
+
+	/**
+	 * Dispose the pooled svn clients.
+	 */
+	@PreDestroy
+	public void destroy() {
+		PooledSVNClient client;
+		while ((client = idleClients.poll()) != null) {
+			client.dispose();
+		}
+	}
+
+	/**
+	 * Close the opened repositories and drop the indexes.
+	 *
+	 * For unit test, This should be called when the user repositories are
+	 * replaced on the file system.
+	 */
+	protected void clearCache() {
+		destroy();
+		fileEntryIndexes.clear();
 	}
 
 	@Autowired
@@ -131,9 +184,10 @@ public class FileEntryRepository {
 			svnRevision = SVNRevision.create(revision);
 		}
 		final List<FileEntry> fileEntries = newArrayList();
-		SVNClientManager svnClientManager = getSVNClientManager();
+		PooledSVNClient client = borrowClient();
 		try {
-			svnClientManager.getLogClient().doList(SVNURL.fromFile(getUserRepoDirectory(user)).appendPath(path, true),
+			SVNURL url = SVNURL.fromFile(getUserRepoDirectory(user)).appendPath(path, true);
+			client.getClientManager().getLogClient().doList(url,
 					svnRevision, svnRevision, true, recursive, new ISVNDirEntryHandler() {
 				@Override
 				public void handleDirEntry(SVNDirEntry dirEntry) throws SVNException {
@@ -160,7 +214,7 @@ public class FileEntryRepository {
 		} catch (Exception e) {
 			LOG.debug("findAll() to the not existing folder {}", path);
 		} finally {
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, false);
 		}
 		return fileEntries;
 	}
@@ -169,42 +223,160 @@ public class FileEntryRepository {
 	 * Return all {@link FileEntry}s which user have. It excludes
 	 * {@link FileType#DIR} entries.
 	 *
+	 * The entries are served from the user's {@link FileEntryIndex}. Only the
+	 * paths changed after the indexed revision are fetched from SVN.
+	 *
 	 * @param user user
 	 * @return found {@link FileEntry}s
 	 */
 	public List<FileEntry> findAll(final User user) {
-		final List<FileEntry> scripts = newArrayList();
-		SVNClientManager svnClientManager = getSVNClientManager();
+		File userRepoDirectory = getUserRepoDirectory(user);
+		FileEntryIndex index = getFileEntryIndex(userRepoDirectory);
+		PooledSVNClient client = borrowClient();
+		boolean failed = false;
 		try {
-			svnClientManager.getLogClient().doList(SVNURL.fromFile(getUserRepoDirectory(user)), SVNRevision.HEAD,
-					SVNRevision.HEAD, false, true, new ISVNDirEntryHandler() {
-				@Override
-				public void handleDirEntry(SVNDirEntry dirEntry) throws SVNException {
-					FileEntry script = new FileEntry();
-					String relativePath = dirEntry.getRelativePath();
-					if (StringUtils.isBlank(relativePath)) {
-						return;
-					}
-					script.setCreatedDate(dirEntry.getDate());
-					script.setLastModifiedDate(dirEntry.getDate());
-					script.setPath(relativePath);
-					script.setDescription(dirEntry.getCommitMessage());
-					long reversion = dirEntry.getRevision();
-					script.setRevision(reversion);
-					script.setFileType(dirEntry.getKind() == SVNNodeKind.DIR ? FileType.DIR : null);
-					script.setFileSize(dirEntry.getSize());
-					scripts.add(script);
-				}
-			});
+			synchronized (index) {
+				SVNRepository repo = client.getRepository(userRepoDirectory, getAuthenticationManager());
+				updateIndex(client, repo, index);
+				return index.getEntries();
+			}
 		} catch (Exception e) {
+			failed = true;
+			synchronized (index) {
+				index.clear();
+			}
 			LOG.error("Error while fetching files from SVN for {}", user.getUserId());
 			LOG.debug("Error details :", e);
 			throw new NGrinderRuntimeException(e);
 		} finally {
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
+		}
+	}
+
+	private FileEntryIndex getFileEntryIndex(File userRepoDirectory) {
+		FileEntryIndex index = fileEntryIndexes.get(userRepoDirectory);
+		if (index == null) {
+			index = new FileEntryIndex();
+			FileEntryIndex existing = fileEntryIndexes.putIfAbsent(userRepoDirectory, index);
+			if (existing != null) {
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Make the index reflect the head revision. If the index and the repository share the indexed revision, only
+	 * the paths changed in the following revisions are applied. Otherwise, the index is rebuilt.
+	 */
+	private void updateIndex(PooledSVNClient client, SVNRepository repo, FileEntryIndex index) throws SVNException {
+		long head = repo.getLatestRevision();
+		long revision = index.getRevision();
+		boolean sameHistory = revision >= 0 && revision <= head
+				&& StringUtils.equals(index.getRevisionDate(), getRevisionDate(repo, revision));
+		if (sameHistory && revision == head) {
+			return;
+		}
+		if (sameHistory && head - revision <= MAX_CATCH_UP_REVISIONS) {
+			catchUpIndex(client, repo, index, head);
+		} else {
+			index.clear();
+			listIntoIndex(client, repo, index, "", head);
+		}
+		index.setRevision(head, getRevisionDate(repo, head));
+	}
+
+	private String getRevisionDate(SVNRepository repo, long revision) throws SVNException {
+		return SVNPropertyValue.getPropertyAsString(repo.getRevisionPropertyValue(revision, SVNRevisionProperty.DATE));
+	}
+
+	private void catchUpIndex(PooledSVNClient client, SVNRepository repo, final FileEntryIndex index, long head)
+			throws SVNException {
+		final Map<Long, String> commitMessages = newHashMap();
+		// changed path -> whether the entries under it should be listed again.
+		final TreeMap<String, Boolean> changedPaths = new TreeMap<String, Boolean>();
+		repo.log(new String[]{""}, index.getRevision() + 1, head, true, false, new ISVNLogEntryHandler() {
+			@Override
+			public void handleLogEntry(SVNLogEntry logEntry) throws SVNException {
+				commitMessages.put(logEntry.getRevision(), logEntry.getMessage());
+				for (Object value : logEntry.getChangedPaths().values()) {
+					SVNLogEntryPath each = (SVNLogEntryPath) value;
+					String path = StringUtils.removeStart(each.getPath(), "/");
+					if (StringUtils.isEmpty(path)) {
+						continue;
+					}
+					char type = each.getType();
+					if (type == SVNLogEntryPath.TYPE_DELETED || type == SVNLogEntryPath.TYPE_REPLACED) {
+						index.remove(path);
+						changedPaths.remove(path);
+						FileEntryIndex.getChildren(changedPaths, path).clear();
+					}
+					if (type == SVNLogEntryPath.TYPE_ADDED || type == SVNLogEntryPath.TYPE_REPLACED) {
+						changedPaths.put(path, true);
+					} else if (type == SVNLogEntryPath.TYPE_MODIFIED && !changedPaths.containsKey(path)) {
+						changedPaths.put(path, false);
+					}
+					// The last changed revision of the parent directories is changed as well.
+					String parent = path;
+					while (parent.contains("/")) {
+						parent = StringUtils.substringBeforeLast(parent, "/");
+						if (!changedPaths.containsKey(parent)) {
+							changedPaths.put(parent, false);
+						}
+					}
+				}
+			}
+		});
+		for (Entry<String, Boolean> each : changedPaths.entrySet()) {
+			String path = each.getKey();
+			SVNNodeKind kind = repo.checkPath(path, head);
+			if (kind == SVNNodeKind.NONE) {
+				index.remove(path);
+			} else if (kind == SVNNodeKind.DIR && each.getValue()) {
+				// The added directory can be copied with its children.
+				listIntoIndex(client, repo, index, path, head);
+			} else {
+				SVNDirEntry dirEntry = repo.info(path, head);
+				FileEntry previous = index.get(path);
+				String commitMessage = commitMessages.containsKey(dirEntry.getRevision()) ? commitMessages.get(
+						dirEntry.getRevision()) : (previous == null ? null : previous.getDescription());
+				index.put(createFileEntry(path, dirEntry, commitMessage));
+			}
 		}
-		return scripts;
+	}
 
+	private void listIntoIndex(PooledSVNClient client, SVNRepository repo, final FileEntryIndex index,
+	                           final String path, long revision) throws SVNException {
+		SVNURL url = StringUtils.isEmpty(path) ? repo.getLocation() : repo.getLocation().appendPath(path, false);
+		SVNRevision svnRevision = SVNRevision.create(revision);
+		client.getClientManager().getLogClient().doList(url, svnRevision, svnRevision, false, true,
+				new ISVNDirEntryHandler() {
+					@Override
+					public void handleDirEntry(SVNDirEntry dirEntry) throws SVNException {
+						String relativePath = dirEntry.getRelativePath();
+						if (StringUtils.isBlank(relativePath)) {
+							// Exclude the repository root, but include the listed directory itself.
+							if (StringUtils.isNotEmpty(path)) {
+								index.put(createFileEntry(path, dirEntry, dirEntry.getCommitMessage()));
+							}
+							return;
+						}
+						String entryPath = StringUtils.isEmpty(path) ? relativePath : path + "/" + relativePath;
+						index.put(createFileEntry(entryPath, dirEntry, dirEntry.getCommitMessage()));
+					}
+				});
+	}
+
+	private FileEntry createFileEntry(String path, SVNDirEntry dirEntry, String commitMessage) {
+		FileEntry script = new FileEntry();
+		script.setCreatedDate(dirEntry.getDate());
+		script.setLastModifiedDate(dirEntry.getDate());
+		script.setPath(path);
+		script.setDescription(commitMessage);
+		script.setRevision(dirEntry.getRevision());
+		script.setFileType(dirEntry.getKind() == SVNNodeKind.DIR ? FileType.DIR : null);
+		script.setFileSize(dirEntry.getSize());
+		return script;
 	}
 
 	/**
@@ -217,16 +389,12 @@ public class FileEntryRepository {
 	 */
 	public FileEntry findOne(User user, String path, SVNRevision revision) {
 		final FileEntry script = new FileEntry();
-		SVNClientManager svnClientManager = null;
+		PooledSVNClient client = null;
+		boolean failed = false;
 		ByteArrayOutputStream outputStream = null;
 		try {
-			svnClientManager = getSVNClientManager();
-
-			SVNURL userRepoUrl = SVNURL.fromFile(getUserRepoDirectory(user));
-			if (userRepoUrl == null) {
-				return null;
-			}
-			SVNRepository repo = svnClientManager.createRepository(userRepoUrl, true);
+			client = borrowClient();
+			SVNRepository repo = client.getRepository(getUserRepoDirectory(user), getAuthenticationManager());
 			SVNNodeKind nodeKind = repo.checkPath(path, -1);
 			if (nodeKind == SVNNodeKind.NONE) {
 				return null;
@@ -259,10 +427,11 @@ public class FileEntryRepository {
 			script.setLastRevision(lastRevisionNumber);
 			script.setCreatedUser(user);
 		} catch (Exception e) {
+			failed = true;
 			LOG.error("Error while fetching a file from SVN {}", user.getUserId() + "_" + path, e);
 			return null;
 		} finally {
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
 			IOUtils.closeQuietly(outputStream);
 		}
 		return script;
@@ -286,13 +455,14 @@ public class FileEntryRepository {
 	 *                  only FileEntry is editable.
 	 */
 	public void save(User user, FileEntry fileEntry, String encoding) {
-		SVNClientManager svnClientManager = null;
+		PooledSVNClient client = null;
+		boolean failed = false;
 		ISVNEditor editor = null;
 		String checksum = null;
 		InputStream bais = null;
 		try {
-			svnClientManager = getSVNClientManager();
-			SVNRepository repo = svnClientManager.createRepository(SVNURL.fromFile(getUserRepoDirectory(user)), true);
+			client = borrowClient();
+			SVNRepository repo = client.getRepository(getUserRepoDirectory(user), getAuthenticationManager());
 			SVNDirEntry dirEntry = repo.info(fileEntry.getPath(), -1);
 
 			// Add base paths
@@ -353,11 +523,12 @@ public class FileEntryRepository {
 					return;
 				}
 			}
+			failed = true;
 			LOG.error("Error while saving file to SVN", e);
 			throw processException("Error while saving file to SVN", e);
 		} finally {
 			closeSVNEditorQuietly(editor);
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
 			IOUtils.closeQuietly(bais);
 		}
 	}
@@ -424,11 +595,12 @@ public class FileEntryRepository {
 	 * @param paths paths of file entries.
 	 */
 	public void delete(User user, List<String> paths) {
-		SVNClientManager svnClientManager = null;
+		PooledSVNClient client = null;
+		boolean failed = false;
 		ISVNEditor editor = null;
 		try {
-			svnClientManager = getSVNClientManager();
-			SVNRepository repo = svnClientManager.createRepository(SVNURL.fromFile(getUserRepoDirectory(user)), true);
+			client = borrowClient();
+			SVNRepository repo = client.getRepository(getUserRepoDirectory(user), getAuthenticationManager());
 
 			editor = repo.getCommitEditor("delete", null, true, null);
 			editor.openRoot(-1);
@@ -436,12 +608,13 @@ public class FileEntryRepository {
 				editor.deleteEntry(each, -1);
 			}
 		} catch (Exception e) {
+			failed = true;
 			abortSVNEditorQuietly(editor);
 			LOG.error("Error while deleting file from SVN", e);
 			throw processException("Error while deleting files from SVN", e);
 		} finally {
 			closeSVNEditorQuietly(editor);
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
 		}
 	}
 
@@ -455,9 +628,70 @@ public class FileEntryRepository {
 	 */
 	public SVNClientManager getSVNClientManager() {
 		DefaultSVNOptions options = SVNWCUtil.createDefaultOptions(subversionHome, true);
-		ISVNAuthenticationManager authManager = SVNWCUtil.createDefaultAuthenticationManager(subversionHome,
-				getCurrentUserId(), null, false);
-		return SVNClientManager.newInstance(options, authManager);
+		return SVNClientManager.newInstance(options, getAuthenticationManager());
+	}
+
+	/**
+	 * Get the authentication manager of the current user. The user id is used
+	 * as the commit author.
+	 *
+	 * @return authentication manager
+	 */
+	private ISVNAuthenticationManager getAuthenticationManager() {
+		String userId = getCurrentUserId();
+		ISVNAuthenticationManager authManager = authManagers.get(userId);
+		if (authManager == null) {
+			authManager = SVNWCUtil.createDefaultAuthenticationManager(subversionHome, userId, null, false);
+			ISVNAuthenticationManager existing = authManagers.putIfAbsent(userId, authManager);
+			if (existing != null) {
+				authManager = existing;
+			}
+		}
+		return authManager;
+	}
+
+	/**
+	 * Borrow a svn client from the pool. It blocks while all clients are in
+	 * use.
+	 *
+	 * @return svn client
+	 */
+	private PooledSVNClient borrowClient() {
+		try {
+			clientPermits.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw processException("Interrupted while waiting for the svn client", e);
+		}
+		PooledSVNClient client = idleClients.poll();
+		if (client == null) {
+			try {
+				client = new PooledSVNClient(getSVNClientManager());
+			} catch (RuntimeException e) {
+				clientPermits.release();
+				throw e;
+			}
+		}
+		return client;
+	}
+
+	/**
+	 * Return the svn client to the pool. The failed client is disposed
+	 * because its opened repositories may be in the broken state.
+	 *
+	 * @param client svn client. nothing happens if it's null.
+	 * @param failed true if the operation using the client failed
+	 */
+	private void releaseClient(PooledSVNClient client, boolean failed) {
+		if (client == null) {
+			return;
+		}
+		if (failed) {
+			client.dispose();
+		} else {
+			idleClients.offer(client);
+		}
+		clientPermits.release();
 	}
 
 	protected String getCurrentUserId() {
@@ -469,12 +703,6 @@ public class FileEntryRepository {
 
 	}
 
-	private void closeSVNClientManagerQuietly(SVNClientManager svnClientManager) {
-		if (svnClientManager != null) {
-			svnClientManager.dispose();
-		}
-	}
-
 	/**
 	 * Check file existence.
 	 *
@@ -483,18 +711,19 @@ public class FileEntryRepository {
 	 * @return true if exists.
 	 */
 	public boolean hasOne(User user, String path) {
-		SVNClientManager svnClientManager = null;
+		PooledSVNClient client = null;
+		boolean failed = false;
 		try {
-			svnClientManager = getSVNClientManager();
-			SVNURL userRepoUrl = SVNURL.fromFile(getUserRepoDirectory(user));
-			SVNRepository repo = svnClientManager.createRepository(userRepoUrl, true);
+			client = borrowClient();
+			SVNRepository repo = client.getRepository(getUserRepoDirectory(user), getAuthenticationManager());
 			SVNNodeKind nodeKind = repo.checkPath(path, -1);
 			return (nodeKind != SVNNodeKind.NONE);
 		} catch (Exception e) {
+			failed = true;
 			LOG.error("Error while fetching files from SVN", e);
 			throw processException("Error while checking file existence from SVN", e);
 		} finally {
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
 		}
 	}
 
@@ -508,13 +737,12 @@ public class FileEntryRepository {
 	 * @param toPathDir file dir path to write.
 	 */
 	public void writeContentTo(User user, String path, File toPathDir) {
-		SVNClientManager svnClientManager = null;
+		PooledSVNClient client = null;
+		boolean failed = false;
 		FileOutputStream fileOutputStream = null;
 		try {
-			svnClientManager = getSVNClientManager();
-
-			SVNURL userRepoUrl = SVNURL.fromFile(getUserRepoDirectory(user));
-			SVNRepository repo = svnClientManager.createRepository(userRepoUrl, true);
+			client = borrowClient();
+			SVNRepository repo = client.getRepository(getUserRepoDirectory(user), getAuthenticationManager());
 			SVNNodeKind nodeKind = repo.checkPath(path, -1);
 			// If it's DIR, it does not work.
 			if (nodeKind == SVNNodeKind.NONE || nodeKind == SVNNodeKind.DIR) {
@@ -529,10 +757,11 @@ public class FileEntryRepository {
 			// Get file.
 			repo.getFile(path, -1L, fileProperty, fileOutputStream);
 		} catch (Exception e) {
+			failed = true;
 			LOG.error("Error while fetching files from SVN", e);
 			throw processException("Error while fetching files from SVN", e);
 		} finally {
-			closeSVNClientManagerQuietly(svnClientManager);
+			releaseClient(client, failed);
 			IOUtils.closeQuietly(fileOutputStream);
 		}
 	}
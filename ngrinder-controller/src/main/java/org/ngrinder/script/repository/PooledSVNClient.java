@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.script.repository;
+
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.auth.ISVNAuthenticationManager;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link SVNClientManager} kept in the pool of {@link FileEntryRepository} together with the {@link SVNRepository}s
+ * it opened, so that the user repositories are not opened again on every access.
+ * <p/>
+ * It's not thread safe. Only the thread which borrowed it from the pool should use it.
+ *
+ * @since 3.4.1
+ */
+class PooledSVNClient {
+	private static final int MAX_OPEN_REPOSITORIES = 16;
+
+	private final SVNClientManager clientManager;
+
+	@SuppressWarnings("serial")
+	private final Map<File, SVNRepository> repositories = new LinkedHashMap<File, SVNRepository>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, SVNRepository> eldest) {
+			if (size() > MAX_OPEN_REPOSITORIES) {
+				eldest.getValue().closeSession();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Constructor.
+	 *
+	 * @param clientManager client manager
+	 */
+	PooledSVNClient(SVNClientManager clientManager) {
+		this.clientManager = clientManager;
+	}
+
+	SVNClientManager getClientManager() {
+		return clientManager;
+	}
+
+	/**
+	 * Get the opened repository on the given directory. The repository is opened if it's not opened yet.
+	 *
+	 * @param repoDirectory repository directory
+	 * @param authManager   authentication manager which is used as the commit author
+	 * @return repository
+	 * @throws SVNException occurs when the repository can not be opened
+	 */
+	SVNRepository getRepository(File repoDirectory, ISVNAuthenticationManager authManager) throws SVNException {
+		SVNRepository repository = repositories.get(repoDirectory);
+		if (repository == null) {
+			repository = clientManager.createRepository(SVNURL.fromFile(repoDirectory), false);
+			repositories.put(repoDirectory, repository);
+		}
+		repository.setAuthenticationManager(authManager);
+		return repository;
+	}
+
+	/**
+	 * Close all opened repositories and dispose the client manager.
+	 */
+	void dispose() {
+		for (SVNRepository each : repositories.values()) {
+			each.closeSession();
+		}
+		repositories.clear();
+		clientManager.dispose();
+	}
+}
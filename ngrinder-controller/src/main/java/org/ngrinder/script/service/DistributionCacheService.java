@@ -0,0 +1,302 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.script.service;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+import org.apache.commons.lang.math.NumberUtils;
+import org.ngrinder.infra.config.Config;
+import org.ngrinder.infra.schedule.ScheduledTaskService;
+import org.ngrinder.model.User;
+import org.ngrinder.script.model.FileEntry;
+import org.ngrinder.script.repository.FileEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.ngrinder.common.util.CollectionUtils.newHashMap;
+import static org.ngrinder.common.util.ExceptionUtils.processException;
+
+/**
+ * Content addressed cache of the files distributed to the agents.
+ * <p/>
+ * The files exported from SVN are kept as the blobs named by their SHA-1 hash and indexed by the user, path and
+ * revision, so the unchanged files are not exported again in the next test. The distribution mirror of each user
+ * keeps the files of the last distribution. Only the changed files are rewritten in the mirror, so the agents which
+ * already have the previous files receive only the changed files by the cache high water mark of the file
+ * distribution.
+ *
+ * @since 3.4.1
+ */
+@Service
+public class DistributionCacheService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DistributionCacheService.class);
+	private static final int TIME_MILLIS_OF_DAY = 1000 * 60 * 60 * 24;
+	private static final int BLOB_EXPIRY_DAYS = 7;
+
+	@Autowired
+	private Config config;
+
+	@Autowired
+	private FileEntryRepository fileEntryRepository;
+
+	@Autowired
+	private ScheduledTaskService scheduledTaskService;
+
+	private final Map<String, Lock> mirrorLocks = new ConcurrentHashMap<String, Lock>();
+
+	@PostConstruct
+	public void init() {
+		scheduledTaskService.addFixedDelayedScheduledTask(new Runnable() {
+			@Override
+			public void run() {
+				cleanUpExpiredBlobs();
+			}
+		}, TIME_MILLIS_OF_DAY);
+	}
+
+	private File getBlobDirectory() {
+		return new File(config.getHome().getDistributionCacheDirectory(), "blobs");
+	}
+
+	private File getIndexDirectory() {
+		return new File(config.getHome().getDistributionCacheDirectory(), "index");
+	}
+
+	private File getMirrorDirectory(User user) {
+		return new File(new File(config.getHome().getDistributionCacheDirectory(), "mirror"),
+				config.getCurrentIP() + "_" + user.getUserId());
+	}
+
+	/**
+	 * Write the content of the given {@link FileEntry} into the given directory. The content is served from the
+	 * cache if the same revision of the file was written before.
+	 *
+	 * @param user      user
+	 * @param fileEntry file entry which has the path and the last changed revision
+	 * @param toPathDir directory to write.
+	 */
+	public void writeContentTo(User user, FileEntry fileEntry, File toPathDir) {
+		if (fileEntry.getRevision() <= 0) {
+			fileEntryRepository.writeContentTo(user, fileEntry.getPath(), toPathDir);
+			return;
+		}
+		try {
+			File blob = getBlob(user, fileEntry);
+			FileUtils.copyFile(blob, new File(toPathDir, FilenameUtils.getName(fileEntry.getPath())));
+		} catch (IOException e) {
+			throw processException("Error while writing " + fileEntry.getPath(), e);
+		}
+	}
+
+	private File getBlob(User user, FileEntry fileEntry) throws IOException {
+		File indexFile = new File(getIndexDirectory(),
+				sha1(user.getUserId() + ":" + fileEntry.getPath() + "@" + fileEntry.getRevision()));
+		if (indexFile.exists()) {
+			File blob = new File(getBlobDirectory(), FileUtils.readFileToString(indexFile).trim());
+			if (blob.exists()) {
+				// Keep the used entries from being expired.
+				long now = System.currentTimeMillis();
+				indexFile.setLastModified(now);
+				blob.setLastModified(now);
+				return blob;
+			}
+		}
+		File tempDir = new File(config.getHome().getDistributionCacheDirectory(), "tmp/" + UUID.randomUUID());
+		try {
+			fileEntryRepository.writeContentTo(user, fileEntry.getPath(), tempDir);
+			File exported = new File(tempDir, FilenameUtils.getName(fileEntry.getPath()));
+			String hash = sha1(exported);
+			File blob = new File(getBlobDirectory(), hash);
+			if (!blob.exists()) {
+				blob.getParentFile().mkdirs();
+				// The other test may have moved the same content at the same time.
+				if (!exported.renameTo(blob) && !blob.exists()) {
+					throw new IOException("Fail to move " + exported + " to " + blob);
+				}
+			}
+			File tempIndexFile = new File(tempDir, indexFile.getName());
+			FileUtils.writeStringToFile(tempIndexFile, hash);
+			indexFile.getParentFile().mkdirs();
+			FileUtils.deleteQuietly(indexFile);
+			if (!tempIndexFile.renameTo(indexFile)) {
+				LOGGER.debug("{} is written by the other test.", indexFile);
+			}
+			return blob;
+		} finally {
+			FileUtils.deleteQuietly(tempDir);
+		}
+	}
+
+	/**
+	 * Get the lock which should be held from {@link #syncMirror(User, File)} until the mirror is distributed.
+	 *
+	 * @param user user
+	 * @return lock of the user's mirror
+	 */
+	public Lock getMirrorLock(User user) {
+		String key = user.getUserId();
+		Lock lock = mirrorLocks.get(key);
+		if (lock == null) {
+			synchronized (mirrorLocks) {
+				lock = mirrorLocks.get(key);
+				if (lock == null) {
+					lock = new ReentrantLock();
+					mirrorLocks.put(key, lock);
+				}
+			}
+		}
+		return lock;
+	}
+
+	/**
+	 * Make the user's distribution mirror have the same files as the given distribution directory.
+	 * <p/>
+	 * The unchanged files keep their last modified time. If some files should be removed, the mirror is recreated
+	 * in a new directory so that the agents clear their cache.
+	 *
+	 * @param user    user
+	 * @param distDir distribution directory of the test
+	 * @return mirror directory to be distributed
+	 */
+	public File syncMirror(User user, File distDir) {
+		File mirrorRoot = getMirrorDirectory(user);
+		File generationFile = new File(mirrorRoot, "generation");
+		int generation = readGeneration(generationFile);
+		File mirror = new File(mirrorRoot, String.valueOf(generation));
+		Map<String, File> distFiles = listFiles(distDir);
+		if (!distFiles.keySet().containsAll(listFiles(mirror).keySet())) {
+			mirror = renewMirror(mirror, generationFile, generation);
+		}
+		int changed = 0;
+		try {
+			for (Map.Entry<String, File> each : distFiles.entrySet()) {
+				File source = each.getValue();
+				File target = new File(mirror, each.getKey());
+				if (!target.exists() || target.length() != source.length()
+						|| !FileUtils.contentEquals(source, target)) {
+					// Don't preserve the file date so that the changed file is newer than the agent cache.
+					FileUtils.copyFile(source, target, false);
+					changed++;
+				}
+			}
+		} catch (IOException e) {
+			renewMirror(mirror, generationFile, generation);
+			throw processException("Error while preparing the distribution mirror of " + distDir, e);
+		}
+		mirror.mkdirs();
+		LOGGER.info("{} out of {} files are changed in {}", new Object[]{changed, distFiles.size(), mirror});
+		return mirror;
+	}
+
+	/**
+	 * Remove the given mirror and move to the next generation. The agents see the new mirror as the different cache.
+	 */
+	private File renewMirror(File mirror, File generationFile, int generation) {
+		FileUtils.deleteQuietly(mirror);
+		try {
+			FileUtils.writeStringToFile(generationFile, String.valueOf(generation + 1));
+		} catch (IOException e) {
+			throw processException("Error while writing " + generationFile, e);
+		}
+		return new File(mirror.getParentFile(), String.valueOf(generation + 1));
+	}
+
+	private int readGeneration(File generationFile) {
+		try {
+			return generationFile.exists() ? NumberUtils.toInt(FileUtils.readFileToString(generationFile).trim()) : 0;
+		} catch (IOException e) {
+			throw processException("Error while reading " + generationFile, e);
+		}
+	}
+
+	private Map<String, File> listFiles(File dir) {
+		Map<String, File> files = newHashMap();
+		if (dir.isDirectory()) {
+			String basePath = dir.getAbsolutePath();
+			for (File each : FileUtils.listFiles(dir, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
+				String relativePath = each.getAbsolutePath().substring(basePath.length() + 1);
+				files.put(FilenameUtils.separatorsToUnix(relativePath), each);
+			}
+		}
+		return files;
+	}
+
+	private void cleanUpExpiredBlobs() {
+		long expiryTimestamp = System.currentTimeMillis() - ((long) TIME_MILLIS_OF_DAY * BLOB_EXPIRY_DAYS);
+		for (File each : new File[]{getBlobDirectory(), getIndexDirectory()}) {
+			File[] files = each.listFiles();
+			if (files == null) {
+				continue;
+			}
+			for (File file : files) {
+				if (file.lastModified() < expiryTimestamp) {
+					FileUtils.deleteQuietly(file);
+				}
+			}
+		}
+	}
+
+	private static String sha1(String value) {
+		return toHex(createDigest().digest(value.getBytes()));
+	}
+
+	private static String sha1(File file) throws IOException {
+		MessageDigest digest = createDigest();
+		InputStream inputStream = null;
+		try {
+			inputStream = new FileInputStream(file);
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw processException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder(bytes.length * 2);
+		for (byte each : bytes) {
+			builder.append(String.format("%02x", each));
+		}
+		return builder.toString();
+	}
+}
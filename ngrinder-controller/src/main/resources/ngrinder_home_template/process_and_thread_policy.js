@@ -1,7 +1,12 @@
-function getProcessCount(total) {
+function getProcessCount(total, lightweight) {
 	if (total < 2) {
 		return 1;
 	}
+
+	// The lightweight threads are cheap, so a process hosts up to 1000 vusers.
+	if (lightweight) {
+		return Math.min(Math.ceil(total / 1000), 10);
+	}
 	
 	var processCount = 2;
 
@@ -15,7 +20,7 @@ function getProcessCount(total) {
 	return processCount;
 }
 
-function getThreadCount(total) {
-	var processCount = getProcessCount(total);
+function getThreadCount(total, lightweight) {
+	var processCount = getProcessCount(total, lightweight);
 	return parseInt(total / processCount);
 }
@@ -197,6 +197,17 @@
 						</@control_group>
 					</div>
 				</div>
+
+				<div class="row">
+					<div class="span3">
+						<@control_group name="arrivalRate" label_message_key="perfTest.config.arrivalRate">
+							<@input_popover name="arrivalRate"
+								value="${test.arrivalRate}"
+								message="perfTest.config.arrivalRate"
+								extra_css="input-mini" />
+						</@control_group>
+					</div>
+				</div>
 			</div>
 		</div>
 	</div>
@@ -553,6 +553,11 @@ function addValidation() {
 				digits: true,
 				min: 0
 			},
+			arrivalRate: {
+				required: false,
+				digits: true,
+				min: 0
+			},
 			<#if securityMode?? && securityMode == true>
 			targetHosts: {
 				required: true
@@ -1087,8 +1092,8 @@ function updateScriptResources(first) {
 }
 
 function updateVuserPolicy(vuser) {
-	var processCount = getProcessCount(vuser);
-	var threadCount = getThreadCount(vuser);
+	var processCount = getProcessCount(vuser, ${lightweightVuser?string("true", "false")});
+	var threadCount = getThreadCount(vuser, ${lightweightVuser?string("true", "false")});
 	var $processes = $('#processes');
 	$processes.val(processCount);
 	$processes.valid();
@@ -19,6 +19,8 @@
 <div class="bigchart" id="tps_chart"></div>
 <h6><@spring.message "perfTest.report.header.meantime"/>&nbsp;(ms)</h6>
 <div class="chart" id="mean_time_chart"></div>
+<h6 id="test_time_percentile_chart_header"><@spring.message "perfTest.report.header.testTimePercentile"/>&nbsp;(ms)</h6>
+<div class="chart" id="test_time_percentile_chart"></div>
 <h6 id="min_time_first_byte_chart_header"><@spring.message "perfTest.report.header.meantimeToFirstByte"/>&nbsp;(ms)</h6>
 <div class="chart" id="min_time_first_byte_chart"></div>
 <h6 id="vuser_chart_header"><@spring.message "perfTest.report.header.vuser"/></h6>
@@ -36,7 +38,8 @@
 	function getGraphDataAndDraw(testId) {
 		var ajaxObj = new AjaxObj("/perftest/api/" + testId + "/perf");
 		ajaxObj.params = {
-			dataType : 'TPS,Errors,Mean_Test_Time_(ms),Mean_time_to_first_byte,User_defined,Vuser',
+			dataType : 'TPS,Errors,Mean_Test_Time_(ms),Mean_time_to_first_byte,User_defined,Vuser,' +
+					'Test_Time_P50_(ms),Test_Time_P90_(ms),Test_Time_P99_(ms),Test_Time_P999_(ms)',
 			imgWidth : parseInt($("#tps_chart").width())
 		};
 		ajaxObj.success = function (data) {
@@ -48,6 +51,7 @@
             drawOptionalChart("min_time_first_byte_chart", data.Mean_time_to_first_byte.data, interval,
 					data.Mean_time_to_first_byte.labels);
 			drawOptionalChart("user_defined_chart", data.User_defined.data, interval, data.User_defined.labels);
+			drawPercentileChart("test_time_percentile_chart", data, interval);
 			createChartExportButton("<@spring.message "perfTest.report.exportImg.button"/>", "<@spring.message "perfTest.report.exportImg.title"/>");
 		};
 		ajaxObj.call();
@@ -63,6 +67,21 @@
 			$("#" + id + "_header").hide();
 		}
 	}
+	function drawPercentileChart(id, data, interval) {
+		var keys = ["Test_Time_P50_ms", "Test_Time_P90_ms", "Test_Time_P99_ms", "Test_Time_P999_ms"];
+		var percentiles = [];
+		for (var i = 0; i < keys.length; i++) {
+			// The first one is the total of all tests.
+			if (data[keys[i]] !== undefined && data[keys[i]].data.length != 0) {
+				percentiles.push(data[keys[i]].data[0]);
+			}
+		}
+		if (percentiles.length == keys.length) {
+			drawChart(id, percentiles, interval, ["P50", "P90", "P99", "P99.9"]);
+		} else {
+			drawOptionalChart(id, [], interval, []);
+		}
+	}
 	$("#download_csv").click(function () {
 		document.forms.download_csv_form.action = "${req.getContextPath()}/perftest/${id}/download_csv";
 		document.forms.download_csv_form.submit();
@@ -166,7 +166,15 @@
 	var tpsChart = new Chart('running_tps_chart', [tpsQueue.getArray()], ${test.samplingInterval?c});
 
 	var samplingAjax = new AjaxObj("/perftest/{testId}/api/sample");
-	samplingAjax.params = { testId: ${(test.id!0)?c} };
+	samplingAjax.params = { testId: ${(test.id!0)?c}, since: 0 };
+	var samplingRetryInterval = 1000 * ${test.samplingInterval?c};
+
+	// The server holds the request until the next sample is available. Call it again right after the response.
+	function callSampling(delay) {
+		objTimer = window.setTimeout(function () {
+			samplingAjax.call();
+		}, delay);
+	}
 
 	function showLastPerTestResult(container, statistics) {
 		var existing = container.find("tr");
@@ -213,6 +221,16 @@
 
 	samplingAjax.success = function (res) {
 		if (res.status == "TESTING") {
+			if ($('#running_section_tab:hidden')[0]) {
+				return;
+			}
+			if (res.sequence === undefined || res.sequence == samplingAjax.params.since) {
+				// No new sample yet. Wait for a while not to poll too fast.
+				callSampling(samplingRetryInterval);
+				return;
+			}
+			samplingAjax.params.since = res.sequence;
+			callSampling(0);
 			/** @namespace res.perf */
 			curPerf = res.perf;
 			curAgentStat = res.agent;
@@ -233,16 +251,14 @@
 				tpsQueue.enQueue(curPerf.tpsChartData);
 				tpsChart.plot();
 			}
-		} else {
-			if ($('#running_section_tab:hidden')[0]) {
-				window.clearInterval(objTimer);
-			}
+		} else if (!$('#running_section_tab:hidden')[0]) {
+			callSampling(samplingRetryInterval);
 		}
 	};
 
 	samplingAjax.error = function () {
-		if ($('#running_section_tab:hidden')[0]) {
-			window.clearInterval(objTimer);
+		if (!$('#running_section_tab:hidden')[0]) {
+			callSampling(samplingRetryInterval);
 		}
 	};
 
@@ -319,6 +335,5 @@
 		$(this).tab('show');
 	});
 	$samplingTab.find('a:first').tab('show');
-	samplingAjax.call();
-	objTimer = window.setInterval("samplingAjax.call()", 1000 * ${test.samplingInterval?c});
+	callSampling(0);
 </script>
\ No newline at end of file
@@ -0,0 +1,180 @@
+/* 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package org.ngrinder.agent.service;
+
+import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.engine.controller.AgentControllerIdentityImplementation;
+import net.grinder.message.console.AgentControllerState;
+import org.ngrinder.model.AgentInfo;
+import org.ngrinder.perftest.service.AgentManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the event driven agent state check of {@link AgentManagerService} with the full comparison which is done
+ * on every check before. 5000 agents are attached and 1% of them are disconnected or reconnected on every check.
+ * <p/>
+ * The local agents are served from memory in both cases, so the DB loading cost which the full comparison paid
+ * before is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AgentStateCheckBenchmark {
+	private static final int AGENT_COUNT = 5000;
+	private static final int FLAPPING_AGENT_COUNT = AGENT_COUNT / 100;
+
+	private List<AgentControllerIdentityImplementation> agents;
+	private Set<AgentIdentity> attachedAgents;
+	private AgentManagerService agentManagerService;
+	private int flappingOffset = 0;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		agents = new ArrayList<AgentControllerIdentityImplementation>(AGENT_COUNT);
+		attachedAgents = Collections.newSetFromMap(new LinkedHashMap<AgentIdentity, Boolean>());
+		List<AgentInfo> agentsInDB = new ArrayList<AgentInfo>(AGENT_COUNT);
+		for (int i = 0; i < AGENT_COUNT; i++) {
+			AgentControllerIdentityImplementation agentIdentity = new AgentControllerIdentityImplementation(
+					"agent" + i, "10.0." + (i / 256) + "." + (i % 256));
+			agents.add(agentIdentity);
+			attachedAgents.add(agentIdentity);
+			AgentInfo agentInfo = new AgentInfo();
+			agentInfo.setName(agentIdentity.getName());
+			agentInfo.setIp(agentIdentity.getIp());
+			agentInfo.setRegion(agentIdentity.getRegion());
+			agentInfo.setPort(1);
+			agentInfo.setVersion("3.4.1");
+			agentInfo.setState(AgentControllerState.READY);
+			agentInfo.setApproved(true);
+			agentsInDB.add(agentInfo);
+		}
+
+		agentManagerService = new AgentManagerService();
+		agentManagerService.setAgentManager(new StubAgentManager());
+		ReflectionTestUtils.setField(agentManagerService, "cachedLocalAgentService",
+				new StubLocalAgentService(agentsInDB));
+		// The first check compares all agents.
+		agentManagerService.checkAgentState();
+	}
+
+	/**
+	 * Disconnect the attached flapping agents and reconnect the detached ones.
+	 *
+	 * @return the flapped agents
+	 */
+	private List<AgentControllerIdentityImplementation> flap() {
+		List<AgentControllerIdentityImplementation> flapped = agents.subList(flappingOffset,
+				flappingOffset + FLAPPING_AGENT_COUNT);
+		for (AgentControllerIdentityImplementation each : flapped) {
+			if (!attachedAgents.remove(each)) {
+				attachedAgents.add(each);
+			}
+		}
+		flappingOffset = (flappingOffset + FLAPPING_AGENT_COUNT) % AGENT_COUNT;
+		return flapped;
+	}
+
+	@Benchmark
+	public void eventDriven() {
+		for (AgentControllerIdentityImplementation each : flap()) {
+			agentManagerService.markChanged(each);
+		}
+		agentManagerService.checkAgentState();
+	}
+
+	@Benchmark
+	public void fullComparison() {
+		flap();
+		Map<String, AgentControllerIdentityImplementation> attachedAgentMap =
+				new HashMap<String, AgentControllerIdentityImplementation>(AGENT_COUNT);
+		for (AgentIdentity each : attachedAgents) {
+			AgentControllerIdentityImplementation agentIdentity = (AgentControllerIdentityImplementation) each;
+			attachedAgentMap.put(agentManagerService.createKey(agentIdentity), agentIdentity);
+		}
+		agentManagerService.checkAgentState(agentManagerService.getAllLocal(), attachedAgentMap);
+	}
+
+	private class StubAgentManager extends AgentManager {
+		@Override
+		public Set<AgentIdentity> getAllAttachedAgents() {
+			return new HashSet<AgentIdentity>(attachedAgents);
+		}
+
+		@Override
+		public AgentControllerState getAgentState(AgentIdentity agentIdentity) {
+			return attachedAgents.contains(agentIdentity) ? AgentControllerState.READY : AgentControllerState.INACTIVE;
+		}
+
+		@Override
+		public int getAgentConnectingPort(AgentIdentity agentIdentity) {
+			return 1;
+		}
+
+		@Override
+		public String getAgentVersion(AgentControllerIdentityImplementation agentIdentity) {
+			return "3.4.1";
+		}
+	}
+
+	private static class StubLocalAgentService extends LocalAgentService {
+		private final List<AgentInfo> agents;
+		private final Map<String, AgentInfo> agentMap = new HashMap<String, AgentInfo>();
+
+		StubLocalAgentService(List<AgentInfo> agents) {
+			this.agents = agents;
+			for (AgentInfo each : agents) {
+				agentMap.put(createKey(each), each);
+			}
+		}
+
+		@Override
+		public List<AgentInfo> getLocalAgents() {
+			return new ArrayList<AgentInfo>(agents);
+		}
+
+		@Override
+		public AgentInfo getLocalAgent(String key) {
+			return agentMap.get(key);
+		}
+
+		@Override
+		public long getLoadCount() {
+			return 1;
+		}
+
+		@Override
+		public void updateAgents(List<AgentInfo> newAgents, List<AgentInfo> updatedAgents,
+		                         List<AgentInfo> stateUpdatedAgents, List<AgentInfo> removedAgents) {
+			// The changes are already applied to the agents in memory.
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(AgentStateCheckBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,88 @@
+/* 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package org.ngrinder.agent.service;
+
+import net.grinder.engine.communication.AgentUpdateGrinderMessage;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MappedAgentPackageTest {
+	private File packageFile;
+	private byte[] content;
+
+	@Before
+	public void before() throws IOException {
+		content = new byte[1000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		packageFile = File.createTempFile("ngrinder-agent", ".tar");
+		FileUtils.writeByteArrayToFile(packageFile, content);
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteQuietly(packageFile);
+	}
+
+	@Test
+	public void testGetChunk() throws IOException {
+		assertThat(download(new MappedAgentPackage(packageFile, 300)), is(content));
+		// The last chunk is full.
+		assertThat(download(new MappedAgentPackage(packageFile, 250)), is(content));
+		assertThat(download(new MappedAgentPackage(packageFile, 2000)), is(content));
+	}
+
+	@Test
+	public void testInvalidOffset() throws IOException {
+		MappedAgentPackage agentPackage = new MappedAgentPackage(packageFile, 300);
+		assertThat(agentPackage.getChunk("3.4.1", 1000).getNext(), is(-1));
+		assertThat(agentPackage.getChunk("3.4.1", -1).getNext(), is(-1));
+		AgentUpdateGrinderMessage message = agentPackage.getChunk("3.4.1", 100);
+		assertThat(message.isValid(), is(true));
+		assertThat(message.getNext(), is(400));
+	}
+
+	@Test
+	public void testIsValid() throws IOException {
+		MappedAgentPackage agentPackage = new MappedAgentPackage(packageFile, 300);
+		assertThat(agentPackage.isValid(300), is(true));
+		assertThat(agentPackage.isValid(200), is(false));
+		FileUtils.writeByteArrayToFile(packageFile, Arrays.copyOf(content, 500));
+		assertThat(agentPackage.isValid(300), is(false));
+	}
+
+	private byte[] download(MappedAgentPackage agentPackage) {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		int offset = 0;
+		do {
+			AgentUpdateGrinderMessage message = agentPackage.getChunk("3.4.1", offset);
+			assertThat(message.isValid(), is(true));
+			assertThat(message.getOffset(), is(offset));
+			outputStream.write(message.getBinary(), 0, message.getBinary().length);
+			offset = message.getNext();
+		} while (offset != 0);
+		return outputStream.toByteArray();
+	}
+}
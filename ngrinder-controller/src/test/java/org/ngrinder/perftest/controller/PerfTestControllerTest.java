@@ -333,7 +333,7 @@ public class PerfTestControllerTest extends AbstractPerfTestTransactionalTest im
 		PerfTest test = createPerfTest(testName, Status.TESTING, new Date());
 		test.setPort(11011);
 		try {
-			controller.refreshTestRunning(getTestUser(), test.getId());
+			controller.refreshTestRunning(getTestUser(), test.getId(), -1);
 		} catch (NullPointerException e) {
 			assertTrue(true);
 		}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service;
+
+import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.engine.controller.AgentControllerIdentityImplementation;
+import org.junit.Before;
+import org.junit.Test;
+import org.ngrinder.model.Role;
+import org.ngrinder.model.User;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class AgentManagerReservationTest {
+	private final Set<AgentIdentity> agents = new HashSet<AgentIdentity>();
+
+	private final AgentManager agentManager = new AgentManager() {
+		@Override
+		public Set<AgentIdentity> getAllFreeApprovedAgents() {
+			return excludeReservedAgents(agents);
+		}
+	};
+
+	private final User user = new User("user", "user", "user", Role.USER);
+
+	@Before
+	public void before() {
+		for (int i = 0; i < 3; i++) {
+			AgentControllerIdentityImplementation agent = new AgentControllerIdentityImplementation("agent" + i,
+					"127.0.0." + i);
+			agent.setRegion("NONE");
+			agents.add(agent);
+		}
+	}
+
+	@Test
+	public void testReservedAgentsAreNotFree() {
+		Set<AgentIdentity> reserved = agentManager.reserveAgents(user, 1L, 2);
+		assertThat(reserved.size(), is(2));
+		assertThat(agentManager.getAllFreeApprovedAgentsForUser(user).size(), is(1));
+
+		// The other test can't take the reserved agents.
+		assertThat(agentManager.reserveAgents(user, 2L, 2), nullValue());
+		Set<AgentIdentity> others = agentManager.reserveAgents(user, 2L, 1);
+		assertThat(others.size(), is(1));
+		assertThat(reserved, not(hasItem(others.iterator().next())));
+		assertThat(agentManager.getAllFreeApprovedAgentsForUser(user).size(), is(0));
+	}
+
+	@Test
+	public void testReleaseAgents() {
+		agentManager.reserveAgents(user, 1L, 3);
+		assertThat(agentManager.reserveAgents(user, 2L, 1), nullValue());
+
+		agentManager.releaseAgents(1L);
+		assertThat(agentManager.getAllFreeApprovedAgentsForUser(user).size(), is(3));
+		assertThat(agentManager.reserveAgents(user, 2L, 3).size(), is(3));
+	}
+
+	@Test
+	public void testReserveNoAgent() {
+		assertThat(agentManager.reserveAgents(user, 1L, 0).size(), is(0));
+		assertThat(agentManager.getAllFreeApprovedAgentsForUser(user).size(), is(3));
+	}
+}
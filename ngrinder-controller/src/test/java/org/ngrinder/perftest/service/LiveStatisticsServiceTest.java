@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.perftest.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ngrinder.perftest.model.LiveStatistics;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class LiveStatisticsServiceTest {
+	private LiveStatisticsService liveStatisticsService;
+
+	@Before
+	public void before() {
+		liveStatisticsService = new LiveStatisticsService();
+		ReflectionTestUtils.setField(liveStatisticsService, "cacheManager",
+				new ConcurrentMapCacheManager("live_statistics"));
+		liveStatisticsService.init();
+	}
+
+	@Test
+	public void testPutAndRemove() {
+		assertThat(liveStatisticsService.get(1L), nullValue());
+		liveStatisticsService.put(1L, "{}", "{}");
+		LiveStatistics statistics = liveStatisticsService.put(1L, "{\"tps\":1}", "{}");
+		assertThat(statistics.getSequence(), is(2L));
+		assertThat(liveStatisticsService.get(1L).getRunningSample(), is("{\"tps\":1}"));
+		liveStatisticsService.remove(1L);
+		assertThat(liveStatisticsService.get(1L), nullValue());
+	}
+
+	@Test
+	public void testWaitForUpdate() throws InterruptedException {
+		liveStatisticsService.put(1L, "{}", "{}");
+		long start = System.currentTimeMillis();
+		assertThat(liveStatisticsService.waitForUpdate(1L, 1, 300).getSequence(), is(1L));
+		assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo(300L));
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					return;
+				}
+				liveStatisticsService.put(1L, "{}", "{}");
+			}
+		};
+		thread.start();
+		start = System.currentTimeMillis();
+		assertThat(liveStatisticsService.waitForUpdate(1L, 1, 10000).getSequence(), is(2L));
+		assertThat(System.currentTimeMillis() - start, lessThan(10000L));
+		thread.join();
+	}
+}
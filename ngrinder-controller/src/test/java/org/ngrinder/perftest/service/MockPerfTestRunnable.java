@@ -36,7 +36,7 @@ public class MockPerfTestRunnable extends PerfTestRunnable {
 		getPerfTestService().markStatusAndProgress(perfTest, START_AGENTS,
 				perfTest.getAgentCount() + " agents are starting.");
 		getAgentManager().runAgent(perfTest.getLastModifiedUser(), singleConsole, grinderProperties,
-				perfTest.getAgentCount());
+				perfTest.getAgentCount(), perfTest.getId());
 		getPerfTestService().markStatusAndProgress(perfTest, START_AGENTS_FINISHED,
 				perfTest.getAgentCount() + " agents are started.");
 	}
@@ -47,6 +47,12 @@ public class MockPerfTestRunnable extends PerfTestRunnable {
 		// To avoid exceptions due to @Transactional in the different thread.
 	}
 
+	@Override
+	protected void launch(Runnable task) {
+		// Run in the caller thread to see the data in the test transaction.
+		task.run();
+	}
+
 	@Override
 	protected long getSafeTransmissionThreshold() {
 		return 1;
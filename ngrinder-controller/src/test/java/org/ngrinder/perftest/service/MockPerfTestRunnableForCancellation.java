@@ -42,10 +42,16 @@ public class MockPerfTestRunnableForCancellation extends PerfTestRunnable {
 	}
 
 	@Override
-	protected boolean hasEnoughFreeAgents(PerfTest test) {
+	protected boolean reserveFreeAgents(PerfTest test) {
 		return true;
 	}
 
+	@Override
+	protected void launch(Runnable task) {
+		// Run in the caller thread to see the data in the test transaction.
+		task.run();
+	}
+
 	@Override
 	void startAgentsOn(PerfTest perfTest, GrinderProperties grinderProperties, SingleConsole singleConsole) {
 		ThreadUtils.sleep(1000);
@@ -13,6 +13,7 @@
  */
 package org.ngrinder.perftest.service;
 
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 
@@ -40,4 +41,15 @@ public class PerfTestProcessAndThreadPolicyServiceTest extends AbstractNGrinderT
 		System.out.println(calcProcessAndThread);
 
 	}
+
+	@Test
+	public void testLightweightVUser() {
+		ProcessAndThread processAndThread = perfTestService.calcProcessAndThread(3000, false);
+		assertThat(processAndThread.getProcessCount(), is(10));
+		assertThat(processAndThread.getThreadCount(), is(300));
+		// The lightweight threads put more vusers into a process.
+		processAndThread = perfTestService.calcProcessAndThread(3000, true);
+		assertThat(processAndThread.getProcessCount(), is(3));
+		assertThat(processAndThread.getThreadCount(), is(1000));
+	}
 }
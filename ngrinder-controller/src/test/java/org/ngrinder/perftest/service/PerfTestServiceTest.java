@@ -16,8 +16,10 @@ package org.ngrinder.perftest.service;
 import net.grinder.StopReason;
 import net.grinder.common.GrinderProperties;
 import net.grinder.console.model.ConsoleProperties;
+import net.grinder.statistics.CompactStatisticsCodec;
 import org.junit.Before;
 import org.junit.Test;
+import org.ngrinder.common.constants.GrinderConstants;
 import org.ngrinder.common.model.Home;
 import org.ngrinder.common.util.ThreadUtils;
 import org.ngrinder.infra.config.Config;
@@ -106,6 +108,8 @@ public class PerfTestServiceTest extends AbstractPerfTestTransactionalTest {
 
 			GrinderProperties properties = testService.getGrinderProperties(test);
 			assertThat(properties, not(nullValue()));
+			assertThat(properties.getInt(GrinderConstants.GRINDER_PROP_COMPACT_STATISTICS, 0),
+					is(CompactStatisticsCodec.VERSION));
 
 		}
 
@@ -152,6 +156,12 @@ public class PerfTestServiceTest extends AbstractPerfTestTransactionalTest {
 
 	}
 
+	@Test(expected = IllegalStateException.class)
+	public void testChangeTargetLoadOfNotRunningTest() {
+		PerfTest perfTest = createPerfTest("new Test", Status.READY, new Date());
+		testService.changeTargetLoad(getTestUser(), perfTest.getId(), 10, null);
+	}
+
 	@Test
 	public void testGetReportDataWithExistingData() throws IOException {
 		long testId = 123456L; // there is sample monitor data in test resources.
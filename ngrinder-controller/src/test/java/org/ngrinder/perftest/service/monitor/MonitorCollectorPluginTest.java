@@ -55,6 +55,9 @@ public class MonitorCollectorPluginTest extends AbstractAgentReadyTest implement
 	@Autowired
 	PerfTestService perfTestService;
 
+	@Autowired
+	MonitorInfoStore monitorInfoStore;
+
 	@Before
 	public void before() {
 		tempReport = new File(System.getProperty("java.io.tmpdir"), "tmp-report");
@@ -76,7 +79,7 @@ public class MonitorCollectorPluginTest extends AbstractAgentReadyTest implement
 		SingleConsole singleConsole = mock(SingleConsole.class);
 		when(singleConsole.getReportPath()).thenReturn(tempReport);
 		MonitorCollectorPlugin monitorCollectorPlugin = new MonitorCollectorPlugin(config, scheduledTaskService,
-				perfTestService, 1L) {
+				perfTestService, monitorInfoStore, 1L) {
 			@Override
 			protected int getPort(IConfig config) {
 				return 13243;
@@ -21,6 +21,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 
@@ -37,4 +38,26 @@ public class MonitorInfoStoreTest extends AbstractAgentReadyTest {
 		assertThat(systemInfo.getFreeMemory(), not(0L));
 		monitorInfoStore.close(ip);
 	}
+
+	@Test
+	public void testTargetSharedByTests() {
+		String ip = "127.0.0.1";
+		MonitorTarget target = monitorInfoStore.register(ip, 13243);
+		assertThat(monitorInfoStore.register(ip, 13243), sameInstance(target));
+		assertThat(monitorInfoStore.getSystemInfo(ip, 13243), not(nullValue()));
+
+		// It's not closed while the tests are monitoring it.
+		monitorInfoStore.close(ip);
+		monitorInfoStore.unregister(ip);
+		monitorInfoStore.close(ip);
+		assertThat(monitorInfoStore.register(ip, 13243), sameInstance(target));
+
+		monitorInfoStore.unregister(ip);
+		monitorInfoStore.unregister(ip);
+		monitorInfoStore.close(ip);
+		MonitorTarget newTarget = monitorInfoStore.register(ip, 13243);
+		assertThat(newTarget, not(sameInstance(target)));
+		monitorInfoStore.unregister(ip);
+		monitorInfoStore.close(ip);
+	}
 }
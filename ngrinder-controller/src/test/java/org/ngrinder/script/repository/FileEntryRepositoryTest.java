@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.util.List;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class FileEntryRepositoryTest extends AbstractNGrinderTransactionalTest {
@@ -95,6 +96,41 @@ public class FileEntryRepositoryTest extends AbstractNGrinderTransactionalTest {
 
 	}
 
+	@Test
+	public void testFindAllFollowsCommits() {
+		int size = repo.findAll(getTestUser()).size();
+		FileEntry fileEntry = new FileEntry();
+		fileEntry.setContent("HELLO WORLD");
+		fileEntry.setEncoding("UTF-8");
+		fileEntry.setPath("indexed/hello.py");
+		fileEntry.setFileType(FileType.PYTHON_SCRIPT);
+		fileEntry.setDescription("first");
+		repo.save(getTestUser(), fileEntry, "UTF-8");
+		assertThat(repo.findAll(getTestUser()).size(), is(size + 2));
+
+		fileEntry.setContent("HELLO WORLD2");
+		fileEntry.setDescription("second");
+		repo.save(getTestUser(), fileEntry, "UTF-8");
+		List<FileEntry> fileEntries = repo.findAll(getTestUser());
+		FileEntry script = findByPath(fileEntries, "indexed/hello.py");
+		assertThat(script.getDescription(), is("second"));
+		assertThat(findByPath(fileEntries, "indexed").getRevision(), is(script.getRevision()));
+
+		repo.delete(getTestUser(), Lists.newArrayList("indexed"));
+		fileEntries = repo.findAll(getTestUser());
+		assertThat(fileEntries.size(), is(size));
+		assertThat(findByPath(fileEntries, "indexed/hello.py"), nullValue());
+	}
+
+	private FileEntry findByPath(List<FileEntry> fileEntries, String path) {
+		for (FileEntry each : fileEntries) {
+			if (each.getPath().equals(path)) {
+				return each;
+			}
+		}
+		return null;
+	}
+
 	@Test
 	public void testBinarySaveAndLoad() throws IOException {
 		FileEntry fileEntry = new FileEntry();
@@ -32,5 +32,6 @@ public class MockFileEntityRepository extends FileEntryRepository {
 
 	public void setUserRepository(File userRepository) {
 		this.userRepoDir = userRepository;
+		clearCache();
 	}
 }
@@ -0,0 +1,116 @@
+/* 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ */
+package org.ngrinder.script.service;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.ngrinder.common.model.Home;
+import org.ngrinder.infra.config.Config;
+import org.ngrinder.model.User;
+import org.ngrinder.script.model.FileEntry;
+import org.ngrinder.script.repository.FileEntryRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class DistributionCacheServiceTest {
+	private File tempDir;
+	private DistributionCacheService distributionCacheService;
+	private FileEntryRepository fileEntryRepository;
+	private final User user = new User("test", "test", "test", null);
+
+	@Before
+	public void before() throws IOException {
+		tempDir = new File(FileUtils.getTempDirectory(), "dist_cache_test_" + System.nanoTime());
+		tempDir.mkdirs();
+		Config config = mock(Config.class);
+		when(config.getHome()).thenReturn(new Home(new File(tempDir, "home")));
+		when(config.getCurrentIP()).thenReturn("127.0.0.1");
+		fileEntryRepository = mock(FileEntryRepository.class);
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				String path = (String) invocation.getArguments()[1];
+				File toDir = (File) invocation.getArguments()[2];
+				FileUtils.writeStringToFile(new File(toDir, new File(path).getName()), "content of " + path);
+				return null;
+			}
+		}).when(fileEntryRepository).writeContentTo(any(User.class), anyString(), any(File.class));
+		distributionCacheService = new DistributionCacheService();
+		ReflectionTestUtils.setField(distributionCacheService, "config", config);
+		ReflectionTestUtils.setField(distributionCacheService, "fileEntryRepository", fileEntryRepository);
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteQuietly(tempDir);
+	}
+
+	@Test
+	public void testWriteContentTo() throws IOException {
+		FileEntry fileEntry = new FileEntry();
+		fileEntry.setPath("hello/resources/data.csv");
+		fileEntry.setRevision(3);
+		File dist1 = new File(tempDir, "dist1");
+		File dist2 = new File(tempDir, "dist2");
+		distributionCacheService.writeContentTo(user, fileEntry, dist1);
+		distributionCacheService.writeContentTo(user, fileEntry, dist2);
+		verify(fileEntryRepository, times(1)).writeContentTo(any(User.class), anyString(), any(File.class));
+		assertThat(FileUtils.readFileToString(new File(dist2, "data.csv")), is("content of hello/resources/data.csv"));
+
+		fileEntry.setRevision(4);
+		distributionCacheService.writeContentTo(user, fileEntry, dist2);
+		verify(fileEntryRepository, times(2)).writeContentTo(any(User.class), anyString(), any(File.class));
+	}
+
+	@Test
+	public void testSyncMirror() throws IOException {
+		File dist = new File(tempDir, "dist");
+		FileUtils.writeStringToFile(new File(dist, "lib/a.jar"), "a");
+		FileUtils.writeStringToFile(new File(dist, "resources/b.csv"), "b");
+		File mirror = distributionCacheService.syncMirror(user, dist);
+		File mirroredJar = new File(mirror, "lib/a.jar");
+		File mirroredCsv = new File(mirror, "resources/b.csv");
+		assertThat(FileUtils.readFileToString(mirroredCsv), is("b"));
+		mirroredJar.setLastModified(1000);
+		mirroredCsv.setLastModified(1000);
+
+		// Only the changed file is rewritten.
+		FileUtils.writeStringToFile(new File(dist, "resources/b.csv"), "bb");
+		assertThat(distributionCacheService.syncMirror(user, dist), is(mirror));
+		assertThat(mirroredJar.lastModified(), is(1000L));
+		assertThat(mirroredCsv.lastModified(), not(1000L));
+		assertThat(FileUtils.readFileToString(mirroredCsv), is("bb"));
+
+		// The mirror is renewed when a file is removed.
+		FileUtils.deleteQuietly(new File(dist, "lib/a.jar"));
+		File renewed = distributionCacheService.syncMirror(user, dist);
+		assertThat(renewed, not(mirror));
+		assertThat(mirror.exists(), is(false));
+		assertThat(new File(renewed, "lib/a.jar").exists(), is(false));
+		assertThat(new File(renewed, "resources/b.csv").exists(), is(true));
+	}
+}
@@ -22,13 +22,13 @@ import net.grinder.engine.common.AgentControllerConnectorFactory;
 import net.grinder.engine.communication.AgentControllerServerListener;
 import net.grinder.engine.communication.AgentDownloadGrinderMessage;
 import net.grinder.engine.communication.AgentUpdateGrinderMessage;
-import net.grinder.engine.communication.LogReportGrinderMessage;
+import net.grinder.engine.communication.LogReportAckGrinderMessage;
 import net.grinder.engine.controller.AgentControllerIdentityImplementation;
 import net.grinder.message.console.AgentControllerProcessReportMessage;
 import net.grinder.message.console.AgentControllerState;
 import net.grinder.messages.agent.StartGrinderMessage;
 import net.grinder.messages.console.AgentAddress;
-import net.grinder.util.LogCompressUtils;
+import net.grinder.statistics.BinaryDataLog;
 import net.grinder.util.NetworkUtils;
 import net.grinder.util.thread.Condition;
 import org.apache.commons.io.FileUtils;
@@ -39,12 +39,12 @@ import org.ngrinder.infra.AgentConfig;
 import org.ngrinder.monitor.collector.SystemDataCollector;
 import org.ngrinder.monitor.controller.model.SystemDataModel;
 import org.ngrinder.monitor.share.domain.SystemInfo;
+import org.ngrinder.monitor.share.domain.SystemSamples;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -77,12 +77,20 @@ public class AgentController implements Agent, AgentConstants {
 
 	private SystemDataCollector agentSystemDataCollector = new SystemDataCollector();
 
+	// Collected every second and shipped with the heartbeat.
+	private final SystemSamples systemSamples = new SystemSamples(
+			GrinderConstants.AGENT_CONTROLLER_SYSTEM_SAMPLES_CAPACITY);
+
+	private volatile SystemDataModel lastSystemDataModel;
+
 	private int m_connectionPort = 0;
 
 	private static SystemDataModel emptySystemDataModel = new SystemDataModel();
 
 	private AgentUpdateHandler agentUpdateHandler;
 
+	private final LogUploader logUploader;
+
 	private int retryCount = 0;
 
 	private String version;
@@ -101,6 +109,8 @@ public class AgentController implements Agent, AgentConstants {
 		// Set it with the default name
 		this.m_agentIdentity = new AgentControllerIdentityImplementation(agentConfig.getAgentHostID(), NetworkUtils.DEFAULT_LOCAL_HOST_ADDRESS);
 		this.m_agentIdentity.setRegion(agentConfig.getRegion());
+		this.logUploader = new LogUploader(new File(agentConfig.getHome().getTempDirectory(), "log_upload"),
+				new AgentAddress(m_agentIdentity));
 		this.agentSystemDataCollector = new SystemDataCollector();
 		this.agentSystemDataCollector.setAgentHome(agentConfig.getHome().getDirectory());
 		this.agentSystemDataCollector.refresh();
@@ -122,6 +132,12 @@ public class AgentController implements Agent, AgentConstants {
 		ConsoleCommunication consoleCommunication = null;
 		m_fanOutStreamSender = new FanOutStreamSender(GrinderConstants.AGENT_CONTROLLER_FANOUT_STREAM_THREAD_COUNT);
 		m_timer = new Timer(false);
+		m_timer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				sampleSystemData();
+			}
+		}, 0, GrinderConstants.AGENT_CONTROLLER_SYSTEM_SAMPLING_INTERVAL);
 		AgentDaemon agent = new AgentDaemon(checkNotNull(agentConfig,
 				"agent.conf should be provided before agent daemon start."));
 		try {
@@ -172,13 +188,12 @@ public class AgentController implements Agent, AgentConstants {
 					m_connectionPort = startMessage.getProperties().getInt(GrinderProperties.CONSOLE_PORT, 0);
 					agent.run(startMessage.getProperties());
 
-					final ConsoleCommunication conCom = consoleCommunication;
 					agent.resetListeners();
 					agent.addListener(new AgentShutDownListener() {
 						@Override
 						public void shutdownAgent() {
 							LOGGER.info("Send log for {}", testId);
-							sendLog(conCom, testId);
+							sendLog(testId);
 							m_state = AgentControllerState.READY;
 							m_connectionPort = 0;
 						}
@@ -262,13 +277,14 @@ public class AgentController implements Agent, AgentConstants {
 			m_connectionPort = 0;
 			// Abnormal state.
 			agent.shutdown();
+			agent.shutdownWorkerProcessPool();
 			m_state = AgentControllerState.FINISHED;
 			shutdownConsoleCommunication(consoleCommunication);
 			m_timer.cancel();
 		}
 	}
 
-	private void sendLog(ConsoleCommunication consoleCommunication, String testId) {
+	private void sendLog(String testId) {
 		File logFolder = new File(agentConfig.getHome().getLogDirectory(), testId);
 		if (!logFolder.exists()) {
 			return;
@@ -289,12 +305,21 @@ public class AgentController implements Agent, AgentConstants {
 		if (!agentConfig.getAgentProperties().getPropertyBoolean(PROP_AGENT_ALL_LOGS)) {
 			logFiles = new File[]{logFiles[0]};
 		}
-		final byte[] compressedLog = LogCompressUtils.compress(logFiles,
-				Charset.defaultCharset(), Charset.forName("UTF-8")
-		);
-		consoleCommunication.sendMessage(new LogReportGrinderMessage(testId, compressedLog, new AgentAddress(m_agentIdentity)));
+		// The binary data logs are written only when they are asked explicitly, so send them all.
+		File[] dataLogFiles = logFolder.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return (name.endsWith(BinaryDataLog.FILE_SUFFIX));
+			}
+		});
+		if (dataLogFiles != null) {
+			Arrays.sort(dataLogFiles);
+			logFiles = (File[]) ArrayUtils.addAll(logFiles, dataLogFiles);
+		}
+		// It's uploaded in the background.
+		boolean spooled = logUploader.upload(testId, logFiles);
 		// Delete logs to clean up
-		if (!agentConfig.getAgentProperties().getPropertyBoolean(PROP_AGENT_KEEP_LOGS)) {
+		if (spooled && !agentConfig.getAgentProperties().getPropertyBoolean(PROP_AGENT_KEEP_LOGS)) {
 			LOGGER.info("Clean up the perftest logs");
 			FileUtils.deleteQuietly(logFolder);
 		}
@@ -332,18 +357,16 @@ public class AgentController implements Agent, AgentConstants {
 			m_fanOutStreamSender.shutdown();
 		}
 		m_agentControllerServerListener.shutdown();
+		logUploader.shutdown();
 		LOGGER.info("Agent controller shuts down");
 	}
 
-	/**
-	 * Get current System performance.
-	 *
-	 * @return {@link SystemDataModel} instance
-	 */
-	public SystemDataModel getSystemDataModel() {
+	private SystemDataModel sampleSystemData() {
 		try {
 			SystemInfo systemInfo = agentSystemDataCollector.execute();
-			return new SystemDataModel(systemInfo, this.version);
+			systemSamples.add(systemInfo);
+			lastSystemDataModel = new SystemDataModel(systemInfo, this.version);
+			return lastSystemDataModel;
 		} catch (Exception e) {
 			LOGGER.error("Error while getting system data model : {} ", e.getMessage());
 			LOGGER.debug("The error detail is ", e);
@@ -351,6 +374,16 @@ public class AgentController implements Agent, AgentConstants {
 		}
 	}
 
+	/**
+	 * Get current System performance. It's the one sampled last in every second.
+	 *
+	 * @return {@link SystemDataModel} instance
+	 */
+	public SystemDataModel getSystemDataModel() {
+		SystemDataModel systemDataModel = lastSystemDataModel;
+		return systemDataModel == null ? sampleSystemData() : systemDataModel;
+	}
+
 	public AgentConfig getAgentConfig() {
 		return agentConfig;
 	}
@@ -360,6 +393,7 @@ public class AgentController implements Agent, AgentConstants {
 		private final ClientSender m_sender;
 		private final TimerTask m_reportRunningTask;
 		private final MessagePump m_messagePump;
+		private long m_lastSentSampleTime = 0;
 
 		public ConsoleCommunication(Connector connector) throws CommunicationException {
 			final ClientReceiver receiver = ClientReceiver.connect(connector, new AgentAddress(m_agentIdentity));
@@ -369,6 +403,12 @@ public class AgentController implements Agent, AgentConstants {
 					m_connectionPort, version));
 			final MessageDispatchSender messageDispatcher = new MessageDispatchSender();
 			m_agentControllerServerListener.registerMessageHandlers(messageDispatcher);
+			messageDispatcher.set(LogReportAckGrinderMessage.class,
+					new MessageDispatchRegistry.AbstractHandler<LogReportAckGrinderMessage>() {
+						public void handle(LogReportAckGrinderMessage message) {
+							logUploader.acknowledged(message);
+						}
+					});
 
 			m_messagePump = new MessagePump(receiver, messageDispatcher, 1);
 
@@ -394,16 +434,27 @@ public class AgentController implements Agent, AgentConstants {
 		}
 
 		public void sendCurrentState() throws CommunicationException {
-			sendMessage(new AgentControllerProcessReportMessage(m_state, getSystemDataModel(), m_connectionPort, version));
+			AgentControllerProcessReportMessage message = new AgentControllerProcessReportMessage(m_state,
+					getSystemDataModel(), m_connectionPort, version);
+			// The samples collected after the last report.
+			SystemSamples samples = systemSamples.getSince(m_lastSentSampleTime);
+			if (samples.size() > 0) {
+				message.setSystemSamples(samples);
+				m_lastSentSampleTime = samples.getLastCollectTime();
+			}
+			sendMessage(message);
 		}
 
 		public void start() {
 			m_messagePump.start();
 			m_timer.schedule(m_reportRunningTask, 0, GrinderConstants.AGENT_CONTROLLER_HEARTBEAT_INTERVAL);
+			// Resume the log uploads which are stopped by the previous disconnection.
+			logUploader.connected(m_sender);
 		}
 
 		public void shutdown() {
 			m_reportRunningTask.cancel();
+			logUploader.disconnected();
 			try {
 				m_sender.send(new AgentControllerProcessReportMessage(AgentControllerState.FINISHED, null, 0, version));
 			} catch (CommunicationException e) {
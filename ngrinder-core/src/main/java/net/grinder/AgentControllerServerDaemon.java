@@ -151,12 +151,21 @@ public class AgentControllerServerDaemon {
 	}
 
 	/**
-	 * Add Listener which will be used to save log in somewhere.
+	 * Set Listener which will be used to save log in somewhere.
 	 *
 	 * @param logArrivedListener listener
 	 */
-	public void addLogArrivedListener(LogArrivedListener logArrivedListener) {
-		getComponent(AgentProcessControlImplementation.class).addLogArrivedListener(logArrivedListener);
+	public void setLogArrivedListener(LogArrivedListener logArrivedListener) {
+		getComponent(AgentProcessControlImplementation.class).setLogArrivedListener(logArrivedListener);
+	}
+
+	/**
+	 * Add Listener which will be notified when the agents are connected, disconnected or changed.
+	 *
+	 * @param agentStatusUpdateListener listener
+	 */
+	public void addAgentStatusUpdateListener(AgentStatusUpdateListener agentStatusUpdateListener) {
+		getComponent(AgentProcessControlImplementation.class).addAgentStatusUpdateListener(agentStatusUpdateListener);
 	}
 
 	/**
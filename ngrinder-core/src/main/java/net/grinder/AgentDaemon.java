@@ -18,9 +18,11 @@ import net.grinder.common.GrinderProperties;
 import net.grinder.communication.CommunicationDefaults;
 import net.grinder.engine.agent.Agent;
 import net.grinder.engine.agent.AgentImplementationEx;
+import net.grinder.engine.agent.WorkerProcessPool;
 import net.grinder.util.ListenerSupport;
 import net.grinder.util.ListenerSupport.Informer;
 import org.apache.commons.lang.StringUtils;
+import org.ngrinder.common.constants.AgentConstants;
 import org.ngrinder.common.util.ThreadUtils;
 import org.ngrinder.infra.AgentConfig;
 import org.slf4j.Logger;
@@ -42,6 +44,7 @@ public class AgentDaemon implements Agent {
 	private boolean forceShutdown = false;
 	public static final Logger LOGGER = LoggerFactory.getLogger("agent daemon");
 	private final AgentConfig m_agentConfig;
+	private final WorkerProcessPool m_workerProcessPool;
 
 	/**
 	 * Constructor.
@@ -51,6 +54,9 @@ public class AgentDaemon implements Agent {
 
 	public AgentDaemon(AgentConfig agentConfig) {
 		this.m_agentConfig = agentConfig;
+		this.m_workerProcessPool = new WorkerProcessPool(
+				agentConfig.getAgentProperties().getPropertyInt(AgentConstants.PROP_AGENT_WORKER_POOL_SIZE, 0),
+				agentConfig.getAgentProperties().getPropertyInt(AgentConstants.PROP_AGENT_WORKER_POOL_MEMORY, 0));
 		try {
 			properties = new GrinderProperties(GrinderProperties.DEFAULT_PROPERTIES);
 		} catch (GrinderException e) {
@@ -129,7 +135,9 @@ public class AgentDaemon implements Agent {
 	class AgentThreadRunnable implements Runnable {
 		public void run() {
 			try {
-				setAgent(new AgentImplementationEx(LOGGER, m_agentConfig)).run(getGrinderProperties());
+				AgentImplementationEx agent = new AgentImplementationEx(LOGGER, m_agentConfig);
+				agent.setWorkerProcessPool(m_workerProcessPool);
+				setAgent(agent).run(getGrinderProperties());
 			} catch (Exception e) {
 				LOGGER.error("While running an agent thread, an error occurred", e);
 			}
@@ -203,6 +211,13 @@ public class AgentDaemon implements Agent {
 		}
 	}
 
+	/**
+	 * Destroy the worker processes started in advance. It should be called when the daemon is not used anymore.
+	 */
+	public void shutdownWorkerProcessPool() {
+		m_workerProcessPool.shutdown();
+	}
+
 	private boolean isForceShutdown() {
 		return forceShutdown;
 	}
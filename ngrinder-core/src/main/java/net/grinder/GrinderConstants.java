@@ -34,6 +34,16 @@ public abstract class GrinderConstants {
 	 */
 	public static final long AGENT_CONTROLLER_HEARTBEAT_INTERVAL = 990;
 
+	/**
+	 * Agent controller system data sampling interval.
+	 */
+	public static final long AGENT_CONTROLLER_SYSTEM_SAMPLING_INTERVAL = 1000;
+
+	/**
+	 * Count of the system data samples kept in the agent controller and in the controller for each agent.
+	 */
+	public static final int AGENT_CONTROLLER_SYSTEM_SAMPLES_CAPACITY = 60;
+
 	/**
 	 * Agent controller daemon retry interval.
 	 */
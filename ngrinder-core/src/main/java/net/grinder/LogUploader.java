@@ -0,0 +1,319 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder;
+
+import net.grinder.communication.CommunicationException;
+import net.grinder.communication.Sender;
+import net.grinder.engine.communication.LogReportAckGrinderMessage;
+import net.grinder.engine.communication.LogReportGrinderMessage;
+import net.grinder.messages.console.AgentAddress;
+import net.grinder.util.LogCompressUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Uploader of the logs of the finished tests.
+ * <p/>
+ * The logs are compressed into the spool directory while they are read, and the compressed log is sent in the
+ * chunks in the background. Only {@link #WINDOW_SIZE} bytes are sent ahead of the acknowledged offset, so the upload
+ * takes bounded memory on both sides. The spooled log is deleted when the controller receives all of it. If the
+ * connection is lost, the upload is resumed from the offset which the controller has when the agent is connected
+ * again.
+ *
+ * @since 3.4.1
+ */
+public class LogUploader {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LogUploader.class);
+
+	static final int CHUNK_SIZE = 64 * 1024;
+	static final int WINDOW_SIZE = 8 * CHUNK_SIZE;
+	static final long ACK_TIMEOUT = 60 * 1000;
+	static final String SPOOL_EXTENSION = ".zip";
+
+	private final File spoolDirectory;
+	private final AgentAddress agentAddress;
+	private final ExecutorService executor;
+	private final Set<File> scheduled = new HashSet<File>();
+	private volatile Sender sender;
+	private volatile Upload current;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param spoolDirectory directory in which the compressed logs are kept until they are uploaded
+	 * @param agentAddress   address of this agent
+	 */
+	public LogUploader(File spoolDirectory, AgentAddress agentAddress) {
+		this.spoolDirectory = spoolDirectory;
+		this.agentAddress = agentAddress;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "log uploader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Compress the given logs into the spool directory and upload it.
+	 *
+	 * @param testId   test id
+	 * @param logFiles log files
+	 * @return true if the logs are compressed
+	 */
+	public boolean upload(String testId, File[] logFiles) {
+		File spoolFile = new File(spoolDirectory, testId + SPOOL_EXTENSION);
+		File tempFile = new File(spoolDirectory, testId + SPOOL_EXTENSION + ".tmp");
+		OutputStream outputStream = null;
+		try {
+			spoolDirectory.mkdirs();
+			outputStream = new BufferedOutputStream(new FileOutputStream(tempFile), CHUNK_SIZE);
+			LogCompressUtils.compress(logFiles, outputStream, Charset.defaultCharset(), Charset.forName("UTF-8"));
+			outputStream.close();
+			FileUtils.deleteQuietly(spoolFile);
+			if (!tempFile.renameTo(spoolFile)) {
+				throw new IOException("Fail to rename " + tempFile + " to " + spoolFile);
+			}
+		} catch (IOException e) {
+			LOGGER.error("Error while compressing the logs of {} : {}", testId, e.getMessage());
+			LOGGER.debug("Details : ", e);
+			IOUtils.closeQuietly(outputStream);
+			FileUtils.deleteQuietly(tempFile);
+			return false;
+		}
+		uploadPending();
+		return true;
+	}
+
+	/**
+	 * Set the sender connected to the controller, and resume the pending uploads.
+	 *
+	 * @param sender sender
+	 */
+	public void connected(Sender sender) {
+		this.sender = sender;
+		uploadPending();
+	}
+
+	/**
+	 * Stop the upload in progress because the connection is closed. It's resumed when it's connected again.
+	 */
+	public void disconnected() {
+		this.sender = null;
+		Upload upload = current;
+		if (upload != null) {
+			upload.abort();
+		}
+	}
+
+	/**
+	 * Called when the controller acknowledges the chunks.
+	 *
+	 * @param message ack message
+	 */
+	public void acknowledged(LogReportAckGrinderMessage message) {
+		Upload upload = current;
+		if (upload != null && upload.testId.equals(message.getTestId())) {
+			upload.acknowledged(message);
+		}
+	}
+
+	/**
+	 * Stop uploading.
+	 */
+	public void shutdown() {
+		disconnected();
+		executor.shutdownNow();
+	}
+
+	private void uploadPending() {
+		File[] spoolFiles = spoolDirectory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SPOOL_EXTENSION);
+			}
+		});
+		if (spoolFiles == null || sender == null) {
+			return;
+		}
+		for (final File each : spoolFiles) {
+			synchronized (scheduled) {
+				if (!scheduled.add(each)) {
+					continue;
+				}
+			}
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						upload(each);
+					} finally {
+						synchronized (scheduled) {
+							scheduled.remove(each);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	void upload(File spoolFile) {
+		String name = spoolFile.getName();
+		String testId = name.substring(0, name.length() - SPOOL_EXTENSION.length());
+		Sender currentSender = sender;
+		if (currentSender == null || !spoolFile.exists()) {
+			return;
+		}
+		Upload upload = new Upload(testId);
+		current = upload;
+		RandomAccessFile file = null;
+		try {
+			file = new RandomAccessFile(spoolFile, "r");
+			long length = file.length();
+			long start = System.currentTimeMillis();
+			currentSender.send(LogReportGrinderMessage.open(testId, agentAddress));
+			long sent = upload.awaitResume();
+			long resumed = sent;
+			if (sent > length) {
+				LOGGER.error("The controller has more log of {} than this agent. Skip it.", testId);
+				FileUtils.deleteQuietly(spoolFile);
+				return;
+			}
+			byte[] buffer = new byte[CHUNK_SIZE];
+			while (true) {
+				long next = upload.awaitWindow(sent, length);
+				if (next == LogReportAckGrinderMessage.COMPLETED) {
+					long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+					LOGGER.info("The log of {} is uploaded. {} bytes in {} ms, {} KB/s", new Object[]{testId,
+							length - resumed, elapsed, (length - resumed) * 1000 / 1024 / elapsed});
+					FileUtils.deleteQuietly(spoolFile);
+					return;
+				} else if (next == LogReportAckGrinderMessage.ERROR) {
+					LOGGER.error("The controller failed to save the log of {}. Skip it.", testId);
+					FileUtils.deleteQuietly(spoolFile);
+					return;
+				} else if (upload.takeResend() && next < sent) {
+					sent = next;
+				}
+				if (sent < length) {
+					int count = (int) Math.min(CHUNK_SIZE, length - sent);
+					file.seek(sent);
+					file.readFully(buffer, 0, count);
+					byte[] chunk = new byte[count];
+					System.arraycopy(buffer, 0, chunk, 0, count);
+					currentSender.send(new LogReportGrinderMessage(testId, chunk, sent, sent + count == length,
+							agentAddress));
+					sent += count;
+				}
+			}
+		} catch (UploadAbortedException e) {
+			LOGGER.info("The log upload of {} is stopped. It will be resumed later : {}", testId, e.getMessage());
+		} catch (CommunicationException e) {
+			LOGGER.info("The log upload of {} is stopped. It will be resumed later : {}", testId, e.getMessage());
+		} catch (IOException e) {
+			LOGGER.error("Error while reading the log of {} : {}", testId, e.getMessage());
+			LOGGER.debug("Details : ", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			current = null;
+			IOUtils.closeQuietly(file);
+		}
+	}
+
+	/**
+	 * State of the upload in progress, updated by the acks.
+	 */
+	private static final class Upload {
+		private final String testId;
+		private long next = Long.MIN_VALUE;
+		private boolean resend;
+		private boolean aborted;
+		private long lastAckTime = System.currentTimeMillis();
+
+		private Upload(String testId) {
+			this.testId = testId;
+		}
+
+		synchronized void acknowledged(LogReportAckGrinderMessage message) {
+			next = message.getNext();
+			resend = resend || message.isResend();
+			lastAckTime = System.currentTimeMillis();
+			notifyAll();
+		}
+
+		synchronized void abort() {
+			aborted = true;
+			notifyAll();
+		}
+
+		synchronized boolean takeResend() {
+			boolean result = resend;
+			resend = false;
+			return result;
+		}
+
+		/**
+		 * Wait for the first ack which has the offset to resume from.
+		 */
+		synchronized long awaitResume() throws InterruptedException, UploadAbortedException {
+			while (next == Long.MIN_VALUE) {
+				await();
+			}
+			resend = false;
+			return next;
+		}
+
+		/**
+		 * Wait until the next chunk can be sent in the window, or the upload is finished.
+		 */
+		synchronized long awaitWindow(long sent, long length) throws InterruptedException, UploadAbortedException {
+			while (next >= 0 && !resend && (sent - next >= WINDOW_SIZE || sent >= length)) {
+				await();
+			}
+			return next;
+		}
+
+		private void await() throws InterruptedException, UploadAbortedException {
+			if (aborted) {
+				throw new UploadAbortedException("connection is closed");
+			}
+			long remaining = lastAckTime + ACK_TIMEOUT - System.currentTimeMillis();
+			if (remaining <= 0) {
+				throw new UploadAbortedException("no ack in " + ACK_TIMEOUT + " ms");
+			}
+			wait(remaining);
+		}
+	}
+
+	private static final class UploadAbortedException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		private UploadAbortedException(String message) {
+			super(message);
+		}
+	}
+}
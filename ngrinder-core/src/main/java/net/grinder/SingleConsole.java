@@ -28,6 +28,7 @@ import net.grinder.common.processidentity.WorkerProcessReport;
 import net.grinder.console.ConsoleFoundationEx;
 import net.grinder.console.common.Resources;
 import net.grinder.console.common.ResourcesImplementation;
+import net.grinder.console.communication.ConsoleCommunication;
 import net.grinder.console.communication.ProcessControl;
 import net.grinder.console.communication.ProcessControl.Listener;
 import net.grinder.console.communication.ProcessControl.ProcessReports;
@@ -35,17 +36,19 @@ import net.grinder.console.distribution.AgentCacheState;
 import net.grinder.console.distribution.FileDistribution;
 import net.grinder.console.distribution.FileDistributionHandler;
 import net.grinder.console.model.*;
+import net.grinder.messages.agent.TargetLoadMessage;
+import net.grinder.report.AsyncReportStoreWriter;
+import net.grinder.report.ReportStoreHeader;
+import net.grinder.report.ReportStoreWriter;
 import net.grinder.statistics.*;
 import net.grinder.util.*;
 import net.grinder.util.ListenerSupport.Informer;
 import net.grinder.util.thread.Condition;
 import org.apache.commons.collections.MapUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.mutable.MutableBoolean;
 import org.ngrinder.common.exception.NGrinderRuntimeException;
-import org.ngrinder.common.util.DateUtils;
 import org.ngrinder.common.util.ReflectionUtils;
 import org.ngrinder.common.util.ThreadUtils;
 import org.ngrinder.service.AbstractSingleConsole;
@@ -55,10 +58,8 @@ import org.slf4j.LoggerFactory;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
-import java.text.DecimalFormat;
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -81,9 +82,6 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 	public static final Resources RESOURCE = new ResourcesImplementation(RESOURCE_CONSOLE);
 	public static final Logger LOGGER = LoggerFactory.getLogger("console");
 
-	private static final String REPORT_CSV = "output.csv";
-	private static final String REPORT_DATA = ".data";
-
 	private final Condition eventSyncCondition = new Condition();
 	private ProcessReports[] processReports;
 	private boolean cancel = false;
@@ -107,10 +105,9 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 
 	private Map<String, Object> statisticData;
 
-	private boolean headerAdded = false;
 	private GrinderProperties properties;
 
-	private Map<String, BufferedWriter> fileWriterMap = newHashMap();
+	private volatile AsyncReportStoreWriter reportStoreWriter;
 	/**
 	 * the count of current sampling.
 	 */
@@ -141,6 +138,7 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
      * cvs file Separator value.
      */
 	private String cvsSeparator = ",";
+	private int consoleRouterPort = 0;
 	/**
 	 * Constructor to bind all ip and the given port.
 	 * <p/>
@@ -189,6 +187,26 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		return this.getConsoleProperties().getConsolePort();
 	}
 
+	/**
+	 * Get the port of the console router through which the agents connect to this console.
+	 *
+	 * @return router port. 0 if the agents connect to the console port directly.
+	 * @since 3.4.1
+	 */
+	public int getConsoleRouterPort() {
+		return consoleRouterPort;
+	}
+
+	/**
+	 * Set the port of the console router through which the agents connect to this console.
+	 *
+	 * @param consoleRouterPort router port
+	 * @since 3.4.1
+	 */
+	public void setConsoleRouterPort(int consoleRouterPort) {
+		this.consoleRouterPort = consoleRouterPort;
+	}
+
 	/**
 	 * Start {@link SingleConsole} and wait until it's ready to get agent
 	 * messages.
@@ -226,11 +244,7 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		} catch (Exception e) {
 			throw processException("Exception occurred while shutting down console", e);
 		} finally {
-			// close all report file
-			for (BufferedWriter bw : fileWriterMap.values()) {
-				IOUtils.closeQuietly(bw);
-			}
-			fileWriterMap.clear();
+			closeReportStore();
 		}
 	}
 
@@ -588,6 +602,11 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 	 */
 	private long lastSamplingPeriod = 0;
 
+	/**
+	 * The time of the last report row. The gap rows are timed by the sampling interval from it.
+	 */
+	private long lastReportRowTime = 0;
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -607,7 +626,8 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 			checkTooLowTps(getTpsValues());
 			updateStatistics(intervalStatistics, cumulativeStatistics);
 
-			writeIntervalCsvData(intervalStatistics);
+			updateReportStoreHeader();
+			final double[] reportRow = buildReportRow(intervalStatistics);
 			int interval = getSampleModel().getSampleInterval();
 			long gap = 1;
 			if (samplingCount == 1) {
@@ -627,10 +647,7 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 			});
 			for (long index = 0, repeatCounts = gap + 1; index < repeatCounts; index++) {
 				final boolean lastCall = (samplingCount == 1 && index == 0) || (samplingCount != 1 && index == gap);
-				writeIntervalSummaryData(intervalStatistics, lastCall);
-				if (interval >= (MIN_SAMPLING_INTERVAL_TO_ACTIVATE_TPS_PER_TEST)) {
-					writeIntervalSummaryDataPerTest(intervalStatisticMapPerTest, lastCall);
-				}
+				writeReportRow(lastCall ? reportRow : buildGapReportRow(lastReportRowTime + interval));
 				samplingLifeCycleFollowupListener.apply(new Informer<SamplingLifeCycleFollowUpListener>() {
 					@Override
 					public void inform(SamplingLifeCycleFollowUpListener listener) {
@@ -648,112 +665,190 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 	}
 
 	/**
-	 * Write the interval summary data per each test. This is activated only
-	 * when there are more than 1 registed test.
+	 * Build the report store row of the current sampling.
 	 *
-	 * @param intervalStatisticMapPerTest statistics map
-	 * @param lastCall                    true if it's the last call of consequent call in a single
-	 *                                    sampling
+	 * @param intervalStatistics interval statistics
+	 * @return row ordered as the report store columns
 	 */
-	private void writeIntervalSummaryDataPerTest(Map<Test, StatisticsSet> intervalStatisticMapPerTest, //
-												 boolean lastCall) {
-		if (intervalStatisticMapPerTest.size() > 1) {
+	private double[] buildReportRow(StatisticsSet intervalStatistics) {
+		ReportStoreHeader header = getReportStoreWriter().getHeader();
+		double[] row = new double[header.getColumns().size()];
+		row[0] = System.currentTimeMillis();
+		row[1] = runningThread;
+		int index = 2;
+		for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
+			row[index++] = getReportValue(each.getValue().getDoubleValue(intervalStatistics));
+		}
+		index = fillTestTimePercentiles(row, index, getSampleModel().getTotalIntervalLatency());
+		for (int i = 0; i < header.getTestNumbers().size(); i++) {
+			int testNumber = header.getTestNumbers().get(i);
+			StatisticsSet perTest = getIntervalStatisticsOfTest(testNumber);
 			for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-				if (INTERESTING_PER_TEST_STATISTICS.contains(each.getKey())) {
-					for (Entry<Test, StatisticsSet> entry : intervalStatisticMapPerTest.entrySet()) {
-						if (lastCall) {
-							StatisticsSet value = entry.getValue();
-							writeReportData(each.getKey() + "-" + entry.getKey().getNumber() + "_"
-									+ entry.getKey().getDescription().replaceAll("\\s+", "_") + REPORT_DATA,
-									formatValue(getRealDoubleValue(each.getValue().getDoubleValue(value))));
-						} else {
-							writeReportData(each.getKey() + "-" + entry.getKey().getNumber() + "_"
-									+ entry.getKey().getDescription().replaceAll("\\s+", "_") + REPORT_DATA, "null");
-						}
-
-					}
-				}
+				row[index++] = perTest == null ? Double.NaN : getReportValue(each.getValue().getDoubleValue(perTest));
 			}
+			index = fillTestTimePercentiles(row, index, getSampleModel().getIntervalLatency(testNumber));
 		}
+		return row;
 	}
 
 	/**
-	 * Write the total test interval statistic data into file.
+	 * Fill the test time percentiles from the given index. NaN is filled if no test time is recorded.
 	 *
-	 * @param intervalStatistics interval statistics
-	 * @param firstCall          true if it's the last call of consecutive calls in a single
-	 *                           sampling
+	 * @param row       report row
+	 * @param index     index from which the percentiles are filled
+	 * @param histogram test time histogram
+	 * @return next index
 	 */
-	public void writeIntervalSummaryData(StatisticsSet intervalStatistics, boolean firstCall) {
-		for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-			if (firstCall) {
-				double doubleValue = each.getValue().getDoubleValue(intervalStatistics);
-				writeReportData(each.getKey() + REPORT_DATA, formatValue(getRealDoubleValue(doubleValue)));
-			} else {
-				writeReportData(each.getKey() + REPORT_DATA, "null");
-			}
+	private int fillTestTimePercentiles(double[] row, int index, LatencyHistogram histogram) {
+		for (double each : TEST_TIME_PERCENTILES) {
+			row[index++] = histogram.isEmpty() ? Double.NaN : histogram.getValueAtPercentile(each);
 		}
-		writeReportData("Vuser" + REPORT_DATA, formatValue(runningThread));
+		return index;
 	}
 
 	/**
-	 * Write the each interval statistic data as the form of CSV.
+	 * Build the report store row filling the sampling gap. Only the time and vuser count are recorded.
 	 *
-	 * @param intervalStatistics interval statistics
+	 * @param time time of the missed sampling
+	 * @return row ordered as the report store columns
 	 */
-	public void writeIntervalCsvData(StatisticsSet intervalStatistics) {
-		// add headers into the csv file.
-		if (!headerAdded) {
-			StringBuilder csvHeader = new StringBuilder();
-			csvHeader.append("DateTime").append(cvsSeparator).append("vuser");
-
-			// Get the key list from lastStatistic map, use this list to keep
-			// the write order
-			for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-				if (!each.getKey().equals("Peak_TPS")) {
-					csvHeader.append(cvsSeparator).append(each.getKey());
+	private double[] buildGapReportRow(long time) {
+		double[] row = new double[getReportStoreWriter().getHeader().getColumns().size()];
+		Arrays.fill(row, Double.NaN);
+		row[0] = time;
+		row[1] = runningThread;
+		return row;
+	}
+
+	private StatisticsSet getIntervalStatisticsOfTest(int testNumber) {
+		synchronized (intervalStatisticMapPerTest) {
+			for (Entry<Test, StatisticsSet> each : intervalStatisticMapPerTest.entrySet()) {
+				if (each.getKey().getNumber() == testNumber) {
+					return each.getValue();
 				}
 			}
-			if (intervalStatisticMapPerTest.size() != 1) {
-				for (int i = 1; i <= intervalStatisticMapPerTest.size(); i++) {
-					csvHeader.append(cvsSeparator).append("Description");
-					// get the key list from lastStatistic map, use list to keep
-					// the order
-					for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-						if (!each.getKey().equals("Peak_TPS")) {
-							csvHeader.append(cvsSeparator).append(each.getKey()).append("-").append(i);
-						}
-					}
+		}
+		return null;
+	}
 
-				}
+	/**
+	 * Get the report store writer. It's created at the first sampling with the tests registered by then. The rows are
+	 * written by the writer thread so that the sampling is not delayed by the disk I/O. The .data files and the csv
+	 * file are written along with the store.
+	 *
+	 * @return report store writer
+	 */
+	private AsyncReportStoreWriter getReportStoreWriter() {
+		if (reportStoreWriter == null) {
+			try {
+				reportStoreWriter = new AsyncReportStoreWriter(new ReportStoreWriter(
+						ReportStoreHeader.getReportStoreFile(reportPath), createReportStoreHeader(null), reportPath,
+						cvsSeparator),
+						"report writer on port " + getConsolePort());
+			} catch (IOException e) {
+				throw processException("Error while creating the report store in " + reportPath, e);
 			}
-			writeCSVDataLine(csvHeader.toString());
-			headerAdded = true;
 		}
+		return reportStoreWriter;
+	}
 
-		StringBuilder csvLine = new StringBuilder();
-		csvLine.append(DateUtils.dateToString(new Date())).append(cvsSeparator).append(runningThread);
-		for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-			if (!each.getKey().equals("Peak_TPS")) {
-				double doubleValue = each.getValue().getDoubleValue(intervalStatistics);
-				csvLine.append(cvsSeparator).append(formatValue(getRealDoubleValue(doubleValue)));
+	/**
+	 * Add the per test columns of the tests registered after the report store is created. The store is rewritten in
+	 * the new layout, and the previous rows have no value in the new columns.
+	 */
+	private void updateReportStoreHeader() {
+		AsyncReportStoreWriter writer = getReportStoreWriter();
+		ReportStoreHeader header = writer.getHeader();
+		ReportStoreHeader newHeader = createReportStoreHeader(header);
+		if (!newHeader.getTestNumbers().equals(header.getTestNumbers())) {
+			LOGGER.info("Per test report columns are changed from {} to {}", header.getTestNumbers(),
+					newHeader.getTestNumbers());
+			try {
+				writer.changeHeader(newHeader);
+			} catch (IOException e) {
+				LOGGER.error(e.getMessage(), e);
+				throw processException(e);
 			}
 		}
+	}
 
-		if (intervalStatisticMapPerTest.size() != 1) {
-			for (Entry<Test, StatisticsSet> eachPair : intervalStatisticMapPerTest.entrySet()) {
-				String description = eachPair.getKey().getDescription();
-				csvLine.append(",").append(description);
-				for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
-					if (!each.getKey().equals("Peak_TPS")) {
-						csvLine.append(cvsSeparator).append(
-								formatValue(getRealDoubleValue(each.getValue().getDoubleValue(eachPair.getValue()))));
+	/**
+	 * Create the report store header of the registered tests. The tests of the previous header keep their order, and
+	 * the new tests are added after them. Per test columns exist only when more than one test is registered.
+	 *
+	 * @param previous previous header. null if the store is not created yet.
+	 * @return report store header
+	 */
+	private ReportStoreHeader createReportStoreHeader(ReportStoreHeader previous) {
+		List<String> keys = newArrayList();
+		for (Entry<String, StatisticExpression> each : getExpressionEntrySet()) {
+			keys.add(each.getKey());
+		}
+		keys.addAll(TEST_TIME_PERCENTILE_STATISTICS);
+		List<Integer> testNumbers = newArrayList();
+		List<String> testDescriptions = newArrayList();
+		if (previous != null) {
+			testNumbers.addAll(previous.getTestNumbers());
+			testDescriptions.addAll(previous.getTestDescriptions());
+		}
+		synchronized (intervalStatisticMapPerTest) {
+			if (intervalStatisticMapPerTest.size() > 1 || testNumbers.size() > 0) {
+				for (Test each : intervalStatisticMapPerTest.keySet()) {
+					if (!testNumbers.contains(each.getNumber())) {
+						testNumbers.add(each.getNumber());
+						testDescriptions.add(each.getDescription());
 					}
 				}
 			}
 		}
+		return new ReportStoreHeader(getSampleModel().getSampleInterval(), keys, testNumbers, testDescriptions);
+	}
 
-		writeCSVDataLine(csvLine.toString());
+	private void writeReportRow(double[] row) {
+		try {
+			getReportStoreWriter().append(row);
+			lastReportRowTime = (long) row[0];
+		} catch (IOException e) {
+			LOGGER.error(e.getMessage(), e);
+			throw processException(e);
+		}
+	}
+
+	/**
+	 * Get the count of the report rows waiting to be written.
+	 *
+	 * @return queue depth. 0 if the report store is not created yet.
+	 */
+	public int getReportQueueDepth() {
+		AsyncReportStoreWriter writer = reportStoreWriter;
+		return writer == null ? 0 : writer.getQueueDepth();
+	}
+
+	/**
+	 * Get the time in millisecond spent to write the last batch of the report rows.
+	 *
+	 * @return write latency. 0 if the report store is not created yet.
+	 */
+	public long getReportWriteLatency() {
+		AsyncReportStoreWriter writer = reportStoreWriter;
+		return writer == null ? 0 : writer.getLastWriteLatency();
+	}
+
+	/**
+	 * Close the report store and the .data files and the csv file written along with it.
+	 */
+	private void closeReportStore() {
+		if (reportStoreWriter == null) {
+			return;
+		}
+		try {
+			reportStoreWriter.close();
+		} catch (IOException e) {
+			LOGGER.error("Error while closing the report store in {} : {}", reportPath, e.getMessage());
+			LOGGER.debug("Details : ", e);
+		} finally {
+			reportStoreWriter = null;
+		}
 	}
 
 	/**
@@ -814,8 +909,20 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		return (System.currentTimeMillis() - lastMomentWhenErrorsMoreThanHalfOfTotalTPSValue) >= TOO_MANY_ERROR_TIME;
 	}
 
+	/**
+	 * Test time percentiles calculated from the test time histograms.
+	 */
+	private static final double[] TEST_TIME_PERCENTILES = {50, 90, 99, 99.9};
+
+	/**
+	 * Statistic keys of {@link #TEST_TIME_PERCENTILES} in the same order.
+	 */
+	public static final List<String> TEST_TIME_PERCENTILE_STATISTICS = Collections.unmodifiableList(Arrays.asList(
+			"Test_Time_P50_(ms)", "Test_Time_P90_(ms)", "Test_Time_P99_(ms)", "Test_Time_P999_(ms)"));
+
 	public static final Set<String> INTERESTING_PER_TEST_STATISTICS = Sets.newHashSet("Errors", "TPS",
-			"Mean_time_to_first_byte", "Mean_Test_Time_(ms)", "User_defined");
+			"Mean_time_to_first_byte", "Mean_Test_Time_(ms)", "User_defined", "Test_Time_P50_(ms)",
+			"Test_Time_P90_(ms)", "Test_Time_P99_(ms)", "Test_Time_P999_(ms)");
 
 	public static final Set<String> INTERESTING_STATISTICS = Sets.newHashSet("Tests", "Errors", "TPS",
 			"Response_bytes_per_second", "Mean_time_to_first_byte", "Peak_TPS", "Mean_Test_Time_(ms)", "User_defined");
@@ -851,6 +958,8 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 							getRealDoubleValue(each.getValue().getDoubleValue(intervalSet)));
 				}
 			}
+			putTestTimePercentiles(accumulatedStatisticMap, getSampleModel().getCumulativeLatency(test.getNumber()));
+			putTestTimePercentiles(intervalStatisticsMap, getSampleModel().getIntervalLatency(test.getNumber()));
 			cumulativeStatistics.add(accumulatedStatisticMap);
 			lastSampleStatistics.add(intervalStatisticsMap);
 		}
@@ -864,11 +973,20 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 			}
 		}
 
+		putTestTimePercentiles(totalStatistics, getSampleModel().getTotalCumulativeLatency());
+
 		result.put("totalStatistics", totalStatistics);
 		result.put("cumulativeStatistics", cumulativeStatistics);
 		result.put("lastSampleStatistics", lastSampleStatistics);
 		result.put("tpsChartData", getTpsValues());
 		result.put("peakTpsForGraph", this.peakTpsForGraph);
+		result.put("reportQueueDepth", getReportQueueDepth());
+		result.put("reportWriteLatency", getReportWriteLatency());
+		result.put("dnsCacheHits", getSampleModel().getDnsCacheHits());
+		result.put("dnsCacheMisses", getSampleModel().getDnsCacheMisses());
+		result.put("dispatches", getSampleModel().getDispatches());
+		result.put("lateDispatches", getSampleModel().getLateDispatches());
+		result.put("missedDispatches", getSampleModel().getMissedDispatches());
 		synchronized (this) {
 			result.put(GrinderConstants.P_PROCESS, this.runningProcess);
 			result.put(GrinderConstants.P_THREAD, this.runningThread);
@@ -878,6 +996,13 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		this.statisticData = result;
 	}
 
+	private void putTestTimePercentiles(Map<String, Object> statistics, LatencyHistogram histogram) {
+		for (int i = 0; i < TEST_TIME_PERCENTILES.length; i++) {
+			statistics.put(TEST_TIME_PERCENTILE_STATISTICS.get(i), histogram.getValueAtPercentile(
+					TEST_TIME_PERCENTILES[i]));
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -898,6 +1023,10 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		return (doubleValue.isInfinite() || doubleValue.isNaN()) ? (double) 0 : doubleValue;
 	}
 
+	private static double getReportValue(Double doubleValue) {
+		return (Double) getRealDoubleValue(doubleValue);
+	}
+
 	/**
 	 * Listener interface to detect the sampling start and end moment.
 	 *
@@ -1062,42 +1191,6 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		}
 	}
 
-	private void writeReportData(String name, String value) {
-		try {
-			BufferedWriter bw = fileWriterMap.get(name);
-			if (bw == null) {
-				bw = new BufferedWriter(new FileWriter(new File(this.reportPath, name), true));
-				fileWriterMap.put(name, bw);
-			}
-			bw.write(value);
-			bw.newLine();
-			bw.flush();
-		} catch (Exception e) {
-			LOGGER.error(e.getMessage(), e);
-			throw processException(e);
-		}
-	}
-
-	private void writeCSVDataLine(String line) {
-		writeReportData(REPORT_CSV, line);
-	}
-
-	private String formatValue(Object val) {
-		if (val instanceof Double) {
-			DecimalFormat formatter = new DecimalFormat("###.###");
-			formatter.setGroupingUsed(false);
-			return formatter.format(val);
-		} else if (String.valueOf(val).equals("null")) {
-			// if target server is too slow, there is no response in this
-			// second, then the
-			// statistic data
-			// like mean time will be null.
-			// currently, we set these kind of value as 0.
-			return "0";
-		}
-		return String.valueOf(val);
-	}
-
 	/**
 	 * Get the statistics data. This method returns {@link Map} whose key is
 	 * string and it's mapped to the various statistics. Please refer
@@ -1145,6 +1238,18 @@ public class SingleConsole extends AbstractSingleConsole implements Listener, Sa
 		getConsoleComponent(ProcessControl.class).stopAgentAndWorkerProcesses();
 	}
 
+	/**
+	 * Send the target load message to the worker processes of the attached agents.
+	 *
+	 * @param threadsPerProcess target thread count of each worker process. 0 if it's not changed.
+	 * @param arrivalRate       target arrival rate of the whole test. 0 if it's not changed.
+	 * @since 3.4.1
+	 */
+	public void sendTargetLoadMessageToAgents(int threadsPerProcess, double arrivalRate) {
+		getConsoleComponent(ConsoleCommunication.class).sendToAgents(
+				new TargetLoadMessage(threadsPerProcess, arrivalRate));
+	}
+
 	/**
 	 * Start sampling with sampling ignore count.
 	 */
@@ -0,0 +1,354 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.communication;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.ngrinder.common.util.NoOp.noOp;
+
+/**
+ * Non blocking forwarder shared by {@link ConsoleRouter} and {@link ConsoleRouterRelay}.
+ * <p/>
+ * Each accepted connection is paired with the upstream connection resolved from its preamble, and the bytes are
+ * forwarded in both directions. All connections are served by a fixed number of I/O threads, so the threads don't
+ * grow with the count of the forwarded connections.
+ *
+ * @since 3.4.1
+ */
+abstract class ChannelForwarder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChannelForwarder.class);
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private final ServerSocketChannel serverChannel;
+	private final IOLoop[] loops;
+	private int nextLoop = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name          name of the I/O threads
+	 * @param bindAddress   address to bind
+	 * @param ioThreadCount count of the I/O threads
+	 * @throws IOException occurs when the address can not be bound
+	 */
+	ChannelForwarder(String name, InetSocketAddress bindAddress, int ioThreadCount) throws IOException {
+		this.serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.socket().setReuseAddress(true);
+			serverChannel.socket().bind(bindAddress);
+			serverChannel.configureBlocking(false);
+			this.loops = new IOLoop[Math.max(ioThreadCount, 1)];
+			for (int i = 0; i < loops.length; i++) {
+				loops[i] = new IOLoop(loops.length == 1 ? name : name + "-" + i);
+			}
+			serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			IOUtils.closeQuietly(serverChannel);
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the size of the preamble which is read from the accepted connection before the upstream is resolved.
+	 *
+	 * @return preamble size. 0 if the upstream is resolved as soon as the connection is accepted.
+	 */
+	protected abstract int getPreambleSize();
+
+	/**
+	 * Resolve the upstream address of the accepted connection. It's called in the I/O thread, so it should return
+	 * quickly.
+	 *
+	 * @param client     accepted connection
+	 * @param preamble   preamble read from the accepted connection
+	 * @param toUpstream buffer into which the bytes to be sent to the upstream first are put
+	 * @return upstream address. null if the connection is refused.
+	 */
+	protected abstract InetSocketAddress resolve(SocketChannel client, ByteBuffer preamble, ByteBuffer toUpstream);
+
+	/**
+	 * Start the I/O threads.
+	 */
+	public void start() {
+		for (IOLoop each : loops) {
+			each.thread.start();
+		}
+	}
+
+	/**
+	 * Get the bound port.
+	 *
+	 * @return port
+	 */
+	public int getPort() {
+		return serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Stop accepting and close all forwarded connections.
+	 */
+	public void shutdown() {
+		IOUtils.closeQuietly(serverChannel);
+		for (IOLoop each : loops) {
+			each.shutdown();
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final SocketChannel accepted = channel;
+			final IOLoop loop = loops[nextLoop];
+			nextLoop = (nextLoop + 1) % loops.length;
+			loop.execute(new Runnable() {
+				@Override
+				public void run() {
+					new Route(loop, accepted);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Selector loop run by one I/O thread. The channels registered in a loop are used only in its thread.
+	 */
+	private final class IOLoop implements Runnable {
+		private final Selector selector;
+		private final Thread thread;
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+		private volatile boolean running = true;
+
+		private IOLoop(String name) throws IOException {
+			selector = Selector.open();
+			thread = new Thread(this, name);
+			thread.setDaemon(true);
+		}
+
+		private void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		private void shutdown() {
+			running = false;
+			selector.wakeup();
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (running) {
+					selector.select();
+					Runnable task;
+					while ((task = tasks.poll()) != null) {
+						task.run();
+					}
+					Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+					while (iterator.hasNext()) {
+						SelectionKey key = iterator.next();
+						iterator.remove();
+						handle(key);
+					}
+				}
+			} catch (ClosedSelectorException e) {
+				LOGGER.debug("Selector of {} is closed", thread.getName());
+			} catch (IOException e) {
+				LOGGER.error("Error while selecting in {}", thread.getName(), e);
+			} finally {
+				for (SelectionKey each : selector.keys()) {
+					IOUtils.closeQuietly(each.channel());
+				}
+				try {
+					selector.close();
+				} catch (IOException e) {
+					noOp();
+				}
+			}
+		}
+
+		private void handle(SelectionKey key) {
+			if (!key.isValid()) {
+				return;
+			}
+			if (key.attachment() == null) {
+				try {
+					accept();
+				} catch (IOException e) {
+					LOGGER.error("Error while accepting the connection in {}", thread.getName(), e);
+				}
+				return;
+			}
+			Route route = (Route) key.attachment();
+			try {
+				route.handle(key);
+			} catch (IOException e) {
+				LOGGER.debug("Forwarded connection is closed : {}", e.getMessage());
+				route.close();
+			} catch (RuntimeException e) {
+				LOGGER.error("Error while forwarding the connection in {}", thread.getName(), e);
+				route.close();
+			}
+		}
+	}
+
+	/**
+	 * Accepted connection and its upstream connection.
+	 */
+	private final class Route {
+		private final IOLoop loop;
+		private final SocketChannel client;
+		private final SelectionKey clientKey;
+		private InetSocketAddress upstreamAddress;
+		private SocketChannel upstream;
+		private SelectionKey upstreamKey;
+		private final ByteBuffer preamble = ByteBuffer.allocate(getPreambleSize());
+		// Both buffers are kept in the fill mode.
+		private final ByteBuffer toUpstream = ByteBuffer.allocate(BUFFER_SIZE);
+		private final ByteBuffer toClient = ByteBuffer.allocate(BUFFER_SIZE);
+		private boolean clientClosed = false;
+		private boolean upstreamClosed = false;
+
+		private Route(IOLoop loop, SocketChannel client) {
+			this.loop = loop;
+			this.client = client;
+			SelectionKey key = null;
+			try {
+				key = client.register(loop.selector, SelectionKey.OP_READ, this);
+			} catch (IOException e) {
+				IOUtils.closeQuietly(client);
+			}
+			this.clientKey = key;
+			if (key != null && !preamble.hasRemaining()) {
+				try {
+					connectUpstream();
+				} catch (IOException e) {
+					LOGGER.error("Failed to connect to {} : {}", upstreamAddress, e.getMessage());
+					close();
+				}
+			}
+		}
+
+		private void handle(SelectionKey key) throws IOException {
+			if (key.isConnectable()) {
+				try {
+					upstream.finishConnect();
+				} catch (IOException e) {
+					LOGGER.error("Failed to connect to {} : {}", upstreamAddress, e.getMessage());
+					throw e;
+				}
+			} else if (key == clientKey && upstream == null) {
+				readPreamble();
+				return;
+			} else {
+				boolean fromClient = (key == clientKey);
+				if (key.isReadable()) {
+					ByteBuffer buffer = fromClient ? toUpstream : toClient;
+					if ((fromClient ? client : upstream).read(buffer) < 0) {
+						if (fromClient) {
+							clientClosed = true;
+						} else {
+							upstreamClosed = true;
+						}
+					}
+					flush(fromClient ? upstream : client, buffer);
+				}
+				if (key.isValid() && key.isWritable()) {
+					flush(fromClient ? client : upstream, fromClient ? toClient : toUpstream);
+				}
+			}
+			if ((clientClosed && toUpstream.position() == 0) || (upstreamClosed && toClient.position() == 0)) {
+				close();
+				return;
+			}
+			updateInterestOps();
+		}
+
+		private void readPreamble() throws IOException {
+			if (client.read(preamble) < 0) {
+				close();
+				return;
+			}
+			if (preamble.hasRemaining()) {
+				return;
+			}
+			preamble.flip();
+			connectUpstream();
+		}
+
+		private void connectUpstream() throws IOException {
+			upstreamAddress = resolve(client, preamble, toUpstream);
+			if (upstreamAddress == null) {
+				close();
+				return;
+			}
+			upstream = SocketChannel.open();
+			upstream.configureBlocking(false);
+			upstream.socket().setTcpNoDelay(true);
+			clientKey.interestOps(0);
+			if (upstream.connect(upstreamAddress)) {
+				upstreamKey = upstream.register(loop.selector, 0, this);
+				updateInterestOps();
+			} else {
+				upstreamKey = upstream.register(loop.selector, SelectionKey.OP_CONNECT, this);
+			}
+		}
+
+		private void flush(SocketChannel channel, ByteBuffer buffer) throws IOException {
+			if (buffer.position() == 0) {
+				return;
+			}
+			buffer.flip();
+			try {
+				channel.write(buffer);
+			} finally {
+				buffer.compact();
+			}
+		}
+
+		private void updateInterestOps() {
+			if (!upstream.isConnected()) {
+				return;
+			}
+			clientKey.interestOps(interestOps(!clientClosed && toUpstream.hasRemaining(), toClient.position() > 0));
+			upstreamKey.interestOps(interestOps(!upstreamClosed && toClient.hasRemaining(),
+					toUpstream.position() > 0));
+		}
+
+		private int interestOps(boolean read, boolean write) {
+			return (read ? SelectionKey.OP_READ : 0) | (write ? SelectionKey.OP_WRITE : 0);
+		}
+
+		private void close() {
+			IOUtils.closeQuietly(client);
+			IOUtils.closeQuietly(upstream);
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.communication;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Shared endpoint through which the agents and the workers of all running tests connect to their consoles.
+ * <p/>
+ * Each connection starts with the preamble written by {@link ConsoleRouterRelay}, which is {@link #PREAMBLE_MAGIC}
+ * and the port of the console to connect. The router opens the connection to that console and forwards the bytes in
+ * both directions, so only one port should be opened to the agents. The connections are served by a fixed number of
+ * I/O threads.
+ * <p/>
+ * The router doesn't replace the consoles. Each console still binds its own port on the controller and keeps its
+ * acceptor and message threads, so the controller threads per running test are not reduced by the router.
+ *
+ * @since 3.4.1
+ */
+public class ConsoleRouter extends ChannelForwarder {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ConsoleRouter.class);
+
+	/**
+	 * The first int of the preamble.
+	 */
+	public static final int PREAMBLE_MAGIC = 0x6e47524f;
+
+	/**
+	 * The size of the preamble. The magic and the console port.
+	 */
+	public static final int PREAMBLE_SIZE = 8;
+
+	/**
+	 * Resolver which finds the console address of the given console port.
+	 */
+	public interface RouteResolver {
+		/**
+		 * Resolve the console address. It's called in the I/O thread, so it should return quickly.
+		 *
+		 * @param consolePort console port in the preamble
+		 * @return console address. null if no console is running on the port.
+		 */
+		public InetSocketAddress resolve(int consolePort);
+	}
+
+	private final RouteResolver resolver;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param host          host to bind. All addresses if it's empty.
+	 * @param port          port to bind
+	 * @param ioThreadCount count of the I/O threads
+	 * @param resolver      console address resolver
+	 * @throws IOException occurs when the port can not be bound
+	 */
+	public ConsoleRouter(String host, int port, int ioThreadCount, RouteResolver resolver) throws IOException {
+		super("console-router", StringUtils.isBlank(host) ? new InetSocketAddress(port) :
+				new InetSocketAddress(host, port), ioThreadCount);
+		this.resolver = resolver;
+	}
+
+	@Override
+	protected int getPreambleSize() {
+		return PREAMBLE_SIZE;
+	}
+
+	@Override
+	protected InetSocketAddress resolve(SocketChannel client, ByteBuffer preamble, ByteBuffer toUpstream) {
+		int magic = preamble.getInt();
+		int consolePort = preamble.getInt();
+		InetSocketAddress address = (magic == PREAMBLE_MAGIC) ? resolver.resolve(consolePort) : null;
+		if (address == null) {
+			LOGGER.warn("Connection from {} to the console {} is refused.", client.socket().getRemoteSocketAddress(),
+					consolePort);
+		}
+		return address;
+	}
+}
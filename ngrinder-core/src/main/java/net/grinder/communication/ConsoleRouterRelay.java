@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.communication;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Agent side relay of {@link ConsoleRouter}.
+ * <p/>
+ * The Grinder connectors of the agent and its workers connect to the console by host and port only. The relay
+ * listens on a loopback port in their place, and forwards each accepted connection to the router after writing the
+ * preamble which has the port of the console to connect. All relayed connections are served by a single I/O thread.
+ *
+ * @since 3.4.1
+ */
+public class ConsoleRouterRelay extends ChannelForwarder {
+	private static final String LOOPBACK_HOST = "127.0.0.1";
+
+	private final InetSocketAddress routerAddress;
+	private final int consolePort;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param routerHost  router host
+	 * @param routerPort  router port
+	 * @param consolePort port of the console to connect through the router
+	 * @throws IOException occurs when no loopback port is available
+	 */
+	public ConsoleRouterRelay(String routerHost, int routerPort, int consolePort) throws IOException {
+		super("console-router-relay-" + consolePort, new InetSocketAddress(LOOPBACK_HOST, 0), 1);
+		this.routerAddress = new InetSocketAddress(routerHost, routerPort);
+		this.consolePort = consolePort;
+	}
+
+	@Override
+	protected int getPreambleSize() {
+		return 0;
+	}
+
+	@Override
+	protected InetSocketAddress resolve(SocketChannel client, ByteBuffer preamble, ByteBuffer toUpstream) {
+		toUpstream.putInt(ConsoleRouter.PREAMBLE_MAGIC);
+		toUpstream.putInt(consolePort);
+		return routerAddress;
+	}
+
+	/**
+	 * Get the host to which the Grinder connectors should connect.
+	 *
+	 * @return loopback address
+	 */
+	public String getHost() {
+		return LOOPBACK_HOST;
+	}
+
+	public int getConsolePort() {
+		return consolePort;
+	}
+}
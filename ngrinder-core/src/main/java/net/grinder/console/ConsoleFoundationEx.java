@@ -37,7 +37,12 @@ import net.grinder.console.synchronisation.WireDistributedBarriers;
 import net.grinder.engine.console.ErrorHandlerImplementation;
 import net.grinder.messages.console.RegisterExpressionViewMessage;
 import net.grinder.messages.console.RegisterTestsMessage;
+import net.grinder.messages.console.ReportCompactStatisticsMessage;
+import net.grinder.messages.console.ReportDispatchMessage;
+import net.grinder.messages.console.ReportDnsCacheMessage;
+import net.grinder.messages.console.ReportLatencyMessage;
 import net.grinder.messages.console.ReportStatisticsMessage;
+import net.grinder.statistics.CompactStatisticsCodec;
 import net.grinder.statistics.StatisticsServicesImplementation;
 import net.grinder.util.StandardTimeAuthority;
 import net.grinder.util.thread.Condition;
@@ -50,6 +55,7 @@ import org.picocontainer.parameters.ComponentParameter;
 import org.picocontainer.parameters.ConstantParameter;
 import org.slf4j.Logger;
 
+import java.io.IOException;
 import java.util.Timer;
 
 import static org.ngrinder.common.util.ExceptionUtils.processException;
@@ -201,9 +207,11 @@ public class ConsoleFoundationEx {
 		 * @param model			Console sample model.
 		 * @param sampleModelViews	Console sample model views
 		 * @param dispatchClientCommands	Client command dispatcher.
+		 * @param logger			Logger.
 		 */
 		public WireMessageDispatch(ConsoleCommunication communication, final SampleModel model,
-						final SampleModelViews sampleModelViews, DispatchClientCommands dispatchClientCommands) {
+						final SampleModelViews sampleModelViews, DispatchClientCommands dispatchClientCommands,
+						final Logger logger) {
 
 			final MessageDispatchRegistry messageDispatchRegistry = communication.getMessageDispatchRegistry();
 
@@ -219,6 +227,39 @@ public class ConsoleFoundationEx {
 				}
 			});
 
+			messageDispatchRegistry.set(ReportCompactStatisticsMessage.class,
+							new AbstractHandler<ReportCompactStatisticsMessage>() {
+								public void handle(ReportCompactStatisticsMessage message) {
+									try {
+										model.addTestReport(CompactStatisticsCodec.decode(message.getData(),
+														StatisticsServicesImplementation.getInstance()
+																		.getStatisticsSetFactory()));
+									} catch (IOException e) {
+										logger.error("Failed to decode the compact statistics", e);
+									}
+								}
+							});
+
+			if (model instanceof SampleModelImplementationEx) {
+				messageDispatchRegistry.set(ReportLatencyMessage.class, new AbstractHandler<ReportLatencyMessage>() {
+					public void handle(ReportLatencyMessage message) {
+						((SampleModelImplementationEx) model).addLatencyReport(message.getHistograms());
+					}
+				});
+				messageDispatchRegistry.set(ReportDnsCacheMessage.class, new AbstractHandler<ReportDnsCacheMessage>() {
+					public void handle(ReportDnsCacheMessage message) {
+						((SampleModelImplementationEx) model).addDnsCacheReport(message.getHits(),
+										message.getMisses());
+					}
+				});
+				messageDispatchRegistry.set(ReportDispatchMessage.class, new AbstractHandler<ReportDispatchMessage>() {
+					public void handle(ReportDispatchMessage message) {
+						((SampleModelImplementationEx) model).addDispatchReport(message.getDispatches(),
+										message.getLateDispatches(), message.getMissedDispatches());
+					}
+				});
+			}
+
 			messageDispatchRegistry.set(RegisterExpressionViewMessage.class,
 							new AbstractHandler<RegisterExpressionViewMessage>() {
 								public void handle(RegisterExpressionViewMessage message) {
@@ -13,6 +13,7 @@
  */
 package net.grinder.console.communication;
 
+import net.grinder.GrinderConstants;
 import net.grinder.common.GrinderProperties;
 import net.grinder.common.processidentity.AgentIdentity;
 import net.grinder.common.processidentity.ProcessIdentity;
@@ -29,7 +30,9 @@ import net.grinder.messages.agent.StopGrinderMessage;
 import net.grinder.messages.console.AgentAddress;
 import net.grinder.util.ListenerSupport;
 import net.grinder.util.ListenerSupport.Informer;
+import org.apache.commons.lang.StringUtils;
 import org.ngrinder.monitor.controller.model.SystemDataModel;
+import org.ngrinder.monitor.share.domain.SystemSamples;
 import org.python.google.common.base.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,7 +54,9 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 	private final ConsoleCommunication m_consoleCommunication;
 	private Map<AgentIdentity, AgentStatus> m_agentMap = new ConcurrentHashMap<AgentIdentity, AgentStatus>();
 	private final ListenerSupport<Listener> m_listeners = new ListenerSupport<Listener>();
-	private final ListenerSupport<LogArrivedListener> m_logListeners = new ListenerSupport<LogArrivedListener>();
+	private final LogUploadReceiver m_logUploadReceiver = new LogUploadReceiver();
+	private final ListenerSupport<AgentStatusUpdateListener> m_agentStatusUpdateListeners =
+			new ListenerSupport<AgentStatusUpdateListener>();
 	private AgentDownloadRequestListener m_agentDownloadListener;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(AgentProcessControlImplementation.class);
@@ -86,8 +91,12 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 
 		timer.schedule(new TimerTask() {
 			public void run() {
+				final Set<ProcessIdentity> purged;
 				synchronized (m_agentMap) {
-					purge(m_agentMap);
+					purged = purge(m_agentMap);
+				}
+				for (ProcessIdentity each : purged) {
+					fireAgentDisconnected((AgentIdentity) each);
 				}
 			}
 		}, 0, FLUSH_PERIOD);
@@ -102,12 +111,7 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 
 		messageDispatchRegistry.set(LogReportGrinderMessage.class, new AbstractHandler<LogReportGrinderMessage>() {
 			public void handle(final LogReportGrinderMessage message) {
-				m_logListeners.apply(new Informer<LogArrivedListener>() {
-					@Override
-					public void inform(LogArrivedListener listener) {
-						listener.logArrived(message.getTestId(), message.getAddress(), message.getLogs());
-					}
-				});
+				m_consoleCommunication.sendToAddressedAgents(message.getAddress(), m_logUploadReceiver.receive(message));
 			}
 		});
 
@@ -125,9 +129,38 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 	 * @param message {@link AgentControllerProcessReportMessage}
 	 */
 	public void addAgentStatusReport(AgentControllerProcessReportMessage message) {
-		AgentStatus agentStatus = getAgentStatus(message.getAgentIdentity());
+		final boolean connected = !m_agentMap.containsKey(message.getAgentIdentity());
+		final AgentStatus agentStatus = getAgentStatus(message.getAgentIdentity());
+		final boolean changed = !agentStatus.hasSameStatus(message);
 		agentStatus.setAgentProcessStatus(message);
 		m_newData = true;
+		if (connected) {
+			fireAgentStatusUpdate(agentStatus, true);
+		} else if (changed) {
+			fireAgentStatusUpdate(agentStatus, false);
+		}
+	}
+
+	private void fireAgentStatusUpdate(final AgentStatus agentStatus, final boolean connected) {
+		m_agentStatusUpdateListeners.apply(new Informer<AgentStatusUpdateListener>() {
+			@Override
+			public void inform(AgentStatusUpdateListener listener) {
+				if (connected) {
+					listener.onAgentConnected(agentStatus);
+				} else {
+					listener.onAgentStateChanged(agentStatus);
+				}
+			}
+		});
+	}
+
+	private void fireAgentDisconnected(final AgentIdentity agentIdentity) {
+		m_agentStatusUpdateListeners.apply(new Informer<AgentStatusUpdateListener>() {
+			@Override
+			public void inform(AgentStatusUpdateListener listener) {
+				listener.onAgentDisconnected(agentIdentity);
+			}
+		});
 	}
 
 	/**
@@ -187,8 +220,9 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 	 * Callers are for synchronization.
 	 *
 	 * @param purgableMap map for {@link ProcessIdentity}
+	 * @return purged identities
 	 */
-	private void purge(Map<? extends ProcessIdentity, ? extends Purgable> purgableMap) {
+	private Set<ProcessIdentity> purge(Map<? extends ProcessIdentity, ? extends Purgable> purgableMap) {
 
 		final Set<ProcessIdentity> zombies = new HashSet<ProcessIdentity>();
 
@@ -202,6 +236,7 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 			purgableMap.keySet().removeAll(zombies);
 			m_newData = true;
 		}
+		return zombies;
 	}
 
 	private interface Purgable {
@@ -262,6 +297,8 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 	 */
 	public final class AgentStatus implements Purgable {
 		private volatile AgentReference m_agentReference;
+		private final SystemSamples m_systemSamples = new SystemSamples(
+				GrinderConstants.AGENT_CONTROLLER_SYSTEM_SAMPLES_CAPACITY);
 
 		/**
 		 * Constructor.
@@ -298,12 +335,27 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 		public void setAgentProcessStatus(AgentControllerProcessReportMessage message) {
 			LOGGER.trace("agent perf status on {} is {}", message.getAgentIdentity(), message.getSystemDataModel());
 			m_agentReference = new AgentReference(message);
+			if (message.getSystemSamples() != null) {
+				m_systemSamples.addAll(message.getSystemSamples());
+			}
 		}
 
 		public String getVersion() {
 			return m_agentReference == null ? null : m_agentReference.m_agentProcessReportMessage.getVersion();
 		}
 
+		/**
+		 * Check if the given report has the same state, connecting port and version with the last report.
+		 *
+		 * @param message report message
+		 * @return true if same
+		 */
+		boolean hasSameStatus(AgentControllerProcessReportMessage message) {
+			return getAgentControllerState() == message.getState()
+					&& getConnectingPort() == message.getConnectingPort()
+					&& StringUtils.equals(getVersion(), message.getVersion());
+		}
+
 		public SystemDataModel getSystemDataModel() {
 			return m_agentReference == null ? null : m_agentReference.m_agentProcessReportMessage.getSystemDataModel();
 		}
@@ -312,6 +364,16 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 			return m_agentReference == null ? 0 : m_agentReference.m_agentProcessReportMessage.getConnectingPort();
 		}
 
+		/**
+		 * Get the system data samples collected every second in the agent.
+		 *
+		 * @return recent samples
+		 * @since 3.4.1
+		 */
+		public SystemSamples getSystemSamples() {
+			return m_systemSamples;
+		}
+
 		public AgentIdentity getAgentIdentity() {
 			return m_agentReference == null ? null : m_agentReference.m_agentProcessReportMessage.getAgentIdentity();
 		}
@@ -332,12 +394,21 @@ public class AgentProcessControlImplementation implements AgentProcessControl {
 	}
 
 	/**
-	 * Add Log control {@link LogArrivedListener}.
+	 * Set Log control {@link LogArrivedListener}.
+	 *
+	 * @param listener listener which decides where the logs are saved
+	 */
+	public void setLogArrivedListener(LogArrivedListener listener) {
+		m_logUploadReceiver.setLogArrivedListener(listener);
+	}
+
+	/**
+	 * Add {@link AgentStatusUpdateListener}.
 	 *
 	 * @param listener listener to be added
 	 */
-	public void addLogArrivedListener(LogArrivedListener listener) {
-		m_logListeners.add(listener);
+	public void addAgentStatusUpdateListener(AgentStatusUpdateListener listener) {
+		m_agentStatusUpdateListeners.add(listener);
 	}
 
 	/*
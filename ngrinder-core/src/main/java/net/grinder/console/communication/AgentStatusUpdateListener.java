@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.communication;
+
+import java.util.EventListener;
+
+import net.grinder.common.processidentity.AgentIdentity;
+import net.grinder.console.communication.AgentProcessControlImplementation.AgentStatus;
+
+/**
+ * Listener which is invoked when an agent controller is connected, disconnected or its state is changed.
+ * <p/>
+ * It's called in the message dispatching thread, so the implementation should return quickly.
+ *
+ * @since 3.4.1
+ */
+public interface AgentStatusUpdateListener extends EventListener {
+	/**
+	 * Called when the first report of an agent is arrived.
+	 *
+	 * @param agentStatus agent status
+	 */
+	public void onAgentConnected(AgentStatus agentStatus);
+
+	/**
+	 * Called when the state, the connecting port or the version of an agent is changed.
+	 *
+	 * @param agentStatus agent status
+	 */
+	public void onAgentStateChanged(AgentStatus agentStatus);
+
+	/**
+	 * Called when an agent is purged because it doesn't report anymore.
+	 *
+	 * @param agentIdentity agent identity
+	 */
+	public void onAgentDisconnected(AgentIdentity agentIdentity);
+}
@@ -13,6 +13,7 @@
  */
 package net.grinder.console.communication;
 
+import java.io.File;
 import java.util.EventListener;
 
 import net.grinder.messages.console.AgentAddress;
@@ -24,11 +25,20 @@ import net.grinder.messages.console.AgentAddress;
  * @since 3.0
  */
 public interface LogArrivedListener extends EventListener {
+	/**
+	 * Get the file into which the compressed log of the given agent is saved.
+	 * @param testId test id
+	 * @param agentAddress agent address
+	 * @return log file
+	 * @since 3.4.1
+	 */
+	public File getLogFile(String testId, AgentAddress agentAddress);
+
 	/**
 	 * callback method which will be called when log is arrived from a agent.
 	 * @param testId test id
 	 * @param agentAddress agent address
-	 * @param logs compressed log byte array
+	 * @param logFile the file in which the compressed log is saved
 	 */
-	public void logArrived(String testId, AgentAddress agentAddress, byte[] logs);
+	public void logArrived(String testId, AgentAddress agentAddress, File logFile);
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.communication;
+
+import net.grinder.engine.communication.LogReportAckGrinderMessage;
+import net.grinder.engine.communication.LogReportGrinderMessage;
+import net.grinder.messages.console.AgentAddress;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receiver of the log chunks sent by the agents.
+ * <p/>
+ * The chunks are appended to the part file next to the log file which {@link LogArrivedListener} provides, and the
+ * part file is renamed to the log file when the last chunk arrives. The offset of the part file is acknowledged for
+ * each chunk, so the agent can resume the upload from there after reconnecting. The chunk which is already received
+ * is skipped.
+ * <p/>
+ * Package scope.
+ *
+ * @since 3.4.1
+ */
+class LogUploadReceiver {
+	private static final Logger LOGGER = LoggerFactory.getLogger(LogUploadReceiver.class);
+	static final String PART_EXTENSION = ".part";
+
+	// Start time and resumed offset of each upload to report the throughput.
+	private final Map<File, long[]> uploads = new ConcurrentHashMap<File, long[]>();
+	private volatile LogArrivedListener m_logArrivedListener;
+
+	void setLogArrivedListener(LogArrivedListener logArrivedListener) {
+		m_logArrivedListener = logArrivedListener;
+	}
+
+	/**
+	 * Save the given chunk.
+	 *
+	 * @param message log chunk
+	 * @return ack to be sent to the agent
+	 */
+	LogReportAckGrinderMessage receive(LogReportGrinderMessage message) {
+		final String testId = message.getTestId();
+		final AgentAddress address = message.getAddress();
+		final LogArrivedListener listener = m_logArrivedListener;
+		if (listener == null) {
+			LOGGER.error("Log is arrived from {} but nothing receives it", address.getIdentity().getName());
+			return new LogReportAckGrinderMessage(testId, LogReportAckGrinderMessage.ERROR, false);
+		}
+		File logFile = listener.getLogFile(testId, address);
+		File partFile = new File(logFile.getPath() + PART_EXTENSION);
+		try {
+			long length = partFile.length();
+			if (message.isOpen()) {
+				LOGGER.info("Log upload of {} from {} is started at {} bytes", new Object[]{testId,
+						address.getIdentity().getName(), length});
+				uploads.put(partFile, new long[]{System.currentTimeMillis(), length});
+				return new LogReportAckGrinderMessage(testId, length, false);
+			}
+			byte[] logs = message.getLogs();
+			if (!message.isValid() || message.getOffset() > length) {
+				return new LogReportAckGrinderMessage(testId, length, true);
+			}
+			int skip = (int) (length - message.getOffset());
+			if (skip < logs.length) {
+				append(partFile, logs, skip);
+				length += logs.length - skip;
+			}
+			if (message.isLast() && message.getOffset() + logs.length == length) {
+				FileUtils.deleteQuietly(logFile);
+				if (!partFile.renameTo(logFile)) {
+					throw new IOException("Fail to rename " + partFile + " to " + logFile);
+				}
+				logUploaded(testId, address, uploads.remove(partFile), length);
+				listener.logArrived(testId, address, logFile);
+				return new LogReportAckGrinderMessage(testId, LogReportAckGrinderMessage.COMPLETED, false);
+			}
+			return new LogReportAckGrinderMessage(testId, length, false);
+		} catch (IOException e) {
+			LOGGER.error("Error while writing logs from {} to {} : {}", new Object[]{address.getIdentity().getName(),
+					partFile.getAbsolutePath(), e.getMessage()});
+			LOGGER.debug("Details : ", e);
+			uploads.remove(partFile);
+			FileUtils.deleteQuietly(partFile);
+			return new LogReportAckGrinderMessage(testId, LogReportAckGrinderMessage.ERROR, false);
+		}
+	}
+
+	private void append(File partFile, byte[] logs, int skip) throws IOException {
+		FileOutputStream outputStream = null;
+		try {
+			partFile.getParentFile().mkdirs();
+			outputStream = new FileOutputStream(partFile, true);
+			outputStream.write(logs, skip, logs.length - skip);
+			outputStream.close();
+		} finally {
+			IOUtils.closeQuietly(outputStream);
+		}
+	}
+
+	private void logUploaded(String testId, AgentAddress address, long[] upload, long length) {
+		long bytes = upload == null ? length : length - upload[1];
+		long elapsed = upload == null ? 1 : Math.max(System.currentTimeMillis() - upload[0], 1);
+		LOGGER.info("Log of {} from {} is uploaded. {} bytes in {} ms, {} KB/s", new Object[]{testId,
+				address.getIdentity().getName(), bytes, elapsed, bytes * 1000 / 1024 / elapsed});
+	}
+}
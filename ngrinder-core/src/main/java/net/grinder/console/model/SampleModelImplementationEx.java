@@ -28,6 +28,7 @@ import net.grinder.statistics.*;
 import net.grinder.util.ListenerSupport;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Collate test reports into samples and distribute to listeners.
@@ -77,6 +78,45 @@ public class SampleModelImplementationEx implements SampleModel {
 	private final Map<Test, SampleAccumulator> m_accumulators = Collections
 					.synchronizedMap(new HashMap<Test, SampleAccumulator>());
 
+	/**
+	 * Test time histograms per test number. Guarded by m_accumulators.
+	 */
+	private Map<Integer, LatencyHistogram> m_intervalLatencies = new HashMap<Integer, LatencyHistogram>();
+	private final Map<Integer, LatencyHistogram> m_cumulativeLatencies = new HashMap<Integer, LatencyHistogram>();
+	private LatencyHistogram m_totalIntervalLatency = new LatencyHistogram();
+	private final LatencyHistogram m_totalCumulativeLatency = new LatencyHistogram();
+
+	/**
+	 * Composite tests are excluded from the total histogram as they are from the total statistics. Guarded by
+	 * m_accumulators.
+	 */
+	private final Set<Integer> m_compositeTests = new HashSet<Integer>();
+
+	/**
+	 * Test time histograms of the last sample. They are not modified once sampled.
+	 */
+	private volatile Map<Integer, LatencyHistogram> m_lastIntervalLatencies = new HashMap<Integer, LatencyHistogram>();
+	private volatile LatencyHistogram m_lastTotalIntervalLatency = new LatencyHistogram();
+
+	/**
+	 * DNS cache lookup counts of all worker processes.
+	 */
+	private final AtomicLong m_dnsCacheHits = new AtomicLong();
+	private final AtomicLong m_dnsCacheMisses = new AtomicLong();
+
+	/**
+	 * Arrival rate dispatch counts of all worker processes.
+	 */
+	private final AtomicLong m_dispatches = new AtomicLong();
+	private final AtomicLong m_lateDispatches = new AtomicLong();
+	private final AtomicLong m_missedDispatches = new AtomicLong();
+
+	/**
+	 * Reports received since the last sample. They are merged into the accumulators by the sampling thread, so the
+	 * message threads don't contend on m_accumulators.
+	 */
+	private final TestReportStripes m_pendingReports;
+
 	// Guarded by this.
 	private InternalState m_state;
 
@@ -119,6 +159,8 @@ public class SampleModelImplementationEx implements SampleModel {
 		m_totalSampleAccumulator = new SampleAccumulatorEx(m_peakTPSExpression, m_periodIndex,
 						m_statisticsServices.getStatisticsSetFactory());
 
+		m_pendingReports = new TestReportStripes(m_statisticsServices.getStatisticsSetFactory());
+
 		setInternalState(new WaitingForTriggerState());
 	}
 
@@ -244,6 +286,7 @@ public class SampleModelImplementationEx implements SampleModel {
 		}
 
 		m_accumulators.clear();
+		m_pendingReports.clear();
 		m_totalSampleAccumulator.zero();
 
 		m_listeners.apply(new ListenerSupport.Informer<Listener>() {
@@ -277,6 +320,109 @@ public class SampleModelImplementationEx implements SampleModel {
 		getInternalState().newTestReport(testStatisticsMap);
 	}
 
+	/**
+	 * Add a new test time histogram report.
+	 *
+	 * @param histograms	The test time histogram per test number.
+	 */
+	public void addLatencyReport(Map<Integer, LatencyHistogram> histograms) {
+		getInternalState().newLatencyReport(histograms);
+	}
+
+	/**
+	 * Add the DNS cache lookup counts reported by a worker process.
+	 *
+	 * @param hits	The lookups served from the cache since the last report.
+	 * @param misses	The lookups resolved by DNS since the last report.
+	 */
+	public void addDnsCacheReport(long hits, long misses) {
+		m_dnsCacheHits.addAndGet(hits);
+		m_dnsCacheMisses.addAndGet(misses);
+	}
+
+	public long getDnsCacheHits() {
+		return m_dnsCacheHits.get();
+	}
+
+	public long getDnsCacheMisses() {
+		return m_dnsCacheMisses.get();
+	}
+
+	/**
+	 * Add the arrival rate dispatch counts reported by a worker process.
+	 *
+	 * @param dispatches	The runs dispatched since the last report.
+	 * @param lateDispatches	The runs started later than their dispatch time since the last report.
+	 * @param missedDispatches	The dispatches dropped since the last report.
+	 */
+	public void addDispatchReport(long dispatches, long lateDispatches, long missedDispatches) {
+		m_dispatches.addAndGet(dispatches);
+		m_lateDispatches.addAndGet(lateDispatches);
+		m_missedDispatches.addAndGet(missedDispatches);
+	}
+
+	public long getDispatches() {
+		return m_dispatches.get();
+	}
+
+	public long getLateDispatches() {
+		return m_lateDispatches.get();
+	}
+
+	public long getMissedDispatches() {
+		return m_missedDispatches.get();
+	}
+
+	/**
+	 * Get the test time histogram of the given test in the last sample.
+	 *
+	 * @param testNumber	test number
+	 * @return histogram. empty if nothing is recorded.
+	 */
+	public LatencyHistogram getIntervalLatency(int testNumber) {
+		final LatencyHistogram histogram = m_lastIntervalLatencies.get(testNumber);
+		return histogram == null ? new LatencyHistogram() : histogram;
+	}
+
+	/**
+	 * Get the test time histogram of all tests in the last sample.
+	 *
+	 * @return histogram
+	 */
+	public LatencyHistogram getTotalIntervalLatency() {
+		return m_lastTotalIntervalLatency;
+	}
+
+	/**
+	 * Get the cumulative test time histogram of the given test.
+	 *
+	 * @param testNumber	test number
+	 * @return copy of the histogram. empty if nothing is recorded.
+	 */
+	public LatencyHistogram getCumulativeLatency(int testNumber) {
+		final LatencyHistogram result = new LatencyHistogram();
+		synchronized (m_accumulators) {
+			final LatencyHistogram histogram = m_cumulativeLatencies.get(testNumber);
+			if (histogram != null) {
+				result.add(histogram);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the cumulative test time histogram of all tests.
+	 *
+	 * @return copy of the histogram
+	 */
+	public LatencyHistogram getTotalCumulativeLatency() {
+		final LatencyHistogram result = new LatencyHistogram();
+		synchronized (m_accumulators) {
+			result.add(m_totalCumulativeLatency);
+		}
+		return result;
+	}
+
 	/**
 	 * Get the current model state.
 	 * 
@@ -290,12 +436,22 @@ public class SampleModelImplementationEx implements SampleModel {
 	 * Zero the accumulators.
 	 */
 	public void zero() {
+		m_pendingReports.clear();
 		synchronized (m_accumulators) {
 			for (SampleAccumulator sampleAccumulator : m_accumulators.values()) {
 				sampleAccumulator.zero();
 			}
+			m_intervalLatencies.clear();
+			m_cumulativeLatencies.clear();
+			m_totalIntervalLatency.reset();
+			m_totalCumulativeLatency.reset();
 		}
 		m_totalSampleAccumulator.zero();
+		m_dnsCacheHits.set(0);
+		m_dnsCacheMisses.set(0);
+		m_dispatches.set(0);
+		m_lateDispatches.set(0);
+		m_missedDispatches.set(0);
 	}
 
 	private InternalState getInternalState() {
@@ -324,6 +480,8 @@ public class SampleModelImplementationEx implements SampleModel {
 		void stop();
 
 		void newTestReport(TestStatisticsMap testStatisticsMap);
+
+		void newLatencyReport(Map<Integer, LatencyHistogram> histograms);
 	}
 
 	private abstract class AbstractInternalState implements InternalState, State {
@@ -346,6 +504,10 @@ public class SampleModelImplementationEx implements SampleModel {
 			// Valid transition for all states.
 			setInternalState(new StoppedState());
 		}
+
+		public void newLatencyReport(Map<Integer, LatencyHistogram> histograms) {
+			// The histograms are only collected while sampling.
+		}
 	}
 
 	private final class WaitingForTriggerState extends AbstractInternalState {
@@ -402,31 +564,66 @@ public class SampleModelImplementationEx implements SampleModel {
 		private volatile long msampleCount = 1;
 
 		public void newTestReport(TestStatisticsMap testStatisticsMap) {
-			(testStatisticsMap.new ForEach() {
-				public void next(Test test, StatisticsSet statistics) {
-					final SampleAccumulator sampleAccumulator = m_accumulators.get(test);
-					synchronized (m_accumulators) {
-						if (sampleAccumulator == null) {
-							m_errorHandler.handleInformationMessage(m_unknownTestString + " " + test);
-						} else {
-							sampleAccumulator.addIntervalStatistics(statistics);
-
-							if (shouldAccumulateSamples()) {
-								sampleAccumulator.addCumulativeStaticstics(statistics);
-							}
-
-							if (!statistics.isComposite()) {
-								m_totalSampleAccumulator.addIntervalStatistics(statistics);
-
-								if (shouldAccumulateSamples()) {
-									m_totalSampleAccumulator.addCumulativeStatistics(statistics);
-								}
-							}
-						}
+			m_pendingReports.add(testStatisticsMap);
+		}
+
+		public void newLatencyReport(Map<Integer, LatencyHistogram> histograms) {
+			m_pendingReports.addLatencies(histograms);
+		}
+
+		/**
+		 * Merge the reports received since the last sample into the accumulators. Guarded by m_accumulators.
+		 */
+		private void mergePendingReports() {
+			final TestReportStripes.Epoch epoch = m_pendingReports.swap();
+			for (Map.Entry<Test, StatisticsSet> each : epoch.getStatistics().entrySet()) {
+				final Test test = each.getKey();
+				final StatisticsSet statistics = each.getValue();
+				final SampleAccumulator sampleAccumulator = m_accumulators.get(test);
+				if (sampleAccumulator == null) {
+					m_errorHandler.handleInformationMessage(m_unknownTestString + " " + test);
+					continue;
+				}
+				sampleAccumulator.addIntervalStatistics(statistics);
+
+				if (shouldAccumulateSamples()) {
+					sampleAccumulator.addCumulativeStaticstics(statistics);
+				}
+
+				if (epoch.isComposite(test)) {
+					m_compositeTests.add(test.getNumber());
+				} else {
+					m_totalSampleAccumulator.addIntervalStatistics(statistics);
+
+					if (shouldAccumulateSamples()) {
+						m_totalSampleAccumulator.addCumulativeStatistics(statistics);
+					}
+				}
+			}
+
+			for (Map.Entry<Integer, LatencyHistogram> each : epoch.getLatencies().entrySet()) {
+				addLatency(m_intervalLatencies, each.getKey(), each.getValue());
+				final boolean composite = m_compositeTests.contains(each.getKey());
+				if (!composite) {
+					m_totalIntervalLatency.add(each.getValue());
+				}
+				if (shouldAccumulateSamples()) {
+					addLatency(m_cumulativeLatencies, each.getKey(), each.getValue());
+					if (!composite) {
+						m_totalCumulativeLatency.add(each.getValue());
 					}
 				}
-				// CHECKSTYLE:OFF
-			}).iterate();
+			}
+		}
+
+		private void addLatency(Map<Integer, LatencyHistogram> latencies, Integer testNumber,
+						LatencyHistogram histogram) {
+			LatencyHistogram existing = latencies.get(testNumber);
+			if (existing == null) {
+				existing = new LatencyHistogram();
+				latencies.put(testNumber, existing);
+			}
+			existing.add(histogram);
 		}
 
 		protected void schedule() {
@@ -458,11 +655,16 @@ public class SampleModelImplementationEx implements SampleModel {
 				final long sampleInterval = m_properties.getSampleInterval();
 				SampleAccumulatorEx totalSampleAccumulatorSnapshot;
 				synchronized (m_accumulators) {
+					mergePendingReports();
 					for (SampleAccumulator sampleAccumulator : m_accumulators.values()) {
 						sampleAccumulator.fireSample(sampleInterval, period);
 					}
 					totalSampleAccumulatorSnapshot = new SampleAccumulatorEx(m_totalSampleAccumulator);
 					m_totalSampleAccumulator.refreshIntervalStatistics(sampleInterval, period);
+					m_lastIntervalLatencies = m_intervalLatencies;
+					m_lastTotalIntervalLatency = m_totalIntervalLatency;
+					m_intervalLatencies = new HashMap<Integer, LatencyHistogram>();
+					m_totalIntervalLatency = new LatencyHistogram();
 				}
 				totalSampleAccumulatorSnapshot.fireSample(sampleInterval, period);
 				++msampleCount;
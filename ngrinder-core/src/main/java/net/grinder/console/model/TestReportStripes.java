@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.model;
+
+import net.grinder.common.Test;
+import net.grinder.statistics.LatencyHistogram;
+import net.grinder.statistics.StatisticsSet;
+import net.grinder.statistics.StatisticsSetFactory;
+import net.grinder.statistics.TestStatisticsMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Striped buffer of the test reports which are not sampled yet.
+ * <p/>
+ * Each message thread adds the reports into the stripe chosen by its thread id, so the threads don't contend on a
+ * single monitor. The sampling thread swaps out the content of every stripe at once per sampling (epoch swap) and
+ * merges them into the accumulators by itself.
+ *
+ * @since 3.4.1
+ */
+public class TestReportStripes {
+	private final StatisticsSetFactory m_statisticsSetFactory;
+	private final Stripe[] m_stripes;
+	private final int m_mask;
+
+	/**
+	 * Constructor with the stripe count from the count of the processors.
+	 *
+	 * @param statisticsSetFactory statistics set factory
+	 */
+	public TestReportStripes(StatisticsSetFactory statisticsSetFactory) {
+		this(statisticsSetFactory, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param statisticsSetFactory statistics set factory
+	 * @param stripeCount          stripe count. rounded up to the power of 2.
+	 */
+	public TestReportStripes(StatisticsSetFactory statisticsSetFactory, int stripeCount) {
+		m_statisticsSetFactory = statisticsSetFactory;
+		int size = Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1);
+		m_stripes = new Stripe[size];
+		for (int i = 0; i < size; i++) {
+			m_stripes[i] = new Stripe();
+		}
+		m_mask = size - 1;
+	}
+
+	private Stripe getStripe() {
+		long id = Thread.currentThread().getId();
+		return m_stripes[(int) (id ^ (id >>> 16)) & m_mask];
+	}
+
+	/**
+	 * Add the test report of a worker process.
+	 *
+	 * @param report test statistics
+	 */
+	public void add(TestStatisticsMap report) {
+		final Stripe stripe = getStripe();
+		synchronized (stripe) {
+			(report.new ForEach() {
+				public void next(Test test, StatisticsSet statistics) {
+					StatisticsSet existing = stripe.m_statistics.get(test);
+					if (existing == null) {
+						existing = m_statisticsSetFactory.create();
+						stripe.m_statistics.put(test, existing);
+					}
+					existing.add(statistics);
+					if (statistics.isComposite()) {
+						stripe.m_compositeTests.add(test);
+					}
+				}
+				// CHECKSTYLE:OFF
+			}).iterate();
+		}
+	}
+
+	/**
+	 * Add the test time histograms of a worker process.
+	 *
+	 * @param histograms histogram per test number
+	 */
+	public void addLatencies(Map<Integer, LatencyHistogram> histograms) {
+		final Stripe stripe = getStripe();
+		synchronized (stripe) {
+			for (Map.Entry<Integer, LatencyHistogram> each : histograms.entrySet()) {
+				LatencyHistogram existing = stripe.m_latencies.get(each.getKey());
+				if (existing == null) {
+					stripe.m_latencies.put(each.getKey(), each.getValue());
+				} else {
+					existing.add(each.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Take all reports added since the last swap and start a new epoch.
+	 *
+	 * @return reports of the finished epoch
+	 */
+	public Epoch swap() {
+		final Epoch epoch = new Epoch();
+		for (Stripe each : m_stripes) {
+			final Map<Test, StatisticsSet> statistics;
+			final Set<Test> compositeTests;
+			final Map<Integer, LatencyHistogram> latencies;
+			synchronized (each) {
+				statistics = each.m_statistics;
+				compositeTests = each.m_compositeTests;
+				latencies = each.m_latencies;
+				each.clear();
+			}
+			epoch.merge(statistics, compositeTests, latencies);
+		}
+		return epoch;
+	}
+
+	/**
+	 * Drop all reports which are not taken yet.
+	 */
+	public void clear() {
+		for (Stripe each : m_stripes) {
+			synchronized (each) {
+				each.clear();
+			}
+		}
+	}
+
+	private static final class Stripe {
+		// Guarded by this.
+		private Map<Test, StatisticsSet> m_statistics;
+		private Set<Test> m_compositeTests;
+		private Map<Integer, LatencyHistogram> m_latencies;
+
+		private Stripe() {
+			clear();
+		}
+
+		private void clear() {
+			m_statistics = new HashMap<Test, StatisticsSet>();
+			m_compositeTests = new HashSet<Test>();
+			m_latencies = new HashMap<Integer, LatencyHistogram>();
+		}
+	}
+
+	/**
+	 * Reports added in an epoch. Only accessed by the sampling thread.
+	 */
+	public static final class Epoch {
+		private final Map<Test, StatisticsSet> m_statistics = new HashMap<Test, StatisticsSet>();
+		private final Set<Test> m_compositeTests = new HashSet<Test>();
+		private final Map<Integer, LatencyHistogram> m_latencies = new HashMap<Integer, LatencyHistogram>();
+
+		private void merge(Map<Test, StatisticsSet> statistics, Set<Test> compositeTests,
+		                   Map<Integer, LatencyHistogram> latencies) {
+			for (Map.Entry<Test, StatisticsSet> each : statistics.entrySet()) {
+				StatisticsSet existing = m_statistics.get(each.getKey());
+				if (existing == null) {
+					m_statistics.put(each.getKey(), each.getValue());
+				} else {
+					existing.add(each.getValue());
+				}
+			}
+			m_compositeTests.addAll(compositeTests);
+			for (Map.Entry<Integer, LatencyHistogram> each : latencies.entrySet()) {
+				LatencyHistogram existing = m_latencies.get(each.getKey());
+				if (existing == null) {
+					m_latencies.put(each.getKey(), each.getValue());
+				} else {
+					existing.add(each.getValue());
+				}
+			}
+		}
+
+		/**
+		 * Get the summed statistics per test.
+		 *
+		 * @return statistics per test
+		 */
+		public Map<Test, StatisticsSet> getStatistics() {
+			return m_statistics;
+		}
+
+		/**
+		 * Check if the given test is reported as a composite test.
+		 *
+		 * @param test test
+		 * @return true if composite
+		 */
+		public boolean isComposite(Test test) {
+			return m_compositeTests.contains(test);
+		}
+
+		/**
+		 * Get the merged test time histogram per test number.
+		 *
+		 * @return histogram per test number
+		 */
+		public Map<Integer, LatencyHistogram> getLatencies() {
+			return m_latencies;
+		}
+	}
+}
@@ -49,10 +49,13 @@ import org.ngrinder.infra.AgentConfig;
 import org.slf4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Properties;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import static org.ngrinder.common.constants.GrinderConstants.GRINDER_PROP_CONSOLE_ROUTER_PORT;
+
 /**
  * This is the entry point of The Grinder agent process.
  *
@@ -72,6 +75,7 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 	private FanOutStreamSender m_fanOutStreamSender;
 	private final ConnectorFactory m_connectorFactory = new ConnectorFactory(ConnectionType.AGENT);
 	private WorkerLauncher m_workerLauncherForShutdown = null;
+	private ConsoleRouterRelay m_consoleRouterRelay;
 	/**
 	 * We use an most one file store throughout an agent's life, but can't Initialize it until we've
 	 * read the properties and connected to the console.
@@ -80,6 +84,8 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 
 	private final AgentConfig m_agentConfig;
 
+	private volatile WorkerProcessPool m_workerProcessPool;
+
 	/**
 	 * Constructor.
 	 *
@@ -108,6 +114,17 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 		this(logger, agentConfig, false);
 	}
 
+	/**
+	 * Set the pool from which the worker processes are taken. The pool is filled again for the next run after the
+	 * test finishes.
+	 *
+	 * @param workerProcessPool worker process pool
+	 * @since 3.4.1
+	 */
+	public void setWorkerProcessPool(WorkerProcessPool workerProcessPool) {
+		m_workerProcessPool = workerProcessPool;
+	}
+
 	/**
 	 * Run grinder with empty {@link GrinderProperties}.
 	 *
@@ -138,6 +155,7 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 					properties = createAndMergeProperties(grinderProperties,
 							startMessage != null ? startMessage.getProperties() : null);
 					properties.setProperty(GrinderProperties.CONSOLE_HOST, m_agentConfig.getControllerIP());
+					relayConsoleConnection(properties);
 					m_agentIdentity.setName(m_agentConfig.getAgentHostID());
 					final Connector connector = m_connectorFactory.create(properties);
 					// We only reconnect if the connection details have changed.
@@ -227,17 +245,25 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 					Properties rebasedSystemProperty = rebaseSystemClassPath(System.getProperties(), m_agentConfig.getCurrentDirectory());
 
 					String jvmArguments = buildTestRunProperties(script, handler, rebasedSystemProperty, properties);
+					final WorkerProcessPool workerProcessPool = m_workerProcessPool;
+					WorkerProcessCommandLine workerCommandLine = null;
 
 					if (!properties.getBoolean("grinder.debug.singleprocess", false)) {
 						// Fix to provide empty system classpath to speed up
-						final WorkerProcessCommandLine workerCommandLine = new WorkerProcessCommandLine(properties,
+						workerCommandLine = new WorkerProcessCommandLine(properties,
 								filterSystemClassPath(rebasedSystemProperty, handler, m_logger), jvmArguments,
 								script.getDirectory());
 
 						m_logger.info("Worker process command line: {}", workerCommandLine);
 						FileUtils.writeStringToFile(logFile, workerCommandLine.toString() + "\n\n");
-						workerFactory = new ProcessWorkerFactory(workerCommandLine, m_agentIdentity,
-								m_fanOutStreamSender, consoleCommunication != null, script, properties);
+						if (workerProcessPool != null && workerProcessPool.isEnabled()) {
+							workerFactory = new PooledProcessWorkerFactory(workerCommandLine, workerProcessPool,
+									m_agentIdentity, m_fanOutStreamSender, consoleCommunication != null, script,
+									properties);
+						} else {
+							workerFactory = new ProcessWorkerFactory(workerCommandLine, m_agentIdentity,
+									m_fanOutStreamSender, consoleCommunication != null, script, properties);
+						}
 					} else {
 						m_logger.info("DEBUG MODE. Spawning threads rather than processes");
 						m_logger.warn("grinder.jvm.arguments ({}) ignored in single process mode", jvmArguments);
@@ -298,6 +324,10 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 					}
 					m_logger.debug("Normal shutdown");
 					workerLauncher.shutdown();
+					if (workerCommandLine != null && workerProcessPool != null) {
+						// Most tests are run again with the same configuration.
+						workerProcessPool.prepare(workerCommandLine, properties.getInt("grinder.processes", 1));
+					}
 					break;
 				}
 
@@ -335,6 +365,7 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 				m_timer = null;
 			}
 			shutdownConsoleCommunication(consoleCommunication);
+			shutdownConsoleRouterRelay();
 			if (m_fanOutStreamSender != null) {
 				m_fanOutStreamSender.shutdown();
 				m_fanOutStreamSender = null;
@@ -372,6 +403,7 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 				m_agentConfig.getAgentProperties().getPropertyBoolean(PROP_AGENT_LIMIT_XMX),
 				m_agentConfig.getAgentProperties().getPropertyBoolean(PROP_AGENT_ENABLE_LOCAL_DNS),
 				m_agentConfig.getAgentProperties().getProperty(PROP_AGENT_JAVA_OPT));
+		builder.setGroovyScriptCacheDirectory(m_agentConfig.getHome().getGroovyScriptCacheDirectory());
 		String jvmArguments = builder.buildJVMArgument();
 		String rebaseCustomClassPath = getForeMostClassPath(systemProperty, handler, m_logger)
 				+ File.pathSeparator
@@ -433,6 +465,43 @@ public class AgentImplementationEx implements Agent, AgentConstants {
 		return properties;
 	}
 
+	/**
+	 * Make the agent and its workers connect to the console through the local relay when the controller serves the
+	 * consoles on the shared console router port.
+	 *
+	 * @param properties properties whose console host and port are replaced with the relay address
+	 * @throws CommunicationException occurs when the relay can not be started
+	 */
+	private void relayConsoleConnection(GrinderProperties properties) throws CommunicationException {
+		int routerPort = properties.getInt(GRINDER_PROP_CONSOLE_ROUTER_PORT, 0);
+		if (routerPort <= 0) {
+			return;
+		}
+		int consolePort = properties.getInt(GrinderProperties.CONSOLE_PORT, CommunicationDefaults.CONSOLE_PORT);
+		// The console port is replaced with the relay port already if no new start message is arrived.
+		if (m_consoleRouterRelay == null || (consolePort != m_consoleRouterRelay.getConsolePort()
+				&& consolePort != m_consoleRouterRelay.getPort())) {
+			shutdownConsoleRouterRelay();
+			try {
+				m_consoleRouterRelay = new ConsoleRouterRelay(properties.getProperty(GrinderProperties.CONSOLE_HOST),
+						routerPort, consolePort);
+			} catch (IOException e) {
+				throw new CommunicationException("Failed to start the console router relay", e);
+			}
+			m_consoleRouterRelay.start();
+			m_logger.info("Connect to console {} through the router on port {}", consolePort, routerPort);
+		}
+		properties.setProperty(GrinderProperties.CONSOLE_HOST, m_consoleRouterRelay.getHost());
+		properties.setInt(GrinderProperties.CONSOLE_PORT, m_consoleRouterRelay.getPort());
+	}
+
+	private void shutdownConsoleRouterRelay() {
+		if (m_consoleRouterRelay != null) {
+			m_consoleRouterRelay.shutdown();
+			m_consoleRouterRelay = null;
+		}
+	}
+
 	private void shutdownConsoleCommunication(ConsoleCommunication consoleCommunication) {
 		if (consoleCommunication != null) {
 			consoleCommunication.shutdown();
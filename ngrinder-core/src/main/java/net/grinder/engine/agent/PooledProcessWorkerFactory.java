@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.agent;
+
+import net.grinder.common.GrinderProperties;
+import net.grinder.communication.FanOutStreamSender;
+import net.grinder.engine.agent.AgentIdentityImplementation.WorkerIdentityImplementation;
+import net.grinder.engine.common.EngineException;
+import net.grinder.engine.common.ScriptLocation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Worker factory which takes the worker processes from {@link WorkerProcessPool}. The process is started only when
+ * the pool doesn't have one for the command line.
+ *
+ * @since 3.4.1
+ */
+final class PooledProcessWorkerFactory extends AbstractWorkerFactory {
+	private final WorkerProcessCommandLine m_commandLine;
+	private final WorkerProcessPool m_workerProcessPool;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param commandLine        worker process command line
+	 * @param workerProcessPool  worker process pool
+	 * @param agentIdentity      agent identity
+	 * @param fanOutStreamSender sender which forwards the console messages to the workers
+	 * @param reportToConsole    true if the workers report to the console
+	 * @param script             script location
+	 * @param properties         grinder properties
+	 */
+	public PooledProcessWorkerFactory(WorkerProcessCommandLine commandLine, WorkerProcessPool workerProcessPool,
+	                                  AgentIdentityImplementation agentIdentity,
+	                                  FanOutStreamSender fanOutStreamSender, boolean reportToConsole,
+	                                  ScriptLocation script, GrinderProperties properties) {
+		super(agentIdentity, fanOutStreamSender, reportToConsole, script, properties);
+		m_commandLine = commandLine;
+		m_workerProcessPool = workerProcessPool;
+	}
+
+	@Override
+	protected Worker createWorker(WorkerIdentityImplementation workerIdentity, OutputStream outputStream,
+	                              OutputStream errorStream) throws EngineException {
+		WorkerProcessPool.PooledProcess process = m_workerProcessPool.take(m_commandLine);
+		if (process == null) {
+			try {
+				process = WorkerProcessPool.start(m_commandLine, false);
+			} catch (IOException e) {
+				throw new EngineException("Could not start process", e);
+			}
+		}
+		process.redirectTo(outputStream, errorStream);
+		return new PooledProcessWorker(workerIdentity, process);
+	}
+
+	/**
+	 * Worker on the given process.
+	 */
+	static final class PooledProcessWorker implements Worker {
+		private final WorkerIdentityImplementation m_workerIdentity;
+		private final WorkerProcessPool.PooledProcess m_process;
+
+		PooledProcessWorker(WorkerIdentityImplementation workerIdentity, WorkerProcessPool.PooledProcess process) {
+			m_workerIdentity = workerIdentity;
+			m_process = process;
+		}
+
+		@Override
+		public WorkerIdentityImplementation getIdentity() {
+			return m_workerIdentity;
+		}
+
+		@Override
+		public OutputStream getCommunicationStream() {
+			return m_process.getOutputStream();
+		}
+
+		@Override
+		public int waitFor() {
+			return m_process.waitFor();
+		}
+
+		@Override
+		public void destroy() {
+			m_process.destroy();
+		}
+	}
+}
@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.math.NumberUtils;
 import org.hyperic.sigar.Sigar;
 import org.hyperic.sigar.SigarException;
+import org.ngrinder.dns.DnsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +31,10 @@ import java.io.FilenameFilter;
 import java.net.InetAddress;
 import java.util.List;
 
+import static org.ngrinder.common.constants.GrinderConstants.DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE;
+import static org.ngrinder.common.constants.GrinderConstants.GRINDER_PROP_LIGHTWEIGHT_THREAD;
+import static org.ngrinder.common.constants.GrinderConstants.GRINDER_PROP_THREAD;
+import static org.ngrinder.common.constants.GrinderConstants.GRINDER_PROP_THREAD_STACK_SIZE;
 import static org.ngrinder.common.util.Preconditions.checkNotEmpty;
 import static org.ngrinder.common.util.Preconditions.checkNotNull;
 
@@ -53,6 +58,7 @@ public class PropertyBuilder {
 	private final boolean useXmxLimit;
 	private final String additionalJavaOpt;
 	private boolean enableLocalDNS;
+	private File groovyScriptCacheDirectory;
 
 
 	/**
@@ -172,6 +178,9 @@ public class PropertyBuilder {
 		}
 		jvmArguments = addParam(jvmArguments, properties.getProperty("grinder.param", ""));
 		jvmArguments = addPythonPathJvmArgument(jvmArguments);
+		if (groovyScriptCacheDirectory != null) {
+			jvmArguments = addGroovyCacheDirJvmArgument(jvmArguments);
+		}
 		jvmArguments = addCustomDns(jvmArguments);
 		if (server) {
 			jvmArguments = addServerMode(jvmArguments);
@@ -218,7 +227,7 @@ public class PropertyBuilder {
 			// Make a free memory room size of reservedMemory.
 			long free = new Sigar().getMem().getActualFree() - reservedMemory;
 			long perProcessTotalMemory = Math.max(free / processCount, MIN_PER_PROCESS_MEM_SIZE);
-			desirableXmx = (long) (perProcessTotalMemory * 0.5);
+			desirableXmx = getDesirableXmx(perProcessTotalMemory);
 			permGen = Math.min(Math.max((long) (perProcessTotalMemory * 0.2), 50L * 1024 * 1024), 128 * 1024 * 1024);
 			if (this.useXmxLimit) {
 				desirableXmx = Math.min(DEFAULT_MAX_XMX_SIZE, desirableXmx);
@@ -239,6 +248,23 @@ public class PropertyBuilder {
 		return jvmArguments;
 	}
 
+	/**
+	 * Get the heap size of a process, which is the half of the memory given to the process. When the vusers run on the
+	 * lightweight threads, a process hosts many threads. So the stack memory of all threads is excluded first.
+	 *
+	 * @param perProcessTotalMemory memory given to a process
+	 * @return heap size
+	 */
+	long getDesirableXmx(long perProcessTotalMemory) {
+		long stackMemory = 0;
+		if (properties.getBoolean(GRINDER_PROP_LIGHTWEIGHT_THREAD, false)) {
+			long stackSize = Math.max(properties.getLong(GRINDER_PROP_THREAD_STACK_SIZE,
+					DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE), 0);
+			stackMemory = stackSize * Math.max(properties.getInt(GRINDER_PROP_THREAD, 1), 1);
+		}
+		return Math.max((perProcessTotalMemory - stackMemory) / 2, MIN_PER_PROCESS_MEM_SIZE / 2);
+	}
+
 	private int getMemorySize(long memoryInByte) {
 		return (int) (memoryInByte / (1024 * 1024));
 	}
@@ -324,6 +350,22 @@ public class PropertyBuilder {
 		return jvmArguments;
 	}
 
+	private StringBuilder addGroovyCacheDirJvmArgument(StringBuilder jvmArguments) {
+		return jvmArguments.append(" -Dngrinder.groovy.cachedir=")
+				.append(groovyScriptCacheDirectory.getAbsolutePath()).append(" ");
+	}
+
+	/**
+	 * Set the directory where the worker processes share the compiled groovy scripts. It should not be writable by
+	 * the scripts, so it's not passed when it's not set.
+	 *
+	 * @param groovyScriptCacheDirectory groovy script cache directory
+	 * @since 3.4.1
+	 */
+	public void setGroovyScriptCacheDirectory(File groovyScriptCacheDirectory) {
+		this.groovyScriptCacheDirectory = groovyScriptCacheDirectory;
+	}
+
 	private StringBuilder addCurrentAgentPath(StringBuilder jvmArguments) {
 		return jvmArguments.append(" -Dngrinder.exec.path=").append(baseDirectory.getFile()).append(" ");
 	}
@@ -353,6 +395,26 @@ public class PropertyBuilder {
 		}
 		if (enableLocalDNS) {
 			jvmArguments.append(" -Dsun.net.spi.nameservice.provider.1=dns,LocalManagedDns ");
+			addDnsCacheOptions(jvmArguments);
+		}
+		return jvmArguments;
+	}
+
+	/**
+	 * Pass the DNS cache options in the grinder properties to the worker process.
+	 *
+	 * @param jvmArguments jvm arguments
+	 * @return appended jvm arguments
+	 * @see DnsCache
+	 */
+	StringBuilder addDnsCacheOptions(StringBuilder jvmArguments) {
+		for (String each : properties.stringPropertyNames()) {
+			if (each.startsWith(DnsCache.PROP_DNS_CACHE_PREFIX)) {
+				String value = StringUtils.trimToEmpty(properties.getProperty(each));
+				if (!value.contains(" ")) {
+					jvmArguments.append(" -D").append(each).append("=").append(value).append(" ");
+				}
+			}
 		}
 		return jvmArguments;
 	}
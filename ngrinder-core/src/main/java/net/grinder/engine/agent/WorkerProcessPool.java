@@ -0,0 +1,336 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.agent;
+
+import net.grinder.common.UncheckedInterruptedException;
+import net.grinder.util.Directory;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of the worker processes which are started in advance on the agent.
+ * <p/>
+ * The worker process doesn't do anything test specific until it receives the initialisation message from the agent,
+ * so the process started with the same command line can be handed to the next run of the test. The command line
+ * contains the test specific JVM arguments and class path, so the pool keeps the processes only for the command line
+ * of the last test, and they are used only when the next run has the same one. The pooled processes load the
+ * framework classes while waiting. Their output is drained and discarded until they are taken, so an idle process
+ * never blocks on the full pipe.
+ * <p/>
+ * The processes which are not taken in {@link #IDLE_TIMEOUT}, or started before the libraries of the test are
+ * changed, are destroyed.
+ *
+ * @since 3.4.1
+ */
+public class WorkerProcessPool {
+	private static final Logger LOGGER = LoggerFactory.getLogger("worker process pool");
+
+	static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(30);
+	private static final long EXPIRE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+	// The file modification time may have only the second precision.
+	private static final long MODIFICATION_TIME_PRECISION = TimeUnit.SECONDS.toMillis(1);
+	// Same with GrinderProcess.SYSTEM_PROP_PRELOAD in the runtime.
+	private static final String SYSTEM_PROP_PRELOAD = "ngrinder.worker.preload";
+
+	private final int size;
+	private final int memory;
+	private final Timer timer = new Timer("worker process pool", true);
+
+	// Guarded by this.
+	private String commandLineKey;
+	private final LinkedList<PooledProcess> processes = new LinkedList<PooledProcess>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param size   max count of the pooled processes. 0 disables the pool.
+	 * @param memory max total heap size of the pooled processes in MB. 0 means no limit.
+	 */
+	public WorkerProcessPool(int size, int memory) {
+		this.size = Math.max(size, 0);
+		this.memory = Math.max(memory, 0);
+		if (isEnabled()) {
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					expire();
+				}
+			}, EXPIRE_INTERVAL, EXPIRE_INTERVAL);
+		}
+	}
+
+	public boolean isEnabled() {
+		return size > 0;
+	}
+
+	/**
+	 * Take the pooled process started with the given command line.
+	 *
+	 * @param commandLine worker process command line
+	 * @return started process. null if there is no available one.
+	 */
+	public synchronized PooledProcess take(WorkerProcessCommandLine commandLine) {
+		if (!getKey(commandLine).equals(commandLineKey)) {
+			return null;
+		}
+		final long libraryModified = getLastModified(new File(commandLine.getWorkingDirectory().getFile(), "lib"));
+		while (!processes.isEmpty()) {
+			PooledProcess each = processes.removeFirst();
+			if (each.isAlive() && each.startTime - MODIFICATION_TIME_PRECISION > libraryModified) {
+				LOGGER.info("Pooled worker process is taken. {} left", processes.size());
+				return each;
+			}
+			each.destroy();
+		}
+		return null;
+	}
+
+	/**
+	 * Start the processes with the given command line for the next run. The pooled processes started with the other
+	 * command line are destroyed.
+	 *
+	 * @param commandLine worker process command line
+	 * @param count       the number of the worker processes of the test
+	 */
+	public synchronized void prepare(WorkerProcessCommandLine commandLine, int count) {
+		if (!isEnabled()) {
+			return;
+		}
+		final String key = getKey(commandLine);
+		if (!key.equals(commandLineKey)) {
+			destroyAll();
+			commandLineKey = key;
+		}
+		int target = Math.min(size, count);
+		final long heapSize = getMaxHeapSize(commandLine.getCommandList());
+		if (memory > 0 && heapSize > 0) {
+			target = (int) Math.min(target, memory / heapSize);
+		}
+		try {
+			while (processes.size() < target) {
+				processes.add(start(commandLine, true));
+			}
+			LOGGER.info("{} worker processes are pooled", processes.size());
+		} catch (IOException e) {
+			LOGGER.error("Failed to start the pooled worker process", e);
+		}
+	}
+
+	/**
+	 * Destroy the pooled processes and stop the pool.
+	 */
+	public synchronized void shutdown() {
+		timer.cancel();
+		destroyAll();
+		commandLineKey = null;
+	}
+
+	private synchronized void expire() {
+		final long now = System.currentTimeMillis();
+		for (Iterator<PooledProcess> iterator = processes.iterator(); iterator.hasNext(); ) {
+			PooledProcess each = iterator.next();
+			if (!each.isAlive() || now - each.startTime > IDLE_TIMEOUT) {
+				each.destroy();
+				iterator.remove();
+			}
+		}
+	}
+
+	private void destroyAll() {
+		for (PooledProcess each : processes) {
+			each.destroy();
+		}
+		processes.clear();
+	}
+
+	/**
+	 * Start the worker process with the given command line. Its output is drained from now.
+	 *
+	 * @param commandLine worker process command line
+	 * @param preload     true if the process should load the framework classes while waiting
+	 * @return started process
+	 * @throws IOException occurs when the process can not be started
+	 */
+	static PooledProcess start(WorkerProcessCommandLine commandLine, boolean preload) throws IOException {
+		final List<String> commands = new ArrayList<String>(commandLine.getCommandList());
+		if (preload) {
+			// Right after the java executable.
+			commands.add(1, "-D" + SYSTEM_PROP_PRELOAD + "=true");
+		}
+		final Directory workingDirectory = commandLine.getWorkingDirectory();
+		final ProcessBuilder processBuilder = new ProcessBuilder(commands);
+		if (workingDirectory != null) {
+			processBuilder.directory(workingDirectory.getFile());
+		}
+		return new PooledProcess(processBuilder.start());
+	}
+
+	private static String getKey(WorkerProcessCommandLine commandLine) {
+		final Directory workingDirectory = commandLine.getWorkingDirectory();
+		return commandLine.getCommandList() + "@"
+				+ (workingDirectory == null ? "" : workingDirectory.getFile().getAbsolutePath());
+	}
+
+	/**
+	 * Get the max heap size in MB from the -Xmx option.
+	 *
+	 * @param commands command list
+	 * @return max heap size. 0 if it's not specified.
+	 */
+	static long getMaxHeapSize(List<String> commands) {
+		long heapSize = 0;
+		for (String each : commands) {
+			if (!each.startsWith("-Xmx") || each.length() < 5) {
+				continue;
+			}
+			final char unit = Character.toLowerCase(each.charAt(each.length() - 1));
+			final String number = Character.isDigit(unit) ? each.substring(4) : each.substring(4, each.length() - 1);
+			try {
+				final long value = Long.parseLong(number);
+				switch (unit) {
+					case 'g':
+						heapSize = value * 1024;
+						break;
+					case 'm':
+						heapSize = value;
+						break;
+					case 'k':
+						heapSize = value / 1024;
+						break;
+					default:
+						heapSize = value / (1024 * 1024);
+				}
+			} catch (NumberFormatException e) {
+				// Not a heap size option.
+			}
+		}
+		return heapSize;
+	}
+
+	private static long getLastModified(File directory) {
+		long lastModified = 0;
+		if (directory.isDirectory()) {
+			for (File each : FileUtils.listFiles(directory, null, true)) {
+				lastModified = Math.max(lastModified, each.lastModified());
+			}
+		}
+		return lastModified;
+	}
+
+	/**
+	 * Worker process whose stdout and stderr are drained by the redirector threads from the start. The output is
+	 * discarded until it's redirected to the streams of the worker.
+	 */
+	static final class PooledProcess {
+		private final Process process;
+		private final long startTime = System.currentTimeMillis();
+		private final Redirector stdoutRedirector;
+		private final Redirector stderrRedirector;
+
+		private PooledProcess(Process process) {
+			this.process = process;
+			this.stdoutRedirector = new Redirector(process.getInputStream(), "Stream redirector for worker stdout");
+			this.stderrRedirector = new Redirector(process.getErrorStream(), "Stream redirector for worker stderr");
+		}
+
+		/**
+		 * Redirect the output of the process from now.
+		 *
+		 * @param outputStream stream to which stdout is written
+		 * @param errorStream  stream to which stderr is written
+		 */
+		void redirectTo(OutputStream outputStream, OutputStream errorStream) {
+			stdoutRedirector.target = outputStream;
+			stderrRedirector.target = errorStream;
+		}
+
+		OutputStream getOutputStream() {
+			return process.getOutputStream();
+		}
+
+		/**
+		 * Wait until the process exits and its output is redirected.
+		 *
+		 * @return exit value
+		 */
+		int waitFor() {
+			try {
+				process.waitFor();
+				stdoutRedirector.thread.join();
+				stderrRedirector.thread.join();
+			} catch (InterruptedException e) {
+				throw new UncheckedInterruptedException(e);
+			}
+			return process.exitValue();
+		}
+
+		void destroy() {
+			process.destroy();
+		}
+
+		private boolean isAlive() {
+			try {
+				process.exitValue();
+				return false;
+			} catch (IllegalThreadStateException e) {
+				return true;
+			}
+		}
+	}
+
+	private static final class Redirector implements Runnable {
+		private final InputStream in;
+		private final Thread thread;
+		private volatile OutputStream target = NullOutputStream.NULL_OUTPUT_STREAM;
+
+		private Redirector(InputStream in, String name) {
+			this.in = in;
+			this.thread = new Thread(this, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		@Override
+		public void run() {
+			final byte[] buffer = new byte[4096];
+			try {
+				int read;
+				while ((read = in.read(buffer)) >= 0) {
+					final OutputStream out = target;
+					out.write(buffer, 0, read);
+					out.flush();
+				}
+			} catch (IOException e) {
+				// The process is destroyed.
+			} finally {
+				IOUtils.closeQuietly(in);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.communication;
+
+import net.grinder.communication.Message;
+
+/**
+ * Message which acknowledges the log chunks received by the controller.
+ *
+ * @since 3.4.1
+ */
+public class LogReportAckGrinderMessage implements Message {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The whole log is received.
+	 */
+	public static final long COMPLETED = -1;
+
+	/**
+	 * The controller failed to save the log.
+	 */
+	public static final long ERROR = -2;
+
+	private final String testId;
+	private final long next;
+	private final boolean resend;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param testId corresponding test id
+	 * @param next   offset of the next chunk which the controller expects, {@link #COMPLETED} or {@link #ERROR}
+	 * @param resend true if the chunk is not taken, so the agent should send again from the next offset
+	 */
+	public LogReportAckGrinderMessage(String testId, long next, boolean resend) {
+		this.testId = testId;
+		this.next = next;
+		this.resend = resend;
+	}
+
+	public String getTestId() {
+		return testId;
+	}
+
+	public long getNext() {
+		return next;
+	}
+
+	public boolean isResend() {
+		return resend;
+	}
+}
@@ -16,32 +16,58 @@ package net.grinder.engine.communication;
 import net.grinder.communication.Address;
 import net.grinder.communication.AddressAwareMessage;
 import net.grinder.messages.console.AgentAddress;
+import org.ngrinder.common.util.CRC32ChecksumUtils;
 
 /**
- * NGrinder message to send a log to console.
- * 
+ * NGrinder message to send a chunk of the compressed log to console.
+ * <p/>
+ * The log is sent in the chunks from the offset acknowledged by {@link LogReportAckGrinderMessage}. The message
+ * which has -1 offset and no content opens the upload, and the controller replies the offset from which the agent
+ * should continue.
+ *
  * @author JunHo Yoon
  * @since 3.0
  */
 public class LogReportGrinderMessage implements AddressAwareMessage {
-	private static final long serialVersionUID = 1274708100107820158L;
+	private static final long serialVersionUID = 1274708100107820159L;
 	private AgentAddress m_processAddress;
 	private final byte[] logs;
 	private final String testId;
+	private final long offset;
+	private final boolean last;
+	private final long checksum;
 
 	/**
 	 * Constructor.
-	 * 
-	 * @param testId		corresponding test id
-	 * @param logs			compressed log byte array
-	 * @param agentAddress	agent address
+	 *
+	 * @param testId       corresponding test id
+	 * @param logs         chunk of the compressed log
+	 * @param offset       offset of the chunk in the compressed log. -1 to open the upload.
+	 * @param last         true if it's the last chunk
+	 * @param agentAddress agent address
+	 * @since 3.4.1
 	 */
-	public LogReportGrinderMessage(String testId, byte[] logs, AgentAddress agentAddress) {
+	public LogReportGrinderMessage(String testId, byte[] logs, long offset, boolean last, AgentAddress agentAddress) {
 		this.testId = testId;
 		this.logs = logs;
+		this.offset = offset;
+		this.last = last;
+		this.checksum = CRC32ChecksumUtils.getCRC32Checksum(logs);
 		setAddress(agentAddress);
 	}
 
+	/**
+	 * Create the message which opens the upload.
+	 *
+	 * @param testId       corresponding test id
+	 * @param agentAddress agent address
+	 * @return message
+	 * @since 3.4.1
+	 */
+	public static LogReportGrinderMessage open(String testId, AgentAddress agentAddress) {
+		return new LogReportGrinderMessage(testId, new byte[0], -1, false, agentAddress);
+	}
+
 	@Override
 	public void setAddress(Address address) {
 		m_processAddress = (AgentAddress) address;
@@ -59,4 +85,19 @@ public class LogReportGrinderMessage implements AddressAwareMessage {
 		return testId;
 	}
 
+	public long getOffset() {
+		return offset;
+	}
+
+	public boolean isLast() {
+		return last;
+	}
+
+	public boolean isOpen() {
+		return offset < 0;
+	}
+
+	public boolean isValid() {
+		return checksum == CRC32ChecksumUtils.getCRC32Checksum(logs);
+	}
 }
@@ -19,6 +19,7 @@ import net.grinder.communication.AddressAwareMessage;
 import net.grinder.communication.CommunicationException;
 import net.grinder.messages.console.AgentAddress;
 import org.ngrinder.monitor.controller.model.SystemDataModel;
+import org.ngrinder.monitor.share.domain.SystemSamples;
 
 /**
  * Message for informing the console of agent process status.
@@ -40,6 +41,8 @@ public class AgentControllerProcessReportMessage implements AddressAwareMessage
 
 	private String version;
 
+	private SystemSamples systemSamples;
+
 	/**
 	 * Creates a new <code>AgentProcessReportMessage</code> instance.
 	 * 
@@ -108,4 +111,18 @@ public class AgentControllerProcessReportMessage implements AddressAwareMessage
 	public String getVersion() {
 		return version;
 	}
+
+	/**
+	 * Get the system data samples collected after the previous report.
+	 *
+	 * @return samples. null if the agent doesn't send them.
+	 * @since 3.4.1
+	 */
+	public SystemSamples getSystemSamples() {
+		return systemSamples;
+	}
+
+	public void setSystemSamples(SystemSamples systemSamples) {
+		this.systemSamples = systemSamples;
+	}
 }
@@ -0,0 +1,298 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.ngrinder.common.util.CollectionUtils.newArrayList;
+import static org.ngrinder.common.util.Preconditions.checkArgument;
+import static org.ngrinder.common.util.Preconditions.checkNotNull;
+
+/**
+ * Asynchronous front of {@link ReportStoreWriter}.
+ * <p/>
+ * The sampling thread only puts the row snapshot into the bounded queue. A single writer thread drains the queue,
+ * appends the rows in a batch and flushes the store when the batch is full or the flush interval is passed. So the
+ * sampling is not delayed by the disk latency unless the queue is full. The rows passed to {@link #append(double[])}
+ * must not be modified after the call.
+ *
+ * @since 3.4.1
+ */
+public class AsyncReportStoreWriter implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncReportStoreWriter.class);
+
+	/**
+	 * Default count of rows which can be queued.
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+	/**
+	 * Default count of rows flushed at once.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	/**
+	 * Default max time in millisecond for which the written rows stay in the buffer.
+	 */
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	private static final double[] END_OF_ROWS = new double[0];
+	private static final double[] HEADER_CHANGE = new double[0];
+
+	private final ReportStoreWriter writer;
+	private final BlockingQueue<double[]> queue;
+	private final int batchSize;
+	private final long flushInterval;
+	private final Thread writerThread;
+	// Headers to be applied by the writer thread in order, when it meets HEADER_CHANGE in the queue.
+	private final Queue<ReportStoreHeader> pendingHeaders = new ConcurrentLinkedQueue<ReportStoreHeader>();
+
+	// The header of the rows being appended. It's ahead of the writer's one until the change is applied.
+	private volatile ReportStoreHeader header;
+
+	private volatile IOException error;
+	private volatile boolean closed = false;
+	private volatile long writtenRowCount = 0;
+	private volatile long lastWriteLatency = 0;
+	private volatile long maxWriteLatency = 0;
+	private volatile int maxQueueDepth = 0;
+
+	/**
+	 * Constructor with the default queue capacity, batch size and flush interval.
+	 *
+	 * @param writer     report store writer which is only accessed by the writer thread from now on
+	 * @param threadName name of the writer thread
+	 */
+	public AsyncReportStoreWriter(ReportStoreWriter writer, String threadName) {
+		this(writer, threadName, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param writer        report store writer which is only accessed by the writer thread from now on
+	 * @param threadName    name of the writer thread
+	 * @param queueCapacity count of rows which can be queued
+	 * @param batchSize     count of rows flushed at once
+	 * @param flushInterval max time in millisecond for which the written rows stay in the buffer
+	 */
+	public AsyncReportStoreWriter(ReportStoreWriter writer, String threadName, int queueCapacity, int batchSize,
+	                              long flushInterval) {
+		checkArgument(queueCapacity > 0 && batchSize > 0 && flushInterval > 0,
+				"queueCapacity, batchSize and flushInterval should be positive");
+		this.writer = checkNotNull(writer);
+		this.header = writer.getHeader();
+		this.queue = new ArrayBlockingQueue<double[]>(queueCapacity);
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		}, threadName);
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * Queue the given row. This blocks only when the queue is full.
+	 *
+	 * @param row row values ordered as {@link ReportStoreHeader#getColumns()}
+	 * @throws IOException occurs when the writer thread failed to write the previous rows.
+	 */
+	public void append(double[] row) throws IOException {
+		checkArgument(row.length == header.getColumns().size(),
+				"row size %s doesn't match with column size %s", row.length, header.getColumns().size());
+		put(row);
+		int depth = queue.size();
+		if (depth > maxQueueDepth) {
+			maxQueueDepth = depth;
+		}
+	}
+
+	/**
+	 * Change the column layout to the given header. The rows appended from now should be ordered as the new header.
+	 * The store is rewritten by the writer thread after the rows queued before.
+	 *
+	 * @param newHeader header which has the columns of the current header
+	 * @throws IOException occurs when the writer thread failed to write the previous rows.
+	 * @see ReportStoreWriter#changeHeader(ReportStoreHeader)
+	 */
+	public void changeHeader(ReportStoreHeader newHeader) throws IOException {
+		checkNotNull(newHeader);
+		pendingHeaders.add(newHeader);
+		put(HEADER_CHANGE);
+		header = newHeader;
+	}
+
+	private void put(double[] row) throws IOException {
+		checkError();
+		if (closed) {
+			throw new IOException("Report store writer is already closed");
+		}
+		try {
+			queue.put(row);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while queueing the report row");
+		}
+	}
+
+	/**
+	 * Write all queued rows, stop the writer thread and close the report store.
+	 *
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			queue.put(END_OF_ROWS);
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writerThread.interrupt();
+		} finally {
+			writer.close();
+		}
+		LOGGER.debug("{} report rows are written. max queue depth : {}, max write latency : {} ms", new Object[]{
+				writtenRowCount, maxQueueDepth, TimeUnit.NANOSECONDS.toMillis(maxWriteLatency)});
+		checkError();
+	}
+
+	private void writeLoop() {
+		List<double[]> batch = newArrayList(batchSize);
+		long lastFlush = System.currentTimeMillis();
+		boolean end = false;
+		while (!end) {
+			try {
+				double[] row = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+				if (row != null) {
+					batch.add(row);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+				end = !batch.isEmpty() && batch.get(batch.size() - 1) == END_OF_ROWS;
+				if (end) {
+					batch.remove(batch.size() - 1);
+				}
+				long now = System.currentTimeMillis();
+				if (end || batch.size() >= batchSize || now - lastFlush >= flushInterval) {
+					write(batch);
+					batch.clear();
+					lastFlush = now;
+				}
+			} catch (InterruptedException e) {
+				end = true;
+			}
+		}
+	}
+
+	private void write(List<double[]> batch) {
+		if (error != null) {
+			return;
+		}
+		long start = System.nanoTime();
+		int rows = 0;
+		try {
+			for (double[] each : batch) {
+				if (each == HEADER_CHANGE) {
+					writer.changeHeader(pendingHeaders.poll());
+				} else {
+					writer.append(each);
+					rows++;
+				}
+			}
+			writer.flush();
+		} catch (IOException e) {
+			LOGGER.error("Error while writing the report store : {}", e.getMessage());
+			LOGGER.debug("Details : ", e);
+			error = e;
+			return;
+		}
+		lastWriteLatency = System.nanoTime() - start;
+		if (lastWriteLatency > maxWriteLatency) {
+			maxWriteLatency = lastWriteLatency;
+		}
+		writtenRowCount += rows;
+	}
+
+	private void checkError() throws IOException {
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	public ReportStoreHeader getHeader() {
+		return header;
+	}
+
+	/**
+	 * Get the count of the rows waiting to be written.
+	 *
+	 * @return queue depth
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the max queue depth observed so far.
+	 *
+	 * @return max queue depth
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * Get the time in millisecond spent to write and flush the last batch.
+	 *
+	 * @return write latency
+	 */
+	public long getLastWriteLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(lastWriteLatency);
+	}
+
+	/**
+	 * Get the max time in millisecond spent to write and flush a batch.
+	 *
+	 * @return write latency
+	 */
+	public long getMaxWriteLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWriteLatency);
+	}
+
+	/**
+	 * Get the count of the rows written into the report store.
+	 *
+	 * @return written row count
+	 */
+	public long getWrittenRowCount() {
+		return writtenRowCount;
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Binary index of a comma separated text .data file such as the monitor data and the plugin data.
+ * <p/>
+ * The index file <code>{data file}.idx</code> keeps the parsed numeric rows and the offset of the text file processed
+ * so far, so each open only parses the lines appended after the last open. The rollups of the index are maintained at
+ * the same time, so the charts can be served without reading the whole text file again. Non numeric values are stored
+ * as NaN.
+ *
+ * @since 3.4.1
+ */
+public class DataFileIndex implements RowSource, Closeable {
+	private static final String INDEX_EXTENSION = ".idx";
+	private static final int MAGIC = 0x4E474449; // NGDI
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 24;
+	private static final int OFFSET_POSITION = 16;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final Object LOCK = new Object();
+
+	private final File indexFile;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int columnCount;
+
+	private DataFileIndex(File indexFile, RandomAccessFile file, int columnCount) {
+		this.indexFile = indexFile;
+		this.file = file;
+		this.channel = file.getChannel();
+		this.columnCount = columnCount;
+	}
+
+	/**
+	 * Open the index of the given data file after indexing the lines appended since the last open.
+	 *
+	 * @param dataFile    text data file
+	 * @param hasHeader   true if the first line is the header
+	 * @param columnCount count of the columns to be indexed
+	 * @return index
+	 * @throws IOException occurs when the data file is not readable or the index is not writable.
+	 */
+	public static DataFileIndex open(File dataFile, boolean hasHeader, int columnCount) throws IOException {
+		if (!dataFile.exists()) {
+			throw new FileNotFoundException(dataFile.getPath());
+		}
+		File indexFile = new File(dataFile.getPath() + INDEX_EXTENSION);
+		synchronized (LOCK) {
+			RandomAccessFile raf = new RandomAccessFile(indexFile, "rw");
+			try {
+				DataFileIndex index = new DataFileIndex(indexFile, raf, columnCount);
+				index.update(dataFile, hasHeader);
+				return index;
+			} catch (IOException e) {
+				IOUtils.closeQuietly(raf);
+				throw e;
+			}
+		}
+	}
+
+	private void update(File dataFile, boolean hasHeader) throws IOException {
+		long processed = readProcessedOffset();
+		if (processed < 0 || processed > dataFile.length()) {
+			reset();
+			processed = 0;
+		}
+		// drop the partially written row if exists.
+		file.setLength(HEADER_SIZE + getRowCount() * columnCount * 8L);
+		if (processed == dataFile.length()) {
+			return;
+		}
+		RollupWriter rollupWriter = RollupWriter.resume(indexFile, this);
+		FileInputStream in = new FileInputStream(dataFile);
+		try {
+			in.getChannel().position(processed);
+			byte[] buffer = new byte[READ_BUFFER_SIZE];
+			ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+			ByteBuffer rows = ByteBuffer.allocate(columnCount * 8 * 1024);
+			double[] row = new double[columnCount];
+			long position = processed;
+			long lineStart = processed;
+			long rowPosition = HEADER_SIZE + getRowCount() * columnCount * 8L;
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				for (int i = 0; i < read; i++) {
+					position++;
+					if (buffer[i] != '\n') {
+						line.write(buffer[i]);
+						continue;
+					}
+					String text = line.toString().trim();
+					line.reset();
+					boolean isHeader = hasHeader && lineStart == 0;
+					lineStart = position;
+					if (isHeader || StringUtils.isBlank(text)) {
+						continue;
+					}
+					parse(text, row);
+					rollupWriter.append(row);
+					if (rows.remaining() < row.length * 8) {
+						rowPosition = writeRows(rows, rowPosition);
+					}
+					for (double each : row) {
+						rows.putDouble(each);
+					}
+				}
+			}
+			writeRows(rows, rowPosition);
+			rollupWriter.flush();
+			writeProcessedOffset(lineStart);
+		} finally {
+			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(rollupWriter);
+		}
+	}
+
+	private void parse(String text, double[] row) {
+		String[] values = StringUtils.splitPreserveAllTokens(text, ',');
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (i < values.length && NumberUtils.isNumber(values[i].trim())) ?
+					NumberUtils.toDouble(values[i].trim(), Double.NaN) : Double.NaN;
+		}
+	}
+
+	private long writeRows(ByteBuffer rows, long position) throws IOException {
+		rows.flip();
+		while (rows.hasRemaining()) {
+			position += channel.write(rows, position);
+		}
+		rows.clear();
+		return position;
+	}
+
+	private long readProcessedOffset() throws IOException {
+		if (file.length() < HEADER_SIZE) {
+			return -1;
+		}
+		file.seek(0);
+		if (file.readInt() != MAGIC || file.readInt() != VERSION || file.readInt() != columnCount) {
+			return -1;
+		}
+		file.readInt();
+		return file.readLong();
+	}
+
+	private void reset() throws IOException {
+		file.setLength(0);
+		file.seek(0);
+		file.writeInt(MAGIC);
+		file.writeInt(VERSION);
+		file.writeInt(columnCount);
+		file.writeInt(0);
+		file.writeLong(0);
+	}
+
+	private void writeProcessedOffset(long offset) throws IOException {
+		file.seek(OFFSET_POSITION);
+		file.writeLong(offset);
+	}
+
+	/**
+	 * Read the given column downsampled by the given interval.
+	 *
+	 * @param column   column index
+	 * @param interval count of the rows aggregated into a point
+	 * @return downsampled series
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	public DownsampledSeries readColumn(int column, int interval) throws IOException {
+		return RollupReader.read(indexFile, this, column, interval);
+	}
+
+	@Override
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	@Override
+	public long getRowCount() throws IOException {
+		return RowFiles.getRowCount(channel, HEADER_SIZE, columnCount);
+	}
+
+	@Override
+	public void scan(long from, long to, RowHandler handler) throws IOException {
+		RowFiles.scan(channel, HEADER_SIZE, columnCount, from, to, handler);
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
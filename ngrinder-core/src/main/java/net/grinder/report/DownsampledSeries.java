@@ -0,0 +1,143 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import java.util.Arrays;
+
+/**
+ * Series of one column downsampled into points. Each point keeps the min, max and average of the aggregated rows,
+ * so the peaks survive the downsampling. NaN values are excluded from the aggregation and a point without any value
+ * is NaN.
+ *
+ * @since 3.4.1
+ */
+public class DownsampledSeries {
+	private final int interval;
+	private final double[] min;
+	private final double[] max;
+	private final double[] avg;
+	private int size = 0;
+
+	// accumulator of the current point
+	private long rows = 0;
+	private double pointMin = Double.NaN;
+	private double pointMax = Double.NaN;
+	private double pointSum = 0;
+	private double pointCount = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param rowCount count of the rows to be aggregated
+	 * @param interval count of the rows aggregated into a point
+	 */
+	DownsampledSeries(long rowCount, int interval) {
+		this.interval = Math.max(interval, 1);
+		int capacity = (int) ((rowCount + this.interval - 1) / this.interval);
+		this.min = new double[capacity];
+		this.max = new double[capacity];
+		this.avg = new double[capacity];
+	}
+
+	/**
+	 * Add a raw row value.
+	 *
+	 * @param value value
+	 */
+	void add(double value) {
+		if (Double.isNaN(value)) {
+			add(Double.NaN, Double.NaN, 0, 0, 1);
+		} else {
+			add(value, value, value, 1, 1);
+		}
+	}
+
+	/**
+	 * Add an aggregated bucket.
+	 *
+	 * @param bucketMin   min value of the bucket
+	 * @param bucketMax   max value of the bucket
+	 * @param bucketSum   sum of the values in the bucket
+	 * @param bucketCount count of the values in the bucket
+	 * @param bucketRows  count of the rows in the bucket
+	 */
+	void add(double bucketMin, double bucketMax, double bucketSum, double bucketCount, int bucketRows) {
+		if (bucketCount > 0) {
+			pointMin = Double.isNaN(pointMin) ? bucketMin : Math.min(pointMin, bucketMin);
+			pointMax = Double.isNaN(pointMax) ? bucketMax : Math.max(pointMax, bucketMax);
+			pointSum += bucketSum;
+			pointCount += bucketCount;
+		}
+		rows += bucketRows;
+		if (rows >= interval) {
+			emit();
+		}
+	}
+
+	private void emit() {
+		if (size < avg.length) {
+			min[size] = pointMin;
+			max[size] = pointMax;
+			avg[size] = pointCount == 0 ? Double.NaN : pointSum / pointCount;
+			size++;
+		}
+		rows = 0;
+		pointMin = Double.NaN;
+		pointMax = Double.NaN;
+		pointSum = 0;
+		pointCount = 0;
+	}
+
+	/**
+	 * Finish the aggregation. The partial point at the end is emitted.
+	 *
+	 * @return this
+	 */
+	DownsampledSeries finish() {
+		if (rows > 0) {
+			emit();
+		}
+		return this;
+	}
+
+	/**
+	 * Check if the series doesn't have any value.
+	 *
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		for (int i = 0; i < size; i++) {
+			if (!Double.isNaN(avg[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getInterval() {
+		return interval;
+	}
+
+	public double[] getMin() {
+		return Arrays.copyOf(min, size);
+	}
+
+	public double[] getMax() {
+		return Arrays.copyOf(max, size);
+	}
+
+	public double[] getAvg() {
+		return Arrays.copyOf(avg, size);
+	}
+}
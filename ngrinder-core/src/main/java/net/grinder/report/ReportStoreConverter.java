@@ -0,0 +1,214 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.IOUtils;
+import org.ngrinder.common.util.DateUtils;
+
+import java.io.*;
+import java.text.DecimalFormat;
+import java.util.Date;
+import java.util.List;
+
+import static org.ngrinder.common.util.CollectionUtils.newArrayList;
+
+/**
+ * Converter which writes the report store rows into the legacy text views, the .data file per column and the
+ * output.csv file.
+ * <p/>
+ * The views are created when the converter is created, and each appended row is added to them. So the views written
+ * along with the store are kept up to date until the last flush even if the test is not finished normally.
+ *
+ * @since 3.4.1
+ */
+public class ReportStoreConverter implements Closeable {
+
+	/**
+	 * CSV report file name.
+	 */
+	public static final String REPORT_CSV = "output.csv";
+
+	/**
+	 * Extension of the per column data file.
+	 */
+	public static final String REPORT_DATA = ".data";
+
+	private static final String PEAK_TPS = "Peak_TPS";
+
+	private final ReportStoreHeader header;
+	private final String separator;
+	private final DecimalFormat formatter = ReportStoreReader.createFormatter();
+	private final List<Integer> dataColumns = newArrayList();
+	private final List<Writer> dataWriters = newArrayList();
+	private final BufferedWriter csvWriter;
+	private final StringBuilder csvLine = new StringBuilder();
+
+	/**
+	 * Create the .data files and output.csv in the given directory. The existing views are replaced.
+	 *
+	 * @param header          header of the rows to be converted
+	 * @param reportDirectory directory in which the views are created
+	 * @param separator       separator of the csv file
+	 * @throws IOException occurs when the views can not be created.
+	 */
+	public ReportStoreConverter(ReportStoreHeader header, File reportDirectory, String separator) throws IOException {
+		this.header = header;
+		this.separator = separator;
+		try {
+			for (int i = 0; i < header.getColumns().size(); i++) {
+				if (header.isDataView(i)) {
+					dataColumns.add(i);
+					dataWriters.add(new BufferedWriter(new FileWriter(new File(reportDirectory,
+							header.getColumns().get(i) + REPORT_DATA))));
+				}
+			}
+			csvWriter = new BufferedWriter(new FileWriter(new File(reportDirectory, REPORT_CSV)));
+		} catch (IOException e) {
+			closeDataWriters();
+			throw e;
+		}
+		try {
+			writeCsvHeader();
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Export the given report store into .data files and output.csv in the given directory.
+	 *
+	 * @param storeFile       report store file
+	 * @param reportDirectory directory in which the views are created
+	 * @param csvSeparator    separator of the csv file
+	 * @throws IOException occurs when the export is failed.
+	 */
+	public static void export(File storeFile, File reportDirectory, String csvSeparator) throws IOException {
+		ReportStoreReader reader = ReportStoreReader.open(storeFile);
+		try {
+			final ReportStoreConverter converter = new ReportStoreConverter(reader.getHeader(), reportDirectory,
+					csvSeparator);
+			final IOException[] error = new IOException[1];
+			try {
+				reader.scan(new RowSource.RowHandler() {
+					@Override
+					public void onRow(long index, double[] row) {
+						try {
+							converter.append(row);
+						} catch (IOException e) {
+							error[0] = e;
+						}
+					}
+				});
+			} finally {
+				converter.close();
+			}
+			if (error[0] != null) {
+				throw error[0];
+			}
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	private void writeCsvHeader() throws IOException {
+		List<String> keys = header.getStatisticKeys();
+		StringBuilder csvHeader = new StringBuilder();
+		csvHeader.append(ReportStoreHeader.COLUMN_DATE_TIME).append(separator).append("vuser");
+		for (String each : keys) {
+			if (!PEAK_TPS.equals(each)) {
+				csvHeader.append(separator).append(each);
+			}
+		}
+		for (int i = 1; i <= header.getTestDescriptions().size(); i++) {
+			csvHeader.append(separator).append("Description");
+			for (String each : keys) {
+				if (!PEAK_TPS.equals(each)) {
+					csvHeader.append(separator).append(each).append("-").append(i);
+				}
+			}
+		}
+		csvWriter.write(csvHeader.toString());
+		csvWriter.newLine();
+	}
+
+	/**
+	 * Append the given row into the views. The rows filling the sampling gap are not written into the csv file.
+	 *
+	 * @param row row values ordered as {@link ReportStoreHeader#getColumns()}
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void append(double[] row) throws IOException {
+		for (int i = 0; i < dataColumns.size(); i++) {
+			Writer writer = dataWriters.get(i);
+			writer.write(ReportStoreReader.format(formatter, row[dataColumns.get(i)]));
+			writer.write(IOUtils.LINE_SEPARATOR);
+		}
+		if (header.isGapRow(row)) {
+			return;
+		}
+		List<String> keys = header.getStatisticKeys();
+		List<String> descriptions = header.getTestDescriptions();
+		csvLine.setLength(0);
+		csvLine.append(DateUtils.dateToString(new Date((long) row[0]))).append(separator)
+				.append(formatter.format(row[1]));
+		for (int k = 0; k < keys.size(); k++) {
+			if (!PEAK_TPS.equals(keys.get(k))) {
+				csvLine.append(separator).append(formatCsvValue(row[2 + k]));
+			}
+		}
+		for (int t = 0; t < descriptions.size(); t++) {
+			csvLine.append(",").append(descriptions.get(t));
+			for (int k = 0; k < keys.size(); k++) {
+				if (!PEAK_TPS.equals(keys.get(k))) {
+					csvLine.append(separator).append(formatCsvValue(row[header.getPerTestColumnIndex(t, k)]));
+				}
+			}
+		}
+		csvWriter.write(csvLine.toString());
+		csvWriter.newLine();
+	}
+
+	/**
+	 * Flush the appended rows into the views.
+	 *
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void flush() throws IOException {
+		for (Writer each : dataWriters) {
+			each.flush();
+		}
+		csvWriter.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			closeDataWriters();
+			IOUtils.closeQuietly(csvWriter);
+		}
+	}
+
+	private void closeDataWriters() {
+		for (Writer each : dataWriters) {
+			IOUtils.closeQuietly(each);
+		}
+	}
+
+	private String formatCsvValue(double value) {
+		return Double.isNaN(value) ? "0" : formatter.format(value);
+	}
+}
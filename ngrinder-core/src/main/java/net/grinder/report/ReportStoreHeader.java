@@ -0,0 +1,258 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import net.grinder.SingleConsole;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.ngrinder.common.util.CollectionUtils.newArrayList;
+import static org.ngrinder.common.util.CollectionUtils.newHashMap;
+
+/**
+ * Header of the report store file.
+ * <p/>
+ * The report store is a single append-only file per test run. It starts with this header which describes the columns
+ * and is followed by fixed-width rows, each of which contains one 8 byte double value per column. The column layout
+ * is <code>DateTime, Vuser, {total statistics...}, {statistics of test 1...}, {statistics of test 2...}</code>.
+ * Per test columns exist only when more than one test is registered. When the tests are registered after the store
+ * is created, the store is rewritten with the new header by {@link ReportStoreWriter#changeHeader(ReportStoreHeader)}.
+ * <p/>
+ * A row which is written to fill the sampling gap has NaN values except the DateTime and Vuser columns.
+ *
+ * @since 3.4.1
+ */
+public class ReportStoreHeader {
+
+	/**
+	 * The report store file name in the report directory.
+	 */
+	public static final String REPORT_STORE_FILE = "report.store";
+
+	/**
+	 * Column name of the sampling time.
+	 */
+	public static final String COLUMN_DATE_TIME = "DateTime";
+
+	/**
+	 * Column name of the running vuser count.
+	 */
+	public static final String COLUMN_VUSER = "Vuser";
+
+	private static final int MAGIC = 0x4E475253; // NGRS
+	private static final int VERSION = 1;
+	private static final int VALUE_SIZE = 8;
+
+	private final int samplingInterval;
+	private final List<String> statisticKeys;
+	private final List<Integer> testNumbers;
+	private final List<String> testDescriptions;
+	private final List<String> columns;
+	private final Map<String, Integer> columnIndexMap = newHashMap();
+	private int headerSize;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param samplingInterval sampling interval in millisecond
+	 * @param statisticKeys    statistic keys in the writing order
+	 * @param testNumbers      test numbers. empty if only one test is registered
+	 * @param testDescriptions test descriptions in the same order of testNumbers
+	 */
+	public ReportStoreHeader(int samplingInterval, List<String> statisticKeys, List<Integer> testNumbers,
+	                         List<String> testDescriptions) {
+		this.samplingInterval = samplingInterval;
+		this.statisticKeys = Collections.unmodifiableList(statisticKeys);
+		this.testNumbers = Collections.unmodifiableList(testNumbers);
+		this.testDescriptions = Collections.unmodifiableList(testDescriptions);
+		List<String> columns = newArrayList();
+		columns.add(COLUMN_DATE_TIME);
+		columns.add(COLUMN_VUSER);
+		columns.addAll(statisticKeys);
+		for (int i = 0; i < testNumbers.size(); i++) {
+			for (String each : statisticKeys) {
+				columns.add(getPerTestColumnName(each, testNumbers.get(i), testDescriptions.get(i)));
+			}
+		}
+		this.columns = Collections.unmodifiableList(columns);
+		for (int i = 0; i < columns.size(); i++) {
+			columnIndexMap.put(columns.get(i), i);
+		}
+	}
+
+	/**
+	 * Get the per test column name. This is same as the name of the per test .data file without the extension.
+	 *
+	 * @param key         statistic key
+	 * @param number      test number
+	 * @param description test description
+	 * @return column name
+	 */
+	public static String getPerTestColumnName(String key, int number, String description) {
+		return key + "-" + number + "_" + String.valueOf(description).replaceAll("\\s+", "_");
+	}
+
+	/**
+	 * Get the report store file in the given report directory.
+	 *
+	 * @param reportDirectory report directory
+	 * @return report store file
+	 */
+	public static File getReportStoreFile(File reportDirectory) {
+		return new File(reportDirectory, REPORT_STORE_FILE);
+	}
+
+	/**
+	 * Write this header into the given output.
+	 *
+	 * @param out output
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void write(DataOutput out) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		DataOutputStream body = new DataOutputStream(bos);
+		body.writeInt(samplingInterval);
+		body.writeInt(statisticKeys.size());
+		for (String each : statisticKeys) {
+			body.writeUTF(each);
+		}
+		body.writeInt(testNumbers.size());
+		for (int i = 0; i < testNumbers.size(); i++) {
+			body.writeInt(testNumbers.get(i));
+			body.writeUTF(String.valueOf(testDescriptions.get(i)));
+		}
+		body.flush();
+		headerSize = 12 + bos.size();
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(headerSize);
+		out.write(bos.toByteArray());
+	}
+
+	/**
+	 * Read the header from the given input.
+	 *
+	 * @param in input
+	 * @return read header
+	 * @throws IOException occurs when the input is not a report store.
+	 */
+	public static ReportStoreHeader read(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a report store file");
+		}
+		int version = in.readInt();
+		if (version > VERSION) {
+			throw new IOException("Unsupported report store version " + version);
+		}
+		int headerSize = in.readInt();
+		int samplingInterval = in.readInt();
+		int keyCount = in.readInt();
+		List<String> keys = newArrayList(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			keys.add(in.readUTF());
+		}
+		int testCount = in.readInt();
+		List<Integer> numbers = newArrayList(testCount);
+		List<String> descriptions = newArrayList(testCount);
+		for (int i = 0; i < testCount; i++) {
+			numbers.add(in.readInt());
+			descriptions.add(in.readUTF());
+		}
+		ReportStoreHeader header = new ReportStoreHeader(samplingInterval, keys, numbers, descriptions);
+		header.headerSize = headerSize;
+		return header;
+	}
+
+	/**
+	 * Check if the given column is exported as a .data file.
+	 *
+	 * @param columnIndex column index
+	 * @return true if exported
+	 */
+	public boolean isDataView(int columnIndex) {
+		if (columnIndex <= 0) {
+			return false;
+		}
+		int perTestStart = 2 + statisticKeys.size();
+		if (columnIndex < perTestStart) {
+			return true;
+		}
+		String key = statisticKeys.get((columnIndex - perTestStart) % statisticKeys.size());
+		return samplingInterval >= SingleConsole.MIN_SAMPLING_INTERVAL_TO_ACTIVATE_TPS_PER_TEST
+				&& SingleConsole.INTERESTING_PER_TEST_STATISTICS.contains(key);
+	}
+
+	/**
+	 * Check if the given row is written to fill the sampling gap. The total statistics of a sampled row are never NaN.
+	 *
+	 * @param row row values
+	 * @return true if it's a gap row
+	 */
+	public boolean isGapRow(double[] row) {
+		return !statisticKeys.isEmpty() && Double.isNaN(row[2]);
+	}
+
+	/**
+	 * Get the column index of the given column name.
+	 *
+	 * @param column column name
+	 * @return index. -1 if not exists.
+	 */
+	public int getColumnIndex(String column) {
+		Integer index = columnIndexMap.get(column);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Get the column index of the statistic key for the given test order.
+	 *
+	 * @param testOrder test order starting from 0
+	 * @param keyIndex  statistic key index
+	 * @return column index
+	 */
+	public int getPerTestColumnIndex(int testOrder, int keyIndex) {
+		return 2 + statisticKeys.size() * (testOrder + 1) + keyIndex;
+	}
+
+	public int getRowWidth() {
+		return columns.size() * VALUE_SIZE;
+	}
+
+	public int getHeaderSize() {
+		return headerSize;
+	}
+
+	public int getSamplingInterval() {
+		return samplingInterval;
+	}
+
+	public List<String> getStatisticKeys() {
+		return statisticKeys;
+	}
+
+	public List<Integer> getTestNumbers() {
+		return testNumbers;
+	}
+
+	public List<String> getTestDescriptions() {
+		return testDescriptions;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+}
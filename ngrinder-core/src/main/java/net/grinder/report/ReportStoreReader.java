@@ -0,0 +1,147 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.text.DecimalFormat;
+
+/**
+ * Reader of the report store.
+ * <p/>
+ * The row count is calculated from the file length, so it doesn't need to scan the file. Only complete rows are
+ * visible, so it's safe to read the store while the test is still running. Downsampled reads are served from the
+ * rollups maintained by {@link ReportStoreWriter}.
+ *
+ * @since 3.4.1
+ */
+public class ReportStoreReader implements RowSource, Closeable {
+	private final File storeFile;
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final ReportStoreHeader header;
+
+	private ReportStoreReader(File storeFile, RandomAccessFile file, ReportStoreHeader header) {
+		this.storeFile = storeFile;
+		this.file = file;
+		this.channel = file.getChannel();
+		this.header = header;
+	}
+
+	/**
+	 * Open the given report store file.
+	 *
+	 * @param storeFile report store file
+	 * @return reader
+	 * @throws IOException occurs when the file is not a valid report store.
+	 */
+	public static ReportStoreReader open(File storeFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(storeFile, "r");
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file.getFD())));
+			return new ReportStoreReader(storeFile, file, ReportStoreHeader.read(in));
+		} catch (IOException e) {
+			IOUtils.closeQuietly(file);
+			throw e;
+		}
+	}
+
+	@Override
+	public int getColumnCount() {
+		return header.getColumns().size();
+	}
+
+	@Override
+	public long getRowCount() throws IOException {
+		return RowFiles.getRowCount(channel, header.getHeaderSize(), getColumnCount());
+	}
+
+	/**
+	 * Scan all rows sequentially.
+	 *
+	 * @param handler row handler
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	public void scan(RowHandler handler) throws IOException {
+		scan(0, getRowCount(), handler);
+	}
+
+	@Override
+	public void scan(long from, long to, RowHandler handler) throws IOException {
+		RowFiles.scan(channel, header.getHeaderSize(), getColumnCount(), from, to, handler);
+	}
+
+	/**
+	 * Read one column downsampled by the given interval. The precomputed rollups are used when available.
+	 *
+	 * @param columnIndex column index
+	 * @param interval    count of rows aggregated into a point. 1 means all values.
+	 * @return downsampled series
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	public DownsampledSeries readColumn(int columnIndex, int interval) throws IOException {
+		return RollupReader.read(storeFile, this, columnIndex, interval);
+	}
+
+	/**
+	 * Convert the given values into json array string in the same format as the .data file.
+	 *
+	 * @param values values
+	 * @return json array string
+	 */
+	public static String toJson(double[] values) {
+		StringBuilder builder = new StringBuilder("[");
+		DecimalFormat formatter = createFormatter();
+		for (int i = 0; i < values.length; i++) {
+			if (i != 0) {
+				builder.append(",");
+			}
+			builder.append(format(formatter, values[i]));
+		}
+		return builder.append("]").toString();
+	}
+
+	/**
+	 * Create the formatter used to display the stored value.
+	 *
+	 * @return formatter
+	 */
+	static DecimalFormat createFormatter() {
+		DecimalFormat formatter = new DecimalFormat("###.###");
+		formatter.setGroupingUsed(false);
+		return formatter;
+	}
+
+	/**
+	 * Format the given value. NaN is formatted as null.
+	 *
+	 * @param formatter formatter
+	 * @param value     value
+	 * @return formatted string
+	 */
+	static String format(DecimalFormat formatter, double value) {
+		return Double.isNaN(value) ? "null" : formatter.format(value);
+	}
+
+	public ReportStoreHeader getHeader() {
+		return header;
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
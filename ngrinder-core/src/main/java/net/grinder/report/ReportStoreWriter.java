@@ -0,0 +1,225 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+
+import static org.ngrinder.common.util.Preconditions.checkArgument;
+import static org.ngrinder.common.util.Preconditions.checkNotNull;
+
+/**
+ * Append only writer of the report store.
+ * <p/>
+ * Rows are buffered and only written to the disk when {@link #flush()} is called or the buffer is full. The caller
+ * is expected to flush once per sampling rather than once per value. The multi resolution rollups of the store are
+ * maintained while appending, so that the charts don't need to scan the whole store.
+ * <p/>
+ * When the tests are registered after the store is created, {@link #changeHeader(ReportStoreHeader)} rewrites the
+ * store in the new column layout.
+ * <p/>
+ * When the view directory is given, the legacy text views are written along with the store by
+ * {@link ReportStoreConverter} and flushed together, so they are available even if the test is not closed normally.
+ *
+ * @since 3.4.1
+ */
+public class ReportStoreWriter implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final File viewDirectory;
+	private final String csvSeparator;
+	private volatile ReportStoreHeader header;
+	private DataOutputStream out;
+	private RollupWriter rollupWriter;
+	private ReportStoreConverter viewWriter;
+	private long rowCount = 0;
+
+	/**
+	 * Create the report store file and write the given header.
+	 *
+	 * @param file   file to be created
+	 * @param header header describing the columns
+	 * @throws IOException occurs when the file can not be created.
+	 */
+	public ReportStoreWriter(File file, ReportStoreHeader header) throws IOException {
+		this(file, header, null, null);
+	}
+
+	/**
+	 * Create the report store file and write the given header. The legacy text views are created in the given
+	 * directory.
+	 *
+	 * @param file          file to be created
+	 * @param header        header describing the columns
+	 * @param viewDirectory directory in which the .data files and the csv file are written. null if not needed.
+	 * @param csvSeparator  separator of the csv file
+	 * @throws IOException occurs when the file can not be created.
+	 */
+	public ReportStoreWriter(File file, ReportStoreHeader header, File viewDirectory, String csvSeparator)
+			throws IOException {
+		this.file = file;
+		this.header = checkNotNull(header);
+		this.viewDirectory = viewDirectory;
+		this.csvSeparator = csvSeparator;
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), BUFFER_SIZE));
+		try {
+			header.write(out);
+			this.rollupWriter = RollupWriter.create(file, header.getColumns().size());
+			if (viewDirectory != null) {
+				this.viewWriter = new ReportStoreConverter(header, viewDirectory, csvSeparator);
+			}
+		} catch (IOException e) {
+			IOUtils.closeQuietly(out);
+			IOUtils.closeQuietly(rollupWriter);
+			throw e;
+		}
+	}
+
+	/**
+	 * Append a row. The values should be ordered as {@link ReportStoreHeader#getColumns()}.
+	 *
+	 * @param row row values
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void append(double[] row) throws IOException {
+		checkArgument(row.length == header.getColumns().size(), "row size %s doesn't match with column size %s",
+				row.length, header.getColumns().size());
+		for (double each : row) {
+			out.writeDouble(each);
+		}
+		rollupWriter.append(row);
+		if (viewWriter != null) {
+			viewWriter.append(row);
+		}
+		rowCount++;
+	}
+
+	/**
+	 * Flush the buffered rows.
+	 *
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+		rollupWriter.flush();
+		if (viewWriter != null) {
+			viewWriter.flush();
+		}
+	}
+
+	/**
+	 * Change the column layout to the given header. The stored rows are rewritten in the new layout, in which the
+	 * columns not in the current header are filled with NaN, and the rollups and the views are rebuilt. It's called
+	 * only when the test set grows, so rewriting the whole store is acceptable.
+	 *
+	 * @param newHeader header which has the columns of the current header
+	 * @throws IOException occurs when the store can not be rewritten.
+	 */
+	public void changeHeader(ReportStoreHeader newHeader) throws IOException {
+		checkNotNull(newHeader);
+		close();
+		final int[] sourceColumns = new int[newHeader.getColumns().size()];
+		for (int i = 0; i < sourceColumns.length; i++) {
+			sourceColumns[i] = header.getColumnIndex(newHeader.getColumns().get(i));
+		}
+		File temp = new File(file.getPath() + ".tmp");
+		final DataOutputStream tempOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp,
+				false), BUFFER_SIZE));
+		final IOException[] error = new IOException[1];
+		final ReportStoreConverter newViewWriter = (viewDirectory == null) ? null : new ReportStoreConverter(
+				newHeader, viewDirectory, csvSeparator);
+		try {
+			try {
+				newHeader.write(tempOut);
+				ReportStoreReader reader = ReportStoreReader.open(file);
+				try {
+					reader.scan(new RowSource.RowHandler() {
+						@Override
+						public void onRow(long index, double[] row) {
+							double[] newRow = new double[sourceColumns.length];
+							for (int i = 0; i < sourceColumns.length; i++) {
+								newRow[i] = sourceColumns[i] < 0 ? Double.NaN : row[sourceColumns[i]];
+							}
+							try {
+								for (double each : newRow) {
+									tempOut.writeDouble(each);
+								}
+								if (newViewWriter != null) {
+									newViewWriter.append(newRow);
+								}
+							} catch (IOException e) {
+								error[0] = e;
+							}
+						}
+					});
+				} finally {
+					reader.close();
+				}
+			} finally {
+				tempOut.close();
+			}
+			if (error[0] != null) {
+				throw error[0];
+			}
+			if (newViewWriter != null) {
+				newViewWriter.flush();
+			}
+		} catch (IOException e) {
+			IOUtils.closeQuietly(newViewWriter);
+			FileUtils.deleteQuietly(temp);
+			throw e;
+		}
+		viewWriter = newViewWriter;
+		// The rename fails on some platforms when the store is opened by a reader.
+		if (!file.delete() || !temp.renameTo(file)) {
+			FileUtils.copyFile(temp, file);
+			FileUtils.deleteQuietly(temp);
+		}
+		this.header = newHeader;
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE));
+		ReportStoreReader reader = ReportStoreReader.open(file);
+		try {
+			this.rollupWriter = RollupWriter.resume(file, reader);
+		} catch (IOException e) {
+			IOUtils.closeQuietly(out);
+			throw e;
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			out.close();
+		} finally {
+			try {
+				rollupWriter.close();
+			} finally {
+				IOUtils.closeQuietly(viewWriter);
+			}
+		}
+	}
+
+	public ReportStoreHeader getHeader() {
+		return header;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reader which serves the downsampled series from the closest rollup written by {@link RollupWriter}.
+ * <p/>
+ * For the given interval, it picks the biggest resolution which divides the interval, aggregates the buckets of that
+ * rollup and reads only the raw rows which are not rolled up yet.
+ *
+ * @since 3.4.1
+ */
+public abstract class RollupReader {
+
+	/**
+	 * Align the given interval to the resolution of the rollup, so that the points can be served only from the
+	 * rollup.
+	 *
+	 * @param interval count of the rows aggregated into a point
+	 * @return aligned interval
+	 */
+	public static int alignInterval(int interval) {
+		for (int i = RollupWriter.RESOLUTIONS.length - 1; i >= 0; i--) {
+			int resolution = RollupWriter.RESOLUTIONS[i];
+			if (interval >= resolution) {
+				return (interval / resolution) * resolution;
+			}
+		}
+		return Math.max(interval, 1);
+	}
+
+	/**
+	 * Read the given column downsampled by the given interval.
+	 *
+	 * @param base     raw file
+	 * @param raw      raw rows
+	 * @param column   column index
+	 * @param interval count of the rows aggregated into a point
+	 * @return downsampled series
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	public static DownsampledSeries read(File base, RowSource raw, final int column, int interval)
+			throws IOException {
+		interval = Math.max(interval, 1);
+		long rawCount = raw.getRowCount();
+		final DownsampledSeries series = new DownsampledSeries(rawCount, interval);
+		long rolledUp = 0;
+		for (int i = RollupWriter.RESOLUTIONS.length - 1; i >= 0; i--) {
+			int resolution = RollupWriter.RESOLUTIONS[i];
+			if (interval % resolution == 0) {
+				rolledUp = readRollup(RollupWriter.getRollupFile(base, resolution), resolution, raw.getColumnCount(),
+						column, rawCount / resolution, series) * resolution;
+				if (rolledUp != 0) {
+					break;
+				}
+			}
+		}
+		raw.scan(rolledUp, rawCount, new RowSource.RowHandler() {
+			@Override
+			public void onRow(long index, double[] row) {
+				series.add(row[column]);
+			}
+		});
+		return series.finish();
+	}
+
+	/**
+	 * Read the buckets of the given rollup into the series.
+	 *
+	 * @param file        rollup file
+	 * @param resolution  resolution of the rollup
+	 * @param columnCount column count of the raw rows
+	 * @param column      column index to read
+	 * @param maxBuckets  max count of buckets to read
+	 * @param series      series into which the buckets are aggregated
+	 * @return the count of read buckets
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	private static long readRollup(File file, final int resolution, int columnCount, final int column,
+	                               long maxBuckets, final DownsampledSeries series) throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.readInt() != RollupWriter.MAGIC || raf.readInt() != RollupWriter.VERSION
+					|| raf.readInt() != resolution || raf.readInt() != columnCount) {
+				return 0;
+			}
+			FileChannel channel = raf.getChannel();
+			int valueCount = columnCount * RollupWriter.VALUES_PER_COLUMN;
+			long buckets = Math.min(RowFiles.getRowCount(channel, RollupWriter.HEADER_SIZE, valueCount), maxBuckets);
+			final int offset = column * RollupWriter.VALUES_PER_COLUMN;
+			RowFiles.scan(channel, RollupWriter.HEADER_SIZE, valueCount, 0, buckets, new RowSource.RowHandler() {
+				@Override
+				public void onRow(long index, double[] row) {
+					series.add(row[offset], row[offset + 1], row[offset + 2], row[offset + 3], resolution);
+				}
+			});
+			return buckets;
+		} finally {
+			IOUtils.closeQuietly(raf);
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writer which maintains the multi resolution rollups of a row file.
+ * <p/>
+ * For each resolution in {@link #RESOLUTIONS}, a rollup file named <code>{base}.r{resolution}</code> keeps one row per
+ * <code>resolution</code> raw rows. Each rollup row has the min, max, sum and the count of the non NaN values per
+ * column. Only complete buckets are written, so the raw rows after the last bucket should be read from the raw file.
+ *
+ * @since 3.4.1
+ */
+public class RollupWriter implements Closeable {
+	/**
+	 * Resolutions of the rollups, in the ascending order.
+	 */
+	static final int[] RESOLUTIONS = {10, 100};
+
+	static final int MAGIC = 0x4E475252; // NGRR
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int VALUES_PER_COLUMN = 4;
+
+	private final int columnCount;
+	private final Level[] levels;
+
+	private RollupWriter(int columnCount, Level[] levels) {
+		this.columnCount = columnCount;
+		this.levels = levels;
+	}
+
+	/**
+	 * Get the rollup file of the given resolution.
+	 *
+	 * @param base       raw file
+	 * @param resolution resolution
+	 * @return rollup file
+	 */
+	public static File getRollupFile(File base, int resolution) {
+		return new File(base.getPath() + ".r" + resolution);
+	}
+
+	/**
+	 * Create the empty rollups of the given raw file. The existing rollups are replaced.
+	 *
+	 * @param base        raw file
+	 * @param columnCount column count of the raw rows
+	 * @return rollup writer
+	 * @throws IOException occurs when the rollup files can not be created.
+	 */
+	public static RollupWriter create(File base, int columnCount) throws IOException {
+		Level[] levels = new Level[RESOLUTIONS.length];
+		try {
+			for (int i = 0; i < RESOLUTIONS.length; i++) {
+				levels[i] = new Level(RESOLUTIONS[i], columnCount, openNew(getRollupFile(base, RESOLUTIONS[i]),
+						RESOLUTIONS[i], columnCount));
+			}
+		} catch (IOException e) {
+			closeLevels(levels);
+			throw e;
+		}
+		return new RollupWriter(columnCount, levels);
+	}
+
+	/**
+	 * Reopen the rollups of the given raw file and restore the partial buckets from the raw rows. When a rollup doesn't
+	 * exist or doesn't match the raw file, it's rebuilt from the raw rows.
+	 *
+	 * @param base raw file
+	 * @param raw  raw rows
+	 * @return rollup writer
+	 * @throws IOException occurs when the rollup files can not be opened.
+	 */
+	public static RollupWriter resume(File base, RowSource raw) throws IOException {
+		final int columnCount = raw.getColumnCount();
+		long rawCount = raw.getRowCount();
+		final Level[] levels = new Level[RESOLUTIONS.length];
+		long replayFrom = rawCount;
+		try {
+			for (int i = 0; i < RESOLUTIONS.length; i++) {
+				int resolution = RESOLUTIONS[i];
+				File file = getRollupFile(base, resolution);
+				long bucketCount = getBucketCount(file, resolution, columnCount);
+				if (bucketCount < 0 || bucketCount * resolution > rawCount) {
+					levels[i] = new Level(resolution, columnCount, openNew(file, resolution, columnCount));
+					bucketCount = 0;
+				} else {
+					levels[i] = new Level(resolution, columnCount, openAppend(file, bucketCount, columnCount));
+				}
+				levels[i].replayFrom = bucketCount * resolution;
+				replayFrom = Math.min(replayFrom, levels[i].replayFrom);
+			}
+			raw.scan(replayFrom, rawCount, new RowSource.RowHandler() {
+				@Override
+				public void onRow(long index, double[] row) {
+					for (Level each : levels) {
+						if (index >= each.replayFrom) {
+							each.add(row);
+						}
+					}
+				}
+			});
+			for (Level each : levels) {
+				if (each.error != null) {
+					throw each.error;
+				}
+			}
+		} catch (IOException e) {
+			closeLevels(levels);
+			throw e;
+		}
+		return new RollupWriter(columnCount, levels);
+	}
+
+	/**
+	 * Get the count of complete buckets in the given rollup file.
+	 *
+	 * @param file        rollup file
+	 * @param resolution  expected resolution
+	 * @param columnCount expected column count
+	 * @return bucket count. -1 if the file doesn't exist or is not valid.
+	 */
+	private static long getBucketCount(File file, int resolution, int columnCount) {
+		if (!file.exists()) {
+			return -1;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != resolution
+					|| in.readInt() != columnCount) {
+				return -1;
+			}
+			return (file.length() - HEADER_SIZE) / getRowWidth(columnCount);
+		} catch (IOException e) {
+			return -1;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	static int getRowWidth(int columnCount) {
+		return columnCount * VALUES_PER_COLUMN * 8;
+	}
+
+	private static DataOutputStream openNew(File file, int resolution, int columnCount) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(resolution);
+		out.writeInt(columnCount);
+		return out;
+	}
+
+	private static DataOutputStream openAppend(File file, long bucketCount, int columnCount) throws IOException {
+		// drop the partially written bucket if exists.
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(HEADER_SIZE + bucketCount * getRowWidth(columnCount));
+		} finally {
+			raf.close();
+		}
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+	}
+
+	private static void closeLevels(Level[] levels) {
+		for (Level each : levels) {
+			if (each != null) {
+				IOUtils.closeQuietly(each.out);
+			}
+		}
+	}
+
+	/**
+	 * Append a raw row.
+	 *
+	 * @param row row values
+	 * @throws IOException occurs when a bucket can not be written.
+	 */
+	public void append(double[] row) throws IOException {
+		for (Level each : levels) {
+			each.add(row);
+			if (each.error != null) {
+				throw each.error;
+			}
+		}
+	}
+
+	/**
+	 * Flush the written buckets.
+	 *
+	 * @throws IOException occurs when the writing is failed.
+	 */
+	public void flush() throws IOException {
+		for (Level each : levels) {
+			each.out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException error = null;
+		for (Level each : levels) {
+			try {
+				each.out.close();
+			} catch (IOException e) {
+				error = e;
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	/**
+	 * Rollup of a resolution.
+	 */
+	private static class Level {
+		private final int resolution;
+		private final DataOutputStream out;
+		private final double[] min;
+		private final double[] max;
+		private final double[] sum;
+		private final double[] count;
+		private final ByteBuffer bucket;
+		private int rows = 0;
+		private long replayFrom = 0;
+		private IOException error;
+
+		Level(int resolution, int columnCount, DataOutputStream out) {
+			this.resolution = resolution;
+			this.out = out;
+			this.min = new double[columnCount];
+			this.max = new double[columnCount];
+			this.sum = new double[columnCount];
+			this.count = new double[columnCount];
+			this.bucket = ByteBuffer.allocate(getRowWidth(columnCount));
+			reset();
+		}
+
+		void add(double[] row) {
+			for (int i = 0; i < row.length; i++) {
+				double value = row[i];
+				if (!Double.isNaN(value)) {
+					min[i] = Double.isNaN(min[i]) ? value : Math.min(min[i], value);
+					max[i] = Double.isNaN(max[i]) ? value : Math.max(max[i], value);
+					sum[i] += value;
+					count[i]++;
+				}
+			}
+			if (++rows == resolution) {
+				emit();
+			}
+		}
+
+		private void emit() {
+			bucket.clear();
+			for (int i = 0; i < min.length; i++) {
+				bucket.putDouble(min[i]).putDouble(max[i]).putDouble(sum[i]).putDouble(count[i]);
+			}
+			try {
+				out.write(bucket.array(), 0, bucket.position());
+			} catch (IOException e) {
+				error = e;
+			}
+			reset();
+		}
+
+		private void reset() {
+			Arrays.fill(min, Double.NaN);
+			Arrays.fill(max, Double.NaN);
+			Arrays.fill(sum, 0);
+			Arrays.fill(count, 0);
+			rows = 0;
+		}
+	}
+}
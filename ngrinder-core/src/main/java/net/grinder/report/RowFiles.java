@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Shared routines to read the fixed-width double rows from a file.
+ *
+ * @since 3.4.1
+ */
+abstract class RowFiles {
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Get the count of complete rows after the given data offset.
+	 *
+	 * @param channel     file channel
+	 * @param dataOffset  offset where the first row starts
+	 * @param columnCount column count of a row
+	 * @return row count
+	 * @throws IOException occurs when the file size is not available.
+	 */
+	static long getRowCount(FileChannel channel, long dataOffset, int columnCount) throws IOException {
+		return Math.max(channel.size() - dataOffset, 0) / (columnCount * 8L);
+	}
+
+	/**
+	 * Scan the rows in the given range sequentially.
+	 *
+	 * @param channel     file channel
+	 * @param dataOffset  offset where the first row starts
+	 * @param columnCount column count of a row
+	 * @param from        start row index (inclusive)
+	 * @param to          end row index (exclusive)
+	 * @param handler     row handler
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	static void scan(FileChannel channel, long dataOffset, int columnCount, long from, long to,
+	                 RowSource.RowHandler handler) throws IOException {
+		int rowWidth = columnCount * 8;
+		int rowsPerRead = Math.max(1, READ_BUFFER_SIZE / rowWidth);
+		ByteBuffer buffer = ByteBuffer.allocate(rowsPerRead * rowWidth);
+		double[] row = new double[columnCount];
+		long index = from;
+		while (index < to) {
+			int rows = (int) Math.min(rowsPerRead, to - index);
+			buffer.clear();
+			buffer.limit(rows * rowWidth);
+			long position = dataOffset + index * rowWidth;
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException("Unexpected end of the row file");
+				}
+			}
+			buffer.flip();
+			for (int i = 0; i < rows; i++) {
+				for (int c = 0; c < columnCount; c++) {
+					row[c] = buffer.getDouble();
+				}
+				handler.onRow(index++, row);
+			}
+		}
+	}
+}
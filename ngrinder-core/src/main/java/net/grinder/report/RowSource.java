@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import java.io.IOException;
+
+/**
+ * Source of the fixed-width numeric rows.
+ *
+ * @since 3.4.1
+ */
+public interface RowSource {
+
+	/**
+	 * Handler called for each row while scanning.
+	 */
+	interface RowHandler {
+		/**
+		 * Called for each row. The given array is reused for the next row.
+		 *
+		 * @param index row index
+		 * @param row   row values
+		 */
+		void onRow(long index, double[] row);
+	}
+
+	/**
+	 * Get the count of the columns in a row.
+	 *
+	 * @return column count
+	 */
+	int getColumnCount();
+
+	/**
+	 * Get the count of the complete rows.
+	 *
+	 * @return row count
+	 * @throws IOException occurs when the row count is not available.
+	 */
+	long getRowCount() throws IOException;
+
+	/**
+	 * Scan the rows in the given range sequentially.
+	 *
+	 * @param from    start row index (inclusive)
+	 * @param to      end row index (exclusive)
+	 * @param handler row handler
+	 * @throws IOException occurs when the reading is failed.
+	 */
+	void scan(long from, long to, RowHandler handler) throws IOException;
+}
@@ -0,0 +1,4 @@
+/**
+ * Binary columnar storage of the per-test report data.
+ */
+package net.grinder.report;
@@ -13,14 +13,18 @@
  */
 package net.grinder.util;
 
+import net.grinder.statistics.BinaryDataLog;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.Enumeration;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -37,7 +41,7 @@ public abstract class LogCompressUtils {
 	public static final Logger LOGGER = LoggerFactory.getLogger(LogCompressUtils.class);
 
 	/**
-	 * Compress multiple Files with the given encoding.
+	 * Compress multiple Files with the given encoding. The binary data logs are compressed as they are.
 	 *
 	 * @param logFiles     files to be compressed
 	 * @param fromEncoding log file encoding
@@ -45,56 +49,75 @@ public abstract class LogCompressUtils {
 	 * @return compressed file byte array
 	 */
 	public static byte[] compress(File[] logFiles, Charset fromEncoding, Charset toEncoding) {
-		FileInputStream fis = null;
-		InputStreamReader isr = null;
-		ByteArrayOutputStream out = null;
-		ZipOutputStream zos = null;
-		OutputStreamWriter osw = null;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			compress(logFiles, out, fromEncoding, toEncoding);
+			return out.toByteArray();
+		} catch (IOException e) {
+			LOGGER.error("Error occurs while compressing log : {} ", e.getMessage());
+			LOGGER.debug("Details : ", e);
+			return null;
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Compress multiple Files into the given {@link OutputStream} with the given encoding. The files are compressed
+	 * while they are read, so the whole content is not kept in memory. The files are copied as they are if the
+	 * encodings are same. The binary data logs are compressed as they are.
+	 *
+	 * @param logFiles     files to be compressed
+	 * @param outputStream output stream into which the compressed file is written. It's not closed.
+	 * @param fromEncoding log file encoding
+	 * @param toEncoding   compressed log file encoding
+	 * @throws IOException occurs when the output stream can not be written
+	 * @since 3.4.1
+	 */
+	public static void compress(File[] logFiles, OutputStream outputStream, Charset fromEncoding,
+	                            Charset toEncoding) throws IOException {
 		if (toEncoding == null) {
 			toEncoding = Charset.defaultCharset();
 		}
 		if (fromEncoding == null) {
 			fromEncoding = Charset.defaultCharset();
 		}
-		try {
-			out = new ByteArrayOutputStream();
-			zos = new ZipOutputStream(out);
-			osw = new OutputStreamWriter(zos, toEncoding);
-			for (File each : logFiles) {
-				try {
-					fis = new FileInputStream(each);
+		ZipOutputStream zos = new ZipOutputStream(new CloseShieldOutputStream(outputStream));
+		OutputStreamWriter osw = new OutputStreamWriter(zos, toEncoding);
+		byte[] byteBuffer = new byte[COMPRESS_BUFFER_SIZE];
+		char[] charBuffer = new char[COMPRESS_BUFFER_SIZE];
+		for (File each : logFiles) {
+			FileInputStream fis = null;
+			InputStreamReader isr = null;
+			try {
+				fis = new FileInputStream(each);
+				ZipEntry zipEntry = new ZipEntry(each.getName());
+				zipEntry.setTime(each.lastModified());
+				zos.putNextEntry(zipEntry);
+				if (isBinaryDataLog(each.getName()) || fromEncoding.equals(toEncoding)) {
+					int count;
+					while ((count = fis.read(byteBuffer)) != -1) {
+						zos.write(byteBuffer, 0, count);
+					}
+				} else {
 					isr = new InputStreamReader(fis, fromEncoding);
-					ZipEntry zipEntry = new ZipEntry(each.getName());
-					zipEntry.setTime(each.lastModified());
-					zos.putNextEntry(zipEntry);
-					char[] buffer = new char[COMPRESS_BUFFER_SIZE];
 					int count;
-					while ((count = isr.read(buffer, 0, COMPRESS_BUFFER_SIZE)) != -1) {
-						osw.write(buffer, 0, count);
+					while ((count = isr.read(charBuffer, 0, COMPRESS_BUFFER_SIZE)) != -1) {
+						osw.write(charBuffer, 0, count);
 					}
 					osw.flush();
-					zos.flush();
-					zos.closeEntry();
-				} catch (IOException e) {
-					LOGGER.error("Error occurs while compressing {} : {}", each.getAbsolutePath(), e.getMessage());
-					LOGGER.debug("Details ", e);
-				} finally {
-					IOUtils.closeQuietly(isr);
-					IOUtils.closeQuietly(fis);
 				}
+				zos.closeEntry();
+			} catch (IOException e) {
+				LOGGER.error("Error occurs while compressing {} : {}", each.getAbsolutePath(), e.getMessage());
+				LOGGER.debug("Details ", e);
+			} finally {
+				IOUtils.closeQuietly(isr);
+				IOUtils.closeQuietly(fis);
 			}
-			zos.finish();
-			zos.flush();
-			return out.toByteArray();
-		} catch (IOException e) {
-			LOGGER.error("Error occurs while compressing log : {} ", e.getMessage());
-			LOGGER.debug("Details : ", e);
-			return null;
-		} finally {
-			IOUtils.closeQuietly(zos);
-			IOUtils.closeQuietly(out);
-			IOUtils.closeQuietly(osw);
 		}
+		zos.finish();
+		zos.close();
 	}
 
 	/**
@@ -139,7 +162,8 @@ public abstract class LogCompressUtils {
 	}
 
 	/**
-	 * Decompress the given the {@link InputStream} into the given {@link OutputStream}.
+	 * Decompress the given the {@link InputStream} into the given {@link OutputStream}. The binary data logs are
+	 * converted into the text data log format.
 	 *
 	 * @param inputStream  input stream of the compressed file
 	 * @param outputStream file to be written
@@ -152,8 +176,16 @@ public abstract class LogCompressUtils {
 			byte[] buffer = new byte[COMPRESS_BUFFER_SIZE];
 			int count;
 			long total = 0;
-			checkNotNull(zipInputStream.getNextEntry(), "In zip, it should have at least one entry");
+			ZipEntry zipEntry = checkNotNull(zipInputStream.getNextEntry(),
+					"In zip, it should have at least one entry");
 			do {
+				if (isBinaryDataLog(zipEntry.getName())) {
+					if (total < limit) {
+						Writer writer = new OutputStreamWriter(new CloseShieldOutputStream(outputStream), "UTF-8");
+						total += BinaryDataLog.convert(zipInputStream, writer, limit - total);
+					}
+					continue;
+				}
 				while ((count = zipInputStream.read(buffer, 0, COMPRESS_BUFFER_SIZE)) != -1) {
 					total += count;
 					if (total >= limit) {
@@ -161,7 +193,7 @@ public abstract class LogCompressUtils {
 					}
 					outputStream.write(buffer, 0, count);
 				}
-			} while (zipInputStream.getNextEntry() != null);
+			} while ((zipEntry = zipInputStream.getNextEntry()) != null);
 			outputStream.flush();
 		} catch (IOException e) {
 			LOGGER.error("Error occurs while decompressing {}", e.getMessage());
@@ -171,4 +203,72 @@ public abstract class LogCompressUtils {
 		}
 	}
 
+	/**
+	 * Check if the given compressed log file contains any binary data log.
+	 *
+	 * @param compressedLog compressed log file
+	 * @return true if it contains the binary data log
+	 */
+	public static boolean containsBinaryDataLog(File compressedLog) {
+		ZipFile zipFile = null;
+		try {
+			zipFile = new ZipFile(compressedLog);
+			Enumeration<? extends ZipEntry> entries = zipFile.entries();
+			while (entries.hasMoreElements()) {
+				if (isBinaryDataLog(entries.nextElement().getName())) {
+					return true;
+				}
+			}
+			return false;
+		} catch (IOException e) {
+			LOGGER.error("Error occurs while reading {} : {}", compressedLog.getAbsolutePath(), e.getMessage());
+			LOGGER.debug("Details : ", e);
+			return false;
+		} finally {
+			if (zipFile != null) {
+				try {
+					zipFile.close();
+				} catch (IOException e) {
+					LOGGER.debug("Error while closing {}", compressedLog.getAbsolutePath(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copy the compressed logs from the given {@link InputStream} into the given {@link OutputStream}, converting
+	 * the binary data logs into the text data logs.
+	 *
+	 * @param inputStream  input stream of the compressed logs
+	 * @param outputStream output stream of the converted compressed logs
+	 * @throws IOException occurs when reading or writing fails
+	 */
+	public static void convertBinaryDataLogs(InputStream inputStream, OutputStream outputStream) throws IOException {
+		ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+		ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream);
+		ZipEntry zipEntry;
+		while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+			String name = zipEntry.getName();
+			boolean binaryDataLog = isBinaryDataLog(name);
+			if (binaryDataLog) {
+				name = name.substring(0, name.length() - BinaryDataLog.FILE_SUFFIX.length()) + "-data.log";
+			}
+			ZipEntry convertedEntry = new ZipEntry(name);
+			convertedEntry.setTime(zipEntry.getTime());
+			zipOutputStream.putNextEntry(convertedEntry);
+			if (binaryDataLog) {
+				BinaryDataLog.convert(zipInputStream, new OutputStreamWriter(
+						new CloseShieldOutputStream(zipOutputStream), "UTF-8"), Long.MAX_VALUE);
+			} else {
+				IOUtils.copy(zipInputStream, zipOutputStream);
+			}
+			zipOutputStream.closeEntry();
+		}
+		zipOutputStream.finish();
+		zipOutputStream.flush();
+	}
+
+	private static boolean isBinaryDataLog(String fileName) {
+		return fileName.endsWith(BinaryDataLog.FILE_SUFFIX);
+	}
 }
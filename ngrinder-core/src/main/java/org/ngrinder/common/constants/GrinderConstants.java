@@ -40,9 +40,15 @@ public interface GrinderConstants {
 	public static final String GRINDER_PROP_THREAD_RAMPUP ="grinder.threadRampUp";
 	public static final String GRINDER_PROP_TEST_ID = "grinder.test.id";
 	public static final String GRINDER_PROP_IGNORE_SAMPLE_COUNT = "grinder.ignoreSampleCount";
+	public static final String GRINDER_PROP_ARRIVAL_RATE = "grinder.arrivalRate";
+	public static final String GRINDER_PROP_COMPACT_STATISTICS = "grinder.compactStatistics";
 	public static final String GRINDER_PROP_SECURITY = "grinder.security";
 	public static final String GRINDER_PROP_USER = "grinder.user";
 	public static final String GRINDER_PROP_ETC_HOSTS = "ngrinder.etc.hosts";
+	public static final String GRINDER_PROP_CONSOLE_ROUTER_PORT = "ngrinder.console.router.port";
+	public static final String GRINDER_PROP_LIGHTWEIGHT_THREAD = "grinder.lightweightThread";
+	public static final String GRINDER_PROP_THREAD_STACK_SIZE = "grinder.threadStackSize";
+	public static final long DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE = 256 * 1024;
 	public static final String DEFAULT_GRINDER_PROPERTIES = "grinder.properties";
 
 }
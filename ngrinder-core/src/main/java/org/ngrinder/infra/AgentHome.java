@@ -98,6 +98,17 @@ public class AgentHome {
 		return file;
 	}
 
+	/**
+	 * Get the directory where the worker processes share the compiled groovy scripts. It's out of the directories
+	 * which the scripts can write.
+	 *
+	 * @return groovy script cache directory
+	 * @since 3.4.1
+	 */
+	public File getGroovyScriptCacheDirectory() {
+		return mkDir(getFile("groovy_script_cache"));
+	}
+
 	/**
 	 * Get temp directory.
 	 *
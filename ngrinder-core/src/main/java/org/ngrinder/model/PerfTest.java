@@ -182,6 +182,14 @@ public class PerfTest extends BaseModel<PerfTest> {
 	@Column(name = "vuser_per_agent")
 	private Integer vuserPerAgent;
 
+	/**
+	 * The target test runs per second of the open model test. 0 means the closed model.
+	 */
+	@Expose
+	@Cloneable
+	@Column(name = "arrival_rate")
+	private Integer arrivalRate;
+
 	@Expose
 	@Cloneable
 	@Column(name = "processes")
@@ -343,6 +351,7 @@ public class PerfTest extends BaseModel<PerfTest> {
 		this.description = getSafe(this.description, "");
 		this.tagString = getSafe(this.tagString, "");
 		this.vuserPerAgent = getSafe(this.vuserPerAgent, 1);
+		this.arrivalRate = getSafe(this.arrivalRate);
 		this.safeDistribution = getSafe(this.safeDistribution, false);
 		this.useRampUp = getSafe(this.useRampUp, false);
 		this.rampUpInitCount = getSafe(this.rampUpInitCount, 0);
@@ -528,6 +537,14 @@ public class PerfTest extends BaseModel<PerfTest> {
 		this.vuserPerAgent = vuserPerAgent;
 	}
 
+	public Integer getArrivalRate() {
+		return arrivalRate;
+	}
+
+	public void setArrivalRate(Integer arrivalRate) {
+		this.arrivalRate = arrivalRate;
+	}
+
 	public Integer getProcesses() {
 		return processes;
 	}
@@ -0,0 +1,453 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.monitor.collector;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reader of the system data from the Linux procfs and the cgroup limits.
+ * <p/>
+ * It doesn't use the native library. The files are kept open and read again from the start into the reusable
+ * buffers, and the numbers are parsed from the bytes, so reading a sample doesn't create any object. When the process
+ * runs in a container which has the memory or cpu limit, the memory and cpu usage are calculated against the limit.
+ * <p/>
+ * It's not thread safe.
+ *
+ * @since 3.4.1
+ */
+final class ProcfsSystemReader implements Closeable {
+	private static final byte[] CPU = "cpu ".getBytes();
+	private static final byte[] MEM_TOTAL = "MemTotal:".getBytes();
+	private static final byte[] MEM_FREE = "MemFree:".getBytes();
+	private static final byte[] MEM_AVAILABLE = "MemAvailable:".getBytes();
+	private static final byte[] BUFFERS = "Buffers:".getBytes();
+	private static final byte[] CACHED = "Cached:".getBytes();
+	private static final byte[] MAX = "max".getBytes();
+	private static final byte[] USAGE_USEC = "usage_usec ".getBytes();
+	private static final byte[] INACTIVE_FILE = "inactive_file ".getBytes();
+	private static final byte[] TOTAL_INACTIVE_FILE = "total_inactive_file ".getBytes();
+
+	private final ProcFile stat;
+	private final ProcFile memInfo;
+	private final ProcFile netDev;
+
+	private final boolean cgroupV2;
+	private final ProcFile memoryLimit;
+	private final ProcFile memoryUsage;
+	private final ProcFile memoryStat;
+	private final ProcFile cpuLimit;
+	private final ProcFile cpuPeriod;
+	private final ProcFile cpuUsage;
+
+	private long cpuTotal;
+	private long cpuIdle;
+	private float cpuUsedPercentage;
+	private long cgroupCpuUsage = -1;
+	private long cgroupCpuTime;
+	private long totalMemory;
+	private long freeMemory;
+	private long received;
+	private long sent;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param root root directory which has proc and sys. It's "/" except the test.
+	 * @throws IOException occurs when the procfs can not be read
+	 */
+	ProcfsSystemReader(File root) throws IOException {
+		stat = ProcFile.open(new File(root, "proc/stat"));
+		memInfo = ProcFile.open(new File(root, "proc/meminfo"));
+		netDev = ProcFile.open(new File(root, "proc/net/dev"));
+		if (stat == null || memInfo == null || netDev == null) {
+			close();
+			throw new IOException("procfs is not available under " + root);
+		}
+		File cgroup = new File(root, "sys/fs/cgroup");
+		cgroupV2 = new File(cgroup, "cgroup.controllers").exists();
+		if (cgroupV2) {
+			memoryLimit = ProcFile.open(new File(cgroup, "memory.max"));
+			memoryUsage = ProcFile.open(new File(cgroup, "memory.current"));
+			memoryStat = ProcFile.open(new File(cgroup, "memory.stat"));
+			cpuLimit = ProcFile.open(new File(cgroup, "cpu.max"));
+			cpuPeriod = null;
+			cpuUsage = ProcFile.open(new File(cgroup, "cpu.stat"));
+		} else {
+			memoryLimit = ProcFile.open(new File(cgroup, "memory/memory.limit_in_bytes"));
+			memoryUsage = ProcFile.open(new File(cgroup, "memory/memory.usage_in_bytes"));
+			memoryStat = ProcFile.open(new File(cgroup, "memory/memory.stat"));
+			cpuLimit = ProcFile.open(new File(cgroup, "cpu/cpu.cfs_quota_us"));
+			cpuPeriod = ProcFile.open(new File(cgroup, "cpu/cpu.cfs_period_us"));
+			cpuUsage = ProcFile.open(new File(cgroup, "cpuacct/cpuacct.usage"));
+		}
+	}
+
+	/**
+	 * Check if the procfs is available under the given root.
+	 *
+	 * @param root root directory
+	 * @return true if available
+	 */
+	static boolean isAvailable(File root) {
+		return new File(root, "proc/stat").canRead() && new File(root, "proc/meminfo").canRead()
+				&& new File(root, "proc/net/dev").canRead();
+	}
+
+	/**
+	 * Read the current system data. The cpu usage is the one since the previous read.
+	 *
+	 * @throws IOException occurs when the files can not be read
+	 */
+	void read() throws IOException {
+		readCpu();
+		readMemory();
+		readNetwork();
+	}
+
+	private void readCpu() throws IOException {
+		stat.read();
+		long total = 0;
+		long idle = 0;
+		if (stat.findLine(CPU)) {
+			// user nice system idle iowait irq softirq steal. guest is included in user.
+			for (int i = 0; i < 8; i++) {
+				long value = stat.nextLong();
+				if (value < 0) {
+					break;
+				}
+				total += value;
+				if (i == 3 || i == 4) {
+					idle += value;
+				}
+			}
+		}
+		long totalDelta = total - cpuTotal;
+		long idleDelta = idle - cpuIdle;
+		cpuTotal = total;
+		cpuIdle = idle;
+		cpuUsedPercentage = totalDelta > 0 ? (float) (totalDelta - idleDelta) * 100 / totalDelta : 0;
+
+		// The cpu usage of the container is calculated against its quota.
+		double cores = getCpuLimit();
+		long usage = getCgroupCpuUsage();
+		long now = System.nanoTime();
+		if (cores > 0 && usage >= 0) {
+			if (cgroupCpuUsage >= 0 && now > cgroupCpuTime) {
+				double percentage = (double) (usage - cgroupCpuUsage) * 100 / ((now - cgroupCpuTime) * cores);
+				cpuUsedPercentage = (float) Math.max(0, Math.min(100, percentage));
+			}
+			cgroupCpuUsage = usage;
+			cgroupCpuTime = now;
+		}
+	}
+
+	/**
+	 * Get the cpu count which the container can use.
+	 *
+	 * @return cpu count. 0 if it's not limited.
+	 */
+	private double getCpuLimit() throws IOException {
+		if (cpuLimit == null || cpuLimit.read() == 0) {
+			return 0;
+		}
+		if (cgroupV2) {
+			// "max 100000" or "<quota> <period>"
+			if (cpuLimit.startsWith(MAX)) {
+				return 0;
+			}
+			long quota = cpuLimit.nextLong();
+			long period = cpuLimit.nextLong();
+			return quota > 0 && period > 0 ? (double) quota / period : 0;
+		}
+		long quota = cpuLimit.nextLong();
+		if (quota <= 0 || cpuPeriod == null || cpuPeriod.read() == 0) {
+			return 0;
+		}
+		long period = cpuPeriod.nextLong();
+		return period > 0 ? (double) quota / period : 0;
+	}
+
+	/**
+	 * Get the cpu time used by the container.
+	 *
+	 * @return cpu time in nanosecond. -1 if it's not available.
+	 */
+	private long getCgroupCpuUsage() throws IOException {
+		if (cpuUsage == null || cpuUsage.read() == 0) {
+			return -1;
+		}
+		if (cgroupV2) {
+			long usage = cpuUsage.findLine(USAGE_USEC) ? cpuUsage.nextLong() : -1;
+			return usage < 0 ? -1 : usage * 1000;
+		}
+		return cpuUsage.nextLong();
+	}
+
+	private void readMemory() throws IOException {
+		memInfo.read();
+		long memTotal = -1;
+		long memFree = -1;
+		long memAvailable = -1;
+		long buffers = 0;
+		long cached = 0;
+		while (memInfo.hasRemaining()) {
+			if (memInfo.startsWith(MEM_TOTAL)) {
+				memTotal = memInfo.nextLong();
+			} else if (memInfo.startsWith(MEM_FREE)) {
+				memFree = memInfo.nextLong();
+			} else if (memInfo.startsWith(MEM_AVAILABLE)) {
+				memAvailable = memInfo.nextLong();
+			} else if (memInfo.startsWith(BUFFERS)) {
+				buffers = memInfo.nextLong();
+			} else if (memInfo.startsWith(CACHED)) {
+				cached = memInfo.nextLong();
+			}
+			memInfo.nextLine();
+		}
+		// in KB
+		totalMemory = memTotal;
+		freeMemory = memAvailable >= 0 ? memAvailable : memFree + buffers + cached;
+
+		long limit = readFirstLong(memoryLimit);
+		if (limit > 0 && limit / 1024 < totalMemory) {
+			long usage = Math.max(readFirstLong(memoryUsage), 0);
+			// The page cache which can be reclaimed is not counted as used like MemAvailable.
+			if (memoryStat != null && memoryStat.read() > 0
+					&& memoryStat.findLine(cgroupV2 ? INACTIVE_FILE : TOTAL_INACTIVE_FILE)) {
+				usage = Math.max(usage - Math.max(memoryStat.nextLong(), 0), 0);
+			}
+			totalMemory = limit / 1024;
+			freeMemory = Math.max(limit - usage, 0) / 1024;
+		}
+	}
+
+	/**
+	 * Read the first number of the file.
+	 *
+	 * @return number. -1 if the file is not available or it's "max".
+	 */
+	private static long readFirstLong(ProcFile file) throws IOException {
+		if (file == null || file.read() == 0 || file.startsWith(MAX)) {
+			return -1;
+		}
+		return file.nextLong();
+	}
+
+	private void readNetwork() throws IOException {
+		netDev.read();
+		long totalReceived = 0;
+		long totalSent = 0;
+		// Skip two header lines.
+		netDev.nextLine();
+		netDev.nextLine();
+		while (netDev.hasRemaining()) {
+			if (netDev.skipInterfaceName()) {
+				// received bytes packets errs drop fifo frame compressed multicast, then sent bytes
+				long receivedBytes = netDev.nextLong();
+				for (int i = 0; i < 7; i++) {
+					netDev.nextLong();
+				}
+				long sentBytes = netDev.nextLong();
+				totalReceived += Math.max(receivedBytes, 0);
+				totalSent += Math.max(sentBytes, 0);
+			}
+			netDev.nextLine();
+		}
+		received = totalReceived;
+		sent = totalSent;
+	}
+
+	long getCpuTotal() {
+		return cpuTotal;
+	}
+
+	long getCpuIdle() {
+		return cpuIdle;
+	}
+
+	float getCpuUsedPercentage() {
+		return cpuUsedPercentage;
+	}
+
+	/**
+	 * Get the total memory.
+	 *
+	 * @return total memory in KB
+	 */
+	long getTotalMemory() {
+		return totalMemory;
+	}
+
+	/**
+	 * Get the available memory.
+	 *
+	 * @return free memory in KB
+	 */
+	long getFreeMemory() {
+		return freeMemory;
+	}
+
+	/**
+	 * Get the bytes received by all interfaces.
+	 *
+	 * @return received bytes
+	 */
+	long getReceived() {
+		return received;
+	}
+
+	/**
+	 * Get the bytes sent by all interfaces.
+	 *
+	 * @return sent bytes
+	 */
+	long getSent() {
+		return sent;
+	}
+
+	@Override
+	public void close() {
+		for (ProcFile each : new ProcFile[]{stat, memInfo, netDev, memoryLimit, memoryUsage, memoryStat, cpuLimit,
+				cpuPeriod, cpuUsage}) {
+			if (each != null) {
+				IOUtils.closeQuietly(each.file);
+			}
+		}
+	}
+
+	/**
+	 * Opened proc file and its content read last. The content is parsed with the cursor in the buffer.
+	 */
+	private static final class ProcFile {
+		private final RandomAccessFile file;
+		private byte[] buffer = new byte[4096];
+		private int length;
+		private int position;
+
+		private ProcFile(RandomAccessFile file) {
+			this.file = file;
+		}
+
+		static ProcFile open(File file) throws IOException {
+			return file.canRead() ? new ProcFile(new RandomAccessFile(file, "r")) : null;
+		}
+
+		/**
+		 * Read the whole content again. The buffer grows only when the content doesn't fit.
+		 *
+		 * @return content length
+		 */
+		int read() throws IOException {
+			file.seek(0);
+			length = 0;
+			position = 0;
+			int read;
+			while ((read = file.read(buffer, length, buffer.length - length)) > 0) {
+				length += read;
+				if (length == buffer.length) {
+					byte[] grown = new byte[buffer.length * 2];
+					System.arraycopy(buffer, 0, grown, 0, length);
+					buffer = grown;
+				}
+			}
+			return length;
+		}
+
+		boolean hasRemaining() {
+			return position < length;
+		}
+
+		/**
+		 * Check if the current line starts with the given prefix. The cursor moves after the prefix if so.
+		 */
+		boolean startsWith(byte[] prefix) {
+			if (position + prefix.length > length) {
+				return false;
+			}
+			for (int i = 0; i < prefix.length; i++) {
+				if (buffer[position + i] != prefix[i]) {
+					return false;
+				}
+			}
+			position += prefix.length;
+			return true;
+		}
+
+		/**
+		 * Move the cursor after the given prefix of the first line starting with it.
+		 */
+		boolean findLine(byte[] prefix) {
+			position = 0;
+			while (hasRemaining()) {
+				if (startsWith(prefix)) {
+					return true;
+				}
+				nextLine();
+			}
+			return false;
+		}
+
+		void nextLine() {
+			while (position < length && buffer[position] != '\n') {
+				position++;
+			}
+			position++;
+		}
+
+		/**
+		 * Move the cursor after the interface name of the /proc/net/dev line.
+		 *
+		 * @return false if it's not an interface line
+		 */
+		boolean skipInterfaceName() {
+			while (position < length && buffer[position] != ':' && buffer[position] != '\n') {
+				position++;
+			}
+			if (position >= length || buffer[position] != ':') {
+				return false;
+			}
+			position++;
+			return true;
+		}
+
+		/**
+		 * Parse the next number in the current line.
+		 *
+		 * @return number. -1 if there is no more number in the line.
+		 */
+		long nextLong() {
+			while (position < length && buffer[position] != '\n' && buffer[position] != '-'
+					&& (buffer[position] < '0' || buffer[position] > '9')) {
+				position++;
+			}
+			if (position >= length || buffer[position] == '\n') {
+				return -1;
+			}
+			boolean negative = buffer[position] == '-';
+			if (negative) {
+				position++;
+			}
+			long value = 0;
+			while (position < length && buffer[position] >= '0' && buffer[position] <= '9') {
+				value = value * 10 + (buffer[position++] - '0');
+			}
+			return negative ? -value : value;
+		}
+	}
+}
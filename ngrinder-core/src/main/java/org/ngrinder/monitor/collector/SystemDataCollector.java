@@ -30,6 +30,9 @@ import java.io.IOException;
 
 /**
  * System data collector class.
+ * <p/>
+ * On Linux, the data is read from the procfs by {@link ProcfsSystemReader} without the native library. Sigar is used
+ * on the other systems.
  *
  * @author Mavlarn
  * @since 2.0
@@ -37,14 +40,24 @@ import java.io.IOException;
 public class SystemDataCollector extends DataCollector implements MonitorConstants {
 	private static final Logger LOGGER = LoggerFactory.getLogger(SystemDataCollector.class);
 
+	private static final File ROOT = new File("/");
+
 	private Sigar sigar = null;
 
+	private ProcfsSystemReader procfsReader = null;
+
 	private SystemInfo prev = null;
 
 	private String[] netInterfaces = new String[]{};
 
 	private File customDataFile = null;
 
+	private long customDataLastModified = 0;
+
+	private long customDataLength = -1;
+
+	private String customData = null;
+
 	/**
 	 * Set Agent Home.
 	 *
@@ -58,6 +71,26 @@ public class SystemDataCollector extends DataCollector implements MonitorConstan
 
 	@Override
 	public synchronized void refresh() {
+		init();
+	}
+
+	private void init() {
+		if (procfsReader != null || sigar != null) {
+			return;
+		}
+		if (ProcfsSystemReader.isAvailable(ROOT)) {
+			try {
+				procfsReader = new ProcfsSystemReader(ROOT);
+				procfsReader.read();
+				prev = new SystemInfo();
+				prev.setBandWidth(getNetworkUsage());
+				return;
+			} catch (Exception e) {
+				LOGGER.info("procfs is not available. sigar is used instead : {}", e.getMessage());
+				IOUtils.closeQuietly(procfsReader);
+				procfsReader = null;
+			}
+		}
 		initSigar();
 	}
 
@@ -76,7 +109,7 @@ public class SystemDataCollector extends DataCollector implements MonitorConstan
 
 	@Override
 	public void run() {
-		initSigar();
+		refresh();
 		SystemMonitoringData systemMonitoringData = (SystemMonitoringData) getMXBean(SYSTEM);
 		systemMonitoringData.setSystemInfo(execute());
 	}
@@ -90,17 +123,28 @@ public class SystemDataCollector extends DataCollector implements MonitorConstan
 		SystemInfo systemInfo = new SystemInfo();
 		systemInfo.setCollectTime(System.currentTimeMillis());
 		try {
-			BandWidth networkUsage = getNetworkUsage();
-			BandWidth bandWidth = networkUsage.adjust(prev.getBandWidth());
-			systemInfo.setBandWidth(bandWidth);
-			systemInfo.setCPUUsedPercentage((float) sigar.getCpuPerc().getCombined() * 100);
-			Cpu cpu = sigar.getCpu();
-			systemInfo.setTotalCpuValue(cpu.getTotal());
-			systemInfo.setIdleCpuValue(cpu.getIdle());
-			Mem mem = sigar.getMem();
-			systemInfo.setTotalMemory(mem.getTotal() / 1024L);
-			systemInfo.setFreeMemory(mem.getActualFree() / 1024L);
-			systemInfo.setSystem(OperatingSystem.IS_WIN32 ? SystemInfo.System.WINDOW : SystemInfo.System.LINUX);
+			if (procfsReader != null) {
+				procfsReader.read();
+				systemInfo.setCPUUsedPercentage(procfsReader.getCpuUsedPercentage());
+				systemInfo.setTotalCpuValue(procfsReader.getCpuTotal());
+				systemInfo.setIdleCpuValue(procfsReader.getCpuIdle());
+				systemInfo.setTotalMemory(procfsReader.getTotalMemory());
+				systemInfo.setFreeMemory(procfsReader.getFreeMemory());
+				systemInfo.setSystem(SystemInfo.System.LINUX);
+				systemInfo.setBandWidth(getNetworkUsage().adjust(prev.getBandWidth()));
+			} else {
+				BandWidth networkUsage = getNetworkUsage();
+				BandWidth bandWidth = networkUsage.adjust(prev.getBandWidth());
+				systemInfo.setBandWidth(bandWidth);
+				systemInfo.setCPUUsedPercentage((float) sigar.getCpuPerc().getCombined() * 100);
+				Cpu cpu = sigar.getCpu();
+				systemInfo.setTotalCpuValue(cpu.getTotal());
+				systemInfo.setIdleCpuValue(cpu.getIdle());
+				Mem mem = sigar.getMem();
+				systemInfo.setTotalMemory(mem.getTotal() / 1024L);
+				systemInfo.setFreeMemory(mem.getActualFree() / 1024L);
+				systemInfo.setSystem(OperatingSystem.IS_WIN32 ? SystemInfo.System.WINDOW : SystemInfo.System.LINUX);
+			}
 			systemInfo.setCustomValues(getCustomMonitorData());
 		} catch (Throwable e) {
 			LOGGER.error("Error while getting system perf data:{}", e.getMessage());
@@ -111,13 +155,18 @@ public class SystemDataCollector extends DataCollector implements MonitorConstan
 	}
 
 	/**
-	 * Get the current network usage.
+	 * Get the current network usage. On Linux, it's the usage read by the last {@link #execute()}.
 	 *
 	 * @return BandWith
 	 * @throws SigarException thrown when the underlying lib is not linked
 	 */
 	public BandWidth getNetworkUsage() throws SigarException {
 		BandWidth bandWidth = new BandWidth(System.currentTimeMillis());
+		if (procfsReader != null) {
+			bandWidth.setReceived(procfsReader.getReceived());
+			bandWidth.setSent(procfsReader.getSent());
+			return bandWidth;
+		}
 		for (String each : netInterfaces) {
 			try {
 				NetInterfaceStat netInterfaceStat = sigar.getNetInterfaceStat(each);
@@ -130,13 +179,25 @@ public class SystemDataCollector extends DataCollector implements MonitorConstan
 		return bandWidth;
 	}
 
+	/**
+	 * Get the first line of the custom data file. The file is read again only when its modified time or length is
+	 * changed.
+	 */
 	private String getCustomMonitorData() {
 		if (customDataFile != null && customDataFile.exists()) {
+			long lastModified = customDataFile.lastModified();
+			long length = customDataFile.length();
+			if (lastModified == customDataLastModified && length == customDataLength) {
+				return customData;
+			}
 			BufferedReader customDataFileReader = null;
 			try {
 				customDataFileReader = new BufferedReader(new FileReader(customDataFile));
-				return customDataFileReader.readLine(); // these data will be parsed at
+				customData = customDataFileReader.readLine(); // these data will be parsed at
 				// monitor client side.
+				customDataLastModified = lastModified;
+				customDataLength = length;
+				return customData;
 			} catch (IOException e) {
 				// Error here is very natural
 				LOGGER.debug("Error to read custom monitor data", e);
@@ -124,8 +124,8 @@ public class MBeanClient {
     }
 
     private JMXConnector connectWithTimeout(final JMXServiceURL jmxUrl, int timeout) throws NGrinderRuntimeException, TimeoutException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
         try {
-            ExecutorService executor = Executors.newSingleThreadExecutor();
             Future<JMXConnector> future = executor.submit(new Callable<JMXConnector>() {
                 public JMXConnector call() throws IOException {
                     return JMXConnectorFactory.connect(jmxUrl);
@@ -137,6 +137,9 @@ public class MBeanClient {
             throw e;
         } catch (Exception e) {
             throw processException(e);
+        } finally {
+            // The connecting thread finishes by itself when it's timed out.
+            executor.shutdown();
         }
 
     }
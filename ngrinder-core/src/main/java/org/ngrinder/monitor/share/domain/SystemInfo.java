@@ -202,6 +202,35 @@ public class SystemInfo extends MonitorInfo implements Serializable {
 		return sb.toString();
 	}
 
+	/**
+	 * Get the record which marks this info is stale because the target is not updated in time. It has the ip, the
+	 * collect time and "STALE" as the system, and the values are null, so that the old values are not recorded as
+	 * the current ones.
+	 *
+	 * @return record string
+	 * @since 3.4.1
+	 */
+	public String toStaleRecordString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(ip).append(",").append("STALE").append(",");
+		sb.append(DateUtils.getCollectTimeInLong(new Date(getCollectTime()))).append(",");
+		sb.append("null").append(",").append("null").append(",").append("null");
+		appendNullValues(sb);
+		return sb.toString();
+	}
+
+	protected void appendNullValues(StringBuilder sb) {
+		if (bandWidth != null) {
+			sb.append(",").append("null").append(",").append("null");
+		}
+		if (customValues != null) {
+			int valueCount = StringUtils.countMatches(customValues, ",") + 1;
+			for (int i = 0; i < valueCount; i++) {
+				sb.append(",").append("null");
+			}
+		}
+	}
+
 
 	public static class NullSystemInfo extends SystemInfo {
 		private static final NullSystemInfo instance = new NullSystemInfo();
@@ -222,15 +251,7 @@ public class SystemInfo extends MonitorInfo implements Serializable {
 			sb.append("null").append(",").append("null").append(",");
 			sb.append("null").append(",").append("null").append(",");
 			sb.append("null").append(",").append("null");
-			if (bandWidth != null) {
-				sb.append(",").append("null").append(",").append("null");
-			}
-			if (customValues != null) {
-				int valueCount = StringUtils.countMatches(customValues, ",") + 1;
-				for (int i = 0; i < valueCount; i++) {
-					sb.append(",").append("null");
-				}
-			}
+			appendNullValues(sb);
 			return sb.toString();
 		}
 
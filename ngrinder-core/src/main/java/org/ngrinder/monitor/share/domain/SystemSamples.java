@@ -0,0 +1,159 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.monitor.share.domain;
+
+import java.io.Serializable;
+
+/**
+ * Ring buffer of the system data samples.
+ * <p/>
+ * The agent keeps the samples collected every second in it, and ships the samples added after the last shipped one
+ * in a batch taken by {@link #getSince(long)}. The controller adds the batches to the buffer of each agent. The
+ * values are kept in the primitive arrays, so the batch is small when it's serialized.
+ *
+ * @since 3.4.1
+ */
+public class SystemSamples implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final long[] collectTime;
+	private final float[] cpuUsedPercentage;
+	private final long[] freeMemory;
+	private final long[] totalMemory;
+	private final long[] receivedPerSec;
+	private final long[] sentPerSec;
+	private int start;
+	private int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity max count of the samples. The oldest one is dropped when it's full.
+	 */
+	public SystemSamples(int capacity) {
+		collectTime = new long[capacity];
+		cpuUsedPercentage = new float[capacity];
+		freeMemory = new long[capacity];
+		totalMemory = new long[capacity];
+		receivedPerSec = new long[capacity];
+		sentPerSec = new long[capacity];
+	}
+
+	/**
+	 * Add the sample. The sample which is not newer than the last one is ignored.
+	 *
+	 * @param systemInfo system info
+	 */
+	public synchronized void add(SystemInfo systemInfo) {
+		BandWidth bandWidth = systemInfo.getBandWidth();
+		add(systemInfo.getCollectTime(), systemInfo.getCPUUsedPercentage(), systemInfo.getFreeMemory(),
+				systemInfo.getTotalMemory(), bandWidth == null ? 0 : bandWidth.getReceivedPerSec(),
+				bandWidth == null ? 0 : bandWidth.getSentPerSec());
+	}
+
+	/**
+	 * Add all samples in the given batch.
+	 *
+	 * @param samples samples
+	 */
+	public void addAll(SystemSamples samples) {
+		SystemSamples copy = samples.getSince(Long.MIN_VALUE);
+		synchronized (this) {
+			for (int i = 0; i < copy.size; i++) {
+				add(copy.collectTime[i], copy.cpuUsedPercentage[i], copy.freeMemory[i], copy.totalMemory[i],
+						copy.receivedPerSec[i], copy.sentPerSec[i]);
+			}
+		}
+	}
+
+	private void add(long time, float cpu, long free, long total, long received, long sent) {
+		if (collectTime.length == 0 || (size > 0 && time <= collectTime[index(size - 1)])) {
+			return;
+		}
+		int index;
+		if (size == collectTime.length) {
+			index = start;
+			start = (start + 1) % collectTime.length;
+		} else {
+			index = index(size++);
+		}
+		collectTime[index] = time;
+		cpuUsedPercentage[index] = cpu;
+		freeMemory[index] = free;
+		totalMemory[index] = total;
+		receivedPerSec[index] = received;
+		sentPerSec[index] = sent;
+	}
+
+	private int index(int i) {
+		return (start + i) % collectTime.length;
+	}
+
+	/**
+	 * Get the samples collected after the given time.
+	 *
+	 * @param time time in millisecond
+	 * @return new samples which has only the samples after the time
+	 */
+	public synchronized SystemSamples getSince(long time) {
+		int from = size;
+		while (from > 0 && collectTime[index(from - 1)] > time) {
+			from--;
+		}
+		SystemSamples samples = new SystemSamples(size - from);
+		for (int i = from; i < size; i++) {
+			int index = index(i);
+			samples.add(collectTime[index], cpuUsedPercentage[index], freeMemory[index], totalMemory[index],
+					receivedPerSec[index], sentPerSec[index]);
+		}
+		return samples;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Get the collect time of the last sample.
+	 *
+	 * @return time in millisecond. 0 if it's empty.
+	 */
+	public synchronized long getLastCollectTime() {
+		return size == 0 ? 0 : collectTime[index(size - 1)];
+	}
+
+	public synchronized long getCollectTime(int i) {
+		return collectTime[index(i)];
+	}
+
+	public synchronized float getCpuUsedPercentage(int i) {
+		return cpuUsedPercentage[index(i)];
+	}
+
+	public synchronized long getFreeMemory(int i) {
+		return freeMemory[index(i)];
+	}
+
+	public synchronized long getTotalMemory(int i) {
+		return totalMemory[index(i)];
+	}
+
+	public synchronized long getReceivedPerSec(int i) {
+		return receivedPerSec[index(i)];
+	}
+
+	public synchronized long getSentPerSec(int i) {
+		return sentPerSec[index(i)];
+	}
+}
@@ -16,6 +16,7 @@ package net.grinder;
 import net.grinder.common.processidentity.WorkerProcessReport;
 import net.grinder.console.communication.ProcessControl.ProcessReports;
 import net.grinder.console.model.SampleModelImplementationEx;
+import net.grinder.statistics.LatencyHistogram;
 import net.grinder.statistics.StatisticExpression;
 import net.grinder.statistics.StatisticsSet;
 import org.junit.Test;
@@ -219,6 +220,7 @@ public class SingleConsoleTest {
 		when(statisticAccumulatedMock.snapshot()).thenReturn(statisticAccumulatedMock);
 		when(exp.getDoubleValue(any(StatisticsSet.class))).thenReturn(3D);
 		when(sampleModelMock.getTPSExpression()).thenReturn(exp);
+		when(sampleModelMock.getTotalIntervalLatency()).thenReturn(new LatencyHistogram());
 
 		singleConsole.update(statisticMock, statisticAccumulatedMock);
 		singleConsole.update(statisticMock, statisticAccumulatedMock);
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.communication;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ConsoleRouterTest {
+	private ServerSocket console;
+	private ConsoleRouter router;
+
+	@Before
+	public void before() throws IOException {
+		// Echo server in place of the console.
+		console = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!console.isClosed()) {
+					try {
+						final Socket socket = console.accept();
+						Thread echo = new Thread(new Runnable() {
+							@Override
+							public void run() {
+								try {
+									IOUtils.copy(socket.getInputStream(), socket.getOutputStream());
+								} catch (IOException e) {
+									IOUtils.closeQuietly(socket);
+								}
+							}
+						});
+						echo.setDaemon(true);
+						echo.start();
+					} catch (IOException e) {
+						return;
+					}
+				}
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+
+		router = new ConsoleRouter("127.0.0.1", 0, 2, new ConsoleRouter.RouteResolver() {
+			@Override
+			public InetSocketAddress resolve(int consolePort) {
+				return consolePort == console.getLocalPort() ? new InetSocketAddress("127.0.0.1", consolePort) : null;
+			}
+		});
+		router.start();
+	}
+
+	@After
+	public void after() throws IOException {
+		router.shutdown();
+		console.close();
+	}
+
+	@Test
+	public void testRelayedConnectionsAreRoutedToConsole() throws IOException {
+		ConsoleRouterRelay relay = new ConsoleRouterRelay("127.0.0.1", router.getPort(), console.getLocalPort());
+		relay.start();
+		try {
+			byte[] data = new byte[100000];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) i;
+			}
+			// The agent and the worker connections of a test.
+			for (int connection = 0; connection < 3; connection++) {
+				Socket socket = new Socket(relay.getHost(), relay.getPort());
+				try {
+					final OutputStream out = socket.getOutputStream();
+					final byte[] sent = data;
+					Thread writer = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								out.write(sent);
+								out.flush();
+							} catch (IOException e) {
+								throw new RuntimeException(e);
+							}
+						}
+					});
+					writer.start();
+					byte[] received = new byte[data.length];
+					new DataInputStream(socket.getInputStream()).readFully(received);
+					assertThat(received, is(data));
+				} finally {
+					socket.close();
+				}
+			}
+		} finally {
+			relay.shutdown();
+		}
+	}
+
+	@Test
+	public void testRelayThreadsDoNotGrowWithConnections() throws IOException {
+		ConsoleRouterRelay relay = new ConsoleRouterRelay("127.0.0.1", router.getPort(), console.getLocalPort());
+		relay.start();
+		List<Socket> sockets = new ArrayList<Socket>();
+		try {
+			for (int connection = 0; connection < 10; connection++) {
+				Socket socket = new Socket(relay.getHost(), relay.getPort());
+				sockets.add(socket);
+				socket.setSoTimeout(10000);
+				socket.getOutputStream().write(connection);
+				assertThat(socket.getInputStream().read(), is(connection));
+			}
+			assertThat(countThreads("console-router-relay-"), is(1));
+		} finally {
+			for (Socket each : sockets) {
+				each.close();
+			}
+			relay.shutdown();
+		}
+	}
+
+	private int countThreads(String namePrefix) {
+		int count = 0;
+		for (Thread each : Thread.getAllStackTraces().keySet()) {
+			if (each.getName().startsWith(namePrefix)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testConnectionToUnknownConsoleIsClosed() throws IOException {
+		ConsoleRouterRelay relay = new ConsoleRouterRelay("127.0.0.1", router.getPort(), 1);
+		relay.start();
+		Socket socket = new Socket(relay.getHost(), relay.getPort());
+		try {
+			socket.setSoTimeout(10000);
+			socket.getOutputStream().write(1);
+			InputStream in = socket.getInputStream();
+			assertThat(in.read(), is(-1));
+		} finally {
+			socket.close();
+			relay.shutdown();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.communication;
+
+import net.grinder.LogUploader;
+import net.grinder.communication.CommunicationException;
+import net.grinder.communication.Message;
+import net.grinder.communication.Sender;
+import net.grinder.engine.communication.LogReportGrinderMessage;
+import net.grinder.engine.controller.AgentControllerIdentityImplementation;
+import net.grinder.messages.console.AgentAddress;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LogUploadReceiverTest {
+	private File directory;
+
+	@Before
+	public void before() {
+		directory = new File(System.getProperty("java.io.tmpdir"), "log_upload_" + System.nanoTime());
+		directory.mkdirs();
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteQuietly(directory);
+	}
+
+	@Test
+	public void testUploadResumedAfterDisconnection() throws IOException, InterruptedException {
+		// Random content is not compressed, so it's sent in many chunks.
+		Random random = new Random(1);
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 60000; i++) {
+			content.append(Long.toHexString(random.nextLong())).append('\n');
+		}
+		File log = new File(directory, "agent.log");
+		FileUtils.writeStringToFile(log, content.toString());
+
+		final File saved = new File(directory, "saved/agent-log.zip");
+		final CountDownLatch arrived = new CountDownLatch(1);
+		final LogUploadReceiver receiver = new LogUploadReceiver();
+		receiver.setLogArrivedListener(new LogArrivedListener() {
+			@Override
+			public File getLogFile(String testId, AgentAddress agentAddress) {
+				return saved;
+			}
+
+			@Override
+			public void logArrived(String testId, AgentAddress agentAddress, File logFile) {
+				arrived.countDown();
+			}
+		});
+
+		final LogUploader uploader = new LogUploader(new File(directory, "spool"),
+				new AgentAddress(new AgentControllerIdentityImplementation("agent", "127.0.0.1")));
+		final AtomicInteger sent = new AtomicInteger();
+		Sender sender = new Sender() {
+			@Override
+			public void send(Message message) throws CommunicationException {
+				// The connection is lost in the middle of the upload.
+				if (sent.incrementAndGet() == 5) {
+					throw new CommunicationException("Connection is lost");
+				}
+				uploader.acknowledged(receiver.receive((LogReportGrinderMessage) message));
+			}
+
+			@Override
+			public void shutdown() {
+			}
+		};
+		uploader.connected(sender);
+		assertThat(uploader.upload("test_1", new File[]{log}), is(true));
+
+		long deadline = System.currentTimeMillis() + 10000;
+		while (!arrived.await(100, TimeUnit.MILLISECONDS) && System.currentTimeMillis() < deadline) {
+			uploader.connected(sender);
+		}
+		uploader.shutdown();
+		assertThat(arrived.getCount(), is(0L));
+		assertThat(new File(saved.getPath() + LogUploadReceiver.PART_EXTENSION).exists(), is(false));
+
+		ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(saved));
+		try {
+			ZipEntry zipEntry = zipInputStream.getNextEntry();
+			assertThat(zipEntry.getName(), is("agent.log"));
+			assertThat(IOUtils.toString(zipInputStream), is(content.toString()));
+		} finally {
+			IOUtils.closeQuietly(zipInputStream);
+		}
+	}
+}
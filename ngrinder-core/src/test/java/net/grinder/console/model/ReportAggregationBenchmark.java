@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.model;
+
+import net.grinder.common.AbstractTestSemantics;
+import net.grinder.common.Test;
+import net.grinder.statistics.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the test report ingestion throughput of {@link TestReportStripes} with the single monitor aggregation
+ * which SampleModelImplementationEx used before. Each benchmark thread plays an agent which keeps sending reports.
+ * <p/>
+ * Run {@link #main(String[])} to measure with 1, 10, 50 and 100 agents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportAggregationBenchmark {
+	private static final int TEST_COUNT = 10;
+
+	private StatisticsSetFactory statisticsSetFactory;
+	private TestReportStripes stripes;
+	private Map<Test, StatisticsSet> monitorAccumulators;
+
+	@Setup
+	public void setUp() {
+		statisticsSetFactory = StatisticsServicesImplementation.getInstance().getStatisticsSetFactory();
+		stripes = new TestReportStripes(statisticsSetFactory);
+		monitorAccumulators = new HashMap<Test, StatisticsSet>();
+		for (int i = 0; i < TEST_COUNT; i++) {
+			monitorAccumulators.put(new BenchmarkTest(i), statisticsSetFactory.create());
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Agent {
+		private TestStatisticsMap report;
+
+		@Setup
+		public void setUp() {
+			final StatisticsServices services = StatisticsServicesImplementation.getInstance();
+			final StatisticsIndexMap.LongSampleIndex timedTests = services.getStatisticsIndexMap()
+					.getLongSampleIndex("timedTests");
+			report = new TestStatisticsMap(services.getStatisticsSetFactory());
+			for (int i = 0; i < TEST_COUNT; i++) {
+				final StatisticsSet statistics = services.getStatisticsSetFactory().create();
+				statistics.addSample(timedTests, 10 + i);
+				report.put(new BenchmarkTest(i), statistics);
+			}
+		}
+	}
+
+	@Benchmark
+	public void striped(Agent agent) {
+		stripes.add(agent.report);
+	}
+
+	@Benchmark
+	public void singleMonitor(Agent agent) {
+		(agent.report.new ForEach() {
+			public void next(Test test, StatisticsSet statistics) {
+				synchronized (monitorAccumulators) {
+					monitorAccumulators.get(test).add(statistics);
+				}
+			}
+		}).iterate();
+	}
+
+	@TearDown(Level.Iteration)
+	public void drain() {
+		stripes.swap();
+	}
+
+	private static final class BenchmarkTest extends AbstractTestSemantics {
+		private final int number;
+
+		private BenchmarkTest(int number) {
+			this.number = number;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public String getDescription() {
+			return "test " + number;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int agents : new int[]{1, 10, 50, 100}) {
+			Options options = new OptionsBuilder()
+					.include(ReportAggregationBenchmark.class.getSimpleName())
+					.threads(agents)
+					.build();
+			new Runner(options).run();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.console.model;
+
+import net.grinder.common.AbstractTestSemantics;
+import net.grinder.common.Test;
+import net.grinder.statistics.*;
+import org.junit.Before;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestReportStripesTest {
+	private StatisticsSetFactory statisticsSetFactory;
+	private StatisticsIndexMap.LongSampleIndex timedTests;
+	private final Test test = new StubTest(1);
+
+	@Before
+	public void before() {
+		StatisticsServices services = StatisticsServicesImplementation.getInstance();
+		statisticsSetFactory = services.getStatisticsSetFactory();
+		timedTests = services.getStatisticsIndexMap().getLongSampleIndex("timedTests");
+	}
+
+	@org.junit.Test
+	public void testSwapMergesAllThreads() throws Exception {
+		final TestReportStripes stripes = new TestReportStripes(statisticsSetFactory, 4);
+		final int threadCount = 8;
+		final int reportCount = 1000;
+		final CountDownLatch done = new CountDownLatch(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			new Thread() {
+				public void run() {
+					for (int j = 0; j < reportCount; j++) {
+						stripes.add(newReport());
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		done.await();
+
+		TestReportStripes.Epoch epoch = stripes.swap();
+		assertThat(epoch.getStatistics().get(test).getCount(timedTests), is((long) threadCount * reportCount));
+		assertThat(epoch.isComposite(test), is(false));
+		assertThat(stripes.swap().getStatistics().isEmpty(), is(true));
+	}
+
+	@org.junit.Test
+	public void testLatencies() {
+		TestReportStripes stripes = new TestReportStripes(statisticsSetFactory, 2);
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(10);
+		stripes.addLatencies(Collections.singletonMap(1, histogram));
+		histogram = new LatencyHistogram();
+		histogram.record(20);
+		stripes.addLatencies(Collections.singletonMap(1, histogram));
+		assertThat(stripes.swap().getLatencies().get(1).getTotalCount(), is(2L));
+
+		stripes.addLatencies(Collections.singletonMap(1, histogram));
+		stripes.clear();
+		assertThat(stripes.swap().getLatencies().isEmpty(), is(true));
+	}
+
+	private TestStatisticsMap newReport() {
+		TestStatisticsMap report = new TestStatisticsMap(statisticsSetFactory);
+		StatisticsSet statistics = statisticsSetFactory.create();
+		statistics.addSample(timedTests, 10);
+		report.put(test, statistics);
+		return report;
+	}
+
+	private static final class StubTest extends AbstractTestSemantics {
+		private final int number;
+
+		private StubTest(int number) {
+			this.number = number;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public String getDescription() {
+			return "test " + number;
+		}
+	}
+}
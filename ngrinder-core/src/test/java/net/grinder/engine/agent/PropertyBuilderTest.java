@@ -16,6 +16,7 @@ package net.grinder.engine.agent;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
 import java.io.File;
@@ -51,6 +52,18 @@ public class PropertyBuilderTest {
 		assertThat(builder.length(), greaterThan(20));
 	}
 
+	@Test
+	public void testDnsCacheOptions() throws DirectoryException {
+		PropertyBuilder createPropertyBuilder = createPropertyBuilder("www.sample.com,:127.0.0.1");
+		createPropertyBuilder.addProperties("ngrinder.dns.cache.maxTtl", "60");
+		createPropertyBuilder.addProperties("ngrinder.dns.cache.roundRobin", "false");
+		createPropertyBuilder.addProperties("grinder.processes", "10");
+		String options = createPropertyBuilder.addDnsCacheOptions(new StringBuilder()).toString();
+		assertThat(options, containsString("-Dngrinder.dns.cache.maxTtl=60"));
+		assertThat(options, containsString("-Dngrinder.dns.cache.roundRobin=false"));
+		assertThat(options, not(containsString("grinder.processes")));
+	}
+
 	@Test
 	public void testPropertyBuilderMemSize() throws DirectoryException {
 		System.setProperty("java.library.path", System.getProperty("java.library.path") + File.pathSeparator
@@ -62,6 +75,18 @@ public class PropertyBuilderTest {
 		assertThat(buildJVMArgument, containsString("-Xmx"));
 	}
 
+	@Test
+	public void testLightweightThreadStackIsExcludedFromHeap() throws DirectoryException {
+		PropertyBuilder createPropertyBuilder = createPropertyBuilder("www.sample.com,:127.0.0.1");
+		createPropertyBuilder.addProperties("grinder.threads", "1024");
+		long memory = 1024L * 1024 * 1024;
+		assertThat(createPropertyBuilder.getDesirableXmx(memory), is(512L * 1024 * 1024));
+
+		createPropertyBuilder.addProperties("grinder.lightweightThread", "true");
+		// 1024 threads of 256KB stack
+		assertThat(createPropertyBuilder.getDesirableXmx(memory), is(384L * 1024 * 1024));
+	}
+
 	public PropertyBuilder createPropertyBuilder(String hostString) throws DirectoryException {
 		Directory directory = new Directory(new File("."));
 		GrinderProperties property = new GrinderProperties();
@@ -0,0 +1,38 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.agent;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class WorkerProcessPoolTest {
+	@Test
+	public void testGetMaxHeapSize() {
+		assertThat(WorkerProcessPool.getMaxHeapSize(Arrays.asList("java", "-Xms512m", "-Xmx512m", "Main")), is(512L));
+		assertThat(WorkerProcessPool.getMaxHeapSize(Arrays.asList("java", "-Xmx1g", "-Xmx2G")), is(2048L));
+		assertThat(WorkerProcessPool.getMaxHeapSize(Arrays.asList("java", "-Xmx262144k")), is(256L));
+		assertThat(WorkerProcessPool.getMaxHeapSize(Arrays.asList("java", "-Xmx", "-Xmxm", "Main")), is(0L));
+	}
+
+	@Test
+	public void testDisabledPool() {
+		WorkerProcessPool pool = new WorkerProcessPool(0, 0);
+		assertThat(pool.isEnabled(), is(false));
+		pool.shutdown();
+	}
+}
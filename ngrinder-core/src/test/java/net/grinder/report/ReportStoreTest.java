@@ -0,0 +1,244 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.report;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ReportStoreTest {
+	private File reportDir;
+
+	@Before
+	public void before() throws IOException {
+		reportDir = new File(FileUtils.getTempDirectory(), "report_store_" + System.nanoTime());
+		FileUtils.forceMkdir(reportDir);
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteQuietly(reportDir);
+	}
+
+	private ReportStoreHeader createHeader() {
+		return new ReportStoreHeader(3000, Arrays.asList("Tests", "TPS", "Peak_TPS"), Arrays.asList(1, 2),
+				Arrays.asList("first test", "second test"));
+	}
+
+	private File writeStore() throws IOException {
+		File storeFile = ReportStoreHeader.getReportStoreFile(reportDir);
+		ReportStoreWriter writer = new ReportStoreWriter(storeFile, createHeader());
+		for (int i = 0; i < 10; i++) {
+			writer.append(new double[]{System.currentTimeMillis(), 10, i, i * 2, i * 3, i, i, i, 0, 0, 0});
+		}
+		writer.append(new double[]{System.currentTimeMillis(), 10, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+				Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN});
+		writer.close();
+		return storeFile;
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		File storeFile = writeStore();
+		ReportStoreReader reader = ReportStoreReader.open(storeFile);
+		try {
+			ReportStoreHeader header = reader.getHeader();
+			assertThat(header.getSamplingInterval(), is(3000));
+			assertThat(header.getColumns().size(), is(11));
+			assertThat(header.getColumnIndex("TPS-2_second_test"), is(9));
+			assertThat(reader.getRowCount(), is(11L));
+			double[] tps = reader.readColumn(header.getColumnIndex("TPS"), 1).getAvg();
+			assertThat(tps.length, is(11));
+			assertThat(tps[3], is(6D));
+			DownsampledSeries tests = reader.readColumn(header.getColumnIndex("Tests"), 5);
+			assertThat(ReportStoreReader.toJson(tests.getAvg()), is("[2,7,null]"));
+			assertThat(ReportStoreReader.toJson(tests.getMax()), is("[4,9,null]"));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testRollupKeepsPeak() throws IOException {
+		File storeFile = ReportStoreHeader.getReportStoreFile(reportDir);
+		ReportStoreWriter writer = new ReportStoreWriter(storeFile, createHeader());
+		for (int i = 0; i < 1005; i++) {
+			double tps = (i == 555) ? 9999 : 10;
+			writer.append(new double[]{i, 10, 1, tps, tps, 1, tps, tps, 1, tps, tps});
+		}
+		writer.close();
+		assertThat(RollupWriter.getRollupFile(storeFile, 100).exists(), is(true));
+
+		ReportStoreReader reader = ReportStoreReader.open(storeFile);
+		try {
+			DownsampledSeries series = reader.readColumn(reader.getHeader().getColumnIndex("TPS"), 100);
+			// 10 points from the rollup and the last point from the raw rows
+			assertThat(series.getMax().length, is(11));
+			assertThat(series.getMax()[5], is(9999D));
+			assertThat(series.getMin()[5], is(10D));
+			assertThat(series.getAvg()[4], is(10D));
+			assertThat(series.getAvg()[10], is(10D));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testDataFileIndex() throws IOException {
+		File dataFile = new File(reportDir, "monitor.data");
+		StringBuilder builder = new StringBuilder("ip,cpu\n");
+		for (int i = 0; i < 250; i++) {
+			builder.append("127.0.0.1,").append(i == 120 ? "null" : String.valueOf(i)).append("\n");
+		}
+		FileUtils.writeStringToFile(dataFile, builder.toString());
+		DataFileIndex index = DataFileIndex.open(dataFile, true, 2);
+		try {
+			assertThat(index.getRowCount(), is(250L));
+			DownsampledSeries series = index.readColumn(1, 10);
+			assertThat(series.getMax().length, is(25));
+			assertThat(series.getMax()[12], is(129D));
+			assertThat(series.getMin()[12], is(121D));
+		} finally {
+			index.close();
+		}
+
+		FileUtils.writeStringToFile(dataFile, builder.toString() + "127.0.0.1,250\n127.0.0.1,2");
+		index = DataFileIndex.open(dataFile, true, 2);
+		try {
+			// the last line is not terminated yet.
+			assertThat(index.getRowCount(), is(251L));
+		} finally {
+			index.close();
+		}
+	}
+
+	@Test
+	public void testAsyncWriter() throws IOException {
+		File storeFile = ReportStoreHeader.getReportStoreFile(reportDir);
+		AsyncReportStoreWriter writer = new AsyncReportStoreWriter(new ReportStoreWriter(storeFile, createHeader()),
+				"report writer test", 16, 4, 10);
+		for (int i = 0; i < 1000; i++) {
+			writer.append(new double[]{i, 10, i, i, i, i, i, i, i, i, i});
+		}
+		writer.close();
+		assertThat(writer.getWrittenRowCount(), is(1000L));
+		assertThat(writer.getQueueDepth(), is(0));
+
+		ReportStoreReader reader = ReportStoreReader.open(storeFile);
+		try {
+			assertThat(reader.getRowCount(), is(1000L));
+			assertThat(reader.readColumn(reader.getHeader().getColumnIndex("TPS"), 1).getAvg()[999], is(999D));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testChangeHeader() throws IOException {
+		File storeFile = ReportStoreHeader.getReportStoreFile(reportDir);
+		ReportStoreHeader singleTestHeader = new ReportStoreHeader(3000, Arrays.asList("Tests", "TPS", "Peak_TPS"),
+				Collections.<Integer>emptyList(), Collections.<String>emptyList());
+		AsyncReportStoreWriter writer = new AsyncReportStoreWriter(new ReportStoreWriter(storeFile, singleTestHeader),
+				"report writer test", 16, 4, 10);
+		for (int i = 0; i < 150; i++) {
+			writer.append(new double[]{i, 10, i, i, i});
+		}
+		// The second test is registered after the first sampling.
+		writer.changeHeader(createHeader());
+		assertThat(writer.getHeader().getColumns().size(), is(11));
+		for (int i = 150; i < 250; i++) {
+			writer.append(new double[]{i, 10, i, i, i, 1, 1, 1, 2, 2, 2});
+		}
+		writer.close();
+		assertThat(writer.getWrittenRowCount(), is(250L));
+
+		ReportStoreReader reader = ReportStoreReader.open(storeFile);
+		try {
+			ReportStoreHeader header = reader.getHeader();
+			assertThat(header.getColumns().size(), is(11));
+			assertThat(reader.getRowCount(), is(250L));
+			double[] tps = reader.readColumn(header.getColumnIndex("TPS"), 1).getAvg();
+			assertThat(tps[149], is(149D));
+			assertThat(tps[249], is(249D));
+			double[] secondTps = reader.readColumn(header.getColumnIndex("TPS-2_second_test"), 1).getAvg();
+			assertThat(Double.isNaN(secondTps[149]), is(true));
+			assertThat(secondTps[150], is(2D));
+			// The rollup is rebuilt in the new layout.
+			assertThat(reader.readColumn(header.getColumnIndex("TPS"), 100).getMax()[1], is(199D));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testViewsWrittenWithStore() throws IOException {
+		File storeFile = ReportStoreHeader.getReportStoreFile(reportDir);
+		ReportStoreHeader singleTestHeader = new ReportStoreHeader(3000, Arrays.asList("Tests", "TPS", "Peak_TPS"),
+				Collections.<Integer>emptyList(), Collections.<String>emptyList());
+		ReportStoreWriter writer = new ReportStoreWriter(storeFile, singleTestHeader, reportDir, ",");
+		for (int i = 0; i < 5; i++) {
+			writer.append(new double[]{System.currentTimeMillis(), 10, i, i, i});
+		}
+		writer.flush();
+		// The views are available before the store is closed.
+		assertThat(FileUtils.readLines(new File(reportDir, "TPS.data")).size(), is(5));
+		assertThat(FileUtils.readLines(new File(reportDir, ReportStoreConverter.REPORT_CSV)).size(), is(6));
+
+		writer.changeHeader(createHeader());
+		writer.append(new double[]{System.currentTimeMillis(), 10, 5, 5, 5, 1, 1, 1, 2, 2, 2});
+		writer.flush();
+		List<String> secondTps = FileUtils.readLines(new File(reportDir, "TPS-2_second_test.data"));
+		assertThat(secondTps.size(), is(6));
+		assertThat(secondTps.get(0), is("null"));
+		assertThat(secondTps.get(5), is("2"));
+		List<String> csv = FileUtils.readLines(new File(reportDir, ReportStoreConverter.REPORT_CSV));
+		assertThat(csv.size(), is(7));
+		assertThat(csv.get(0), is("DateTime,vuser,Tests,TPS,Description,Tests-1,TPS-1,Description,Tests-2,TPS-2"));
+		writer.close();
+		assertThat(FileUtils.readLines(new File(reportDir, "TPS.data")).size(), is(6));
+	}
+
+	@Test(expected = IOException.class)
+	public void testAsyncWriterAfterClose() throws IOException {
+		AsyncReportStoreWriter writer = new AsyncReportStoreWriter(new ReportStoreWriter(
+				ReportStoreHeader.getReportStoreFile(reportDir), createHeader()), "report writer test");
+		writer.close();
+		writer.append(new double[11]);
+	}
+
+	@Test
+	public void testExport() throws IOException {
+		ReportStoreConverter.export(writeStore(), reportDir, ",");
+		List<String> tps = FileUtils.readLines(new File(reportDir, "TPS.data"));
+		assertThat(tps.size(), is(11));
+		assertThat(tps.get(10), is("null"));
+		assertThat(FileUtils.readLines(new File(reportDir, "Vuser.data")).get(10), is("10"));
+		assertThat(new File(reportDir, "TPS-1_first_test.data").exists(), is(true));
+		assertThat(new File(reportDir, "Peak_TPS-1_first_test.data").exists(), is(false));
+		List<String> csv = FileUtils.readLines(new File(reportDir, ReportStoreConverter.REPORT_CSV));
+		// The gap row is not exported into the csv file.
+		assertThat(csv.size(), is(11));
+		assertThat(csv.get(0), is("DateTime,vuser,Tests,TPS,Description,Tests-1,TPS-1,Description,Tests-2,TPS-2"));
+	}
+}
@@ -13,12 +13,15 @@
  */
 package net.grinder.util;
 
+import net.grinder.statistics.BinaryDataLog;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.Charset;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
@@ -38,4 +41,36 @@ public class LogCompressUtilTest {
 		assertThat(unzippedContent, is(FileUtils.readFileToByteArray(file)));
 	}
 
+	@Test
+	public void testBinaryDataLogConversion() throws IOException {
+		File binaryDataLog = File.createTempFile("worker", BinaryDataLog.FILE_SUFFIX);
+		binaryDataLog.deleteOnExit();
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(binaryDataLog));
+		BinaryDataLog.writeHeader(out, new String[]{"Test time"}, new boolean[]{false});
+		out.writeInt(0);
+		out.writeInt(1);
+		out.writeInt(101);
+		out.writeLong(1000L);
+		out.writeLong(15L);
+		out.close();
+
+		byte[] zippedContent = LogCompressUtils.compress(new File[]{binaryDataLog});
+		File zipFile = File.createTempFile("log", ".zip");
+		zipFile.deleteOnExit();
+		FileUtils.writeByteArrayToFile(zipFile, zippedContent);
+		assertThat(LogCompressUtils.containsBinaryDataLog(zipFile), is(true));
+
+		String text = "Thread, Run, Test, Start time (ms since Epoch), Test time\n0, 1, 101, 1000, 15\n";
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		LogCompressUtils.decompress(new ByteArrayInputStream(zippedContent), decompressed, Long.MAX_VALUE);
+		assertThat(decompressed.toString("UTF-8"), is(text));
+
+		ByteArrayOutputStream converted = new ByteArrayOutputStream();
+		LogCompressUtils.convertBinaryDataLogs(new ByteArrayInputStream(zippedContent), converted);
+		ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(converted.toByteArray()));
+		ZipEntry zipEntry = zipInputStream.getNextEntry();
+		assertThat(zipEntry.getName().endsWith("-data.log"), is(true));
+		assertThat(IOUtils.toString(zipInputStream, "UTF-8"), is(text));
+	}
+
 }
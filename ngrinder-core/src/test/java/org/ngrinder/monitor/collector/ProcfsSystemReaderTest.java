@@ -0,0 +1,114 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.monitor.collector;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ProcfsSystemReaderTest {
+	private File root;
+
+	@Before
+	public void before() throws IOException {
+		root = new File(System.getProperty("java.io.tmpdir"), "procfs_" + System.nanoTime());
+		writeStat(100, 900);
+		write("proc/meminfo", "MemTotal:        8000000 kB\nMemFree:          1000000 kB\n"
+				+ "MemAvailable:     3000000 kB\nBuffers:           100000 kB\nCached:           500000 kB\n");
+		write("proc/net/dev", "Inter-|   Receive                                                |  Transmit\n"
+				+ " face |bytes    packets errs drop fifo frame compressed multicast|bytes    packets errs drop fifo colls carrier compressed\n"
+				+ "    lo:    1000      10    0    0    0     0          0         0     1000      10    0    0    0     0       0          0\n"
+				+ "  eth0:    2000      20    0    0    0     0          0         0     3000      30    0    0    0     0       0          0\n");
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteQuietly(root);
+	}
+
+	private void writeStat(long user, long idle) throws IOException {
+		write("proc/stat", "cpu  " + user + " 0 0 " + idle + " 0 0 0 0 0 0\ncpu0 " + user + " 0 0 " + idle
+				+ " 0 0 0 0 0 0\nintr 1234\n");
+	}
+
+	private void write(String path, String content) throws IOException {
+		FileUtils.writeStringToFile(new File(root, path), content);
+	}
+
+	@Test
+	public void testRead() throws IOException {
+		ProcfsSystemReader reader = new ProcfsSystemReader(root);
+		try {
+			reader.read();
+			assertThat(reader.getCpuTotal(), is(1000L));
+			assertThat(reader.getCpuIdle(), is(900L));
+			assertThat(reader.getTotalMemory(), is(8000000L));
+			assertThat(reader.getFreeMemory(), is(3000000L));
+			assertThat(reader.getReceived(), is(3000L));
+			assertThat(reader.getSent(), is(4000L));
+
+			// The file is read again on the same handle.
+			writeStat(400, 1600);
+			reader.read();
+			assertThat(reader.getCpuTotal(), is(2000L));
+			assertThat(reader.getCpuUsedPercentage(), is(30f));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testCgroupMemoryLimit() throws IOException {
+		write("sys/fs/cgroup/cgroup.controllers", "cpu memory\n");
+		write("sys/fs/cgroup/memory.max", "2097152000\n");
+		write("sys/fs/cgroup/memory.current", "1048576000\n");
+		write("sys/fs/cgroup/memory.stat", "anon 100\nfile 200\ninactive_file 524288000\n");
+		ProcfsSystemReader reader = new ProcfsSystemReader(root);
+		try {
+			reader.read();
+			assertThat(reader.getTotalMemory(), is(2048000L));
+			assertThat(reader.getFreeMemory(), is(1536000L));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testUnlimitedCgroup() throws IOException {
+		write("sys/fs/cgroup/cgroup.controllers", "cpu memory\n");
+		write("sys/fs/cgroup/memory.max", "max\n");
+		write("sys/fs/cgroup/cpu.max", "max 100000\n");
+		ProcfsSystemReader reader = new ProcfsSystemReader(root);
+		try {
+			reader.read();
+			assertThat(reader.getTotalMemory(), is(8000000L));
+			assertThat(reader.getFreeMemory(), is(3000000L));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAvailable() throws IOException {
+		assertThat(ProcfsSystemReader.isAvailable(new File(root, "none")), is(false));
+		new ProcfsSystemReader(new File(root, "none"));
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.monitor.share.domain;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SystemSamplesTest {
+
+	private SystemInfo createSystemInfo(long time, float cpu) {
+		SystemInfo systemInfo = new SystemInfo();
+		systemInfo.setCollectTime(time);
+		systemInfo.setCPUUsedPercentage(cpu);
+		systemInfo.setFreeMemory(time * 10);
+		systemInfo.setTotalMemory(10000);
+		return systemInfo;
+	}
+
+	@Test
+	public void testRing() {
+		SystemSamples samples = new SystemSamples(3);
+		for (int i = 1; i <= 5; i++) {
+			samples.add(createSystemInfo(i, i));
+		}
+		assertThat(samples.size(), is(3));
+		assertThat(samples.getCollectTime(0), is(3L));
+		assertThat(samples.getFreeMemory(2), is(50L));
+		assertThat(samples.getLastCollectTime(), is(5L));
+
+		// The older one is ignored.
+		samples.add(createSystemInfo(4, 4));
+		assertThat(samples.getLastCollectTime(), is(5L));
+		assertThat(samples.size(), is(3));
+	}
+
+	@Test
+	public void testGetSince() {
+		SystemSamples samples = new SystemSamples(10);
+		for (int i = 1; i <= 5; i++) {
+			samples.add(createSystemInfo(i, i));
+		}
+		SystemSamples batch = samples.getSince(3);
+		assertThat(batch.size(), is(2));
+		assertThat(batch.getCollectTime(0), is(4L));
+		assertThat(batch.getCpuUsedPercentage(1), is(5f));
+		assertThat(samples.getSince(5).size(), is(0));
+
+		SystemSamples received = new SystemSamples(10);
+		received.addAll(samples.getSince(0));
+		received.addAll(batch);
+		assertThat(received.size(), is(5));
+		assertThat(received.getLastCollectTime(), is(5L));
+	}
+}
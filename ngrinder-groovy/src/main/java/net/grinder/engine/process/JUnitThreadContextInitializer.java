@@ -112,7 +112,7 @@ public class JUnitThreadContextInitializer {
 				properties.setInt("grinder.threads", 1);
 				properties.setBoolean("grinder.logData", false);
 				final ThreadContextImplementation threadContext = new ThreadContextImplementation(properties,
-						m_statisticsServices, 0, LOGGER);
+						m_statisticsServices, 0, LOGGER, null, null, null);
 				m_threadContexts.threadCreated(threadContext);
 				m_threadContexts.threadStarted(threadContext);
 				threadContext.registerThreadLifeCycleListener(new SkeletonThreadLifeCycleListener() {
@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.scriptengine.groovy;
+
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.tools.GroovyClass;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Class bytes compiled from a groovy script and the groovy sources it refers.
+ *
+ * @since 3.4.1
+ */
+final class CompiledScript {
+	private final String mainClassName;
+	private final Map<String, byte[]> classes;
+
+	CompiledScript(String mainClassName, Map<String, byte[]> classes) {
+		this.mainClassName = mainClassName;
+		this.classes = Collections.unmodifiableMap(classes);
+	}
+
+	/**
+	 * Compile the given script.
+	 *
+	 * @param script        script file
+	 * @param configuration compiler configuration
+	 * @param loader        class loader which resolves the classes and sources referred by the script
+	 * @return compiled script
+	 */
+	static CompiledScript compile(File script, CompilerConfiguration configuration, GroovyClassLoader loader) {
+		final CompilationUnit unit = new CompilationUnit(configuration, null, loader);
+		final SourceUnit source = unit.addSource(script);
+		unit.compile(Phases.CLASS_GENERATION);
+		final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+		for (Object each : unit.getClasses()) {
+			final GroovyClass groovyClass = (GroovyClass) each;
+			classes.put(groovyClass.getName(), groovyClass.getBytes());
+		}
+		// The first class of the script is what GroovyClassLoader#parseClass returns.
+		return new CompiledScript(source.getAST().getClasses().get(0).getName(), classes);
+	}
+
+	String getMainClassName() {
+		return mainClassName;
+	}
+
+	Map<String, byte[]> getClasses() {
+		return classes;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeUTF(mainClassName);
+		out.writeInt(classes.size());
+		for (Map.Entry<String, byte[]> each : classes.entrySet()) {
+			out.writeUTF(each.getKey());
+			out.writeInt(each.getValue().length);
+			out.write(each.getValue());
+		}
+	}
+
+	static CompiledScript read(DataInputStream in) throws IOException {
+		final String mainClassName = in.readUTF();
+		final int count = in.readInt();
+		final Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+		for (int i = 0; i < count; i++) {
+			final String name = in.readUTF();
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			classes.put(name, bytes);
+		}
+		if (!classes.containsKey(mainClassName)) {
+			throw new IOException("The main class " + mainClassName + " is missing");
+		}
+		return new CompiledScript(mainClassName, classes);
+	}
+}
@@ -0,0 +1,392 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.scriptengine.groovy;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.nio.channels.FileLock;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the {@link CompiledScript}s shared by the worker processes on an agent.
+ * <p/>
+ * The cache is keyed by the hash of the script, the groovy sources and the libraries in the script directory, the
+ * groovy version and the class path, so that the changed distribution or agent compiles the script again. A worker
+ * process compiles the script while holding the file lock of the key, and the other processes wait for it and read
+ * the result instead of compiling the same script.
+ * <p/>
+ * The cached classes are defined in the workers of all users. The directory is in the agent home, and the security
+ * manager allows only this class to access it until {@link #close()} is called. Each entry is signed with the HMAC
+ * key kept in the directory, and the entry whose signature doesn't match is compiled again. The entries not used for
+ * a week or over the size limit are evicted when a new entry is written.
+ *
+ * @since 3.4.1
+ */
+final class CompiledScriptCache {
+	/**
+	 * System property of the cache directory. The agent sets it like python.cachedir of jython.
+	 */
+	static final String SYSTEM_PROP_CACHE_DIR = "ngrinder.groovy.cachedir";
+
+	/**
+	 * Name of the {@link RuntimePermission} by which the security manager closes the cache.
+	 */
+	static final String CLOSE_PERMISSION = "closeGroovyScriptCache";
+
+	static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+	static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+	private static final int FORMAT_VERSION = 2;
+	private static final String CACHE_SUFFIX = ".classes";
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String KEY_FILE = "cache.key";
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+	private static final int KEY_SIZE = 32;
+
+	private final File directory;
+	private final long maxSize;
+	private final long maxAge;
+
+	CompiledScriptCache(File directory) {
+		this(directory, DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory cache directory
+	 * @param maxSize   max total size of the entries in byte
+	 * @param maxAge    max time in millisecond from the last use of an entry
+	 */
+	CompiledScriptCache(File directory, long maxSize, long maxAge) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Get the cache on the directory given by {@link #SYSTEM_PROP_CACHE_DIR}.
+	 *
+	 * @return cache. null if the directory is not given or not available.
+	 */
+	static CompiledScriptCache getDefault() {
+		final String path = System.getProperty(SYSTEM_PROP_CACHE_DIR);
+		if (path == null || path.trim().isEmpty()) {
+			return null;
+		}
+		final File directory = new File(path.trim());
+		return directory.isDirectory() && directory.canWrite() ? new CompiledScriptCache(directory) : null;
+	}
+
+	/**
+	 * Close the cache for the rest of the process, so that the script loaded after it can not access the cache.
+	 */
+	static void close() {
+		final SecurityManager securityManager = System.getSecurityManager();
+		if (securityManager != null) {
+			try {
+				securityManager.checkPermission(new RuntimePermission(CLOSE_PERMISSION));
+			} catch (SecurityException e) {
+				// The other security manager doesn't know the cache.
+			}
+		}
+	}
+
+	/**
+	 * Get the compiled script from the cache, or compile and put it if the cache doesn't have it.
+	 *
+	 * @param script        script file
+	 * @param baseDirectory script base directory which contains the groovy sources and the lib directory
+	 * @param configuration compiler configuration
+	 * @param loader        class loader which resolves the classes and sources referred by the script
+	 * @return compiled script
+	 * @throws IOException occurs when the cache can not be accessed
+	 */
+	CompiledScript get(File script, File baseDirectory, CompilerConfiguration configuration,
+	                   GroovyClassLoader loader) throws IOException {
+		final String key = getKey(script, baseDirectory);
+		final File cacheFile = new File(directory, key + CACHE_SUFFIX);
+		// The file lock is held by the JVM, so the threads in a process are serialized here.
+		synchronized (CompiledScriptCache.class) {
+			final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, key + LOCK_SUFFIX), "rw");
+			try {
+				final FileLock lock = lockFile.getChannel().lock();
+				try {
+					final Mac mac = createMac();
+					if (cacheFile.exists()) {
+						try {
+							final CompiledScript compiledScript = read(cacheFile, mac);
+							//noinspection ResultOfMethodCallIgnored
+							cacheFile.setLastModified(System.currentTimeMillis());
+							return compiledScript;
+						} catch (IOException e) {
+							// Broken or not signed by this agent. Compile it again.
+						}
+					}
+					final CompiledScript compiledScript = CompiledScript.compile(script, configuration, loader);
+					write(compiledScript, cacheFile, mac);
+					evict(cacheFile);
+					return compiledScript;
+				} finally {
+					lock.release();
+				}
+			} finally {
+				lockFile.close();
+			}
+		}
+	}
+
+	/**
+	 * Read the entry. The classes are returned only when the signature of the entry matches.
+	 */
+	private static CompiledScript read(File cacheFile, Mac mac) throws IOException {
+		final byte[] content;
+		final byte[] signature = new byte[mac.getMacLength()];
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+		try {
+			if (in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unknown format of " + cacheFile);
+			}
+			final int length = in.readInt();
+			if (length < 0 || length > cacheFile.length()) {
+				throw new IOException("Broken length of " + cacheFile);
+			}
+			content = new byte[length];
+			in.readFully(content);
+			in.readFully(signature);
+		} finally {
+			in.close();
+		}
+		if (!MessageDigest.isEqual(mac.doFinal(content), signature)) {
+			throw new IOException("Signature mismatch of " + cacheFile);
+		}
+		return CompiledScript.read(new DataInputStream(new ByteArrayInputStream(content)));
+	}
+
+	private static void write(CompiledScript compiledScript, File cacheFile, Mac mac) throws IOException {
+		final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		final DataOutputStream contentOut = new DataOutputStream(content);
+		compiledScript.write(contentOut);
+		contentOut.flush();
+		final byte[] bytes = content.toByteArray();
+
+		final File temp = File.createTempFile(cacheFile.getName(), TEMP_SUFFIX, cacheFile.getParentFile());
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			out.write(mac.doFinal(bytes));
+		} finally {
+			out.close();
+		}
+		//noinspection ResultOfMethodCallIgnored
+		cacheFile.delete();
+		if (!temp.renameTo(cacheFile)) {
+			//noinspection ResultOfMethodCallIgnored
+			temp.delete();
+			throw new IOException("Failed to write " + cacheFile);
+		}
+	}
+
+	/**
+	 * Create the MAC with the key of this cache. The key is created when it doesn't exist.
+	 */
+	private Mac createMac() throws IOException {
+		try {
+			final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(new SecretKeySpec(getSecretKey(), MAC_ALGORITHM));
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private byte[] getSecretKey() throws IOException {
+		final File keyFile = new File(directory, KEY_FILE);
+		final RandomAccessFile lockFile = new RandomAccessFile(new File(directory, KEY_FILE + LOCK_SUFFIX), "rw");
+		try {
+			final FileLock lock = lockFile.getChannel().lock();
+			try {
+				final byte[] key = new byte[KEY_SIZE];
+				if (keyFile.length() == KEY_SIZE) {
+					final DataInputStream in = new DataInputStream(new FileInputStream(keyFile));
+					try {
+						in.readFully(key);
+					} finally {
+						in.close();
+					}
+					return key;
+				}
+				new SecureRandom().nextBytes(key);
+				final OutputStream out = new FileOutputStream(keyFile);
+				try {
+					out.write(key);
+				} finally {
+					out.close();
+				}
+				return key;
+			} finally {
+				lock.release();
+			}
+		} finally {
+			lockFile.close();
+		}
+	}
+
+	/**
+	 * Delete the entries which are not used in the max age, and then the least recently used entries over the max
+	 * size. The given entry which is just written is kept.
+	 *
+	 * @param written entry just written
+	 */
+	void evict(File written) {
+		final File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		final long expired = System.currentTimeMillis() - maxAge;
+		final List<File> entries = new ArrayList<File>();
+		long size = 0;
+		for (File each : files) {
+			final String name = each.getName();
+			if (name.endsWith(CACHE_SUFFIX) && !each.equals(written)) {
+				if (each.lastModified() < expired) {
+					delete(each);
+				} else {
+					entries.add(each);
+					size += each.length();
+				}
+			} else if (name.endsWith(TEMP_SUFFIX) && each.lastModified() < expired) {
+				// Left by the process which is killed while writing.
+				//noinspection ResultOfMethodCallIgnored
+				each.delete();
+			}
+		}
+		size += written.length();
+		if (size <= maxSize) {
+			return;
+		}
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File o1, File o2) {
+				final long diff = o1.lastModified() - o2.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (File each : entries) {
+			if (size <= maxSize) {
+				break;
+			}
+			size -= each.length();
+			delete(each);
+		}
+	}
+
+	private static void delete(File cacheFile) {
+		final String name = cacheFile.getName();
+		//noinspection ResultOfMethodCallIgnored
+		cacheFile.delete();
+		//noinspection ResultOfMethodCallIgnored
+		new File(cacheFile.getParentFile(), name.substring(0, name.length() - CACHE_SUFFIX.length())
+				+ LOCK_SUFFIX).delete();
+	}
+
+	/**
+	 * Get the cache key of the given script.
+	 *
+	 * @param script        script file
+	 * @param baseDirectory script base directory
+	 * @return hex string of the hash
+	 * @throws IOException occurs when the files can not be read
+	 */
+	static String getKey(File script, File baseDirectory) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		update(digest, String.valueOf(FORMAT_VERSION));
+		update(digest, GroovySystem.getVersion());
+		update(digest, System.getProperty("java.class.path", ""));
+		update(digest, script);
+
+		final List<File> sources = new ArrayList<File>();
+		collect(baseDirectory, true, false, sources);
+		final String basePath = baseDirectory.getAbsolutePath();
+		for (File each : sources) {
+			update(digest, each.getAbsolutePath().substring(basePath.length()));
+			update(digest, each);
+		}
+
+		final StringBuilder key = new StringBuilder();
+		for (byte each : digest.digest()) {
+			key.append(Character.forDigit((each >> 4) & 0xf, 16)).append(Character.forDigit(each & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Collect the groovy sources under the directory and all files under the lib directory in the path order.
+	 */
+	private static void collect(File directory, boolean base, boolean inLib, List<File> files) {
+		final File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (File each : children) {
+			if (each.isDirectory()) {
+				collect(each, false, inLib || (base && "lib".equals(each.getName())), files);
+			} else if (inLib || each.getName().endsWith(".groovy")) {
+				files.add(each);
+			}
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) throws UnsupportedEncodingException {
+		digest.update(value.getBytes("UTF-8"));
+		digest.update((byte) 0);
+	}
+
+	private static void update(MessageDigest digest, File file) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		digest.update((byte) 0);
+	}
+}
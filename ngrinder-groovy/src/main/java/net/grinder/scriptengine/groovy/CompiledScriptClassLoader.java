@@ -0,0 +1,60 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.scriptengine.groovy;
+
+import groovy.lang.GroovyClassLoader;
+import org.codehaus.groovy.control.CompilerConfiguration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link GroovyClassLoader} which defines the classes of {@link CompiledScript} when they are loaded first.
+ *
+ * @since 3.4.1
+ */
+class CompiledScriptClassLoader extends GroovyClassLoader {
+	// Guarded by this.
+	private final Map<String, byte[]> classes = new HashMap<String, byte[]>();
+
+	CompiledScriptClassLoader(ClassLoader parent, CompilerConfiguration configuration) {
+		super(parent, configuration, true);
+	}
+
+	/**
+	 * Load the main class of the given compiled script.
+	 *
+	 * @param compiledScript compiled script
+	 * @return main class
+	 * @throws ClassNotFoundException occurs when the main class can not be defined
+	 */
+	Class<?> loadScript(CompiledScript compiledScript) throws ClassNotFoundException {
+		synchronized (this) {
+			classes.putAll(compiledScript.getClasses());
+		}
+		return loadClass(compiledScript.getMainClassName());
+	}
+
+	@Override
+	protected Class<?> findClass(String name) throws ClassNotFoundException {
+		final byte[] bytes;
+		synchronized (this) {
+			bytes = classes.remove(name);
+		}
+		if (bytes != null) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+		return super.findClass(name);
+	}
+}
@@ -13,7 +13,6 @@
  */
 package net.grinder.scriptengine.groovy;
 
-import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovySystem;
 import net.grinder.engine.common.EngineException;
 import net.grinder.engine.common.ScriptLocation;
@@ -57,9 +56,9 @@ public class GroovyScriptEngine implements ScriptEngine {
 		final ClassLoader parent = getClass().getClassLoader();
 		CompilerConfiguration configuration = new CompilerConfiguration();
 		configuration.setSourceEncoding("UTF-8");
-		final GroovyClassLoader loader = new GroovyClassLoader(parent, configuration, true);
+		final CompiledScriptClassLoader loader = new CompiledScriptClassLoader(parent, configuration);
 		try {
-			m_groovyClass = loader.parseClass(script.getFile());
+			m_groovyClass = loader.loadScript(compile(script, configuration, loader));
 			m_grinderRunner = new GrinderContextExecutor(m_groovyClass);
 			m_grinderRunner.runBeforeProcess();
 			assert m_grinderRunner.testCount() > 0;
@@ -72,6 +71,27 @@ public class GroovyScriptEngine implements ScriptEngine {
 		}
 	}
 
+	/**
+	 * Compile the script. The classes compiled by the other worker process are taken from {@link CompiledScriptCache}
+	 * if it's available. The cache is closed before the script is loaded.
+	 */
+	private static CompiledScript compile(ScriptLocation script, CompilerConfiguration configuration,
+	                                      CompiledScriptClassLoader loader) throws IOException {
+		try {
+			final CompiledScriptCache cache = CompiledScriptCache.getDefault();
+			if (cache != null) {
+				return cache.get(script.getFile(), script.getDirectory().getFile(), configuration, loader);
+			}
+		} catch (IOException e) {
+			noOp(); // Compile it without the cache.
+		} catch (SecurityException e) {
+			noOp(); // The security manager doesn't allow the cache.
+		} finally {
+			CompiledScriptCache.close();
+		}
+		return CompiledScript.compile(script.getFile(), configuration, loader);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,447 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.util;
+
+import net.grinder.script.Grinder;
+import net.grinder.script.InternalScriptContext;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test data feeder which gives the lines of a data file to the worker threads.
+ * <p/>
+ * The data file and the index of the line offsets are memory mapped, so a large file costs the page cache shared by
+ * the worker processes instead of the heap of each process. The index is built by the first process and kept in the
+ * temp directory, where each data file has only the index of its current content. The index which is not used for
+ * {@link #MAX_UNUSED_TIME} is deleted. The cursors are kept in an atomic variable or a thread local, so the threads
+ * don't block each other.
+ * <p/>
+ * <code>
+ * import static net.grinder.util.GrinderUtils.*
+ * import static net.grinder.util.DataFeeder.Mode.*
+ * ...
+ * def users = feeder("./resources/users.txt", PARTITION_BY_THREAD)
+ * ...
+ * def user = users.next()
+ * </code>
+ *
+ * @see GrinderUtils#feeder(String, Mode)
+ * @since 3.4.1
+ */
+@SuppressWarnings("UnusedDeclaration")
+public final class DataFeeder {
+
+	/**
+	 * The way to select the next line.
+	 */
+	public enum Mode {
+		/**
+		 * Any line on every call.
+		 */
+		RANDOM,
+		/**
+		 * The lines in order. The threads in a process share the cursor, which goes back to the first line at the end.
+		 */
+		SEQUENTIAL,
+		/**
+		 * The fixed line of each thread, which is selected by {@link GrinderUtils#getThreadUniqId()}.
+		 */
+		UNIQUE,
+		/**
+		 * The lines in order from the partition of each agent. The processes in an agent take the lines in turn.
+		 */
+		PARTITION_BY_AGENT,
+		/**
+		 * The lines in order from the partition of each process. The threads in a process share the cursor.
+		 */
+		PARTITION_BY_PROCESS,
+		/**
+		 * The lines in order from the partition of each thread. A line is used by only one thread in the test.
+		 */
+		PARTITION_BY_THREAD
+	}
+
+	private static final int FORMAT_VERSION = 1;
+	private static final String INDEX_DIRECTORY = "ngrinder_feeder";
+	static final long MAX_UNUSED_TIME = TimeUnit.DAYS.toMillis(7);
+
+	private final File m_file;
+	private final Mode m_mode;
+	private final MappedRegions m_data;
+	private final MappedRegions m_index;
+	private final long m_size;
+
+	private final AtomicLong m_cursor = new AtomicLong();
+	private final ThreadLocal<long[]> m_threadCursor = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+	private final ThreadLocal<Random> m_random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	private DataFeeder(File file, Mode mode, MappedRegions data, MappedRegions index) {
+		m_file = file;
+		m_mode = mode;
+		m_data = data;
+		m_index = index;
+		m_size = index.size() / 8 - 1;
+	}
+
+	/**
+	 * Open the feeder of the given file. The index of the file is built if it's not built yet.
+	 *
+	 * @param file data file which has a data in each line
+	 * @param mode the way to select the next line
+	 * @return feeder
+	 * @throws IOException occurs when the file can not be read or the index can not be built
+	 */
+	public static DataFeeder open(File file, Mode mode) throws IOException {
+		File indexDirectory = new File(System.getProperty("java.io.tmpdir"), INDEX_DIRECTORY);
+		return open(file, mode, indexDirectory);
+	}
+
+	static DataFeeder open(File file, Mode mode, File indexDirectory) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getAbsolutePath() + " doesn't exist");
+		}
+		MappedRegions data = new MappedRegions(file);
+		MappedRegions index = new MappedRegions(getIndex(file, indexDirectory));
+		return new DataFeeder(file, mode, data, index);
+	}
+
+	public File getFile() {
+		return m_file;
+	}
+
+	public Mode getMode() {
+		return m_mode;
+	}
+
+	/**
+	 * Get the number of the lines.
+	 *
+	 * @return line count
+	 */
+	public long size() {
+		return m_size;
+	}
+
+	/**
+	 * Get the line at the given index.
+	 *
+	 * @param index line index from 0
+	 * @return line without the line separator
+	 */
+	public String get(long index) {
+		if (index < 0 || index >= m_size) {
+			throw new IndexOutOfBoundsException("index " + index + " is out of " + m_size + " lines");
+		}
+		long start = m_index.getLong(index * 8);
+		long end = m_index.getLong((index + 1) * 8) - 1;
+		if (end > start && m_data.get(end - 1) == '\r') {
+			end--;
+		}
+		byte[] line = new byte[(int) (end - start)];
+		m_data.get(start, line);
+		try {
+			return new String(line, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the next line in the mode of this feeder. It should be called in the worker thread.
+	 *
+	 * @return line without the line separator
+	 */
+	public String next() {
+		return next(Position.current());
+	}
+
+	String next(Position position) {
+		if (m_size == 0) {
+			throw new NoSuchElementException(m_file.getAbsolutePath() + " has no line");
+		}
+		switch (m_mode) {
+			case RANDOM:
+				return get((long) (m_random.get().nextDouble() * m_size));
+			case SEQUENTIAL:
+				return get(m_cursor.getAndIncrement() % m_size);
+			case UNIQUE:
+				return get(position.getThreadUniqId() % m_size);
+			case PARTITION_BY_AGENT:
+				return get(partition(position.m_agentNumber, position.m_agentCount,
+						m_cursor.getAndIncrement() * position.m_processCount + position.m_processNumber));
+			case PARTITION_BY_PROCESS:
+				return get(partition(position.m_agentNumber * position.m_processCount + position.m_processNumber,
+						position.m_agentCount * position.m_processCount, m_cursor.getAndIncrement()));
+			case PARTITION_BY_THREAD:
+				return get(partition(position.getThreadUniqId(), position.getTotalThreadCount(),
+						m_threadCursor.get()[0]++));
+			default:
+				throw new IllegalStateException("Unknown mode " + m_mode);
+		}
+	}
+
+	/**
+	 * Get the line index at the cursor in the given partition. When the partitions are more than the lines, each
+	 * partition has the line at its number.
+	 */
+	private long partition(long partition, long partitionCount, long cursor) {
+		long start = m_size * partition / partitionCount;
+		long end = m_size * (partition + 1) / partitionCount;
+		if (start == end) {
+			return partition % m_size;
+		}
+		return start + cursor % (end - start);
+	}
+
+	/**
+	 * Get the index file of the data file, or build it if it doesn't exist. The index has the start offset of each
+	 * line and the end of the last line plus one.
+	 * <p/>
+	 * The index is named by the digest of the data file path and the length and the modification time of the data
+	 * file. When a new index is built for the changed data file, the index of the previous content is deleted. A
+	 * process which still maps it keeps reading it where the platform allows the deletion, and it's deleted later
+	 * where it doesn't.
+	 */
+	private static File getIndex(File file, File indexDirectory) throws IOException {
+		if (!indexDirectory.isDirectory() && !indexDirectory.mkdirs()) {
+			throw new IOException("Can not create " + indexDirectory);
+		}
+		String pathKey = getPathKey(file);
+		File indexFile = new File(indexDirectory, pathKey + "-" + Long.toHexString(file.length()) + "-"
+				+ Long.toHexString(file.lastModified()) + ".index");
+		File lock = new File(indexDirectory, pathKey + ".lock");
+		// The file lock is held by the JVM, so the threads in a process are serialized here.
+		synchronized (DataFeeder.class) {
+			RandomAccessFile lockFile = new RandomAccessFile(lock, "rw");
+			try {
+				FileLock fileLock = lockFile.getChannel().lock();
+				try {
+					long now = System.currentTimeMillis();
+					if (!indexFile.exists()) {
+						buildIndex(file, indexFile);
+						deleteIndexes(indexDirectory, pathKey, indexFile);
+					}
+					//noinspection ResultOfMethodCallIgnored
+					indexFile.setLastModified(now);
+					//noinspection ResultOfMethodCallIgnored
+					lock.setLastModified(now);
+				} finally {
+					fileLock.release();
+				}
+			} finally {
+				lockFile.close();
+			}
+			deleteUnusedFiles(indexDirectory);
+			return indexFile;
+		}
+	}
+
+	/**
+	 * Delete the other indexes of the same data file.
+	 */
+	private static void deleteIndexes(File indexDirectory, String pathKey, File indexFile) {
+		File[] files = indexDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File each : files) {
+			String name = each.getName();
+			if (name.startsWith(pathKey + "-") && name.endsWith(".index") && !each.equals(indexFile)) {
+				//noinspection ResultOfMethodCallIgnored
+				each.delete();
+			}
+		}
+	}
+
+	/**
+	 * Delete the indexes and the lock files which are not used for {@link #MAX_UNUSED_TIME}, and the temp files left
+	 * by the failed builds. The indexes and the lock files in use are touched on every open.
+	 */
+	private static void deleteUnusedFiles(File indexDirectory) {
+		File[] files = indexDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		long expired = System.currentTimeMillis() - MAX_UNUSED_TIME;
+		for (File each : files) {
+			if (each.isFile() && each.lastModified() < expired) {
+				//noinspection ResultOfMethodCallIgnored
+				each.delete();
+			}
+		}
+	}
+
+	private static void buildIndex(File file, File indexFile) throws IOException {
+		File temp = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+		InputStream in = new FileInputStream(file);
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536));
+			try {
+				byte[] buffer = new byte[65536];
+				long position = 0;
+				long lineStart = 0;
+				out.writeLong(lineStart);
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					for (int i = 0; i < read; i++) {
+						if (buffer[i] == '\n') {
+							lineStart = position + i + 1;
+							out.writeLong(lineStart);
+						}
+					}
+					position += read;
+				}
+				if (position > lineStart) {
+					// The last line without the line separator.
+					out.writeLong(position + 1);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		if (!temp.renameTo(indexFile)) {
+			throw new IOException("Failed to write " + indexFile);
+		}
+	}
+
+	private static String getPathKey(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		String source = FORMAT_VERSION + ":" + file.getCanonicalPath();
+		StringBuilder key = new StringBuilder();
+		for (byte each : digest.digest(source.getBytes("UTF-8"))) {
+			key.append(Character.forDigit((each >> 4) & 0xf, 16)).append(Character.forDigit(each & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Position of the worker thread in the test.
+	 */
+	static final class Position {
+		private final int m_agentNumber;
+		private final int m_processNumber;
+		private final int m_threadNumber;
+		private final int m_agentCount;
+		private final int m_processCount;
+		private final int m_threadCount;
+
+		Position(int agentNumber, int processNumber, int threadNumber, int agentCount, int processCount,
+		         int threadCount) {
+			m_agentNumber = agentNumber;
+			m_processNumber = processNumber;
+			m_threadNumber = threadNumber;
+			m_agentCount = agentCount;
+			m_processCount = processCount;
+			m_threadCount = threadCount;
+		}
+
+		static Position current() {
+			InternalScriptContext grinder = GrinderUtils.getGrinderInstance();
+			return new Position(Math.max(grinder.getAgentNumber(), 0), grinder.getProcessNumber(),
+					grinder.getThreadNumber(), GrinderUtils.getAgentCount(), GrinderUtils.getProcessCount(),
+					GrinderUtils.getThreadCount());
+		}
+
+		long getThreadUniqId() {
+			return ((long) m_agentNumber * m_processCount + m_processNumber) * m_threadCount + m_threadNumber;
+		}
+
+		long getTotalThreadCount() {
+			return (long) m_agentCount * m_processCount * m_threadCount;
+		}
+	}
+
+	/**
+	 * Read only mapping of a file. The file is mapped in the regions of 1GB because a mapping can not be larger than
+	 * 2GB.
+	 */
+	private static final class MappedRegions {
+		private static final long REGION_SIZE = 1L << 30;
+
+		private final MappedByteBuffer[] m_regions;
+		private final long m_size;
+
+		MappedRegions(File file) throws IOException {
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				m_size = channel.size();
+				m_regions = new MappedByteBuffer[(int) ((m_size + REGION_SIZE - 1) / REGION_SIZE)];
+				for (int i = 0; i < m_regions.length; i++) {
+					long position = i * REGION_SIZE;
+					m_regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(REGION_SIZE, m_size - position));
+				}
+			} finally {
+				// The mapping is valid after the channel is closed.
+				randomAccessFile.close();
+			}
+		}
+
+		long size() {
+			return m_size;
+		}
+
+		byte get(long position) {
+			return m_regions[(int) (position / REGION_SIZE)].get((int) (position % REGION_SIZE));
+		}
+
+		/**
+		 * Get the long at the position. The position should be a multiple of 8, so that it's not split into the
+		 * regions.
+		 */
+		long getLong(long position) {
+			return m_regions[(int) (position / REGION_SIZE)].getLong((int) (position % REGION_SIZE));
+		}
+
+		void get(long position, byte[] destination) {
+			int offset = 0;
+			while (offset < destination.length) {
+				ByteBuffer region = m_regions[(int) (position / REGION_SIZE)].duplicate();
+				region.position((int) (position % REGION_SIZE));
+				int length = Math.min(region.remaining(), destination.length - offset);
+				region.get(destination, offset, length);
+				offset += length;
+				position += length;
+			}
+		}
+	}
+}
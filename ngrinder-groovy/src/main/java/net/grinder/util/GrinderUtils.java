@@ -20,10 +20,14 @@ import net.grinder.script.InternalScriptContext;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.math.NumberUtils;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Convenient NGrinder utilities.
@@ -54,7 +58,7 @@ public abstract class GrinderUtils {
 		return 0;
 	}
 
-	private static InternalScriptContext getGrinderInstance() {
+	static InternalScriptContext getGrinderInstance() {
 		InternalScriptContext grinder = Grinder.grinder;
 		if (grinder == null || grinder.getThreadNumber() == -1) {
 			throw new RuntimeException("This method should be called in the worker thread context.");
@@ -62,7 +66,15 @@ public abstract class GrinderUtils {
 		return grinder;
 	}
 
-	private static Random random = new Random();
+	// Each thread has its own random, so that the worker threads don't contend on it.
+	private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
+	private static final ConcurrentMap<String, DataFeeder> feeders = new ConcurrentHashMap<String, DataFeeder>();
 
 	/**
 	 * Convert nvpair map to array. With this user can create NVPair array using
@@ -104,7 +116,7 @@ public abstract class GrinderUtils {
 	 * @since 3.2.3
 	 */
 	public static <T> T any(List<T> from) {
-		return from.get(random.nextInt(from.size()));
+		return from.get(random.get().nextInt(from.size()));
 	}
 
 	/**
@@ -116,7 +128,56 @@ public abstract class GrinderUtils {
 	 * @since 3.2.3
 	 */
 	public static <T> T any(T[] from) {
-		return from[random.nextInt(from.length)];
+		return from[random.get().nextInt(from.length)];
+	}
+
+	/**
+	 * Get the feeder which gives any line of the given data file.
+	 *
+	 * @param path data file path
+	 * @return feeder
+	 * @throws IOException occurs when the file can not be read
+	 * @see #feeder(String, DataFeeder.Mode)
+	 * @since 3.4.1
+	 */
+	public static DataFeeder feeder(String path) throws IOException {
+		return feeder(path, DataFeeder.Mode.RANDOM);
+	}
+
+	/**
+	 * Get the feeder which gives the lines of the given data file in the
+	 * given mode. The file is memory mapped and shared by the all threads
+	 * in the process, so the large file doesn't take the heap.
+	 *
+	 *
+	 * <code>
+	 * import static net.grinder.util.GrinderUtils.*
+	 * import static net.grinder.util.DataFeeder.Mode.*
+	 * ...
+	 * def users = feeder("./resources/users.txt", PARTITION_BY_THREAD)
+	 * def user = users.next()
+	 * </code>
+	 *
+	 * @param path data file path
+	 * @param mode the way to select the next line
+	 * @return feeder
+	 * @throws IOException occurs when the file can not be read
+	 * @since 3.4.1
+	 */
+	public static DataFeeder feeder(String path, DataFeeder.Mode mode) throws IOException {
+		File file = new File(path).getAbsoluteFile();
+		String key = mode + ":" + file.getPath();
+		DataFeeder feeder = feeders.get(key);
+		if (feeder == null) {
+			synchronized (feeders) {
+				feeder = feeders.get(key);
+				if (feeder == null) {
+					feeder = DataFeeder.open(file, mode);
+					feeders.put(key, feeder);
+				}
+			}
+		}
+		return feeder;
 	}
 
 	/**
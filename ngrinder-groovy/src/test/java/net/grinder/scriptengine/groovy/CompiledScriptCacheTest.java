@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.scriptengine.groovy;
+
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class CompiledScriptCacheTest {
+	private File baseDirectory;
+	private File cacheDirectory;
+
+	@Before
+	public void before() throws IOException {
+		baseDirectory = createTempDirectory("groovy_script");
+		cacheDirectory = createTempDirectory("groovy_cache");
+	}
+
+	@After
+	public void after() {
+		delete(baseDirectory);
+		delete(cacheDirectory);
+	}
+
+	@Test
+	public void testGetKey() throws IOException {
+		File script = write("TestRunner.groovy", "class TestRunner { def run() { new Helper().greet() } }");
+		write("Helper.groovy", "class Helper { def greet() { 'hello' } }");
+		String key = CompiledScriptCache.getKey(script, baseDirectory);
+		assertThat(CompiledScriptCache.getKey(script, baseDirectory), is(key));
+
+		write("Helper.groovy", "class Helper { def greet() { 'bye' } }");
+		assertThat(CompiledScriptCache.getKey(script, baseDirectory), not(key));
+		key = CompiledScriptCache.getKey(script, baseDirectory);
+
+		write("lib/resource.txt", "resource");
+		assertThat(CompiledScriptCache.getKey(script, baseDirectory), not(key));
+	}
+
+	@Test
+	public void testLoadCachedScript() throws Exception {
+		File script = write("TestRunner.groovy", "class TestRunner { def run() { def c = { it * 2 }; c(21) } }");
+		CompiledScriptCache cache = new CompiledScriptCache(cacheDirectory);
+		CompiledScript compiled = cache.get(script, baseDirectory, createConfiguration(), createLoader());
+		assertThat(compiled.getClasses().size(), is(2));
+		assertThat(cacheDirectory.list(), hasItemInArray(CompiledScriptCache.getKey(script, baseDirectory)
+				+ ".classes"));
+
+		CompiledScriptClassLoader loader = createLoader();
+		CompiledScript cached = cache.get(script, baseDirectory, createConfiguration(), loader);
+		assertThat(cached.getClasses().keySet(), is(compiled.getClasses().keySet()));
+		Class<?> testRunner = loader.loadScript(cached);
+		assertThat(testRunner.getName(), is("TestRunner"));
+		assertThat(testRunner.getMethod("run").invoke(testRunner.newInstance()), is((Object) 42));
+	}
+
+	@Test
+	public void testTamperedEntryIsCompiledAgain() throws Exception {
+		File script = write("TestRunner.groovy", "class TestRunner { def run() { 42 } }");
+		CompiledScriptCache cache = new CompiledScriptCache(cacheDirectory);
+		cache.get(script, baseDirectory, createConfiguration(), createLoader());
+		File cacheFile = new File(cacheDirectory, CompiledScriptCache.getKey(script, baseDirectory) + ".classes");
+
+		RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+		byte[] tampered = new byte[(int) file.length()];
+		try {
+			file.readFully(tampered);
+			tampered[tampered.length / 2] ^= 0xff;
+			file.seek(0);
+			file.write(tampered);
+		} finally {
+			file.close();
+		}
+
+		CompiledScriptClassLoader loader = createLoader();
+		Class<?> testRunner = loader.loadScript(cache.get(script, baseDirectory, createConfiguration(), loader));
+		assertThat(testRunner.getMethod("run").invoke(testRunner.newInstance()), is((Object) 42));
+		file = new RandomAccessFile(cacheFile, "r");
+		byte[] rewritten = new byte[(int) file.length()];
+		try {
+			file.readFully(rewritten);
+		} finally {
+			file.close();
+		}
+		assertThat(Arrays.equals(rewritten, tampered), is(false));
+	}
+
+	@Test
+	public void testEvict() throws IOException {
+		long now = System.currentTimeMillis();
+		File expired = createEntry("expired", 10, now - TimeUnit.DAYS.toMillis(2));
+		File old = createEntry("old", 100, now - TimeUnit.HOURS.toMillis(2));
+		File recent = createEntry("recent", 100, now - TimeUnit.HOURS.toMillis(1));
+		File written = createEntry("written", 100, now);
+
+		new CompiledScriptCache(cacheDirectory, 250, TimeUnit.DAYS.toMillis(1)).evict(written);
+		assertThat(expired.exists(), is(false));
+		assertThat(old.exists(), is(false));
+		assertThat(new File(cacheDirectory, "old.lock").exists(), is(false));
+		assertThat(recent.exists(), is(true));
+		assertThat(written.exists(), is(true));
+	}
+
+	private File createEntry(String key, int size, long lastModified) throws IOException {
+		File entry = new File(cacheDirectory, key + ".classes");
+		FileOutputStream out = new FileOutputStream(entry);
+		try {
+			out.write(new byte[size]);
+		} finally {
+			out.close();
+		}
+		//noinspection ResultOfMethodCallIgnored
+		new File(cacheDirectory, key + ".lock").createNewFile();
+		//noinspection ResultOfMethodCallIgnored
+		entry.setLastModified(lastModified);
+		return entry;
+	}
+
+	private CompilerConfiguration createConfiguration() {
+		CompilerConfiguration configuration = new CompilerConfiguration();
+		configuration.setSourceEncoding("UTF-8");
+		return configuration;
+	}
+
+	private CompiledScriptClassLoader createLoader() {
+		return new CompiledScriptClassLoader(getClass().getClassLoader(), createConfiguration());
+	}
+
+	private File write(String path, String content) throws IOException {
+		File file = new File(baseDirectory, path);
+		//noinspection ResultOfMethodCallIgnored
+		file.getParentFile().mkdirs();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static File createTempDirectory(String prefix) throws IOException {
+		File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdir()) {
+			throw new IOException("Can not create " + directory);
+		}
+		return directory;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File each : children) {
+				delete(each);
+			}
+		}
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
+}
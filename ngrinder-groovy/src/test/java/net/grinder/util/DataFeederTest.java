@@ -0,0 +1,207 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.util;
+
+import net.grinder.util.DataFeeder.Mode;
+import net.grinder.util.DataFeeder.Position;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class DataFeederTest {
+	private File directory;
+	private File indexDirectory;
+
+	@Before
+	public void before() throws IOException {
+		directory = File.createTempFile("data_feeder", "");
+		//noinspection ResultOfMethodCallIgnored
+		directory.delete();
+		indexDirectory = new File(directory, "index");
+		assertThat(indexDirectory.mkdirs(), is(true));
+	}
+
+	@After
+	public void after() {
+		delete(directory);
+	}
+
+	@Test
+	public void testGet() throws IOException {
+		File file = write("data.txt", "user1\r\nuser2\n\nuser4");
+		DataFeeder feeder = DataFeeder.open(file, Mode.SEQUENTIAL, indexDirectory);
+		assertThat(feeder.size(), is(4L));
+		assertThat(feeder.get(0), is("user1"));
+		assertThat(feeder.get(1), is("user2"));
+		assertThat(feeder.get(2), is(""));
+		assertThat(feeder.get(3), is("user4"));
+
+		// The index is built only once.
+		assertThat(DataFeeder.open(file, Mode.RANDOM, indexDirectory).size(), is(4L));
+		assertThat(indexDirectory.list(), arrayWithSize(2));
+
+		file = write("data2.txt", "\uD55C\uAE00\n");
+		assertThat(DataFeeder.open(file, Mode.RANDOM, indexDirectory).size(), is(1L));
+		assertThat(DataFeeder.open(file, Mode.RANDOM, indexDirectory).get(0), is("\uD55C\uAE00"));
+	}
+
+	@Test
+	public void testIndexOfPreviousContentIsDeleted() throws IOException {
+		File file = write("data.txt", "1\n2\n");
+		assertThat(DataFeeder.open(file, Mode.SEQUENTIAL, indexDirectory).size(), is(2L));
+		List<String> previous = listIndexes();
+		assertThat(previous, hasSize(1));
+
+		write("data.txt", "1\n2\n3\n");
+		assertThat(file.setLastModified(file.lastModified() - 60000), is(true));
+		assertThat(DataFeeder.open(file, Mode.SEQUENTIAL, indexDirectory).size(), is(3L));
+		List<String> current = listIndexes();
+		assertThat(current, hasSize(1));
+		assertThat(current.get(0), not(previous.get(0)));
+		assertThat(indexDirectory.list(), arrayWithSize(2));
+	}
+
+	@Test
+	public void testUnusedIndexIsDeleted() throws IOException {
+		File unused = write("index/unused-1-1.index", "");
+		File unusedLock = write("index/unused.lock", "");
+		long expired = System.currentTimeMillis() - DataFeeder.MAX_UNUSED_TIME - 60000;
+		assertThat(unused.setLastModified(expired), is(true));
+		assertThat(unusedLock.setLastModified(expired), is(true));
+
+		DataFeeder.open(write("data.txt", "1\n"), Mode.SEQUENTIAL, indexDirectory);
+		assertThat(unused.exists(), is(false));
+		assertThat(unusedLock.exists(), is(false));
+		assertThat(indexDirectory.list(), arrayWithSize(2));
+	}
+
+	@Test
+	public void testSequential() throws IOException {
+		DataFeeder feeder = DataFeeder.open(write("data.txt", "1\n2\n3\n"), Mode.SEQUENTIAL, indexDirectory);
+		Position position = new Position(0, 0, 0, 1, 1, 1);
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < 4; i++) {
+			lines.add(feeder.next(position));
+		}
+		assertThat(lines, contains("1", "2", "3", "1"));
+	}
+
+	@Test
+	public void testUnique() throws IOException {
+		DataFeeder feeder = DataFeeder.open(write("data.txt", "1\n2\n3\n4\n"), Mode.UNIQUE, indexDirectory);
+		assertThat(feeder.next(new Position(1, 0, 1, 2, 1, 2)), is("4"));
+		assertThat(feeder.next(new Position(1, 0, 1, 2, 1, 2)), is("4"));
+		assertThat(feeder.next(new Position(0, 0, 1, 2, 1, 2)), is("2"));
+	}
+
+	@Test
+	public void testPartitionByThread() throws IOException {
+		StringBuilder data = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			data.append(i).append("\n");
+		}
+		DataFeeder feeder = DataFeeder.open(write("data.txt", data.toString()), Mode.PARTITION_BY_THREAD,
+				indexDirectory);
+		Set<String> lines = new HashSet<String>();
+		for (int agent = 0; agent < 2; agent++) {
+			for (int process = 0; process < 2; process++) {
+				for (int thread = 0; thread < 5; thread++) {
+					Position position = new Position(agent, process, thread, 2, 2, 5);
+					// Each thread has 5 lines.
+					for (int i = 0; i < 5; i++) {
+						lines.add(callInNewThread(feeder, position, i + 1));
+					}
+				}
+			}
+		}
+		assertThat(lines.size(), is(100));
+	}
+
+	@Test
+	public void testPartitionByProcess() throws IOException {
+		DataFeeder feeder = DataFeeder.open(write("data.txt", "1\n2\n3\n4\n"), Mode.PARTITION_BY_PROCESS,
+				indexDirectory);
+		Position position = new Position(1, 0, 0, 2, 1, 10);
+		assertThat(feeder.next(position), is("3"));
+		assertThat(feeder.next(position), is("4"));
+		assertThat(feeder.next(position), is("3"));
+	}
+
+	/**
+	 * Call next in a new thread the given times, and return the last line.
+	 */
+	private String callInNewThread(final DataFeeder feeder, final Position position, final int times) {
+		final String[] result = new String[1];
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 0; i < times; i++) {
+					result[0] = feeder.next(position);
+				}
+			}
+		};
+		thread.start();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		return result[0];
+	}
+
+	private List<String> listIndexes() {
+		List<String> indexes = new ArrayList<String>();
+		for (String each : indexDirectory.list()) {
+			if (each.endsWith(".index")) {
+				indexes.add(each);
+			}
+		}
+		return indexes;
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(directory, name);
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File each : children) {
+				delete(each);
+			}
+		}
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
+}
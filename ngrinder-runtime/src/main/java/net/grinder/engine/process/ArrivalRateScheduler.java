@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.process;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Open model scheduler which dispatches the runs of the worker threads at the target arrival rate.
+ * <p/>
+ * The dispatch times are fixed in advance as <code>start + n / rate</code>, regardless of how long the previous runs
+ * take. A thread which finishes its run takes the next dispatch time and waits until it comes. When all threads are
+ * busy, the dispatch times are taken late, and the delay is added to the recorded test times of the run so that the
+ * slow target is not hidden by the reduced load. The dispatch times which are late more than the max delay are
+ * dropped and counted as missed. When the rate is changed during the test, a new schedule starts from then.
+ * <p/>
+ * Package scope.
+ *
+ * @since 3.4.1
+ */
+final class ArrivalRateScheduler {
+	/**
+	 * The dispatch which is delayed more than this is counted as late.
+	 */
+	static final long LATE_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private volatile double m_intervalNanos;
+	private final long m_maxDelayNanos;
+
+	// null until the first dispatch time is taken.
+	private final AtomicReference<Schedule> m_schedule = new AtomicReference<Schedule>();
+	private final AtomicLong m_dispatches = new AtomicLong();
+	private final AtomicLong m_lateDispatches = new AtomicLong();
+	private final AtomicLong m_missedDispatches = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param arrivalRate target runs per second in this process
+	 * @param maxDelay    max dispatch delay in millisecond
+	 */
+	ArrivalRateScheduler(double arrivalRate, long maxDelay) {
+		m_intervalNanos = toIntervalNanos(arrivalRate);
+		m_maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxDelay, 0));
+	}
+
+	private static double toIntervalNanos(double arrivalRate) {
+		if (arrivalRate <= 0) {
+			throw new IllegalArgumentException("arrivalRate should be positive : " + arrivalRate);
+		}
+		return TimeUnit.SECONDS.toNanos(1) / arrivalRate;
+	}
+
+	/**
+	 * Change the target arrival rate. The dispatch times taken already are not changed.
+	 *
+	 * @param arrivalRate target runs per second in this process
+	 */
+	void setArrivalRate(double arrivalRate) {
+		m_intervalNanos = toIntervalNanos(arrivalRate);
+		Schedule current = m_schedule.get();
+		while (current != null && !m_schedule.compareAndSet(current, new Schedule(System.nanoTime(),
+				m_intervalNanos))) {
+			current = m_schedule.get();
+		}
+	}
+
+	/**
+	 * Take the next dispatch time. The schedule starts on the first call.
+	 *
+	 * @return dispatch time in {@link System#nanoTime()}
+	 */
+	long takeDispatchTime() {
+		final long now = System.nanoTime();
+		Schedule schedule = m_schedule.get();
+		if (schedule == null) {
+			m_schedule.compareAndSet(null, new Schedule(now, m_intervalNanos));
+			schedule = m_schedule.get();
+		}
+		final long startTime = schedule.m_startTime;
+		final double intervalNanos = schedule.m_intervalNanos;
+		final AtomicLong nextDispatch = schedule.m_nextDispatch;
+
+		while (true) {
+			final long next = nextDispatch.get();
+			final long dispatchTime = startTime + (long) (next * intervalNanos);
+
+			if (now - dispatchTime > m_maxDelayNanos) {
+				// Skip to the first dispatch in the max delay.
+				final long skipTo = (long) Math.ceil((now - m_maxDelayNanos - startTime) / intervalNanos);
+				if (nextDispatch.compareAndSet(next, skipTo)) {
+					m_missedDispatches.addAndGet(skipTo - next);
+				}
+			} else if (nextDispatch.compareAndSet(next, next + 1)) {
+				return dispatchTime;
+			}
+		}
+	}
+
+	/**
+	 * Record the dispatch which is started now.
+	 *
+	 * @param dispatchTime dispatch time taken by {@link #takeDispatchTime()}
+	 * @return the delay from the dispatch time in millisecond
+	 */
+	long dispatched(long dispatchTime) {
+		final long delay = Math.max(System.nanoTime() - dispatchTime, 0);
+		m_dispatches.incrementAndGet();
+		if (delay > LATE_THRESHOLD_NANOS) {
+			m_lateDispatches.incrementAndGet();
+		}
+		return TimeUnit.NANOSECONDS.toMillis(delay);
+	}
+
+	long getDispatches() {
+		return m_dispatches.get();
+	}
+
+	long getLateDispatches() {
+		return m_lateDispatches.get();
+	}
+
+	long getMissedDispatches() {
+		return m_missedDispatches.get();
+	}
+
+	/**
+	 * Dispatch times fixed from the start time at the interval.
+	 */
+	private static final class Schedule {
+		private final long m_startTime;
+		private final double m_intervalNanos;
+		private final AtomicLong m_nextDispatch = new AtomicLong();
+
+		private Schedule(long startTime, double intervalNanos) {
+			m_startTime = startTime;
+			m_intervalNanos = intervalNanos;
+		}
+	}
+}
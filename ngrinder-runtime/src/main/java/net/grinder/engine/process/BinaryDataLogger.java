@@ -0,0 +1,256 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.process;
+
+import net.grinder.statistics.BinaryDataLog;
+import net.grinder.statistics.ExpressionView;
+import net.grinder.statistics.StatisticExpression;
+import net.grinder.statistics.StatisticsSet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+
+/**
+ * Data logger which writes the fixed size binary records in {@link BinaryDataLog} format.
+ * <p/>
+ * Each worker thread puts its records into its own preallocated ring buffer without allocating any object, and a
+ * single background thread drains all ring buffers into the file. When the writer can not keep up, the records which
+ * don't fit into the ring buffer are dropped and counted rather than stalling the test.
+ * <p/>
+ * Package scope.
+ *
+ * @since 3.4.1
+ */
+final class BinaryDataLogger {
+	/**
+	 * Default number of records which each thread can buffer.
+	 */
+	static final int DEFAULT_BUFFER_RECORDS = 512;
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private final Logger m_logger;
+	private final StatisticExpression[] m_expressions;
+	private final int m_recordSize;
+	private final int m_bufferRecords;
+	private final FileOutputStream m_outputStream;
+	private final FileChannel m_channel;
+	private final ByteBuffer m_writeBuffer;
+	private final List<ThreadRecorder> m_recorders = new CopyOnWriteArrayList<ThreadRecorder>();
+	private final AtomicLong m_droppedRecords = new AtomicLong();
+	private final Thread m_writerThread;
+	private volatile boolean m_closed;
+
+	/**
+	 * Constructor. The header is written and the writer thread is started.
+	 *
+	 * @param file            data log file
+	 * @param expressionViews detail statistics views which are written in each record
+	 * @param bufferRecords   number of records which each thread can buffer
+	 * @param logger          logger to report the write failure
+	 * @throws IOException occurs when the file can not be written
+	 */
+	BinaryDataLogger(File file, ExpressionView[] expressionViews, int bufferRecords, Logger logger)
+			throws IOException {
+		m_logger = logger;
+		m_expressions = new StatisticExpression[expressionViews.length];
+		final String[] columnNames = new String[expressionViews.length];
+		final boolean[] doubles = new boolean[expressionViews.length];
+		for (int i = 0; i < expressionViews.length; i++) {
+			m_expressions[i] = expressionViews[i].getExpression();
+			columnNames[i] = expressionViews[i].getDisplayName();
+			doubles[i] = m_expressions[i].isDouble();
+		}
+		m_recordSize = BinaryDataLog.getRecordSize(m_expressions.length);
+		m_bufferRecords = Integer.highestOneBit(Math.max(bufferRecords, 2) - 1) << 1;
+		m_writeBuffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_SIZE, m_recordSize));
+
+		m_outputStream = new FileOutputStream(file);
+		m_channel = m_outputStream.getChannel();
+		try {
+			BinaryDataLog.writeHeader(m_outputStream, columnNames, doubles);
+		} catch (IOException e) {
+			m_outputStream.close();
+			throw e;
+		}
+
+		m_writerThread = new Thread("binary data log writer") {
+			@Override
+			public void run() {
+				writeLoop();
+			}
+		};
+		m_writerThread.setDaemon(true);
+		m_writerThread.start();
+	}
+
+	/**
+	 * Create the recorder of the given thread.
+	 *
+	 * @param threadNumber thread number
+	 * @return recorder which should be used only by the thread
+	 */
+	ThreadRecorder createThreadRecorder(int threadNumber) {
+		final ThreadRecorder recorder = new ThreadRecorder(threadNumber);
+		m_recorders.add(recorder);
+		return recorder;
+	}
+
+	long getDroppedRecords() {
+		return m_droppedRecords.get();
+	}
+
+	/**
+	 * Write all buffered records and close the file. The records which are added after this are dropped.
+	 */
+	void close() {
+		if (m_closed) {
+			return;
+		}
+		m_closed = true;
+		LockSupport.unpark(m_writerThread);
+		try {
+			m_writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop() {
+		try {
+			while (!m_closed) {
+				if (drain() == 0) {
+					LockSupport.parkNanos(IDLE_PARK_NANOS);
+				}
+			}
+			drain();
+		} catch (IOException e) {
+			m_logger.error("Error while writing the binary data log : {}", e.getMessage());
+			m_logger.debug("Details : ", e);
+		} finally {
+			m_closed = true;
+			try {
+				m_outputStream.close();
+			} catch (IOException e) {
+				m_logger.error("Error while closing the binary data log : {}", e.getMessage());
+			}
+		}
+	}
+
+	private int drain() throws IOException {
+		int drained = 0;
+		for (ThreadRecorder each : m_recorders) {
+			while (true) {
+				if (m_writeBuffer.remaining() < m_recordSize) {
+					flush();
+				}
+				final int count = each.drainTo(m_writeBuffer);
+				if (count == 0) {
+					break;
+				}
+				drained += count;
+			}
+		}
+		flush();
+		return drained;
+	}
+
+	private void flush() throws IOException {
+		m_writeBuffer.flip();
+		while (m_writeBuffer.hasRemaining()) {
+			m_channel.write(m_writeBuffer);
+		}
+		m_writeBuffer.clear();
+	}
+
+	/**
+	 * Single producer, single consumer ring buffer of the records of a worker thread. A record takes
+	 * <code>2 + column count</code> slots of the long array.
+	 */
+	final class ThreadRecorder {
+		private final int m_threadNumber;
+		private final int m_recordSlots = 2 + m_expressions.length;
+		private final long[] m_records = new long[m_bufferRecords * m_recordSlots];
+		private final int m_mask = m_bufferRecords - 1;
+
+		// Next record to be drained. Written by the writer thread.
+		private final AtomicLong m_head = new AtomicLong();
+		// Next record to be added. Written by the worker thread.
+		private final AtomicLong m_tail = new AtomicLong();
+		// Last head seen by the worker thread.
+		private long m_cachedHead;
+
+		private ThreadRecorder(int threadNumber) {
+			m_threadNumber = threadNumber;
+		}
+
+		/**
+		 * Add the record of a test invocation.
+		 *
+		 * @param runNumber  run number
+		 * @param testNumber test number
+		 * @param startTime  start time in millisecond since epoch
+		 * @param statistics statistics of the invocation
+		 */
+		void record(int runNumber, int testNumber, long startTime, StatisticsSet statistics) {
+			final long tail = m_tail.get();
+			if (tail - m_cachedHead >= m_bufferRecords) {
+				m_cachedHead = m_head.get();
+				if (tail - m_cachedHead >= m_bufferRecords || m_closed) {
+					m_droppedRecords.incrementAndGet();
+					return;
+				}
+			}
+			int slot = (int) (tail & m_mask) * m_recordSlots;
+			m_records[slot++] = ((long) runNumber << 32) | (testNumber & 0xFFFFFFFFL);
+			m_records[slot++] = startTime;
+			for (StatisticExpression each : m_expressions) {
+				m_records[slot++] = each.isDouble() ? Double.doubleToRawLongBits(each.getDoubleValue(statistics))
+						: each.getLongValue(statistics);
+			}
+			m_tail.lazySet(tail + 1);
+		}
+
+		private int drainTo(ByteBuffer buffer) {
+			final long head = m_head.get();
+			final long available = m_tail.get() - head;
+			final int count = (int) Math.min(available, buffer.remaining() / m_recordSize);
+			for (int i = 0; i < count; i++) {
+				int slot = (int) ((head + i) & m_mask) * m_recordSlots;
+				buffer.putInt(m_threadNumber);
+				buffer.putInt((int) (m_records[slot] >>> 32));
+				buffer.putInt((int) m_records[slot++]);
+				buffer.putLong(m_records[slot++]);
+				for (int j = 0; j < m_expressions.length; j++) {
+					buffer.putLong(m_records[slot++]);
+				}
+			}
+			if (count > 0) {
+				m_head.lazySet(head + count);
+			}
+			return count;
+		}
+	}
+}
@@ -37,7 +37,12 @@ import net.grinder.engine.common.EngineException;
 import net.grinder.engine.communication.ConsoleListener;
 import net.grinder.engine.messages.InitialiseGrinderMessage;
 import net.grinder.engine.process.dcr.DCRContextImplementation;
+import net.grinder.messages.agent.TargetLoadMessage;
 import net.grinder.messages.console.RegisterTestsMessage;
+import net.grinder.messages.console.ReportCompactStatisticsMessage;
+import net.grinder.messages.console.ReportDispatchMessage;
+import net.grinder.messages.console.ReportDnsCacheMessage;
+import net.grinder.messages.console.ReportLatencyMessage;
 import net.grinder.messages.console.ReportStatisticsMessage;
 import net.grinder.messages.console.WorkerAddress;
 import net.grinder.messages.console.WorkerProcessReportMessage;
@@ -58,10 +63,13 @@ import net.grinder.util.*;
 import net.grinder.util.ListenerSupport.Informer;
 import net.grinder.util.thread.BooleanCondition;
 import net.grinder.util.thread.Condition;
+import org.ngrinder.dns.DnsCache;
 import org.slf4j.ILoggerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.UnknownHostException;
@@ -94,12 +102,65 @@ final class GrinderProcess {
 	private final StatisticsServices m_statisticsServices;
 	private final TestStatisticsMap m_accumulatedStatistics;
 	private final TestStatisticsHelperImplementation m_testStatisticsHelper;
+	private final LatencyRecorder m_latencyRecorder = new LatencyRecorder();
 	private final TestRegistryImplementation m_testRegistryImplementation;
 	private final Condition m_eventSynchronisation = new Condition();
 	private final MessagePump m_messagePump;
 
 	private final ThreadStarter m_invalidThreadStarter = new InvalidThreadStarter();
 
+	/**
+	 * Property of the target runs per second of the whole test. If it's set, the runs are dispatched at the rate
+	 * across the threads instead of being started as soon as the previous runs finish.
+	 */
+	public static final String GRINDER_PROP_ARRIVAL_RATE = "grinder.arrivalRate";
+	public static final String GRINDER_PROP_ARRIVAL_MAX_DELAY = "grinder.arrivalMaxDelay";
+	public static final long DEFAULT_ARRIVAL_MAX_DELAY = 1000;
+
+	/**
+	 * Property to write the data log in {@link BinaryDataLog} format instead of the text data log.
+	 */
+	public static final String GRINDER_PROP_BINARY_DATA_LOG = "grinder.binaryDataLog";
+	public static final String GRINDER_PROP_BINARY_DATA_LOG_BUFFER = "grinder.binaryDataLog.bufferRecords";
+
+	/**
+	 * Property of the {@link CompactStatisticsCodec} version which the console can decode. The controller sets it, so
+	 * the statistics are sent in the default format to the older console which doesn't know the compact format.
+	 */
+	public static final String GRINDER_PROP_COMPACT_STATISTICS = "grinder.compactStatistics";
+	public static final String GRINDER_PROP_COMPACT_STATISTICS_SPARSE = "grinder.compactStatistics.sparse";
+
+	/**
+	 * Property to run the virtual users on the lightweight threads, which are created with the small stack. A process
+	 * can host much more virtual users in this mode as long as the script doesn't recurse deeply. The agent reserves
+	 * the stack memory of the threads when it sizes the heap of the process.
+	 */
+	public static final String GRINDER_PROP_LIGHTWEIGHT_THREAD = "grinder.lightweightThread";
+	public static final String GRINDER_PROP_THREAD_STACK_SIZE = "grinder.threadStackSize";
+	public static final long DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE = 256 * 1024;
+
+	/**
+	 * System property set on the worker processes which the agent starts in advance. They load the framework classes
+	 * while waiting for the test, so that the test doesn't wait for it.
+	 */
+	public static final String SYSTEM_PROP_PRELOAD = "ngrinder.worker.preload";
+	private static final String[] PRELOAD_CLASSES = {"groovy.lang.GroovyShell",
+			"org.codehaus.groovy.control.CompilationUnit", "HTTPClient.HTTPConnection",
+			"net.grinder.plugin.http.HTTPRequest"};
+
+	// null if the runs are not dispatched at the arrival rate.
+	private ArrivalRateScheduler m_arrivalRateScheduler;
+
+	// null if the text data log is used.
+	private BinaryDataLogger m_binaryDataLogger;
+
+	// 0 if the statistics are sent in the default format. Accessed by the report timer thread only.
+	private int m_compactStatisticsVersion;
+	private final boolean m_sparseStatistics;
+
+	// 0 if the threads are created with the default stack size.
+	private final long m_threadStackSize;
+
 	private final Times m_times = new Times();
 
 	private final ThreadContexts m_threadContexts = new ThreadContexts();
@@ -109,6 +170,9 @@ final class GrinderProcess {
 	// Guarded by m_eventSynchronisation.
 	private ThreadStarter m_threadStarter = m_invalidThreadStarter;
 
+	// Guarded by m_eventSynchronisation.
+	private ThreadSynchronisation m_threadSynchronisation;
+
 	private boolean m_shutdownTriggered;
 	private boolean m_communicationShutdown;
 
@@ -121,6 +185,10 @@ final class GrinderProcess {
 	 */
 	public GrinderProcess(final Receiver agentReceiver) throws GrinderException {
 		try {
+			if (Boolean.getBoolean(SYSTEM_PROP_PRELOAD)) {
+				preloadClasses();
+			}
+
 			m_initialisationMessage = (InitialiseGrinderMessage) agentReceiver.waitForMessage();
 
 			if (m_initialisationMessage == null) {
@@ -137,6 +205,10 @@ final class GrinderProcess {
 			m_terminalLogger = LoggerFactory.getLogger(workerName);
 
 			m_reportTimesToConsole = properties.getBoolean("grinder.reportTimesToConsole", true);
+			m_compactStatisticsVersion = Math.min(properties.getInt(GRINDER_PROP_COMPACT_STATISTICS, 0),
+					CompactStatisticsCodec.VERSION);
+			m_sparseStatistics = properties.getBoolean(GRINDER_PROP_COMPACT_STATISTICS_SPARSE, true);
+			m_threadStackSize = getThreadStackSize(properties);
 
 			m_logbackLoggerContext = configureLogging(workerName, logDirectory);
 			m_logger = LoggerFactory.getLogger("worker." + workerName);
@@ -231,6 +303,13 @@ final class GrinderProcess {
 			m_consoleListener = new ConsoleListener(m_eventSynchronisation, m_logger);
 
 			m_consoleListener.registerMessageHandlers(messageDispatcher);
+			messageDispatcher.set(TargetLoadMessage.class,
+					new MessageDispatchRegistry.AbstractHandler<TargetLoadMessage>() {
+						@Override
+						public void handle(final TargetLoadMessage message) {
+							changeTargetLoad(message, properties);
+						}
+					});
 			m_messagePump = new MessagePump(agentReceiver, messageDispatcher, 1);
 		} catch (GrinderException e) {
 			if (m_logger != null) {
@@ -240,6 +319,156 @@ final class GrinderProcess {
 		}
 	}
 
+	private static void preloadClasses() {
+		final ClassLoader classLoader = GrinderProcess.class.getClassLoader();
+		for (final String each : PRELOAD_CLASSES) {
+			try {
+				// Initialize them as well, so the static initializers don't run in the test.
+				Class.forName(each, true, classLoader);
+			} catch (final ClassNotFoundException e) {
+				// The script engine which doesn't need it is used.
+			} catch (final Throwable e) {
+				// It will fail again when the script uses it.
+			}
+		}
+	}
+
+	/**
+	 * Start the threads or stop the newest threads to reach the target thread count. The threads added to the
+	 * running test start without ramp-up.
+	 * <p/>
+	 * Package scope for unit tests.
+	 *
+	 * @param threadContexts        thread contexts of this process
+	 * @param threadStarter         thread starter of the running test
+	 * @param threadSynchronisation thread synchronisation of the running test
+	 * @param threadCount           target thread count
+	 * @param logger                logger
+	 */
+	static void changeThreadCount(final ThreadContexts threadContexts, final ThreadStarter threadStarter,
+	                              final ThreadSynchronisation threadSynchronisation, final int threadCount,
+	                              final Logger logger) {
+		final int active = threadContexts.getNumberOfActiveThreads();
+		logger.info("Changing the thread count from {} to {}", active, threadCount);
+		if (threadCount > active) {
+			if (threadSynchronisation instanceof ThreadRampUpEnabledThreadSynchronisation) {
+				((ThreadRampUpEnabledThreadSynchronisation) threadSynchronisation).disableRampUp();
+			}
+			try {
+				for (int i = active; i < threadCount; i++) {
+					threadStarter.startThread(null);
+				}
+			} catch (EngineException e) {
+				logger.error("Failed to start the thread", e);
+			} catch (InvalidContextException e) {
+				logger.info("Stopped starting the threads because the test is shutting down");
+			}
+		} else if (threadCount < active) {
+			threadContexts.shutdownNewest(active - threadCount);
+		}
+	}
+
+	/**
+	 * Create the scheduler which dispatches this process's share of the arrival rate of the whole test.
+	 *
+	 * @param properties grinder properties
+	 * @return scheduler. null if the arrival rate is not set.
+	 */
+	private ArrivalRateScheduler createArrivalRateScheduler(final GrinderProperties properties) {
+		final double arrivalRate = properties.getDouble(GRINDER_PROP_ARRIVAL_RATE, 0);
+		if (arrivalRate <= 0) {
+			return null;
+		}
+		final double processArrivalRate = arrivalRate / getProcessCount(properties);
+		m_terminalLogger.info("Dispatching runs at {} per second", processArrivalRate);
+		return new ArrivalRateScheduler(processArrivalRate,
+				properties.getLong(GRINDER_PROP_ARRIVAL_MAX_DELAY, DEFAULT_ARRIVAL_MAX_DELAY));
+	}
+
+	/**
+	 * Get the stack size of the virtual user threads.
+	 *
+	 * @param properties grinder properties
+	 * @return stack size in bytes. 0 if the lightweight thread is not enabled.
+	 */
+	static long getThreadStackSize(final GrinderProperties properties) {
+		if (!properties.getBoolean(GRINDER_PROP_LIGHTWEIGHT_THREAD, false)) {
+			return 0;
+		}
+		return Math.max(properties.getLong(GRINDER_PROP_THREAD_STACK_SIZE, DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE), 0);
+	}
+
+	private static int getProcessCount(final GrinderProperties properties) {
+		return Math.max(properties.getInt("grinder.agents", 1), 1)
+				* Math.max(properties.getInt("grinder.processes", 1), 1);
+	}
+
+	/**
+	 * Change the load of the running test. The threads are started or the newest threads are stopped to reach the
+	 * target thread count, and this process's share of the target arrival rate is applied from now.
+	 *
+	 * @param message    target load message from the console
+	 * @param properties grinder properties
+	 */
+	private void changeTargetLoad(final TargetLoadMessage message, final GrinderProperties properties) {
+		final ThreadStarter threadStarter;
+		final ThreadSynchronisation threadSynchronisation;
+		final ArrivalRateScheduler arrivalRateScheduler;
+
+		synchronized (m_eventSynchronisation) {
+			threadStarter = m_threadStarter;
+			threadSynchronisation = m_threadSynchronisation;
+			arrivalRateScheduler = m_arrivalRateScheduler;
+		}
+
+		if (threadStarter == m_invalidThreadStarter) {
+			m_terminalLogger.info("Ignoring the target load change because the test is not running");
+			return;
+		}
+
+		final int threadsPerProcess = message.getThreadsPerProcess();
+		if (threadsPerProcess > 0) {
+			changeThreadCount(m_threadContexts, threadStarter, threadSynchronisation, threadsPerProcess,
+					m_terminalLogger);
+		}
+
+		final double arrivalRate = message.getArrivalRate();
+		if (arrivalRate > 0) {
+			if (arrivalRateScheduler == null) {
+				m_terminalLogger.info("Ignoring the target arrival rate because the test is not arrival rate based");
+			} else {
+				final double processArrivalRate = arrivalRate / getProcessCount(properties);
+				m_terminalLogger.info("Dispatching runs at {} per second", processArrivalRate);
+				arrivalRateScheduler.setArrivalRate(processArrivalRate);
+			}
+		}
+	}
+
+	/**
+	 * Create the binary data logger which writes into the log directory next to the worker log.
+	 *
+	 * @param properties            grinder properties
+	 * @param workerIdentity        worker identity
+	 * @param detailExpressionViews detail statistics views to be written
+	 * @return binary data logger
+	 * @throws EngineException occurs when the data log file can not be created
+	 */
+	private BinaryDataLogger createBinaryDataLogger(final GrinderProperties properties,
+	                                                final WorkerIdentity workerIdentity,
+	                                                final ExpressionView[] detailExpressionViews)
+			throws EngineException {
+		final File file = new File(properties.getProperty(GrinderProperties.LOG_DIRECTORY, "."),
+				workerIdentity.getName() + BinaryDataLog.FILE_SUFFIX);
+		try {
+			m_logger.info("Writing the binary data log into {}", file.getAbsolutePath());
+			return new BinaryDataLogger(file, detailExpressionViews,
+					properties.getInt(GRINDER_PROP_BINARY_DATA_LOG_BUFFER, BinaryDataLogger.DEFAULT_BUFFER_RECORDS),
+					m_logger);
+		} catch (final IOException e) {
+			throw new EngineException("Could not create the binary data log " + file.getAbsolutePath(), e);
+		}
+	}
+
 	private LoggerContext configureLogging(final String workerName, final String logDirectory) throws EngineException {
 
 		final ILoggerFactory iLoggerFactory = LoggerFactory.getILoggerFactory();
@@ -337,17 +566,22 @@ final class GrinderProcess {
 			// Don't write out the data log header until now as the script may
 			// declare new statistics.
 
-			final StringBuilder dataLogHeader = new StringBuilder("Thread, Run, Test, Start time (ms since Epoch)");
-
 			final ExpressionView[] detailExpressionViews = m_statisticsServices.getDetailStatisticsView()
 					.getExpressionViews();
 
-			for (final ExpressionView detailExpressionView : detailExpressionViews) {
-				dataLogHeader.append(", ");
-				dataLogHeader.append(detailExpressionView.getDisplayName());
-			}
+			if (properties.getBoolean("grinder.logData", true)
+					&& properties.getBoolean(GRINDER_PROP_BINARY_DATA_LOG, false)) {
+				m_binaryDataLogger = createBinaryDataLogger(properties, workerIdentity, detailExpressionViews);
+			} else {
+				final StringBuilder dataLogHeader = new StringBuilder("Thread, Run, Test, Start time (ms since Epoch)");
 
-			m_dataLogger.info(dataLogHeader.toString());
+				for (final ExpressionView detailExpressionView : detailExpressionViews) {
+					dataLogHeader.append(", ");
+					dataLogHeader.append(detailExpressionView.getDisplayName());
+				}
+
+				m_dataLogger.info(dataLogHeader.toString());
+			}
 
 			sendStatusMessage(ProcessReport.STATE_STARTED, (short) 0, numberOfThreads);
 			boolean threadRampUp = properties.getBoolean("grinder.threadRampUp", false);
@@ -355,10 +589,17 @@ final class GrinderProcess {
 					new ThreadRampUpEnabledThreadSynchronisation(m_eventSynchronisation, m_sleeper) :
 					new ThreadSynchronisation(m_eventSynchronisation);
 
-			m_terminalLogger.info("Starting threads");
+			if (m_threadStackSize > 0) {
+				m_terminalLogger.info("Starting lightweight threads with {} bytes stack", m_threadStackSize);
+			} else {
+				m_terminalLogger.info("Starting threads");
+			}
+
+			m_arrivalRateScheduler = createArrivalRateScheduler(properties);
 
 			synchronized (m_eventSynchronisation) {
 				m_threadStarter = new ThreadStarterImplementation(threadSynchronisation, scriptEngine);
+				m_threadSynchronisation = threadSynchronisation;
 
 				for (int i = 0; i < numberOfThreads; i++) {
 					m_threadStarter.startThread(null);
@@ -453,6 +694,21 @@ final class GrinderProcess {
 			final long elapsedTime = m_times.getElapsedTime();
 			m_logger.info("elapsed time is {} ms", elapsedTime);
 
+			if (m_arrivalRateScheduler != null) {
+				m_logger.info("{} runs dispatched at the arrival rate, {} late and {} missed",
+						new Object[]{m_arrivalRateScheduler.getDispatches(),
+								m_arrivalRateScheduler.getLateDispatches(),
+								m_arrivalRateScheduler.getMissedDispatches()});
+			}
+
+			if (m_binaryDataLogger != null) {
+				m_binaryDataLogger.close();
+				if (m_binaryDataLogger.getDroppedRecords() > 0) {
+					m_logger.warn("{} records are dropped from the binary data log",
+							m_binaryDataLogger.getDroppedRecords());
+				}
+			}
+
 			m_logger.info("Final statistics for this process:");
 
 			final StatisticsTable statisticsTable = new StatisticsTable(
@@ -478,6 +734,10 @@ final class GrinderProcess {
 	}
 
 	public void shutdown(final boolean inputStreamIsStdin) {
+		if (m_binaryDataLogger != null) {
+			m_binaryDataLogger.close();
+		}
+
 		if (!inputStreamIsStdin) {
 			// Sadly it appears its impossible to interrupt a read() on a
 			// process
@@ -497,6 +757,12 @@ final class GrinderProcess {
 
 	private class ReportToConsoleTimerTask extends TimerTask {
 		private final ThreadSynchronisation m_threads;
+		private final DnsCache m_dnsCache = DnsCache.getInstance();
+		private long m_lastDnsCacheHits;
+		private long m_lastDnsCacheMisses;
+		private long m_lastDispatches;
+		private long m_lastLateDispatches;
+		private long m_lastMissedDispatches;
 
 		public ReportToConsoleTimerTask(final ThreadSynchronisation threads) {
 			m_threads = threads;
@@ -522,9 +788,25 @@ final class GrinderProcess {
 							m_testStatisticsHelper.removeTestTimeFromSample(sample);
 						}
 
-						m_consoleSender.send(new ReportStatisticsMessage(sample));
+						m_consoleSender.send(createStatisticsMessage(sample));
+					}
+
+					final Map<Integer, LatencyHistogram> latencies = m_latencyRecorder.drain();
+					if (m_reportTimesToConsole && !latencies.isEmpty()) {
+						m_consoleSender.send(new ReportLatencyMessage(latencies));
+					}
+
+					final long dnsCacheHits = m_dnsCache.getHits();
+					final long dnsCacheMisses = m_dnsCache.getMisses();
+					if (dnsCacheHits != m_lastDnsCacheHits || dnsCacheMisses != m_lastDnsCacheMisses) {
+						m_consoleSender.send(new ReportDnsCacheMessage(dnsCacheHits - m_lastDnsCacheHits,
+								dnsCacheMisses - m_lastDnsCacheMisses));
+						m_lastDnsCacheHits = dnsCacheHits;
+						m_lastDnsCacheMisses = dnsCacheMisses;
 					}
 
+					reportDispatches();
+
 					sendStatusMessage(ProcessReport.STATE_RUNNING, m_threads.getNumberOfRunningThreads(),
 							m_threads.getTotalNumberOfThreads());
 				} catch (final CommunicationException e) {
@@ -534,6 +816,40 @@ final class GrinderProcess {
 				}
 			}
 		}
+
+		private void reportDispatches() throws CommunicationException {
+			final ArrivalRateScheduler arrivalRateScheduler;
+			synchronized (m_eventSynchronisation) {
+				arrivalRateScheduler = m_arrivalRateScheduler;
+			}
+			if (arrivalRateScheduler == null) {
+				return;
+			}
+			final long dispatches = arrivalRateScheduler.getDispatches();
+			final long lateDispatches = arrivalRateScheduler.getLateDispatches();
+			final long missedDispatches = arrivalRateScheduler.getMissedDispatches();
+			if (dispatches != m_lastDispatches || missedDispatches != m_lastMissedDispatches) {
+				m_consoleSender.send(new ReportDispatchMessage(dispatches - m_lastDispatches,
+						lateDispatches - m_lastLateDispatches, missedDispatches - m_lastMissedDispatches));
+				m_lastDispatches = dispatches;
+				m_lastLateDispatches = lateDispatches;
+				m_lastMissedDispatches = missedDispatches;
+			}
+		}
+	}
+
+	private Message createStatisticsMessage(final TestStatisticsMap sample) {
+		if (m_compactStatisticsVersion > 0) {
+			try {
+				return new ReportCompactStatisticsMessage(CompactStatisticsCodec.encode(sample,
+						m_statisticsServices.getStatisticsSetFactory(), m_sparseStatistics));
+			} catch (final IOException e) {
+				m_terminalLogger.warn("Failed to encode the statistics in the compact format. "
+						+ "The default format is used from now on.", e);
+				m_compactStatisticsVersion = 0;
+			}
+		}
+		return new ReportStatisticsMessage(sample);
 	}
 
 	private void sendStatusMessage(final short state, final short numberOfThreads, final short totalNumberOfThreads)
@@ -653,6 +969,7 @@ final class GrinderProcess {
 
 	static class ThreadRampUpEnabledThreadSynchronisation extends ThreadSynchronisation {
 		private final Sleeper sleeper;
+		private volatile boolean rampUpDisabled;
 
 		ThreadRampUpEnabledThreadSynchronisation(Condition condition, Sleeper sleeper) {
 			super(condition);
@@ -732,9 +1049,24 @@ final class GrinderProcess {
 		public static final String GRINDER_PROP_INITIAL_PROCESS = "grinder.initialProcesses";
 		public static final String GRINDER_PROP_INITIAL_THREAD_SLEEP_TIME = "grinder.initialThreadSleepTime";
 
+		/**
+		 * Start the threads created from now without ramp-up. It's used when the threads are added to the running
+		 * test, which should get the load immediately.
+		 */
+		void disableRampUp() {
+			rampUpDisabled = true;
+		}
+
+		/**
+		 * Package scope for unit tests.
+		 */
+		boolean isRampUpDisabled() {
+			return rampUpDisabled;
+		}
+
 		protected int doRampUp() {
 			InternalScriptContext grinder = Grinder.grinder;
-			if (grinder != null) {
+			if (grinder != null && !rampUpDisabled) {
 				GrinderProperties properties = grinder.getProperties();
 				int rampUpInterval = properties.getInt(GRINDER_PROP_THREAD_INCREMENT_INTERVAL, 0);
 				int rampUpStep = properties.getInt(GRINDER_PROP_THREAD_INCREMENT, 0);
@@ -832,7 +1164,8 @@ final class GrinderProcess {
 			}
 
 			final ThreadContext threadContext = new ThreadContextImplementation(
-					m_initialisationMessage.getProperties(), m_statisticsServices, threadNumber, m_dataLogger);
+					m_initialisationMessage.getProperties(), m_statisticsServices, threadNumber, m_dataLogger,
+					m_latencyRecorder, m_arrivalRateScheduler, m_binaryDataLogger);
 
 			final WorkerRunnableFactory workerRunnableFactory;
 
@@ -851,7 +1184,8 @@ final class GrinderProcess {
 					m_threadLifeCycleCallbacks, m_initialisationMessage.getProperties(), m_sleeper,
 					workerRunnableFactory);
 
-			final Thread t = new Thread(runnable, "thread " + threadNumber);
+			// The stack size 0 is ignored, so the thread gets the default stack.
+			final Thread t = new Thread(null, runnable, "thread " + threadNumber, m_threadStackSize);
 			t.setDaemon(true);
 			t.start();
 
@@ -926,6 +1260,9 @@ final class GrinderProcess {
 		// Guarded by m_threadContextsMap.
 		private boolean m_allShutdown;
 
+		// Threads which are shut down but not ended yet. Guarded by m_threadContextsMap.
+		private final Set<Integer> m_stoppingThreads = new HashSet<Integer>();
+
 		@Override
 		public ThreadContext get() {
 			return m_threadContextThreadLocal.get();
@@ -944,7 +1281,10 @@ final class GrinderProcess {
 					threadContext.registerThreadLifeCycleListener(new SkeletonThreadLifeCycleListener() {
 						@Override
 						public void endThread() {
-							m_threadContextsMap.remove(threadNumber);
+							synchronized (m_threadContextsMap) {
+								m_threadContextsMap.remove(threadNumber);
+								m_stoppingThreads.remove(threadNumber);
+							}
 						}
 					});
 
@@ -981,6 +1321,41 @@ final class GrinderProcess {
 			return false;
 		}
 
+		/**
+		 * Get the number of the threads which are running and not shut down.
+		 *
+		 * @return thread count
+		 */
+		public int getNumberOfActiveThreads() {
+			synchronized (m_threadContextsMap) {
+				return m_threadContextsMap.size() - m_stoppingThreads.size();
+			}
+		}
+
+		/**
+		 * Shut down the threads having the highest thread numbers, which are the latest started ones.
+		 *
+		 * @param count the number of threads to be shut down
+		 */
+		public void shutdownNewest(final int count) {
+			final List<ThreadContext> threadContexts = new ArrayList<ThreadContext>();
+
+			synchronized (m_threadContextsMap) {
+				final List<Integer> threadNumbers = new ArrayList<Integer>(m_threadContextsMap.keySet());
+				threadNumbers.removeAll(m_stoppingThreads);
+				Collections.sort(threadNumbers, Collections.reverseOrder());
+
+				for (final Integer threadNumber : threadNumbers.subList(0, Math.min(count, threadNumbers.size()))) {
+					m_stoppingThreads.add(threadNumber);
+					threadContexts.add(m_threadContextsMap.get(threadNumber));
+				}
+			}
+
+			for (final ThreadContext threadContext : threadContexts) {
+				threadContext.shutdown();
+			}
+		}
+
 		public void shutdownAll() {
 			final ThreadContext[] threadContexts;
 
@@ -24,6 +24,8 @@ package net.grinder.engine.process;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import net.grinder.common.GrinderProperties;
 import net.grinder.common.SSLContextFactory;
@@ -33,6 +35,8 @@ import net.grinder.common.ThreadLifeCycleListener;
 import net.grinder.engine.common.EngineException;
 import net.grinder.engine.process.DispatchContext.DispatchStateException;
 import net.grinder.script.Statistics.StatisticsForTest;
+import net.grinder.statistics.LatencyRecorder;
+import net.grinder.statistics.StatisticsIndexMap;
 import net.grinder.statistics.StatisticsServices;
 import net.grinder.statistics.StatisticsSet;
 import net.grinder.util.ListenerSupport;
@@ -73,21 +77,70 @@ final class ThreadContextImplementation implements ThreadContext {
 	private volatile boolean m_shutdown;
 	private boolean m_shutdownReported;
 
+	private static final long MAX_DISPATCH_PARK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(100);
+
+	private final ArrivalRateScheduler m_arrivalRateScheduler;
+
+	// Delay of the current run from its dispatch time in millisecond. It's
+	// cleared when the first top level test of the run is popped.
+	private long m_dispatchDelay;
+
+	private long m_pendingDispatchDelay;
+
+	// Dispatch delay of the test being reported.
+	private long m_reportedDispatchDelay;
+
+	/**
+	 * Constructor. The optional collaborators may be null.
+	 *
+	 * @param properties grinder properties
+	 * @param statisticsServices statistics services
+	 * @param threadNumber thread number
+	 * @param dataLogger text data logger
+	 * @param latencyRecorder recorder into which the test time of each
+	 *            successful test is recorded as well. Optional.
+	 * @param arrivalRateScheduler scheduler whose dispatch time is awaited
+	 *            at the beginning of each run. The dispatch delay is added to
+	 *            the test time of the first top level test of the run.
+	 *            Optional.
+	 * @param binaryDataLogger logger into which the data log is written
+	 *            instead of the text data logger. Optional.
+	 * @throws EngineException if the thread context can not be created
+	 */
 	public ThreadContextImplementation(GrinderProperties properties,
 			StatisticsServices statisticsServices, int threadNumber,
-			Logger dataLogger) throws EngineException {
+			Logger dataLogger, LatencyRecorder latencyRecorder,
+			ArrivalRateScheduler arrivalRateScheduler,
+			BinaryDataLogger binaryDataLogger) throws EngineException {
 
 		m_threadNumber = threadNumber;
+		m_arrivalRateScheduler = arrivalRateScheduler;
 		m_threadMarker = MarkerFactory.getMarker("thread-" + threadNumber);
 
+		DispatchResultReporter reporter;
 		// Undocumented property. Added so Tom Barnes can investigate overhead
-		// of data logging.
-		if (properties.getBoolean("grinder.logData", true)) {
+		// of data logging. The text lines are not formatted when the data
+		// logger discards them anyway.
+		final boolean logData = properties.getBoolean("grinder.logData", true);
+
+		if (logData && binaryDataLogger != null) {
+			final BinaryDataLogger.ThreadRecorder recorder = binaryDataLogger
+					.createThreadRecorder(m_threadNumber);
+
+			reporter = new DispatchResultReporter() {
+				public void report(Test test, long startTime,
+						StatisticsSet statistics) {
+					recorder.record(getRunNumber(), test.getNumber(), startTime,
+							statistics);
+				}
+			};
+		} else if (logData && dataLogger.isInfoEnabled()) {
 			final ThreadDataLogger threadDataLogger = new ThreadDataLogger(
 					dataLogger, statisticsServices.getDetailStatisticsView()
 							.getExpressionViews(), m_threadNumber);
 
-			m_dispatchResultReporter = new DispatchResultReporter() {
+			reporter = new DispatchResultReporter() {
 				public void report(Test test, long startTime,
 						StatisticsSet statistics) {
 					threadDataLogger.report(getRunNumber(), test, startTime,
@@ -95,7 +148,7 @@ final class ThreadContextImplementation implements ThreadContext {
 				}
 			};
 		} else {
-			m_dispatchResultReporter = new DispatchResultReporter() {
+			reporter = new DispatchResultReporter() {
 				public void report(Test test, long startTime,
 						StatisticsSet statistics) {
 					// Null reporter.
@@ -103,6 +156,18 @@ final class ThreadContextImplementation implements ThreadContext {
 			};
 		}
 
+		final StatisticsIndexMap.LongSampleIndex timedTestsIndex = statisticsServices
+				.getStatisticsIndexMap().getLongSampleIndex("timedTests");
+
+		if (latencyRecorder != null) {
+			reporter = new LatencyRecordingReporter(reporter,
+					latencyRecorder, timedTestsIndex);
+		}
+		if (arrivalRateScheduler != null) {
+			reporter = new DispatchDelayReporter(reporter, timedTestsIndex);
+		}
+		m_dispatchResultReporter = reporter;
+
 		registerThreadLifeCycleListener(new SkeletonThreadLifeCycleListener() {
 			public void endRun() {
 				reportPendingDispatchContext();
@@ -177,6 +242,10 @@ final class ThreadContextImplementation implements ThreadContext {
 	}
 
 	public void fireBeginRunEvent() {
+		if (m_arrivalRateScheduler != null) {
+			m_dispatchDelay = awaitDispatch();
+		}
+
 		m_threadLifeCycleListeners
 				.apply(new Informer<ThreadLifeCycleListener>() {
 					public void inform(ThreadLifeCycleListener l) {
@@ -185,6 +254,23 @@ final class ThreadContextImplementation implements ThreadContext {
 				});
 	}
 
+	/**
+	 * Wait until the next dispatch time comes or the thread is shut down.
+	 *
+	 * @return dispatch delay in millisecond
+	 */
+	private long awaitDispatch() {
+		final long dispatchTime = m_arrivalRateScheduler.takeDispatchTime();
+		long remaining;
+
+		while ((remaining = dispatchTime - System.nanoTime()) > 0
+				&& !m_shutdown) {
+			LockSupport.parkNanos(Math.min(remaining, MAX_DISPATCH_PARK_NANOS));
+		}
+
+		return m_arrivalRateScheduler.dispatched(dispatchTime);
+	}
+
 	public void fireEndRunEvent() {
 		m_threadLifeCycleListeners
 				.apply(new Informer<ThreadLifeCycleListener>() {
@@ -264,17 +350,21 @@ final class ThreadContextImplementation implements ThreadContext {
 
 		m_statisticsForLastTest = dispatchContext.getStatisticsForTest();
 
+		long dispatchDelay = 0;
+
+		if (parentDispatchContext == null) {
+			dispatchDelay = m_dispatchDelay;
+			m_dispatchDelay = 0;
+		}
+
 		// Flush any pending report created by an inner test.
 		reportPendingDispatchContext();
 
 		if (m_delayReports) {
 			m_pendingDispatchContext = dispatchContext;
+			m_pendingDispatchDelay = dispatchDelay;
 		} else {
-			try {
-				dispatchContext.report();
-			} catch (DispatchStateException e) {
-				throw new AssertionError(e);
-			}
+			report(dispatchContext, dispatchDelay);
 		}
 
 		setTestLogMarker(null);
@@ -305,13 +395,22 @@ final class ThreadContextImplementation implements ThreadContext {
 
 	public void reportPendingDispatchContext() {
 		if (m_pendingDispatchContext != null) {
-			try {
-				m_pendingDispatchContext.report();
-			} catch (DispatchStateException e) {
-				throw new AssertionError(e);
-			}
+			report(m_pendingDispatchContext, m_pendingDispatchDelay);
 
 			m_pendingDispatchContext = null;
+			m_pendingDispatchDelay = 0;
+		}
+	}
+
+	private void report(DispatchContext dispatchContext, long dispatchDelay) {
+		m_reportedDispatchDelay = dispatchDelay;
+
+		try {
+			dispatchContext.report();
+		} catch (DispatchStateException e) {
+			throw new AssertionError(e);
+		} finally {
+			m_reportedDispatchDelay = 0;
 		}
 	}
 
@@ -333,6 +432,63 @@ final class ThreadContextImplementation implements ThreadContext {
 		}
 	}
 
+	/**
+	 * Add the dispatch delay of the run to the test time of its first top
+	 * level test. The reporter is given the statistics of the dispatch before
+	 * they are added to the test statistics, so the delay is included in the
+	 * test time sent to the console, the data log and the latency histogram.
+	 * Failed tests don't have the timed test count.
+	 */
+	private final class DispatchDelayReporter implements
+			DispatchResultReporter {
+		private final DispatchResultReporter m_delegate;
+		private final StatisticsIndexMap.LongSampleIndex m_timedTestsIndex;
+
+		public DispatchDelayReporter(DispatchResultReporter delegate,
+				StatisticsIndexMap.LongSampleIndex timedTestsIndex) {
+			m_delegate = delegate;
+			m_timedTestsIndex = timedTestsIndex;
+		}
+
+		public void report(Test test, long startTime, StatisticsSet statistics) {
+			if (m_reportedDispatchDelay > 0
+					&& statistics.getCount(m_timedTestsIndex) == 1) {
+				final long testTime = statistics.getSum(m_timedTestsIndex)
+						+ m_reportedDispatchDelay;
+				statistics.reset(m_timedTestsIndex);
+				statistics.addSample(m_timedTestsIndex, testTime);
+			}
+			m_delegate.report(test, startTime, statistics);
+		}
+	}
+
+	/**
+	 * Record the test time of the successful tests. Failed tests don't have
+	 * the timed test count.
+	 */
+	private final class LatencyRecordingReporter implements
+			DispatchResultReporter {
+		private final DispatchResultReporter m_delegate;
+		private final LatencyRecorder m_latencyRecorder;
+		private final StatisticsIndexMap.LongSampleIndex m_timedTestsIndex;
+
+		public LatencyRecordingReporter(DispatchResultReporter delegate,
+				LatencyRecorder latencyRecorder,
+				StatisticsIndexMap.LongSampleIndex timedTestsIndex) {
+			m_delegate = delegate;
+			m_latencyRecorder = latencyRecorder;
+			m_timedTestsIndex = timedTestsIndex;
+		}
+
+		public void report(Test test, long startTime, StatisticsSet statistics) {
+			if (statistics.getCount(m_timedTestsIndex) > 0) {
+				m_latencyRecorder.record(test.getNumber(),
+						statistics.getSum(m_timedTestsIndex));
+			}
+			m_delegate.report(test, startTime, statistics);
+		}
+	}
+
 	private static final class DispatchContextStack {
 		private final List<DispatchContext> m_stack = new ArrayList<DispatchContext>();
 
@@ -0,0 +1,47 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.messages.agent;
+
+import net.grinder.communication.Message;
+
+/**
+ * Message sent from the console to the worker processes through the agents to change the load of the running test.
+ *
+ * @since 3.4.1
+ */
+public class TargetLoadMessage implements Message {
+	private static final long serialVersionUID = -3870415692367018521L;
+
+	private final int threadsPerProcess;
+	private final double arrivalRate;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadsPerProcess target thread count of each worker process. 0 if it's not changed.
+	 * @param arrivalRate       target arrival rate of the whole test. 0 if it's not changed.
+	 */
+	public TargetLoadMessage(int threadsPerProcess, double arrivalRate) {
+		this.threadsPerProcess = threadsPerProcess;
+		this.arrivalRate = arrivalRate;
+	}
+
+	public int getThreadsPerProcess() {
+		return threadsPerProcess;
+	}
+
+	public double getArrivalRate() {
+		return arrivalRate;
+	}
+}
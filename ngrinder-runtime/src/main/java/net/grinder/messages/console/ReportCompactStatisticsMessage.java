@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.messages.console;
+
+import net.grinder.communication.Message;
+import net.grinder.statistics.CompactStatisticsCodec;
+
+/**
+ * Message sent from the worker process to the console instead of {@link ReportStatisticsMessage} when the console
+ * supports {@link CompactStatisticsCodec}. It contains the encoded statistics delta.
+ *
+ * @since 3.4.1
+ */
+public class ReportCompactStatisticsMessage implements Message {
+	private static final long serialVersionUID = 6218810457437315523L;
+
+	private final byte[] data;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param data statistics delta encoded by {@link CompactStatisticsCodec}
+	 */
+	public ReportCompactStatisticsMessage(byte[] data) {
+		this.data = data;
+	}
+
+	public byte[] getData() {
+		return data;
+	}
+}
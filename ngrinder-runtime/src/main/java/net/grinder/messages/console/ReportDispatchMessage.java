@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.messages.console;
+
+import net.grinder.communication.Message;
+
+/**
+ * Message sent from the worker process to the console along with {@link ReportStatisticsMessage} when the runs are
+ * dispatched at the arrival rate. It contains the dispatch counts since the last report.
+ *
+ * @since 3.4.1
+ */
+public class ReportDispatchMessage implements Message {
+	private static final long serialVersionUID = 2957312270981452214L;
+
+	private final long dispatches;
+	private final long lateDispatches;
+	private final long missedDispatches;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dispatches       runs dispatched
+	 * @param lateDispatches   runs started later than the dispatch time
+	 * @param missedDispatches dispatches dropped because they were delayed more than the max delay
+	 */
+	public ReportDispatchMessage(long dispatches, long lateDispatches, long missedDispatches) {
+		this.dispatches = dispatches;
+		this.lateDispatches = lateDispatches;
+		this.missedDispatches = missedDispatches;
+	}
+
+	public long getDispatches() {
+		return dispatches;
+	}
+
+	public long getLateDispatches() {
+		return lateDispatches;
+	}
+
+	public long getMissedDispatches() {
+		return missedDispatches;
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.messages.console;
+
+import net.grinder.communication.Message;
+
+/**
+ * Message sent from the worker process to the console along with {@link ReportStatisticsMessage}. It contains the
+ * lookup counts of the DNS cache since the last report.
+ *
+ * @since 3.4.1
+ */
+public class ReportDnsCacheMessage implements Message {
+	private static final long serialVersionUID = -4381264617592304522L;
+
+	private final long hits;
+	private final long misses;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param hits   lookups served from the cache
+	 * @param misses lookups resolved by DNS
+	 */
+	public ReportDnsCacheMessage(long hits, long misses) {
+		this.hits = hits;
+		this.misses = misses;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Format of the binary data log which is written by the worker process instead of the text data log.
+ * <p/>
+ * The file starts with the header having the magic number, the version and the name and the type of each detail
+ * statistics column. Fixed size records follow it. Each record has the thread number, the run number and the test
+ * number as int, the start time in millisecond since epoch as long and the value of each column as long. The value of
+ * the double column is stored as {@link Double#doubleToRawLongBits(double)}. All values are big endian.
+ * <p/>
+ * {@link #convert(InputStream, Writer, long)} produces the same text as the text data log.
+ *
+ * @since 3.4.1
+ */
+public abstract class BinaryDataLog {
+
+	/**
+	 * File name suffix of the binary data log. The text data log uses "-data.log".
+	 */
+	public static final String FILE_SUFFIX = "-data.bin";
+
+	private static final int MAGIC = 0x4E444C47;
+	private static final int VERSION = 1;
+
+	private static final int RECORD_PREFIX_SIZE = 3 * 4 + 8;
+
+	private static final String TEXT_HEADER = "Thread, Run, Test, Start time (ms since Epoch)";
+	private static final String TEXT_SEPARATOR = ", ";
+
+	/**
+	 * Get the record size of the data log having the given number of columns.
+	 *
+	 * @param columnCount number of detail statistics columns
+	 * @return record size in byte
+	 */
+	public static int getRecordSize(int columnCount) {
+		return RECORD_PREFIX_SIZE + columnCount * 8;
+	}
+
+	/**
+	 * Write the header.
+	 *
+	 * @param outputStream output stream
+	 * @param columnNames  display names of the columns
+	 * @param doubles      true on the column having double values
+	 * @throws IOException occurs when writing fails
+	 */
+	public static void writeHeader(OutputStream outputStream, String[] columnNames, boolean[] doubles)
+			throws IOException {
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(columnNames.length);
+		for (int i = 0; i < columnNames.length; i++) {
+			out.writeUTF(columnNames[i]);
+			out.writeBoolean(doubles[i]);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Check if the given stream starts with the binary data log header. The stream is not reset.
+	 *
+	 * @param inputStream input stream
+	 * @return true if it's a binary data log
+	 * @throws IOException occurs when reading fails
+	 */
+	public static boolean isBinaryDataLog(InputStream inputStream) throws IOException {
+		try {
+			return new DataInputStream(inputStream).readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Convert the binary data log into the text data log format. The truncated last record is ignored, so the log
+	 * which is still being written can be converted.
+	 *
+	 * @param inputStream binary data log
+	 * @param writer      writer of the text data log
+	 * @param limit       max number of characters to be written. The conversion stops at the line exceeding it.
+	 * @return number of characters written
+	 * @throws IOException occurs when the input is not a binary data log or reading or writing fails
+	 */
+	public static long convert(InputStream inputStream, Writer writer, long limit) throws IOException {
+		DataInputStream in = new DataInputStream(inputStream);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a binary data log");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported binary data log version " + version);
+		}
+		int columnCount = in.readInt();
+		boolean[] doubles = new boolean[columnCount];
+		StringBuilder line = new StringBuilder(TEXT_HEADER);
+		for (int i = 0; i < columnCount; i++) {
+			line.append(TEXT_SEPARATOR).append(in.readUTF());
+			doubles[i] = in.readBoolean();
+		}
+		String text = line.append('\n').toString();
+		writer.write(text);
+		long written = text.length();
+
+		byte[] record = new byte[getRecordSize(columnCount)];
+		while (written < limit && readRecord(in, record)) {
+			line.setLength(0);
+			line.append(getInt(record, 0)).append(TEXT_SEPARATOR);
+			line.append(getInt(record, 4)).append(TEXT_SEPARATOR);
+			line.append(getInt(record, 8)).append(TEXT_SEPARATOR);
+			line.append(getLong(record, 12));
+			for (int i = 0; i < columnCount; i++) {
+				long value = getLong(record, RECORD_PREFIX_SIZE + i * 8);
+				line.append(TEXT_SEPARATOR);
+				if (doubles[i]) {
+					line.append(Double.longBitsToDouble(value));
+				} else {
+					line.append(value);
+				}
+			}
+			text = line.append('\n').toString();
+			writer.write(text);
+			written += text.length();
+		}
+		writer.flush();
+		return written;
+	}
+
+	private static boolean readRecord(DataInputStream in, byte[] record) throws IOException {
+		try {
+			in.readFully(record);
+			return true;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	private static int getInt(byte[] buffer, int offset) {
+		return ((buffer[offset] & 0xFF) << 24) | ((buffer[offset + 1] & 0xFF) << 16)
+				| ((buffer[offset + 2] & 0xFF) << 8) | (buffer[offset + 3] & 0xFF);
+	}
+
+	private static long getLong(byte[] buffer, int offset) {
+		return ((long) getInt(buffer, offset) << 32) | (getInt(buffer, offset + 4) & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import net.grinder.common.Test;
+
+import java.io.*;
+
+/**
+ * Compact wire format of the test statistics which the worker process reports to the console.
+ * <p/>
+ * {@link net.grinder.messages.console.ReportStatisticsMessage} is Java serialized with the class descriptors of the
+ * message and the statistics map on every report. This format writes the version byte and then the
+ * {@link TestStatisticsMap} externalized into an {@link ObjectOutput} which encodes int and long values as the zig zag
+ * varints and double values as the varints of their byte reversed bits, so that the small counts and the integral
+ * times take one or two bytes. The tests are identified by their numbers only, since the descriptions are sent once
+ * by {@link net.grinder.messages.console.RegisterTestsMessage}. With the sparse option, the tests which had no
+ * activity since the last report are left out.
+ * <p/>
+ * Nothing is Java serialized. The encoding fails if the statistics try to write an object, and the caller should fall
+ * back to the default format then.
+ *
+ * @since 3.4.1
+ */
+public abstract class CompactStatisticsCodec {
+
+	/**
+	 * The latest format version which this codec can encode and decode.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Encode the given statistics.
+	 *
+	 * @param statistics           statistics to be encoded
+	 * @param statisticsSetFactory statistics set factory
+	 * @param sparse               true if the tests having zero statistics should be left out
+	 * @return encoded bytes
+	 * @throws IOException occurs when the statistics can not be written in this format
+	 */
+	public static byte[] encode(TestStatisticsMap statistics, StatisticsSetFactory statisticsSetFactory,
+			boolean sparse) throws IOException {
+		final TestStatisticsMap target;
+		if (sparse) {
+			target = new TestStatisticsMap(statisticsSetFactory);
+			(statistics.new ForEach() {
+				public void next(Test test, StatisticsSet statisticsSet) {
+					if (!statisticsSet.isZero()) {
+						target.put(test, statisticsSet);
+					}
+				}
+			}).iterate();
+		} else {
+			target = statistics;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		CompactObjectOutput out = new CompactObjectOutput(new DataOutputStream(bytes));
+		out.writeByte(VERSION);
+		((Externalizable) target).writeExternal(out);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decode the statistics encoded by {@link #encode(TestStatisticsMap, StatisticsSetFactory, boolean)}.
+	 *
+	 * @param data                 encoded bytes
+	 * @param statisticsSetFactory statistics set factory
+	 * @return decoded statistics
+	 * @throws IOException occurs when the data is broken or written in the unknown version
+	 */
+	public static TestStatisticsMap decode(byte[] data, StatisticsSetFactory statisticsSetFactory)
+			throws IOException {
+		CompactObjectInput in = new CompactObjectInput(new DataInputStream(new ByteArrayInputStream(data)));
+		int version = in.readUnsignedByte();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported compact statistics version " + version);
+		}
+		TestStatisticsMap statistics = new TestStatisticsMap(statisticsSetFactory);
+		try {
+			((Externalizable) statistics).readExternal(in);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Compact statistics should not contain any object", e);
+		}
+		return statistics;
+	}
+
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	static long readVarLong(DataInput in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	static void writeZigZag(DataOutput out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	static long readZigZag(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * {@link ObjectOutput} which writes the numbers as the varints and refuses the objects.
+	 */
+	private static final class CompactObjectOutput implements ObjectOutput {
+		private final DataOutputStream out;
+
+		CompactObjectOutput(DataOutputStream out) {
+			this.out = out;
+		}
+
+		public void writeObject(Object obj) throws IOException {
+			throw new NotSerializableException("Compact statistics can not contain " + obj);
+		}
+
+		public void writeShort(int v) throws IOException {
+			writeZigZag(out, (short) v);
+		}
+
+		public void writeChar(int v) throws IOException {
+			writeVarLong(out, (char) v);
+		}
+
+		public void writeInt(int v) throws IOException {
+			writeZigZag(out, v);
+		}
+
+		public void writeLong(long v) throws IOException {
+			writeZigZag(out, v);
+		}
+
+		public void writeFloat(float v) throws IOException {
+			writeVarLong(out, Integer.reverseBytes(Float.floatToRawIntBits(v)) & 0xFFFFFFFFL);
+		}
+
+		public void writeDouble(double v) throws IOException {
+			writeVarLong(out, Long.reverseBytes(Double.doubleToRawLongBits(v)));
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+		}
+
+		public void write(byte[] b) throws IOException {
+			out.write(b);
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		public void writeBoolean(boolean v) throws IOException {
+			out.writeBoolean(v);
+		}
+
+		public void writeByte(int v) throws IOException {
+			out.writeByte(v);
+		}
+
+		public void writeBytes(String s) throws IOException {
+			out.writeBytes(s);
+		}
+
+		public void writeChars(String s) throws IOException {
+			out.writeChars(s);
+		}
+
+		public void writeUTF(String s) throws IOException {
+			out.writeUTF(s);
+		}
+
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+
+	/**
+	 * {@link ObjectInput} which reads what {@link CompactObjectOutput} wrote.
+	 */
+	private static final class CompactObjectInput implements ObjectInput {
+		private final DataInputStream in;
+
+		CompactObjectInput(DataInputStream in) {
+			this.in = in;
+		}
+
+		public Object readObject() throws IOException {
+			throw new NotSerializableException("Compact statistics can not contain any object");
+		}
+
+		public short readShort() throws IOException {
+			return (short) readZigZag(in);
+		}
+
+		public int readUnsignedShort() throws IOException {
+			return readShort() & 0xFFFF;
+		}
+
+		public char readChar() throws IOException {
+			return (char) readVarLong(in);
+		}
+
+		public int readInt() throws IOException {
+			return (int) readZigZag(in);
+		}
+
+		public long readLong() throws IOException {
+			return readZigZag(in);
+		}
+
+		public float readFloat() throws IOException {
+			return Float.intBitsToFloat(Integer.reverseBytes((int) readVarLong(in)));
+		}
+
+		public double readDouble() throws IOException {
+			return Double.longBitsToDouble(Long.reverseBytes(readVarLong(in)));
+		}
+
+		public int read() throws IOException {
+			return in.read();
+		}
+
+		public int read(byte[] b) throws IOException {
+			return in.read(b);
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			return in.read(b, off, len);
+		}
+
+		public long skip(long n) throws IOException {
+			return in.skip(n);
+		}
+
+		public int available() throws IOException {
+			return in.available();
+		}
+
+		public void readFully(byte[] b) throws IOException {
+			in.readFully(b);
+		}
+
+		public void readFully(byte[] b, int off, int len) throws IOException {
+			in.readFully(b, off, len);
+		}
+
+		public int skipBytes(int n) throws IOException {
+			return in.skipBytes(n);
+		}
+
+		public boolean readBoolean() throws IOException {
+			return in.readBoolean();
+		}
+
+		public byte readByte() throws IOException {
+			return in.readByte();
+		}
+
+		public int readUnsignedByte() throws IOException {
+			return in.readUnsignedByte();
+		}
+
+		@SuppressWarnings("deprecation")
+		public String readLine() throws IOException {
+			return in.readLine();
+		}
+
+		public String readUTF() throws IOException {
+			return in.readUTF();
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Fixed size, mergeable histogram of the test time in millisecond.
+ * <p/>
+ * The values are put into log scaled buckets. The values less than 128 have their own bucket and each power of two
+ * range above it is divided into 64 buckets, so the recorded value is precise within 1/64 of the value. The values
+ * bigger than {@link #MAX_VALUE} are recorded as {@link #MAX_VALUE}.
+ * <p/>
+ * This class is not thread safe. Use {@link LatencyRecorder} to record the values from multiple threads.
+ *
+ * @since 3.4.1
+ */
+public class LatencyHistogram implements Serializable {
+	private static final long serialVersionUID = -2914352385127389345L;
+
+	/**
+	 * Max recordable value.
+	 */
+	public static final long MAX_VALUE = Integer.MAX_VALUE;
+
+	private static final int LINEAR_BUCKET_COUNT = 128;
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * Count of buckets.
+	 */
+	public static final int BUCKET_COUNT = getBucketIndex(MAX_VALUE) + 1;
+
+	private transient long[] counts = new long[BUCKET_COUNT];
+	private transient long totalCount = 0;
+
+	/**
+	 * Get the bucket index of the given value.
+	 *
+	 * @param value value
+	 * @return bucket index
+	 */
+	public static int getBucketIndex(long value) {
+		if (value < LINEAR_BUCKET_COUNT) {
+			return value < 0 ? 0 : (int) value;
+		}
+		if (value > MAX_VALUE) {
+			value = MAX_VALUE;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return LINEAR_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+	}
+
+	/**
+	 * Get the biggest value which is recorded in the given bucket.
+	 *
+	 * @param index bucket index
+	 * @return value
+	 */
+	public static long getHighestEquivalentValue(int index) {
+		if (index < LINEAR_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + 1;
+		long subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return Math.min(((subBucket + 1) << shift) - 1, MAX_VALUE);
+	}
+
+	/**
+	 * Record the given value.
+	 *
+	 * @param value test time in millisecond
+	 */
+	public void record(long value) {
+		addCount(getBucketIndex(value), 1);
+	}
+
+	/**
+	 * Add the count to the given bucket.
+	 *
+	 * @param index bucket index
+	 * @param count count
+	 */
+	public void addCount(int index, long count) {
+		counts[index] += count;
+		totalCount += count;
+	}
+
+	/**
+	 * Merge the given histogram into this.
+	 *
+	 * @param other histogram to be merged
+	 */
+	public void add(LatencyHistogram other) {
+		if (other.totalCount == 0) {
+			return;
+		}
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] += other.counts[i];
+		}
+		totalCount += other.totalCount;
+	}
+
+	/**
+	 * Clear all recorded values.
+	 */
+	public void reset() {
+		if (totalCount != 0) {
+			Arrays.fill(counts, 0);
+			totalCount = 0;
+		}
+	}
+
+	/**
+	 * Get the value at the given percentile. The biggest value of the bucket is returned, so the result never
+	 * underestimates the real value more than the bucket precision.
+	 *
+	 * @param percentile percentile between 0 and 100
+	 * @return value at the percentile. 0 if nothing is recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long target = Math.max((long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount), 1);
+		long sum = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			sum += counts[i];
+			if (sum >= target) {
+				return getHighestEquivalentValue(i);
+			}
+		}
+		return getHighestEquivalentValue(BUCKET_COUNT - 1);
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public boolean isEmpty() {
+		return totalCount == 0;
+	}
+
+	/*
+	 * Only the non empty buckets are written as the index delta and the count in variable length encoding.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int nonEmpty = 0;
+		for (long each : counts) {
+			if (each != 0) {
+				nonEmpty++;
+			}
+		}
+		writeVarLong(out, nonEmpty);
+		int last = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			if (counts[i] != 0) {
+				writeVarLong(out, i - last);
+				writeVarLong(out, counts[i]);
+				last = i;
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		counts = new long[BUCKET_COUNT];
+		long nonEmpty = readVarLong(in);
+		int index = 0;
+		for (long i = 0; i < nonEmpty; i++) {
+			index += (int) readVarLong(in);
+			if (index < 0 || index >= BUCKET_COUNT) {
+				throw new IOException("Invalid histogram bucket " + index);
+			}
+			addCount(index, readVarLong(in));
+		}
+	}
+
+	private static void writeVarLong(ObjectOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(ObjectInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed variable length value");
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe recorder of the test time histogram per test in the worker process.
+ * <p/>
+ * Recording doesn't allocate any object once the test is recorded for the first time. The recorded values are
+ * collected and cleared by {@link #drain()} at each report to the console.
+ *
+ * @since 3.4.1
+ */
+public class LatencyRecorder {
+
+	// Copy on write. Tests are registered only a few times in a process.
+	private volatile TestCounts[] tests = new TestCounts[0];
+
+	/**
+	 * Record the test time of the given test.
+	 *
+	 * @param testNumber test number
+	 * @param time       test time in millisecond
+	 */
+	public void record(int testNumber, long time) {
+		getTestCounts(testNumber).counts.incrementAndGet(LatencyHistogram.getBucketIndex(time));
+	}
+
+	/**
+	 * Collect the values recorded since the last call and clear them.
+	 *
+	 * @return histogram per test number. Tests which don't have any recorded value are not included.
+	 */
+	public Map<Integer, LatencyHistogram> drain() {
+		Map<Integer, LatencyHistogram> result = new HashMap<Integer, LatencyHistogram>();
+		for (TestCounts each : tests) {
+			LatencyHistogram histogram = null;
+			for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+				if (each.counts.get(i) == 0) {
+					continue;
+				}
+				long count = each.counts.getAndSet(i, 0);
+				if (count != 0) {
+					if (histogram == null) {
+						histogram = new LatencyHistogram();
+					}
+					histogram.addCount(i, count);
+				}
+			}
+			if (histogram != null) {
+				result.put(each.testNumber, histogram);
+			}
+		}
+		return result;
+	}
+
+	private TestCounts getTestCounts(int testNumber) {
+		for (TestCounts each : tests) {
+			if (each.testNumber == testNumber) {
+				return each;
+			}
+		}
+		synchronized (this) {
+			TestCounts[] current = tests;
+			for (TestCounts each : current) {
+				if (each.testNumber == testNumber) {
+					return each;
+				}
+			}
+			TestCounts[] newTests = new TestCounts[current.length + 1];
+			System.arraycopy(current, 0, newTests, 0, current.length);
+			newTests[current.length] = new TestCounts(testNumber);
+			tests = newTests;
+			return newTests[current.length];
+		}
+	}
+
+	private static final class TestCounts {
+		private final int testNumber;
+		private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+
+		private TestCounts(int testNumber) {
+			this.testNumber = testNumber;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent cache of the resolved host addresses which respects the TTL of the DNS records.
+ * <p/>
+ * The JVM address cache is disabled in the worker process so that the {@link NameStore} overrides take effect
+ * immediately. This cache takes its place for the names resolved by DNS. The TTL of each name is the smallest TTL of
+ * its records, bounded by the configured minimum and maximum TTL. The names which don't exist are cached for the
+ * negative TTL. If the round robin is enabled, the addresses are rotated on each lookup so that the connections are
+ * spread over all addresses of the name.
+ * <p/>
+ * It's configured by the system properties.
+ * <ul>
+ * <li>ngrinder.dns.cache.minTtl : minimum TTL in second. default 0</li>
+ * <li>ngrinder.dns.cache.maxTtl : maximum TTL in second. default 300. 0 disables the cache</li>
+ * <li>ngrinder.dns.cache.negativeTtl : TTL of the unknown names in second. default 10</li>
+ * <li>ngrinder.dns.cache.roundRobin : rotate the addresses. default true</li>
+ * </ul>
+ *
+ * @since 3.4.1
+ */
+@SuppressWarnings("WeakerAccess")
+public class DnsCache {
+	public static final String PROP_DNS_CACHE_PREFIX = "ngrinder.dns.cache.";
+	public static final String PROP_DNS_CACHE_MIN_TTL = PROP_DNS_CACHE_PREFIX + "minTtl";
+	public static final String PROP_DNS_CACHE_MAX_TTL = PROP_DNS_CACHE_PREFIX + "maxTtl";
+	public static final String PROP_DNS_CACHE_NEGATIVE_TTL = PROP_DNS_CACHE_PREFIX + "negativeTtl";
+	public static final String PROP_DNS_CACHE_ROUND_ROBIN = PROP_DNS_CACHE_PREFIX + "roundRobin";
+
+	private static final int MAX_ENTRIES = 10000;
+
+	private static DnsCache singleton;
+
+	private final long minTtl;
+	private final long maxTtl;
+	private final long negativeTtl;
+	private final boolean roundRobin;
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param minTtl      minimum TTL in second
+	 * @param maxTtl      maximum TTL in second. 0 disables the cache.
+	 * @param negativeTtl TTL of the unknown names in second. 0 disables the negative cache.
+	 * @param roundRobin  true if the addresses are rotated on each lookup
+	 */
+	public DnsCache(long minTtl, long maxTtl, long negativeTtl, boolean roundRobin) {
+		this.minTtl = Math.max(minTtl, 0);
+		this.maxTtl = Math.max(maxTtl, 0);
+		this.negativeTtl = Math.max(negativeTtl, 0);
+		this.roundRobin = roundRobin;
+	}
+
+	/**
+	 * Get the instance configured by the system properties.
+	 *
+	 * @return {@link DnsCache} instance
+	 */
+	public static synchronized DnsCache getInstance() {
+		if (singleton == null) {
+			singleton = new DnsCache(getLongProperty(PROP_DNS_CACHE_MIN_TTL, 0),
+					getLongProperty(PROP_DNS_CACHE_MAX_TTL, 300),
+					getLongProperty(PROP_DNS_CACHE_NEGATIVE_TTL, 10),
+					!"false".equalsIgnoreCase(System.getProperty(PROP_DNS_CACHE_ROUND_ROBIN)));
+		}
+		return singleton;
+	}
+
+	private static long getLongProperty(String key, long defaultValue) {
+		try {
+			return Long.parseLong(System.getProperty(key, String.valueOf(defaultValue)).trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Get the cached addresses of the given name.
+	 *
+	 * @param name host name
+	 * @return addresses. null if the name is not cached or expired.
+	 * @throws UnknownHostException occurs when the name is cached as unknown
+	 */
+	public InetAddress[] get(String name) throws UnknownHostException {
+		Entry entry = entries.get(name);
+		if (entry == null || entry.isExpired(System.nanoTime())) {
+			if (entry != null) {
+				entries.remove(name, entry);
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		if (entry.addresses == null) {
+			throw new UnknownHostException(name);
+		}
+		return entry.getAddresses(roundRobin);
+	}
+
+	/**
+	 * Cache the resolved addresses of the given name.
+	 *
+	 * @param name      host name
+	 * @param addresses resolved addresses
+	 * @param ttl       smallest TTL of the records in second
+	 * @return addresses to be returned for this lookup
+	 */
+	public InetAddress[] put(String name, InetAddress[] addresses, long ttl) {
+		Entry entry = new Entry(addresses, Math.min(Math.max(ttl, minTtl), maxTtl));
+		if (maxTtl > 0) {
+			putEntry(name, entry);
+		}
+		return entry.getAddresses(roundRobin);
+	}
+
+	/**
+	 * Cache the given name as unknown.
+	 *
+	 * @param name host name which doesn't exist
+	 */
+	public void putUnknown(String name) {
+		if (negativeTtl > 0) {
+			putEntry(name, new Entry(null, negativeTtl));
+		}
+	}
+
+	private void putEntry(String name, Entry entry) {
+		if (entries.size() >= MAX_ENTRIES) {
+			removeExpired();
+		}
+		entries.put(name, entry);
+	}
+
+	private void removeExpired() {
+		long now = System.nanoTime();
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().isExpired(now)) {
+				iterator.remove();
+			}
+		}
+		if (entries.size() >= MAX_ENTRIES) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * Clear all cached names.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Get the number of the lookups served from the cache including the unknown names.
+	 *
+	 * @return hit count
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of the lookups which are not cached or expired.
+	 *
+	 * @return miss count
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private static final class Entry {
+		private final InetAddress[] addresses;
+		private final long expireTime;
+		private final AtomicInteger next = new AtomicInteger();
+
+		private Entry(InetAddress[] addresses, long ttl) {
+			this.addresses = addresses;
+			this.expireTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttl);
+		}
+
+		private boolean isExpired(long now) {
+			return now - expireTime >= 0;
+		}
+
+		private InetAddress[] getAddresses(boolean rotate) {
+			InetAddress[] result = new InetAddress[addresses.length];
+			int offset = rotate && addresses.length > 1 ? (next.getAndIncrement() & Integer.MAX_VALUE)
+					% addresses.length : 0;
+			for (int i = 0; i < addresses.length; i++) {
+				result[i] = addresses[(offset + i) % addresses.length];
+			}
+			return result;
+		}
+	}
+}
@@ -28,37 +28,55 @@ import java.net.UnknownHostException;
 @SuppressWarnings({"restriction", "WeakerAccess"})
 public class LocalManagedDnsImpl implements NameService {
 
+	private final DnsCache dnsCache;
+
 	public LocalManagedDnsImpl() {
 		Cache cache = createCache();
 		Lookup.setDefaultCache(cache, DClass.IN);
+		dnsCache = createDnsCache();
 	}
 
 	protected Cache createCache() {
 		return new Cache();
 	}
 
+	protected DnsCache createDnsCache() {
+		return DnsCache.getInstance();
+	}
+
 	/**
-	 * Finds A records (ip addresses) for the host name.
+	 * Finds A records (ip addresses) for the host name. The resolved addresses are served from {@link DnsCache}
+	 * until their TTL expires.
 	 *
 	 * @param name host name to resolve.
 	 * @return All the ip addresses found for the host name.
 	 * @throws UnknownHostException occurs when name is not available in DNS
 	 */
 	public InetAddress[] lookupAllHostAddr(String name) throws UnknownHostException {
+		InetAddress[] cached = dnsCache.get(name);
+		if (cached != null) {
+			return cached;
+		}
 		try {
 
 			final Lookup lookup = new Lookup(name, Type.A);
 			Record[] records = lookup.run();
 			if (records == null) {
+				// Don't cache the temporary failures.
+				if (lookup.getResult() == Lookup.HOST_NOT_FOUND || lookup.getResult() == Lookup.TYPE_NOT_FOUND) {
+					dnsCache.putUnknown(name);
+				}
 				throw new UnknownHostException(name);
 			}
 
 			InetAddress[] array = new InetAddress[records.length];
+			long ttl = Long.MAX_VALUE;
 			for (int i = 0; i < records.length; i++) {
 				ARecord a = (ARecord) records[i];
 				array[i] = a.getAddress();
+				ttl = Math.min(ttl, a.getTTL());
 			}
-			return array;
+			return dnsCache.put(name, array, ttl);
 		} catch (TextParseException e) {
 			throw new UnknownHostException(e.getMessage());
 		}
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.sm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded set of the keys which {@link NGrinderSecurityManager} allowed already.
+ * <p/>
+ * Only the allowed decisions are cached, so a cache miss always falls back to the full check. The lookup is lock free
+ * and doesn't allocate. When the cache is full, it's cleared rather than evicting the entries one by one, because
+ * the working set of the hosts and the paths of a worker is usually far smaller than the bound.
+ * <p/>
+ * Package scope.
+ *
+ * @param <K> key type
+ * @since 3.4.1
+ */
+final class DecisionCache<K> {
+	private final int maxSize;
+	private final ConcurrentHashMap<K, Boolean> allowed = new ConcurrentHashMap<K, Boolean>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxSize max count of the cached keys
+	 */
+	DecisionCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Check if the given key is allowed already.
+	 *
+	 * @param key key
+	 * @return true if allowed
+	 */
+	boolean isAllowed(K key) {
+		return key != null && allowed.containsKey(key);
+	}
+
+	/**
+	 * Remember the given key as allowed.
+	 *
+	 * @param key key
+	 */
+	void allow(K key) {
+		if (key == null) {
+			return;
+		}
+		if (size.get() >= maxSize) {
+			allowed.clear();
+			size.set(0);
+		}
+		if (allowed.putIfAbsent(key, Boolean.TRUE) == null) {
+			size.incrementAndGet();
+		}
+	}
+
+	int size() {
+		return size.get();
+	}
+}
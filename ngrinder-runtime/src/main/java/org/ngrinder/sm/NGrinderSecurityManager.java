@@ -18,7 +18,9 @@ import java.io.FileDescriptor;
 import java.net.InetAddress;
 import java.security.Permission;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * nGrinder security manager.
@@ -29,6 +31,22 @@ import java.util.List;
  */
 public class NGrinderSecurityManager extends SecurityManager {
 
+	/**
+	 * Max count of the cached path decisions per access type.
+	 */
+	static final int MAX_CACHED_PATHS = 4096;
+
+	/**
+	 * The only class which can access the groovy script cache.
+	 */
+	static final String GROOVY_SCRIPT_CACHE_CLASS = "net.grinder.scriptengine.groovy.CompiledScriptCache";
+
+	/**
+	 * Name of the {@link RuntimePermission} which closes the groovy script cache. It's checked when the script is
+	 * compiled, and the cache can not be accessed after it anymore.
+	 */
+	static final String CLOSE_GROOVY_SCRIPT_CACHE = "closeGroovyScriptCache";
+
 	private String workDirectory = System.getProperty("user.dir");
 
 	private String agentExecDirectory = System.getProperty("ngrinder.exec.path", workDirectory);
@@ -38,13 +56,22 @@ public class NGrinderSecurityManager extends SecurityManager {
 	private final String pythonPath = System.getProperty("python.path");
 	private final String pythonHome = System.getProperty("python.home");
 	private final String pythonCache = System.getProperty("python.cachedir");
+	private String groovyScriptCache = System.getProperty("ngrinder.groovy.cachedir");
+	private String groovyScriptCacheName;
+	private volatile boolean groovyScriptCacheClosed = false;
 	private final String etcHosts = System.getProperty("ngrinder.etc.hosts", "");
 	private final String consoleIP = System.getProperty("ngrinder.console.ip", "127.0.0.1");
-	private final List<String> allowedHost = new ArrayList<String>();
+	private final Set<String> allowedHost = new HashSet<String>();
 	private final List<String> readAllowedDirectory = new ArrayList<String>();
 	private final List<String> writeAllowedDirectory = new ArrayList<String>();
 	private final List<String> deleteAllowedDirectory = new ArrayList<String>();
 
+	// Decisions which are cached not to normalize the path on every write or delete.
+	private final DecisionCache<String> writeAllowedPaths = new DecisionCache<String>(MAX_CACHED_PATHS);
+	private final DecisionCache<String> writeAllowedParents = new DecisionCache<String>(MAX_CACHED_PATHS);
+	private final DecisionCache<String> deleteAllowedPaths = new DecisionCache<String>(MAX_CACHED_PATHS);
+	private final DecisionCache<String> deleteAllowedParents = new DecisionCache<String>(MAX_CACHED_PATHS);
+
 	{
 		this.init();
 	}
@@ -107,6 +134,10 @@ public class NGrinderSecurityManager extends SecurityManager {
 		writeAllowedDirectory.add(logDirectory);
 		writeAllowedDirectory.add(getTempDirectoryPath());
 		deleteAllowedDirectory.add(workDirectory);
+		if (isNotEmpty(groovyScriptCache)) {
+			groovyScriptCache = normalize(new File(groovyScriptCache).getAbsolutePath(), null);
+			groovyScriptCacheName = new File(groovyScriptCache).getName();
+		}
 	}
 
 	private static boolean isNotEmpty(String str) {
@@ -162,6 +193,8 @@ public class NGrinderSecurityManager extends SecurityManager {
 			String permissionName = permission.getName();
 			if ("setSecurityManager".equals(permissionName)) {
 				processSetSecurityManagerAction();
+			} else if (CLOSE_GROOVY_SCRIPT_CACHE.equals(permissionName)) {
+				groovyScriptCacheClosed = true;
 			}
 		} else if (permission instanceof java.security.UnresolvedPermission) {
 			throw new SecurityException("java.security.UnresolvedPermission is not allowed.");
@@ -194,6 +227,7 @@ public class NGrinderSecurityManager extends SecurityManager {
 		if (file != null && file.contains("database.conf")) {
 			throw new SecurityException("File Read access on database.conf is not allowed.");
 		}
+		this.groovyScriptCacheAccessAllowed(file);
 		// fileAccessReadAllowed(file);
 	}
 
@@ -202,6 +236,7 @@ public class NGrinderSecurityManager extends SecurityManager {
 		if (file != null && file.contains("database.conf")) {
 			throw new SecurityException("File Read access on database.conf is not allowed.");
 		}
+		this.groovyScriptCacheAccessAllowed(file);
 	}
 
 	@Override
@@ -210,11 +245,13 @@ public class NGrinderSecurityManager extends SecurityManager {
 
 	@Override
 	public void checkWrite(String file) {
+		this.groovyScriptCacheAccessAllowed(file);
 		this.fileAccessWriteAllowed(file);
 	}
 
 	@Override
 	public void checkDelete(String file) {
+		this.groovyScriptCacheAccessAllowed(file);
 		this.fileAccessDeleteAllowed(file);
 	}
 
@@ -223,6 +260,63 @@ public class NGrinderSecurityManager extends SecurityManager {
 		throw new SecurityException("Cmd execution of " + cmd + " is not allowed.");
 	}
 
+	/**
+	 * The groovy script cache keeps the classes which are defined in the worker processes of all users. So it's
+	 * accessed only by {@link #GROOVY_SCRIPT_CACHE_CLASS} called from the trusted classes until the script is
+	 * compiled. Any access in which the script takes part is denied even if the directory is under the allowed one.
+	 *
+	 * @param file file path
+	 */
+	private void groovyScriptCacheAccessAllowed(String file) {
+		// Any path which resolves into the cache contains its name, so the others are not normalized.
+		if (groovyScriptCacheName == null || file == null || !file.contains(groovyScriptCacheName)) {
+			return;
+		}
+		String filePath = normalize(file, workDirectory);
+		if (filePath != null && !filePath.equals(groovyScriptCache)
+				&& !filePath.startsWith(groovyScriptCache + File.separator)) {
+			return;
+		}
+		if (!groovyScriptCacheClosed && isCalledByGroovyScriptCache()) {
+			return;
+		}
+		throw new SecurityException("File access on " + file + "(" + filePath + ") is not allowed.");
+	}
+
+	/**
+	 * Check if the current call is made by {@link #GROOVY_SCRIPT_CACHE_CLASS} and all classes in the call stack are
+	 * loaded from the class path. The script classes are defined by the other class loaders, and the jython scripts
+	 * run in the org.python classes.
+	 *
+	 * @return true if trusted
+	 */
+	private boolean isCalledByGroovyScriptCache() {
+		boolean calledByCache = false;
+		for (Class<?> each : getClassContext()) {
+			if (!isLoadedFromClassPath(each) || each.getName().startsWith("org.python.")) {
+				return false;
+			}
+			if (GROOVY_SCRIPT_CACHE_CLASS.equals(each.getName())) {
+				calledByCache = true;
+			}
+		}
+		return calledByCache;
+	}
+
+	private static boolean isLoadedFromClassPath(Class<?> clazz) {
+		ClassLoader loader = clazz.getClassLoader();
+		if (loader == null) {
+			return true;
+		}
+		for (ClassLoader each = ClassLoader.getSystemClassLoader(); each != null; each = each.getParent()) {
+			if (loader == each) {
+				return true;
+			}
+		}
+		// The grinder worker loads the engine classes from the class path in its isolating class loader.
+		return loader.getClass().getName().startsWith("net.grinder.util.");
+	}
+
 	/**
 	 * File read access is allowed on <br>
 	 * "agent.exec.folder" and "agent.exec.folder".
@@ -252,12 +346,10 @@ public class NGrinderSecurityManager extends SecurityManager {
 			return;
 		}
 
-		String filePath = normalize(file, workDirectory);
-		for (String dir : writeAllowedDirectory) {
-			if (filePath != null && filePath.startsWith(dir)) {
-				return;
-			}
+		if (isPathAllowed(file, writeAllowedDirectory, writeAllowedPaths, writeAllowedParents)) {
+			return;
 		}
+		String filePath = normalize(file, workDirectory);
 		throw new SecurityException("File write access on " + file + "(" + filePath + ") is not allowed.");
 	}
 
@@ -268,13 +360,81 @@ public class NGrinderSecurityManager extends SecurityManager {
 	 * @param file file path
 	 */
 	private void fileAccessDeleteAllowed(String file) {
+		if (isPathAllowed(file, deleteAllowedDirectory, deleteAllowedPaths, deleteAllowedParents)) {
+			return;
+		}
 		String filePath = normalize(file, workDirectory);
-		for (String dir : deleteAllowedDirectory) {
-			if (filePath != null && filePath.startsWith(dir)) {
-				return;
+		throw new SecurityException("File delete access on " + file + "(" + filePath + ") is not allowed.");
+	}
+
+	/**
+	 * Check if the given file is under one of the allowed directories.
+	 * <p/>
+	 * The file itself and its parent directory are cached when allowed. A file in the cached parent directory is
+	 * allowed without the normalization, because its normalized path is the normalized parent followed by the name.
+	 *
+	 * @param file        file path
+	 * @param directories allowed directories
+	 * @param paths       cache of the allowed files
+	 * @param parents     cache of the parent directories whose all files are allowed
+	 * @return true if allowed
+	 */
+	private boolean isPathAllowed(String file, List<String> directories, DecisionCache<String> paths,
+			DecisionCache<String> parents) {
+		if (paths.isAllowed(file)) {
+			return true;
+		}
+		String parent = getCacheableParent(file);
+		if (parents.isAllowed(parent)) {
+			return true;
+		}
+		if (!startsWithAny(normalize(file, workDirectory), directories)) {
+			return false;
+		}
+		paths.allow(file);
+		if (parent != null && startsWithAny(normalize(parent, workDirectory), directories)) {
+			parents.allow(parent);
+		}
+		return true;
+	}
+
+	private static boolean startsWithAny(String filePath, List<String> directories) {
+		if (filePath == null) {
+			return false;
+		}
+		for (String dir : directories) {
+			if (filePath.startsWith(dir)) {
+				return true;
 			}
 		}
-		throw new SecurityException("File delete access on " + file + "(" + filePath + ") is not allowed.");
+		return false;
+	}
+
+	/**
+	 * Get the parent directory of the given file including the trailing separator, which can be a key of the cached
+	 * decisions. The file whose name is "." or ".." is not cacheable because its name changes the parent on the
+	 * normalization.
+	 *
+	 * @param file file path
+	 * @return parent directory. null if not cacheable
+	 */
+	static String getCacheableParent(String file) {
+		if (file == null) {
+			return null;
+		}
+		int index = Math.max(file.lastIndexOf(UNIX_SEPARATOR), file.lastIndexOf(WINDOWS_SEPARATOR));
+		int nameLength = file.length() - index - 1;
+		if (index < 0 || nameLength == 0) {
+			return null;
+		}
+		if (nameLength <= 2 && file.charAt(index + 1) == '.' && (nameLength == 1 || file.charAt(index + 2) == '.')) {
+			return null;
+		}
+		int prefix = getPrefixLength(file);
+		if (prefix < 0 || prefix > index + 1) {
+			return null;
+		}
+		return file.substring(0, index + 1);
 	}
 
 	@Override
@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.process;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ArrivalRateSchedulerTest {
+
+	@Test
+	public void testDispatchTimesAreFixedByRate() {
+		ArrivalRateScheduler scheduler = new ArrivalRateScheduler(100, 10000);
+		long first = scheduler.takeDispatchTime();
+		long second = scheduler.takeDispatchTime();
+		long third = scheduler.takeDispatchTime();
+		assertThat(second - first, is(TimeUnit.MILLISECONDS.toNanos(10)));
+		assertThat(third - second, is(TimeUnit.MILLISECONDS.toNanos(10)));
+		assertThat(scheduler.getMissedDispatches(), is(0L));
+	}
+
+	@Test
+	public void testLateAndMissedDispatches() throws InterruptedException {
+		ArrivalRateScheduler scheduler = new ArrivalRateScheduler(1000, 20);
+		long first = scheduler.takeDispatchTime();
+		Thread.sleep(100);
+		assertThat(scheduler.dispatched(first), greaterThanOrEqualTo(100L));
+		assertThat(scheduler.getLateDispatches(), is(1L));
+
+		// Only the dispatches in the last 20ms are left.
+		long next = scheduler.takeDispatchTime();
+		assertThat(System.nanoTime() - next, lessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20)));
+		assertThat(scheduler.getMissedDispatches(), greaterThanOrEqualTo(70L));
+		assertThat(scheduler.getDispatches(), is(1L));
+	}
+
+	@Test
+	public void testChangeArrivalRate() {
+		ArrivalRateScheduler scheduler = new ArrivalRateScheduler(100, 10000);
+		scheduler.takeDispatchTime();
+		scheduler.takeDispatchTime();
+		scheduler.setArrivalRate(1000);
+		long first = scheduler.takeDispatchTime();
+		long second = scheduler.takeDispatchTime();
+		assertThat(second - first, is(TimeUnit.MILLISECONDS.toNanos(1)));
+		assertThat(System.nanoTime() - first, lessThan(TimeUnit.SECONDS.toNanos(1)));
+	}
+}
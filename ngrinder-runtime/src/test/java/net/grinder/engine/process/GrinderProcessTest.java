@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.process;
+
+import net.grinder.common.GrinderProperties;
+import net.grinder.engine.process.GrinderProcess.ThreadContexts;
+import net.grinder.engine.process.GrinderProcess.ThreadRampUpEnabledThreadSynchronisation;
+import net.grinder.util.thread.Condition;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GrinderProcessTest {
+	private final Logger logger = mock(Logger.class);
+	private final ThreadContexts threadContexts = new ThreadContexts();
+	private final List<ThreadContext> started = new ArrayList<ThreadContext>();
+	private ThreadRampUpEnabledThreadSynchronisation threadSynchronisation;
+	private ThreadStarter threadStarter;
+
+	@Before
+	public void before() throws Exception {
+		threadSynchronisation = new ThreadRampUpEnabledThreadSynchronisation(new Condition(), null);
+		threadStarter = new ThreadStarter() {
+			@Override
+			public int startThread(Object testRunner) {
+				final int threadNumber = started.size();
+				ThreadContext threadContext = mock(ThreadContext.class);
+				when(threadContext.getThreadNumber()).thenReturn(threadNumber);
+				threadContexts.threadCreated(threadContext);
+				started.add(threadContext);
+				return threadNumber;
+			}
+		};
+		for (int i = 0; i < 4; i++) {
+			threadStarter.startThread(null);
+		}
+	}
+
+	@Test
+	public void testChangeThreadCountUp() {
+		GrinderProcess.changeThreadCount(threadContexts, threadStarter, threadSynchronisation, 6, logger);
+
+		assertThat(started.size(), is(6));
+		assertThat(threadContexts.getNumberOfActiveThreads(), is(6));
+		assertThat(threadSynchronisation.isRampUpDisabled(), is(true));
+		for (ThreadContext each : started) {
+			verify(each, never()).shutdown();
+		}
+	}
+
+	@Test
+	public void testChangeThreadCountDownStopsNewestThreads() {
+		GrinderProcess.changeThreadCount(threadContexts, threadStarter, threadSynchronisation, 6, logger);
+		GrinderProcess.changeThreadCount(threadContexts, threadStarter, threadSynchronisation, 3, logger);
+
+		assertThat(threadContexts.getNumberOfActiveThreads(), is(3));
+		for (int i = 0; i < 3; i++) {
+			verify(started.get(i), never()).shutdown();
+		}
+		for (int i = 3; i < 6; i++) {
+			verify(started.get(i)).shutdown();
+		}
+
+		// The threads which are still stopping are not counted again.
+		GrinderProcess.changeThreadCount(threadContexts, threadStarter, threadSynchronisation, 2, logger);
+
+		assertThat(threadContexts.getNumberOfActiveThreads(), is(2));
+		verify(started.get(2)).shutdown();
+		verify(started.get(1), never()).shutdown();
+		verify(started.get(0), never()).shutdown();
+		assertThat(started.size(), is(6));
+	}
+
+	@Test
+	public void testChangeThreadCountToSameCount() {
+		GrinderProcess.changeThreadCount(threadContexts, threadStarter, threadSynchronisation, 4, logger);
+
+		assertThat(started.size(), is(4));
+		assertThat(threadSynchronisation.isRampUpDisabled(), is(false));
+		for (ThreadContext each : started) {
+			verify(each, never()).shutdown();
+		}
+	}
+
+	@Test
+	public void testThreadStackSize() {
+		GrinderProperties properties = new GrinderProperties();
+		assertThat(GrinderProcess.getThreadStackSize(properties), is(0L));
+		properties.setBoolean(GrinderProcess.GRINDER_PROP_LIGHTWEIGHT_THREAD, true);
+		assertThat(GrinderProcess.getThreadStackSize(properties), is(GrinderProcess.DEFAULT_LIGHTWEIGHT_THREAD_STACK_SIZE));
+		properties.setLong(GrinderProcess.GRINDER_PROP_THREAD_STACK_SIZE, 512 * 1024);
+		assertThat(GrinderProcess.getThreadStackSize(properties), is(512L * 1024));
+	}
+}
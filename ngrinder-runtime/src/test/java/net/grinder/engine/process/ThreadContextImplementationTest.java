@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.engine.process;
+
+import net.grinder.common.AbstractTestSemantics;
+import net.grinder.common.GrinderProperties;
+import net.grinder.statistics.LatencyHistogram;
+import net.grinder.statistics.LatencyRecorder;
+import net.grinder.statistics.StatisticsIndexMap;
+import net.grinder.statistics.StatisticsServices;
+import net.grinder.statistics.StatisticsServicesImplementation;
+import net.grinder.statistics.StatisticsSet;
+import net.grinder.util.StopWatch;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ThreadContextImplementationTest {
+	private final StatisticsServices statisticsServices = StatisticsServicesImplementation.getInstance();
+	private final StatisticsIndexMap.LongSampleIndex timedTests = statisticsServices.getStatisticsIndexMap()
+			.getLongSampleIndex("timedTests");
+
+	// Test time in the test statistics of each test.
+	private final Map<Integer, Long> testTimes = new HashMap<Integer, Long>();
+	private ArrivalRateScheduler scheduler;
+	private LatencyRecorder latencyRecorder;
+	private ThreadContextImplementation threadContext;
+
+	@Before
+	public void before() throws Exception {
+		scheduler = new ArrivalRateScheduler(10, 10000);
+		latencyRecorder = new LatencyRecorder();
+		threadContext = new ThreadContextImplementation(new GrinderProperties(), statisticsServices, 0,
+				mock(Logger.class), latencyRecorder, scheduler, null);
+	}
+
+	@Test
+	public void testDispatchDelayIsAddedToFirstTopLevelTestOnly() throws Exception {
+		// The second dispatch time is passed 50ms ago at least.
+		scheduler.takeDispatchTime();
+		Thread.sleep(150);
+		threadContext.fireBeginRunEvent();
+
+		threadContext.pushDispatchContext(createDispatchContext(1, 10));
+		threadContext.pushDispatchContext(createDispatchContext(2, 10));
+		threadContext.popDispatchContext();
+		threadContext.popDispatchContext();
+		threadContext.pushDispatchContext(createDispatchContext(3, 10));
+		threadContext.popDispatchContext();
+		threadContext.fireEndRunEvent();
+
+		assertThat(testTimes.get(1), greaterThanOrEqualTo(60L));
+		assertThat(testTimes.get(2), is(10L));
+		assertThat(testTimes.get(3), is(10L));
+
+		Map<Integer, LatencyHistogram> latencies = latencyRecorder.drain();
+		assertThat(latencies.get(1).getValueAtPercentile(100), greaterThanOrEqualTo(60L));
+		assertThat(latencies.get(2).getValueAtPercentile(100), is(10L));
+		assertThat(latencies.get(3).getValueAtPercentile(100), is(10L));
+	}
+
+	@Test
+	public void testDispatchDelayIsAddedToDelayedReport() throws Exception {
+		scheduler.takeDispatchTime();
+		Thread.sleep(150);
+		threadContext.fireBeginRunEvent();
+
+		threadContext.setDelayReports(true);
+		threadContext.pushDispatchContext(createDispatchContext(1, 10));
+		threadContext.popDispatchContext();
+		assertThat(testTimes.containsKey(1), is(false));
+		threadContext.pushDispatchContext(createDispatchContext(2, 10));
+		threadContext.popDispatchContext();
+		threadContext.fireEndRunEvent();
+
+		assertThat(testTimes.get(1), greaterThanOrEqualTo(60L));
+		assertThat(testTimes.get(2), is(10L));
+	}
+
+	private DispatchContext createDispatchContext(final int testNumber, final long testTime) {
+		final net.grinder.common.Test test = new StubTest(testNumber);
+		final StatisticsSet statistics = statisticsServices.getStatisticsSetFactory().create();
+		statistics.addSample(timedTests, testTime);
+
+		DispatchContext dispatchContext = mock(DispatchContext.class);
+		when(dispatchContext.getTest()).thenReturn(test);
+		when(dispatchContext.getPauseTimer()).thenReturn(mock(StopWatch.class));
+		try {
+			doAnswer(new Answer<Void>() {
+				public Void answer(InvocationOnMock invocation) {
+					// The dispatcher adds the statistics to the test statistics after reporting them.
+					threadContext.getDispatchResultReporter().report(test, 0, statistics);
+					testTimes.put(testNumber, statistics.getSum(timedTests));
+					return null;
+				}
+			}).when(dispatchContext).report();
+		} catch (DispatchContext.DispatchStateException e) {
+			throw new AssertionError(e);
+		}
+		return dispatchContext;
+	}
+
+	private static final class StubTest extends AbstractTestSemantics {
+		private final int number;
+
+		private StubTest(int number) {
+			this.number = number;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public String getDescription() {
+			return "test " + number;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class BinaryDataLogTest {
+
+	@Test
+	public void testConvertToText() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryDataLog.writeHeader(bytes, new String[]{"Test time", "Errors", "TPS"},
+				new boolean[]{false, false, true});
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeRecord(out, 0, 1, 101, 1400000000000L, 12, 0, Double.doubleToRawLongBits(1.5));
+		writeRecord(out, 3, 2, 102, 1400000000012L, 7, 1, Double.doubleToRawLongBits(0));
+		// Truncated record which is still being written.
+		out.writeInt(4);
+		out.flush();
+		assertThat(bytes.size(), is(39 + 2 * BinaryDataLog.getRecordSize(3) + 4));
+
+		String header = "Thread, Run, Test, Start time (ms since Epoch), Test time, Errors, TPS\n";
+		StringWriter writer = new StringWriter();
+		long written = BinaryDataLog.convert(new ByteArrayInputStream(bytes.toByteArray()), writer, Long.MAX_VALUE);
+		assertThat(writer.toString(), is(header
+				+ "0, 1, 101, 1400000000000, 12, 0, 1.5\n"
+				+ "3, 2, 102, 1400000000012, 7, 1, 0.0\n"));
+		assertThat(written, is((long) writer.toString().length()));
+
+		writer = new StringWriter();
+		BinaryDataLog.convert(new ByteArrayInputStream(bytes.toByteArray()), writer, header.length() + 1);
+		assertThat(writer.toString(), is(header + "0, 1, 101, 1400000000000, 12, 0, 1.5\n"));
+	}
+
+	@Test
+	public void testIsBinaryDataLog() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryDataLog.writeHeader(bytes, new String[0], new boolean[0]);
+		assertThat(BinaryDataLog.isBinaryDataLog(new ByteArrayInputStream(bytes.toByteArray())), is(true));
+		assertThat(BinaryDataLog.isBinaryDataLog(new ByteArrayInputStream("Thread, Run".getBytes())), is(false));
+		assertThat(BinaryDataLog.isBinaryDataLog(new ByteArrayInputStream(new byte[0])), is(false));
+	}
+
+	private void writeRecord(DataOutputStream out, int thread, int run, int test, long startTime, long... values)
+			throws IOException {
+		out.writeInt(thread);
+		out.writeInt(run);
+		out.writeInt(test);
+		out.writeLong(startTime);
+		for (long each : values) {
+			out.writeLong(each);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import net.grinder.common.AbstractTestSemantics;
+import net.grinder.common.Test;
+import org.junit.Before;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class CompactStatisticsCodecTest {
+	private StatisticsSetFactory statisticsSetFactory;
+	private StatisticsIndexMap.LongSampleIndex timedTests;
+	private StatisticsIndexMap.LongIndex errors;
+
+	@Before
+	public void before() {
+		StatisticsServices services = StatisticsServicesImplementation.getInstance();
+		statisticsSetFactory = services.getStatisticsSetFactory();
+		timedTests = services.getStatisticsIndexMap().getLongSampleIndex("timedTests");
+		errors = services.getStatisticsIndexMap().getLongIndex("errors");
+	}
+
+	@org.junit.Test
+	public void testRoundTrip() throws IOException {
+		TestStatisticsMap report = newReport();
+		byte[] data = CompactStatisticsCodec.encode(report, statisticsSetFactory, false);
+		Map<Integer, StatisticsSet> decoded = toMap(CompactStatisticsCodec.decode(data, statisticsSetFactory));
+
+		assertThat(decoded.size(), is(2));
+		assertThat(decoded.get(1).getCount(timedTests), is(3L));
+		assertThat(decoded.get(1).getSum(timedTests), is(1010L + 20 + 3000));
+		assertThat(decoded.get(1).getVariance(timedTests), is(toMap(report).get(1).getVariance(timedTests)));
+		assertThat(decoded.get(1).getValue(errors), is(2L));
+		assertThat(decoded.get(2).isZero(), is(true));
+	}
+
+	@org.junit.Test
+	public void testSparse() throws IOException {
+		TestStatisticsMap report = newReport();
+		byte[] sparse = CompactStatisticsCodec.encode(report, statisticsSetFactory, true);
+		byte[] full = CompactStatisticsCodec.encode(report, statisticsSetFactory, false);
+		assertThat(sparse.length < full.length, is(true));
+
+		Map<Integer, StatisticsSet> decoded = toMap(CompactStatisticsCodec.decode(sparse, statisticsSetFactory));
+		assertThat(decoded.size(), is(1));
+		assertThat(decoded.get(1).getCount(timedTests), is(3L));
+	}
+
+	@org.junit.Test(expected = IOException.class)
+	public void testUnknownVersion() throws IOException {
+		CompactStatisticsCodec.decode(new byte[]{(byte) (CompactStatisticsCodec.VERSION + 1)}, statisticsSetFactory);
+	}
+
+	@org.junit.Test
+	public void testVarints() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		long[] values = {0, 1, -1, 63, -64, 300, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE};
+		for (long each : values) {
+			CompactStatisticsCodec.writeZigZag(out, each);
+		}
+		assertThat(bytes.size() < values.length * 8, is(true));
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (long each : values) {
+			assertThat(CompactStatisticsCodec.readZigZag(in), is(each));
+		}
+	}
+
+	private TestStatisticsMap newReport() {
+		TestStatisticsMap report = new TestStatisticsMap(statisticsSetFactory);
+		StatisticsSet statistics = statisticsSetFactory.create();
+		statistics.addSample(timedTests, 1010);
+		statistics.addSample(timedTests, 20);
+		statistics.addSample(timedTests, 3000);
+		statistics.addValue(errors, 2);
+		report.put(new StubTest(1), statistics);
+		report.put(new StubTest(2), statisticsSetFactory.create());
+		return report;
+	}
+
+	private Map<Integer, StatisticsSet> toMap(TestStatisticsMap report) {
+		final Map<Integer, StatisticsSet> result = new HashMap<Integer, StatisticsSet>();
+		(report.new ForEach() {
+			public void next(Test test, StatisticsSet statistics) {
+				result.put(test.getNumber(), statistics);
+			}
+		}).iterate();
+		return result;
+	}
+
+	private static final class StubTest extends AbstractTestSemantics {
+		private final int number;
+
+		private StubTest(int number) {
+			this.number = number;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public String getDescription() {
+			return "test " + number;
+		}
+	}
+}
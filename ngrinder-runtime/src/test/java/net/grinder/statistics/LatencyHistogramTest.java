@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.grinder.statistics;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBucketPrecision() {
+		for (long value : new long[]{0, 1, 127, 128, 129, 255, 256, 1000, 12345, 999999, LatencyHistogram.MAX_VALUE}) {
+			long highest = LatencyHistogram.getHighestEquivalentValue(LatencyHistogram.getBucketIndex(value));
+			assertThat(highest, greaterThanOrEqualTo(value));
+			assertThat((double) (highest - value), lessThanOrEqualTo(value / 64D));
+		}
+		assertThat(LatencyHistogram.getBucketIndex(Long.MAX_VALUE), is(LatencyHistogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void testPercentile() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertThat(histogram.getValueAtPercentile(99), is(0L));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertThat(histogram.getTotalCount(), is(1000L));
+		assertThat((double) histogram.getValueAtPercentile(50), closeTo(500, 500 / 64D));
+		assertThat((double) histogram.getValueAtPercentile(99), closeTo(990, 990 / 64D));
+		assertThat((double) histogram.getValueAtPercentile(99.9), closeTo(999, 999 / 64D));
+	}
+
+	@Test
+	public void testMergeAndSerialize() throws Exception {
+		LatencyHistogram first = new LatencyHistogram();
+		LatencyHistogram second = new LatencyHistogram();
+		for (int i = 0; i < 99; i++) {
+			first.record(10);
+		}
+		second.record(5000);
+		first.add(second);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bos);
+		out.writeObject(first);
+		out.close();
+		LatencyHistogram read = (LatencyHistogram) new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))
+				.readObject();
+
+		assertThat(read.getTotalCount(), is(100L));
+		assertThat(read.getValueAtPercentile(99), is(10L));
+		assertThat(read.getValueAtPercentile(100), is(first.getValueAtPercentile(100)));
+	}
+
+	@Test
+	public void testRecorder() {
+		LatencyRecorder recorder = new LatencyRecorder();
+		recorder.record(1, 10);
+		recorder.record(1, 20);
+		recorder.record(2, 30);
+		Map<Integer, LatencyHistogram> drained = recorder.drain();
+		assertThat(drained.size(), is(2));
+		assertThat(drained.get(1).getTotalCount(), is(2L));
+		assertThat(drained.get(2).getValueAtPercentile(50), is(30L));
+		assertThat(recorder.drain().isEmpty(), is(true));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.dns;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DnsCacheTest {
+
+	private InetAddress[] addresses() throws UnknownHostException {
+		return new InetAddress[]{InetAddress.getByAddress(new byte[]{10, 0, 0, 1}),
+				InetAddress.getByAddress(new byte[]{10, 0, 0, 2})};
+	}
+
+	@Test
+	public void testHitAndMiss() throws UnknownHostException {
+		DnsCache dnsCache = new DnsCache(0, 300, 10, false);
+		assertThat(dnsCache.get("www.sample.com"), nullValue());
+		dnsCache.put("www.sample.com", addresses(), 60);
+		assertThat(dnsCache.get("www.sample.com"), is(addresses()));
+		assertThat(dnsCache.get("www.sample.com"), is(addresses()));
+		assertThat(dnsCache.getHits(), is(2L));
+		assertThat(dnsCache.getMisses(), is(1L));
+	}
+
+	@Test
+	public void testTtl() throws UnknownHostException, InterruptedException {
+		// The record TTL is raised to the min TTL.
+		DnsCache dnsCache = new DnsCache(60, 300, 10, false);
+		dnsCache.put("www.sample.com", addresses(), 0);
+		assertThat(dnsCache.get("www.sample.com"), notNullValue());
+
+		// The record TTL is lowered to the max TTL.
+		dnsCache = new DnsCache(0, 1, 10, false);
+		dnsCache.put("www.sample.com", addresses(), 60);
+		assertThat(dnsCache.get("www.sample.com"), notNullValue());
+		Thread.sleep(1100);
+		assertThat(dnsCache.get("www.sample.com"), nullValue());
+
+		// 0 max TTL disables the cache.
+		dnsCache = new DnsCache(0, 0, 10, false);
+		assertThat(dnsCache.put("www.sample.com", addresses(), 60), is(addresses()));
+		assertThat(dnsCache.get("www.sample.com"), nullValue());
+	}
+
+	@Test
+	public void testNegativeCache() throws UnknownHostException {
+		DnsCache dnsCache = new DnsCache(0, 300, 10, false);
+		dnsCache.putUnknown("www.wowwowwowow11.com");
+		try {
+			dnsCache.get("www.wowwowwowow11.com");
+			fail("unknown name should be cached");
+		} catch (UnknownHostException e) {
+			assertThat(dnsCache.getHits(), is(1L));
+		}
+
+		dnsCache = new DnsCache(0, 300, 0, false);
+		dnsCache.putUnknown("www.wowwowwowow11.com");
+		assertThat(dnsCache.get("www.wowwowwowow11.com"), nullValue());
+	}
+
+	@Test
+	public void testRoundRobin() throws UnknownHostException {
+		DnsCache dnsCache = new DnsCache(0, 300, 10, true);
+		InetAddress[] first = dnsCache.put("www.sample.com", addresses(), 60);
+		InetAddress[] second = dnsCache.get("www.sample.com");
+		InetAddress[] third = dnsCache.get("www.sample.com");
+		assertThat(first[0], not(second[0]));
+		assertThat(first[0], is(third[0]));
+		assertThat(second.length, is(2));
+	}
+}
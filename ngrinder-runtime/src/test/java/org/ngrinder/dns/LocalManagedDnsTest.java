@@ -88,6 +88,12 @@ public class LocalManagedDnsTest {
 			protected Cache createCache() {
 				return cache;
 			}
+
+			@Override
+			protected DnsCache createDnsCache() {
+				// Disable the TTL cache so that every lookup goes to the dnsjava cache.
+				return new DnsCache(0, 0, 0, false);
+			}
 		};
 		assertThat(impl.lookupAllHostAddr("www.google.com"), notNullValue());
 		assertThat(impl.lookupAllHostAddr("www.google.com"), notNullValue());
@@ -0,0 +1,70 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.sm;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DecisionCacheTest {
+
+	@Test
+	public void testAllowAndBound() {
+		DecisionCache<String> cache = new DecisionCache<String>(2);
+		assertThat(cache.isAllowed("a"), is(false));
+		assertThat(cache.isAllowed(null), is(false));
+		cache.allow("a");
+		cache.allow("a");
+		cache.allow("b");
+		assertThat(cache.size(), is(2));
+		assertThat(cache.isAllowed("a"), is(true));
+		// Full cache is cleared on the next allow.
+		cache.allow("c");
+		assertThat(cache.size(), is(1));
+		assertThat(cache.isAllowed("a"), is(false));
+		assertThat(cache.isAllowed("c"), is(true));
+	}
+
+	@Test
+	public void testCacheableParent() {
+		assertThat(NGrinderSecurityManager.getCacheableParent("/tmp/a.txt"), is("/tmp/"));
+		assertThat(NGrinderSecurityManager.getCacheableParent("C:\\tmp\\a.txt"), is("C:\\tmp\\"));
+		assertThat(NGrinderSecurityManager.getCacheableParent("log/a.txt"), is("log/"));
+		assertThat(NGrinderSecurityManager.getCacheableParent("a.txt"), nullValue());
+		assertThat(NGrinderSecurityManager.getCacheableParent("/tmp/"), nullValue());
+		assertThat(NGrinderSecurityManager.getCacheableParent("/tmp/."), nullValue());
+		assertThat(NGrinderSecurityManager.getCacheableParent("/tmp/.."), nullValue());
+		assertThat(NGrinderSecurityManager.getCacheableParent("/tmp/..a"), is("/tmp/"));
+		assertThat(NGrinderSecurityManager.getCacheableParent(null), nullValue());
+	}
+
+	@Test
+	public void testCachedParentKeepsDenial() {
+		SecurityManager securityManager = new MockNGrinderSecurityManager();
+		String workDirectory = new File(System.getProperty("user.dir")).getAbsolutePath();
+		securityManager.checkWrite(workDirectory + File.separator + "a.txt");
+		securityManager.checkWrite(workDirectory + File.separator + "b.txt");
+		try {
+			securityManager.checkWrite(workDirectory + File.separator + ".." + File.separator + ".." + File.separator
+					+ "c.txt");
+			fail("Write out of the work directory should not be allowed");
+		} catch (SecurityException e) {
+			assertThat(e.getMessage(), containsString("c.txt"));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ngrinder.sm;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.FilePermission;
+import java.security.Permission;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks per second of {@link NGrinderSecurityManager} on the connect, the file write and the permission check,
+ * compared with the checks without the security manager.
+ * <p/>
+ * The security manager is called directly in the same way as JDK does, instead of being installed, so that the
+ * benchmark harness itself is not restricted. Without the security manager, only the null check remains.
+ * <p/>
+ * Run {@link #main(String[])} to measure with and without the security manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SecurityManagerBenchmark {
+	private static final int FILE_COUNT = 1024;
+
+	@Param({"true", "false"})
+	private boolean secured;
+
+	private SecurityManager securityManager;
+	private final Permission permission = new FilePermission("data.txt", "read");
+	private String[] files;
+	private int fileIndex;
+
+	@Setup
+	public void setUp() {
+		System.setProperty("ngrinder.etc.hosts", "target.ngrinder.org:10.0.0.1,10.0.0.2");
+		System.setProperty("ngrinder.console.ip", "127.0.0.1");
+		if (System.getProperty("java.ext.dirs") == null) {
+			// Removed since JDK 9.
+			System.setProperty("java.ext.dirs", "");
+		}
+		securityManager = secured ? new NGrinderSecurityManager() : null;
+		files = new String[FILE_COUNT];
+		String workDirectory = System.getProperty("user.dir");
+		for (int i = 0; i < FILE_COUNT; i++) {
+			files[i] = workDirectory + File.separator + "lib" + File.separator + "data_" + i + ".txt";
+		}
+	}
+
+	@Benchmark
+	public void checkConnect() {
+		SecurityManager sm = securityManager;
+		if (sm != null) {
+			sm.checkConnect("10.0.0.2", 80);
+		}
+	}
+
+	@Benchmark
+	public void checkWrite() {
+		// Races on the index are harmless. It only spreads the files to be checked.
+		String file = files[fileIndex++ & (FILE_COUNT - 1)];
+		SecurityManager sm = securityManager;
+		if (sm != null) {
+			sm.checkWrite(file);
+		}
+	}
+
+	@Benchmark
+	public void checkPermission() {
+		SecurityManager sm = securityManager;
+		if (sm != null) {
+			sm.checkPermission(permission);
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(SecurityManagerBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
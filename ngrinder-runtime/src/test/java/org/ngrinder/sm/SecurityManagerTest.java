@@ -92,4 +92,31 @@ public class SecurityManagerTest {
 		}
 	}
 
+	@Test
+	public void testGroovyScriptCacheAccessIsNotAllowed() throws IOException {
+		// The cache is under the temp directory which is writable, but only the cache class can access it.
+		File cache = new File(System.getProperty("java.io.tmpdir"), "groovy_script_cache_" + System.nanoTime());
+		cache.mkdirs();
+		System.setProperty("ngrinder.groovy.cachedir", cache.getAbsolutePath());
+		try {
+			System.setSecurityManager(new MockNGrinderSecurityManager());
+			try {
+				new FileOutputStream(new File(cache, "entry.classes")).close();
+				fail("Write should not be allowed");
+			} catch (SecurityException e) {
+			}
+			try {
+				new FileInputStream(new File(cache, "../" + cache.getName() + "/cache.key")).close();
+				fail("Read should not be allowed");
+			} catch (SecurityException e) {
+			}
+			new FileOutputStream(new File(cache.getParentFile(), cache.getName() + ".txt")).close();
+		} finally {
+			System.setSecurityManager(preSecurityManager);
+			System.clearProperty("ngrinder.groovy.cachedir");
+			new File(cache.getParentFile(), cache.getName() + ".txt").delete();
+			cache.delete();
+		}
+	}
+
 }